@@ -12,7 +12,7 @@ import java.util.stream.Collectors;
 
 public class SerialAnalyzer {
 	
-	private static int maxPassword = 1000000;
+	private static int maxPassword = Integer.getInteger("octopus.max-password", 1000000);
 	private static int prefixLength = 5;
 	
 	public void analyze(String[] lines) {
@@ -81,7 +81,7 @@ public class SerialAnalyzer {
 		for (long a = 0; a < Long.MAX_VALUE; a++) {
 		    String binary = Long.toBinaryString(a);
 		    
-		    int[] prefixes = new int[62];
+		    int[] prefixes = new int[Math.max(62, numbers.length)];
 		    for (int i = 0; i < prefixes.length; i++)
 		    	prefixes[i] = 1;
 		    
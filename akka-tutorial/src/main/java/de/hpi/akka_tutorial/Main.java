@@ -1,5 +1,6 @@
 package de.hpi.akka_tutorial;
 
+import java.io.File;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 
@@ -8,6 +9,7 @@ import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import com.beust.jcommander.Parameters;
 import de.hpi.akka_tutorial.remote.Calculator;
+import de.hpi.akka_tutorial.remote.actors.scheduling.AdaptiveSchedulingStrategy;
 import de.hpi.akka_tutorial.remote.actors.scheduling.ReactiveSchedulingStrategy;
 import de.hpi.akka_tutorial.remote.actors.scheduling.RoundRobinSchedulingStrategy;
 import de.hpi.akka_tutorial.remote.actors.scheduling.SchedulingStrategy;
@@ -62,18 +64,24 @@ public class Main {
      * @param masterCommand defines the parameters of the master
      */
     private static void startMaster(MasterCommand masterCommand) throws ParameterException {
+        if (masterCommand.prefetchDepth < 1)
+            throw new ParameterException(String.format("The prefetch depth must be positive: %d", masterCommand.prefetchDepth));
         SchedulingStrategy.Factory schedulingStrategyFactory;
         switch (masterCommand.schedulingStrategy) {
             case "round-robin":
                 schedulingStrategyFactory = new RoundRobinSchedulingStrategy.Factory();
                 break;
             case "reactive":
-                schedulingStrategyFactory = new ReactiveSchedulingStrategy.Factory();
+                schedulingStrategyFactory = new ReactiveSchedulingStrategy.Factory(masterCommand.prefetchDepth);
+                break;
+            case "adaptive":
+                schedulingStrategyFactory = new AdaptiveSchedulingStrategy.Factory(masterCommand.prefetchDepth);
                 break;
             default:
                 throw new ParameterException(String.format("Unknown scheduling strategy: %s", masterCommand.schedulingStrategy));
         }
-        Calculator.runMaster(masterCommand.host, masterCommand.port, schedulingStrategyFactory, masterCommand.numLocalWorkers);
+        File archiveFile = masterCommand.archive == null ? null : new File(masterCommand.archive);
+        Calculator.runMaster(masterCommand.host, masterCommand.port, schedulingStrategyFactory, masterCommand.numLocalWorkers, archiveFile);
     }
 
     /**
@@ -107,8 +115,20 @@ public class Main {
         /**
          * Defines the scheduling strategy to be used in the master.
          */
-        @Parameter(names = {"-s", "--scheduler"}, description = "a scheduling strategy (round-robin or reactive)")
+        @Parameter(names = {"-s", "--scheduler"}, description = "a scheduling strategy (round-robin, reactive, or adaptive)")
         String schedulingStrategy = "reactive";
+
+        /**
+         * Defines how many subqueries each worker holds at once with the reactive and adaptive scheduling strategies.
+         */
+        @Parameter(names = {"-k", "--prefetch"}, description = "number of subqueries that each worker holds at once (reactive and adaptive schedulers only)")
+        int prefetchDepth = ReactiveSchedulingStrategy.DEFAULT_PREFETCH_DEPTH;
+
+        /**
+         * Defines the file in which the listener archives the primes across restarts.
+         */
+        @Parameter(names = {"-a", "--archive"}, description = "file to archive the primes in across restarts (by default, they are kept in memory only)")
+        String archive = null;
     }
 
     /**
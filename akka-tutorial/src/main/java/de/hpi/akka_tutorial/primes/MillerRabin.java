@@ -0,0 +1,158 @@
+package de.hpi.akka_tutorial.primes;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Tests single numbers for primality with the Miller-Rabin test, which is deterministic for all longs with the witnesses
+ * of Jim Sinclair. The modular multiplications are done in Montgomery form on the full 128 bit products, so they never
+ * overflow, and every test takes only O(log n) multiplications per witness, which makes it the test of choice for
+ * sparse ranges and for numbers far beyond the reach of the {@link SegmentedSieve}.
+ */
+public class MillerRabin {
+
+	// Small primes to reject most composites by division before the expensive test
+	private static final long[] SMALL_PRIMES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37};
+
+	// Witnesses that make the test deterministic for numbers below 2^32 and below 2^64, respectively
+	private static final long[] WITNESSES_32 = {2, 7, 61};
+	private static final long[] WITNESSES_64 = {2, 325, 9375, 28178, 450775, 9780504, 1795265022};
+
+	/**
+	 * Report all primes in a given range in ascending order.
+	 *
+	 * @param rangeMin first number in the range to be checked as prime (inclusive)
+	 * @param rangeMax last number in the range to be checked as prime (inclusive)
+	 * @param consumer receives every prime in the range
+	 */
+	public static void scan(long rangeMin, long rangeMax, LongConsumer consumer) {
+		if (rangeMin <= 2 && 2 <= rangeMax)
+			consumer.accept(2);
+
+		// Test the odd numbers only and stop before the counter overflows
+		for (long i = Math.max(3, rangeMin | 1); i <= rangeMax && i > 0; i += 2)
+			if (isPrime(i))
+				consumer.accept(i);
+	}
+
+	/**
+	 * Test a single number for primality.
+	 *
+	 * @param n the number to test
+	 * @return whether the number is prime
+	 */
+	public static boolean isPrime(long n) {
+		if (n < 2)
+			return false;
+		for (long prime : SMALL_PRIMES) {
+			if (n % prime == 0)
+				return n == prime;
+		}
+		if (n < 41 * 41)
+			return true;
+
+		// Write n - 1 as d * 2^s with an odd d
+		long d = n - 1;
+		int s = Long.numberOfTrailingZeros(d);
+		d >>>= s;
+
+		Montgomery montgomery = new Montgomery(n);
+		for (long witness : n < (1L << 32) ? WITNESSES_32 : WITNESSES_64) {
+			long a = witness % n;
+			if (a == 0)
+				continue;
+			if (!montgomery.passes(a, d, s))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Arithmetic modulo an odd n in Montgomery form, i.e., x is represented by x * 2^64 mod n.
+	 */
+	private static final class Montgomery {
+
+		private final long n;
+
+		// -n^(-1) mod 2^64
+		private final long nPrime;
+
+		// 2^64 mod n and 2^128 mod n, i.e., 1 in Montgomery form and the factor that converts into Montgomery form
+		private final long one, r2;
+
+		Montgomery(long n) {
+			this.n = n;
+
+			// Newton's iteration doubles the number of correct low bits of the inverse in every step
+			long inverse = n;
+			for (int i = 0; i < 5; i++)
+				inverse *= 2 - n * inverse;
+			this.nPrime = -inverse;
+
+			this.one = Long.remainderUnsigned(-n, n);
+			long r2 = this.one;
+			for (int i = 0; i < 64; i++)
+				r2 = this.add(r2, r2);
+			this.r2 = r2;
+		}
+
+		/**
+		 * The strong probable prime test of n to the given base, where n - 1 = d * 2^s.
+		 */
+		boolean passes(long base, long d, int s) {
+			long minusOne = this.n - this.one;
+			long x = this.pow(this.multiply(base, this.r2), d);
+			if (x == this.one || x == minusOne)
+				return true;
+			for (int i = 1; i < s; i++) {
+				x = this.multiply(x, x);
+				if (x == minusOne)
+					return true;
+				if (x == this.one)
+					return false;
+			}
+			return false;
+		}
+
+		private long pow(long base, long exponent) {
+			long result = this.one;
+			while (exponent != 0) {
+				if ((exponent & 1) != 0)
+					result = this.multiply(result, base);
+				base = this.multiply(base, base);
+				exponent >>>= 1;
+			}
+			return result;
+		}
+
+		private long add(long a, long b) {
+			long sum = a + b;
+			return Long.compareUnsigned(sum, this.n) >= 0 ? sum - this.n : sum;
+		}
+
+		/**
+		 * @return a * b * 2^(-64) mod n
+		 */
+		private long multiply(long a, long b) {
+			long low = a * b;
+			long high = multiplyHighUnsigned(a, b);
+
+			// Add m * n with m chosen such that the low half becomes zero; it carries unless the low half was zero
+			long m = low * this.nPrime;
+			long result = high + multiplyHighUnsigned(m, this.n) + (low != 0 ? 1 : 0);
+			return Long.compareUnsigned(result, this.n) >= 0 ? result - this.n : result;
+		}
+	}
+
+	/**
+	 * @return the high 64 bits of the unsigned 128 bit product of a and b
+	 */
+	static long multiplyHighUnsigned(long a, long b) {
+		long aLow = a & 0xffffffffL, aHigh = a >>> 32;
+		long bLow = b & 0xffffffffL, bHigh = b >>> 32;
+		long lowLow = aLow * bLow;
+		long highLow = aHigh * bLow;
+		long lowHigh = aLow * bHigh;
+		long cross = (lowLow >>> 32) + (highLow & 0xffffffffL) + (lowHigh & 0xffffffffL);
+		return aHigh * bHigh + (highLow >>> 32) + (lowHigh >>> 32) + (cross >>> 32);
+	}
+}
@@ -0,0 +1,425 @@
+package de.hpi.akka_tutorial.primes;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An append-only archive of primes on disk. The archive is a sequence of blocks, each of which holds ascending primes as
+ * varint gaps between a header with its first and last prime and an index. Every 1024th prime of a block is also kept with its
+ * position in a small sparse index, which the archive reads into memory when it is opened, whereas the gaps are
+ * memory-mapped and decoded only when a query needs them. Blocks may overlap, but a prime is stored only once as long as
+ * the owner checks {@link #contains(long)} before it appends.
+ * <p>
+ * Instances are not thread-safe; the listener actor owns its archive.
+ */
+public class PrimeArchive implements Closeable {
+
+	private static final int MAGIC = 0x50524d41, BLOCK_MAGIC = 0x424c4b31, VERSION = 1;
+
+	private static final int FILE_HEADER_BYTES = 8;
+
+	// Magic, count, first, last, number of index entries, payload bytes; the payload and then the index follow
+	private static final int BLOCK_HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4;
+
+	private static final int INDEX_ENTRY_BYTES = 8 + 4;
+
+	private static final int SKIP_INTERVAL = 1024;
+
+	private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+	// Larger appends are split into several blocks, so that a payload can be mapped as a whole
+	private static final int MAX_BLOCK_PRIMES = 1 << 24;
+
+	/**
+	 * A block of the archive: its range, its position, and its sparse index.
+	 */
+	private static final class Block {
+
+		private final long first, last, payloadPosition;
+
+		private final int count, payloadBytes;
+
+		// The prime at every SKIP_INTERVAL-th position and the position of the gap after it in the payload
+		private final long[] indexPrimes;
+		private final int[] indexOffsets;
+
+		private MappedByteBuffer payload = null;
+
+		private Block(long first, long last, int count, long payloadPosition, int payloadBytes, long[] indexPrimes, int[] indexOffsets) {
+			this.first = first;
+			this.last = last;
+			this.count = count;
+			this.payloadPosition = payloadPosition;
+			this.payloadBytes = payloadBytes;
+			this.indexPrimes = indexPrimes;
+			this.indexOffsets = indexOffsets;
+		}
+
+		private boolean overlaps(long rangeMin, long rangeMax) {
+			return this.first <= rangeMax && rangeMin <= this.last;
+		}
+	}
+
+	private final File file;
+
+	private final FileChannel channel;
+
+	private final List<Block> blocks = new ArrayList<>();
+
+	private long count = 0, min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+
+	private PrimeArchive(File file, FileChannel channel) {
+		this.file = file;
+		this.channel = channel;
+	}
+
+	/**
+	 * Open an archive or create it if the file does not exist. A block that was not written completely, e.g., because
+	 * the process crashed while appending, is cut off.
+	 *
+	 * @param file the archive file
+	 * @return the opened archive
+	 * @throws IOException if the file cannot be read or is not an archive
+	 */
+	public static PrimeArchive open(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		PrimeArchive archive = new PrimeArchive(file, channel);
+		try {
+			archive.load();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		return archive;
+	}
+
+	private void load() throws IOException {
+		long size = this.channel.size();
+		if (size < FILE_HEADER_BYTES) {
+			ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+			header.flip();
+			this.channel.truncate(0);
+			this.channel.write(header, 0);
+			return;
+		}
+
+		ByteBuffer header = this.read(0, FILE_HEADER_BYTES);
+		if (header.getInt() != MAGIC || header.getInt() != VERSION)
+			throw new IOException(this.file + " is not a prime archive.");
+
+		long position = FILE_HEADER_BYTES;
+		while (position + BLOCK_HEADER_BYTES <= size) {
+			ByteBuffer blockHeader = this.read(position, BLOCK_HEADER_BYTES);
+			if (blockHeader.getInt() != BLOCK_MAGIC)
+				break;
+			int count = blockHeader.getInt();
+			long first = blockHeader.getLong(), last = blockHeader.getLong();
+			int indexEntries = blockHeader.getInt(), payloadBytes = blockHeader.getInt();
+			long payloadPosition = position + BLOCK_HEADER_BYTES;
+			long end = payloadPosition + payloadBytes + (long) indexEntries * INDEX_ENTRY_BYTES;
+			if (end > size)
+				break;
+
+			ByteBuffer index = this.read(payloadPosition + payloadBytes, indexEntries * INDEX_ENTRY_BYTES);
+			long[] indexPrimes = new long[indexEntries];
+			int[] indexOffsets = new int[indexEntries];
+			for (int i = 0; i < indexEntries; i++) {
+				indexPrimes[i] = index.getLong();
+				indexOffsets[i] = index.getInt();
+			}
+			this.add(new Block(first, last, count, payloadPosition, payloadBytes, indexPrimes, indexOffsets));
+			position = end;
+		}
+
+		// Cut off an incomplete block at the end
+		if (position < size)
+			this.channel.truncate(position);
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining())
+			if (this.channel.read(buffer, position + buffer.position()) < 0)
+				throw new IOException("Unexpected end of " + this.file);
+		buffer.flip();
+		return buffer;
+	}
+
+	private void add(Block block) {
+		this.blocks.add(block);
+		this.count += block.count;
+		this.min = Math.min(this.min, block.first);
+		this.max = Math.max(this.max, block.last);
+	}
+
+	/**
+	 * Append ascending primes to the archive and write them through to the disk. The gaps are streamed to the file, so
+	 * that appending takes hardly any heap, and the header of a block is written last, so that a block that was not
+	 * written completely is recognized when the archive is opened.
+	 *
+	 * @param primes the primes in ascending order
+	 * @throws IOException if the primes cannot be written
+	 */
+	public void append(PrimitiveIterator.OfLong primes) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+		while (primes.hasNext()) {
+			long position = this.channel.size();
+			long payloadPosition = position + BLOCK_HEADER_BYTES;
+			long written = payloadPosition;
+			long[] indexPrimes = new long[16];
+			int[] indexOffsets = new int[16];
+			int indexEntries = 0;
+
+			long first = primes.nextLong(), previous = first;
+			indexPrimes[indexEntries++] = first;
+			int count = 1;
+			while (primes.hasNext() && count < MAX_BLOCK_PRIMES) {
+				long prime = primes.nextLong();
+				if (prime <= previous)
+					throw new IllegalArgumentException("Primes are not ascending: " + prime + " after " + previous);
+				if (buffer.remaining() < 10)
+					written = this.write(buffer, written);
+				writeVarLong(buffer, prime - previous);
+				previous = prime;
+
+				// Index every SKIP_INTERVAL-th prime with the position of the gap after it
+				if (count++ % SKIP_INTERVAL == 0) {
+					if (indexEntries == indexPrimes.length) {
+						indexPrimes = Arrays.copyOf(indexPrimes, 2 * indexEntries);
+						indexOffsets = Arrays.copyOf(indexOffsets, 2 * indexEntries);
+					}
+					indexPrimes[indexEntries] = prime;
+					indexOffsets[indexEntries++] = (int) (written + buffer.position() - payloadPosition);
+				}
+			}
+			written = this.write(buffer, written);
+			int payloadBytes = (int) (written - payloadPosition);
+
+			// The index follows the payload
+			for (int i = 0; i < indexEntries; i++) {
+				if (buffer.remaining() < INDEX_ENTRY_BYTES)
+					written = this.write(buffer, written);
+				buffer.putLong(indexPrimes[i]).putInt(indexOffsets[i]);
+			}
+			this.write(buffer, written);
+
+			buffer.putInt(BLOCK_MAGIC).putInt(count).putLong(first).putLong(previous).putInt(indexEntries).putInt(payloadBytes);
+			this.channel.force(false);
+			this.write(buffer, position);
+			this.add(new Block(first, previous, count, payloadPosition, payloadBytes, Arrays.copyOf(indexPrimes, indexEntries), Arrays.copyOf(indexOffsets, indexEntries)));
+		}
+		this.channel.force(false);
+	}
+
+	/**
+	 * Write the buffer to the given position and clear it.
+	 *
+	 * @return the position after the written bytes
+	 */
+	private long write(ByteBuffer buffer, long position) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			position += this.channel.write(buffer, position);
+		buffer.clear();
+		return position;
+	}
+
+	/**
+	 * @return whether the archive holds the given prime
+	 */
+	public boolean contains(long prime) throws IOException {
+		if (prime < this.min || prime > this.max)
+			return false;
+		for (Block block : this.blocks) {
+			if (!block.overlaps(prime, prime))
+				continue;
+			BlockCursor cursor = new BlockCursor(block, prime);
+			if (cursor.hasNext() && cursor.next == prime)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of archived primes that are not larger than x
+	 */
+	public long rank(long x) throws IOException {
+		long rank = 0;
+		for (Block block : this.blocks) {
+			if (x >= block.last)
+				rank += block.count;
+			else if (x >= block.first)
+				rank += new BlockCursor(block, x + 1).position;
+		}
+		return rank;
+	}
+
+	/**
+	 * @return the smallest archived prime that is larger than x or -1 if there is none
+	 */
+	public long next(long x) throws IOException {
+		long next = -1;
+		for (Block block : this.blocks) {
+			if (x >= block.last)
+				continue;
+			long prime = x < block.first ? block.first : new BlockCursor(block, x + 1).next;
+			if (next < 0 || prime < next)
+				next = prime;
+		}
+		return next;
+	}
+
+	/**
+	 * @return the largest archived prime that is smaller than x or -1 if there is none
+	 */
+	public long previous(long x) throws IOException {
+		long previous = -1;
+		for (Block block : this.blocks) {
+			if (x <= block.first)
+				continue;
+			long prime = block.last;
+			if (x <= block.last) {
+				BlockCursor cursor = new BlockCursor(block, x - 1);
+				prime = cursor.next == x - 1 ? x - 1 : cursor.previous;
+			}
+			previous = Math.max(previous, prime);
+		}
+		return previous;
+	}
+
+	/**
+	 * @return the number of archived primes
+	 */
+	public long count() {
+		return this.count;
+	}
+
+	/**
+	 * @return the smallest archived prime or {@link Long#MAX_VALUE} if the archive is empty
+	 */
+	public long min() {
+		return this.min;
+	}
+
+	/**
+	 * @return the largest archived prime or {@link Long#MIN_VALUE} if the archive is empty
+	 */
+	public long max() {
+		return this.max;
+	}
+
+	/**
+	 * @return the size of the archive file
+	 */
+	public long sizeInBytes() throws IOException {
+		return this.channel.size();
+	}
+
+	/**
+	 * Iterate the archived primes in a given range in ascending order by merging the blocks that overlap the range.
+	 *
+	 * @param rangeMin first number of the range (inclusive)
+	 * @param rangeMax last number of the range (inclusive)
+	 */
+	public PrimitiveIterator.OfLong iterator(long rangeMin, long rangeMax) throws IOException {
+		List<PrimitiveIterator.OfLong> cursors = new ArrayList<>();
+		for (Block block : this.blocks)
+			if (block.overlaps(rangeMin, rangeMax))
+				cursors.add(PrimeIterators.limit(new BlockCursor(block, rangeMin), rangeMax));
+		return PrimeIterators.merge(cursors);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	private MappedByteBuffer payload(Block block) throws IOException {
+		if (block.payload == null)
+			block.payload = this.channel.map(FileChannel.MapMode.READ_ONLY, block.payloadPosition, block.payloadBytes);
+		return block.payload;
+	}
+
+	/**
+	 * Decodes the primes of a block from the first one that is not smaller than a given number on.
+	 */
+	private final class BlockCursor implements PrimitiveIterator.OfLong {
+
+		private final ByteBuffer payload;
+
+		private final int count;
+
+		private int position;
+
+		// The next prime or -1 if there is none
+		private long next;
+
+		// The prime before the next one or -1 if it was not decoded
+		private long previous = -1;
+
+		BlockCursor(Block block, long from) throws IOException {
+			this.payload = PrimeArchive.this.payload(block).duplicate();
+			this.count = block.count;
+
+			// Jump to the last index entry before the number and decode the gaps from there
+			int entry = Arrays.binarySearch(block.indexPrimes, from);
+			if (entry < 0)
+				entry = Math.max(0, -entry - 2);
+			this.next = block.indexPrimes[entry];
+			this.position = entry * SKIP_INTERVAL;
+			this.payload.position(block.indexOffsets[entry]);
+			while (this.next >= 0 && this.next < from)
+				this.advance();
+		}
+
+		private void advance() {
+			this.previous = this.next;
+			if (++this.position < this.count)
+				this.next += readVarLong(this.payload);
+			else
+				this.next = -1;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next >= 0;
+		}
+
+		@Override
+		public long nextLong() {
+			if (this.next < 0)
+				throw new NoSuchElementException();
+			long prime = this.next;
+			this.advance();
+			return prime;
+		}
+	}
+
+	private static void writeVarLong(ByteBuffer buffer, long value) {
+		while ((value & ~0x7fL) != 0) {
+			buffer.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private static long readVarLong(ByteBuffer buffer) {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7f) << shift;
+			if (b >= 0)
+				return value;
+		}
+	}
+}
@@ -0,0 +1,486 @@
+package de.hpi.akka_tutorial.primes;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Counts primes without enumerating them with the method of Lagarias, Miller, and Odlyzko. For y somewhat above the
+ * cube root of x and a = pi(y), it computes
+ * <pre>
+ *     pi(x) = phi(x, a) + a - 1 - P2(x, a),
+ * </pre>
+ * where phi(x, a) counts the numbers up to x without prime factors up to y and P2 counts those with two such factors.
+ * Both take the values of pi or of phi at numbers up to x / y only, which are found by sieving [1, x / y]. Hence, pi(10^15)
+ * takes a sieve of some 10^9 to 10^10 numbers instead of enumerating the 3 * 10^13 primes up to 10^15.
+ * <p>
+ * The sieve can be split into chunks that are counted independently, e.g., by several workers, because a chunk reports
+ * its counts relative to its start only. A {@link Sum} folds the {@link Chunk}s in the order of their ranges and adds
+ * the counts of the preceding chunks. Ranges of numbers that are narrow compared to x / y can also be counted directly
+ * with a {@link PrimeScanner}; a sum of such chunks is created with {@link Sum#ofRange(long, long)}.
+ * <p>
+ * Instances cache the small primes and the Moebius function of the last x and are not thread-safe; each worker uses its
+ * own.
+ */
+public class PrimeCounter {
+
+	/**
+	 * The smallest number whose primes are counted with the combinatorial method; smaller ones are sieved directly.
+	 */
+	public static final long MIN_COMBINATORIAL = 1L << 24;
+
+	// The sieve holds one bit per number and counts them in blocks of 8 words
+	private static final int SEGMENT_BITS = 1 << 18;
+	private static final int BLOCK_WORDS = 8;
+
+	private final PrimeScanner scanner = new PrimeScanner();
+
+	private final long[] segment = new long[SEGMENT_BITS / 64];
+
+	private final int[] blockCounts = new int[SEGMENT_BITS / 64 / BLOCK_WORDS];
+
+	private Context context = null;
+
+	/**
+	 * The counts of one chunk of the sieve, relative to the start of the chunk.
+	 */
+	public static final class Chunk implements Serializable {
+
+		private static final long serialVersionUID = 3094470938218658421L;
+
+		private long rangeMin, rangeMax;
+
+		// The number of primes above the square root of x in the chunk or, for a direct count, in the whole chunk
+		private long primes;
+
+		// The number of P2 points x / q for primes q in (y, sqrt(x)] in the chunk and the sum of their ranks in the chunk
+		private long points, ranks;
+
+		// The special leaves with the values of phi relative to the chunk
+		private long leaves;
+
+		// For every prime index b, the numbers in the chunk without the first b - 1 primes as factors and the sum of the
+		// Moebius values of the special leaves of b
+		private long[] phis, moebiusSums;
+
+		private Chunk(long rangeMin, long rangeMax) {
+			this.rangeMin = rangeMin;
+			this.rangeMax = rangeMax;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private Chunk() {
+		}
+
+		public long getRangeMin() {
+			return this.rangeMin;
+		}
+
+		public long getRangeMax() {
+			return this.rangeMax;
+		}
+	}
+
+	/**
+	 * Folds the chunks of a count in the order of their ranges, no matter in which order they arrive.
+	 */
+	public static final class Sum {
+
+		private final long x;
+
+		private final long rangeMax;
+
+		// The start of the next chunk to fold and the chunks that arrived before their predecessors
+		private long next;
+		private final Map<Long, Chunk> pending = new TreeMap<>();
+
+		private long primes = 0, ranks = 0, points = 0, leaves = 0;
+
+		// The values of phi at the start of the next chunk for every prime index
+		private long[] phis = new long[0];
+
+		private Sum(long x, long rangeMin, long rangeMax) {
+			this.x = x;
+			this.next = rangeMin;
+			this.rangeMax = rangeMax;
+		}
+
+		/**
+		 * Create a sum for pi(x), whose chunks must cover [1, {@link #sieveLimit(long)}].
+		 */
+		public static Sum ofPi(long x) {
+			if (x < MIN_COMBINATORIAL)
+				throw new IllegalArgumentException("Count the primes up to " + x + " directly.");
+			return new Sum(x, 1, sieveLimit(x));
+		}
+
+		/**
+		 * Create a sum for the primes in a range, whose chunks are counted directly and must cover the range.
+		 */
+		public static Sum ofRange(long rangeMin, long rangeMax) {
+			return new Sum(0, rangeMin, rangeMax);
+		}
+
+		/**
+		 * Add a chunk. Chunks must not overlap.
+		 */
+		public void add(Chunk chunk) {
+			this.pending.put(chunk.rangeMin, chunk);
+			for (Chunk next; (next = this.pending.remove(this.next)) != null; this.next = next.rangeMax + 1)
+				this.fold(next);
+		}
+
+		private void fold(Chunk chunk) {
+			this.ranks += chunk.ranks + chunk.points * this.primes;
+			this.points += chunk.points;
+			this.primes += chunk.primes;
+
+			this.leaves += chunk.leaves;
+			for (int b = 1; b < chunk.moebiusSums.length && b < this.phis.length; b++)
+				this.leaves -= chunk.moebiusSums[b] * this.phis[b];
+			if (this.phis.length < chunk.phis.length)
+				this.phis = Arrays.copyOf(this.phis, chunk.phis.length);
+			for (int b = 1; b < chunk.phis.length; b++)
+				this.phis[b] += chunk.phis[b];
+		}
+
+		/**
+		 * @return whether all chunks were added
+		 */
+		public boolean isComplete() {
+			return this.next > this.rangeMax;
+		}
+
+		/**
+		 * @return the number of primes; only valid once the sum is complete
+		 */
+		public long count() {
+			if (this.x == 0)
+				return this.primes;
+
+			Context context = new Context(this.x);
+			long a = context.primes.length - 1;
+
+			// The ordinary leaves mu(n) * phi(x / n, 0) for n <= y
+			long phi = this.leaves;
+			for (int n = 1; n <= context.y; n++)
+				if (context.leaves[n] != 0)
+					phi += Integer.signum(context.leaves[n]) * (this.x / n);
+
+			// All points lie above the square root, so there are as many as primes in (y, sqrt(x)]
+			long b = a + this.points;
+			long p2 = this.ranks + b * this.points - (b * (b - 1) - a * (a - 1)) / 2;
+			return phi + a - 1 - p2;
+		}
+	}
+
+	/**
+	 * @return the last number that is sieved to count the primes up to x
+	 */
+	public static long sieveLimit(long x) {
+		return x / Context.y(x);
+	}
+
+	/**
+	 * Count the primes up to x in a single thread.
+	 */
+	public static long pi(long x) {
+		if (x < MIN_COMBINATORIAL)
+			return new PrimeCounter().count(0, 1, x).primes;
+		PrimeCounter counter = new PrimeCounter();
+		Sum sum = Sum.ofPi(x);
+		long limit = sieveLimit(x);
+		for (long rangeMin = 1; rangeMin <= limit; rangeMin += 1L << 26)
+			sum.add(counter.count(x, rangeMin, Math.min(limit, rangeMin + (1L << 26) - 1)));
+		return sum.count();
+	}
+
+	/**
+	 * Count a chunk of the sieve for pi(x) or, if x is 0, the primes in a range directly.
+	 *
+	 * @param x the number to count the primes up to or 0
+	 * @param rangeMin first number of the chunk (inclusive)
+	 * @param rangeMax last number of the chunk (inclusive)
+	 * @return the counts of the chunk
+	 */
+	public Chunk count(long x, long rangeMin, long rangeMax) {
+		Chunk chunk = new Chunk(rangeMin, rangeMax);
+		if (x == 0) {
+			PointRanker ranker = new PointRanker(new long[0]);
+			this.scanner.scan(rangeMin, rangeMax, ranker);
+			chunk.phis = chunk.moebiusSums = new long[0];
+			chunk.primes = ranker.primes;
+			return chunk;
+		}
+
+		if (this.context == null || this.context.x != x)
+			this.context = new Context(x);
+		this.countPoints(chunk);
+		this.sieveLeaves(chunk);
+		return chunk;
+	}
+
+	/**
+	 * Count the primes above the square root of x in the chunk and rank the points x / q among them.
+	 */
+	private void countPoints(Chunk chunk) {
+		long x = this.context.x;
+
+		// The points of the chunk belong to the primes q in (y, sqrt(x)] with x / (rangeMax + 1) < q <= x / rangeMin
+		LongStream.Builder primes = LongStream.builder();
+		long qMin = Math.max(this.context.y + 1, x / (chunk.rangeMax + 1) + 1), qMax = Math.min(this.context.sqrt, x / chunk.rangeMin);
+		if (qMin <= qMax)
+			this.scanner.scan(qMin, qMax, primes);
+		long[] points = primes.build().map(q -> x / q).sorted().toArray();
+		chunk.points = points.length;
+
+		// Sweep the primes and the ascending points together
+		long from = Math.max(chunk.rangeMin, this.context.sqrt + 1);
+		PointRanker ranker = new PointRanker(points);
+		if (from <= chunk.rangeMax)
+			this.scanner.scan(from, chunk.rangeMax, ranker);
+		ranker.rank(Long.MAX_VALUE);
+		chunk.primes = ranker.primes;
+		chunk.ranks = ranker.ranks;
+	}
+
+	/**
+	 * Sums up the number of primes up to each point while the primes pass by in ascending order.
+	 */
+	private static final class PointRanker implements LongConsumer {
+
+		private final long[] points;
+
+		private int next = 0;
+
+		private long primes = 0, ranks = 0;
+
+		PointRanker(long[] points) {
+			this.points = points;
+		}
+
+		@Override
+		public void accept(long prime) {
+			this.rank(prime);
+			this.primes++;
+		}
+
+		/**
+		 * Rank the points below the given number with the primes so far.
+		 */
+		void rank(long number) {
+			for (; this.next < this.points.length && this.points[this.next] < number; this.next++)
+				this.ranks += this.primes;
+		}
+	}
+
+	/**
+	 * Sieve the chunk segment by segment with the primes up to y and evaluate phi at the special leaves x / (p_b * m)
+	 * with m &lt;= y &lt; p_b * m and all prime factors of m above p_b.
+	 */
+	private void sieveLeaves(Chunk chunk) {
+		Context context = this.context;
+		long x = context.x;
+		int y = context.y;
+		int[] primes = context.primes;
+		int[] leaves = context.leaves;
+		int a = primes.length - 1;
+
+		// The largest prime index whose leaves can lie in the chunk
+		int active = 1;
+		while (active < a && (long) primes[active] * primes[active] < x / chunk.rangeMin && primes[active] < y)
+			active++;
+		long[] phis = new long[active + 1];
+		long[] moebiusSums = new long[active + 1];
+
+		// The next multiple of every prime to cross off
+		long[] multiples = new long[active + 1];
+		for (int b = 1; b <= active; b++) {
+			long prime = primes[b];
+			multiples[b] = Math.max(prime, (chunk.rangeMin + prime - 1) / prime * prime);
+		}
+
+		long[] segment = this.segment;
+		int[] blockCounts = this.blockCounts;
+		long leafSum = 0;
+		for (long low = chunk.rangeMin; low <= chunk.rangeMax; low += SEGMENT_BITS) {
+			long high = Math.min(chunk.rangeMax + 1, low + SEGMENT_BITS);
+			int bits = (int) (high - low);
+			int words = (bits + 63) >>> 6;
+			Arrays.fill(segment, 0, words, -1L);
+			if ((bits & 63) != 0)
+				segment[words - 1] = (1L << bits) - 1;
+			int blocks = (words + BLOCK_WORDS - 1) / BLOCK_WORDS;
+			for (int block = 0; block < blocks; block++)
+				blockCounts[block] = Math.min(bits - block * BLOCK_WORDS * 64, BLOCK_WORDS * 64);
+			long unsieved = bits;
+
+			for (int b = 1; b <= active; b++) {
+				long prime = primes[b];
+				long maxM = Math.min(x / prime / low, y);
+				if (prime >= maxM)
+					break;
+				long minM = Math.max(x / prime / high, y / prime);
+
+				// Walk the leaves in ascending order of x / (p_b * m) and count the unsieved numbers up to each; if p_b^2 > y,
+				// the m above p_b without smaller prime factors are primes
+				LeafCounter counter = new LeafCounter(low);
+				long moebiusSum = 0;
+				if (prime * prime > y) {
+					for (int i = context.pi[(int) maxM]; i > b && primes[i] > minM; i--) {
+						leafSum += phis[b] + counter.count(x / (prime * primes[i]));
+						moebiusSum--;
+					}
+				} else {
+					for (long m = maxM; m > minM; m--) {
+						int leaf = leaves[(int) m];
+						if (leaf == 0 || Math.abs(leaf) <= prime)
+							continue;
+						leafSum -= Integer.signum(leaf) * (phis[b] + counter.count(x / (prime * m)));
+						moebiusSum += Integer.signum(leaf);
+					}
+				}
+				moebiusSums[b] += moebiusSum;
+				phis[b] += unsieved;
+
+				// Cross off the multiples of the prime for the next prime index
+				long multiple = multiples[b];
+				for (; multiple < high; multiple += prime) {
+					int index = (int) (multiple - low);
+					long bit = 1L << index;
+					if ((segment[index >>> 6] & bit) != 0) {
+						segment[index >>> 6] &= ~bit;
+						blockCounts[index / (BLOCK_WORDS * 64)]--;
+						unsieved--;
+					}
+				}
+				multiples[b] = multiple;
+			}
+		}
+
+		chunk.leaves = leafSum;
+		chunk.phis = phis;
+		chunk.moebiusSums = moebiusSums;
+	}
+
+	/**
+	 * Counts the unsieved numbers of the segment from its start up to ascending numbers.
+	 */
+	private final class LeafCounter {
+
+		private final long low;
+
+		// The next block to add and the unsieved numbers in the blocks before it
+		private int block = 0;
+		private long count = 0;
+
+		LeafCounter(long low) {
+			this.low = low;
+		}
+
+		long count(long number) {
+			int index = (int) (number - this.low);
+			for (; this.block < index / (BLOCK_WORDS * 64); this.block++)
+				this.count += PrimeCounter.this.blockCounts[this.block];
+			long count = this.count;
+			long[] segment = PrimeCounter.this.segment;
+			int word = this.block * BLOCK_WORDS;
+			for (; word < index >>> 6; word++)
+				count += Long.bitCount(segment[word]);
+			return count + Long.bitCount(segment[word] & (-1L >>> (63 - (index & 63))));
+		}
+	}
+
+	/**
+	 * The primes up to y and, for every m up to y, its Moebius value times its smallest prime factor.
+	 */
+	private static final class Context {
+
+		private final long x, sqrt;
+
+		private final int y;
+
+		// The primes up to y from index 1 on
+		private final int[] primes;
+
+		// mu(m) * lpf(m) for every m up to y, where lpf(1) is Integer.MAX_VALUE
+		private final int[] leaves;
+
+		// The number of primes up to m for every m up to y
+		private final int[] pi;
+
+		Context(long x) {
+			this.x = x;
+			this.sqrt = root(x, 2);
+			this.y = y(x);
+
+			int[] lpf = new int[this.y + 1];
+			int[] primes = new int[16];
+			int count = 1;
+			for (int i = 2; i <= this.y; i++) {
+				if (lpf[i] != 0)
+					continue;
+				if (count == primes.length)
+					primes = Arrays.copyOf(primes, 2 * count);
+				primes[count++] = i;
+				for (int multiple = i; multiple <= this.y && multiple > 0; multiple += i)
+					if (lpf[multiple] == 0)
+						lpf[multiple] = i;
+			}
+			this.primes = Arrays.copyOf(primes, count);
+			this.pi = new int[this.y + 1];
+			for (int i = 1, m = 0; m <= this.y; m++) {
+				if (i < count && this.primes[i] == m)
+					i++;
+				this.pi[m] = i - 1;
+			}
+
+			// mu(m) = -mu(m / p) for the smallest prime factor p of m, unless p^2 divides m
+			this.leaves = new int[this.y + 1];
+			this.leaves[1] = Integer.MAX_VALUE;
+			for (int m = 2; m <= this.y; m++) {
+				int p = lpf[m], rest = m / p;
+				if (rest % p == 0 || this.leaves[rest] == 0)
+					continue;
+				this.leaves[m] = this.leaves[rest] > 0 ? -p : p;
+			}
+		}
+
+		/**
+		 * @return the bound of the small primes; the sieve shrinks and the special leaves grow with its multiplier
+		 */
+		static int y(long x) {
+			long cubeRoot = root(x, 3);
+			double alpha = Math.max(1, Math.log10((double) x) - 8);
+			return (int) Math.min(root(x, 2), Math.min(Integer.MAX_VALUE - 1, (long) (alpha * cubeRoot)));
+		}
+
+		/**
+		 * @return the largest number whose k-th power does not exceed n
+		 */
+		static long root(long n, int k) {
+			long root = (long) Math.pow((double) n, 1.0 / k);
+			while (root > 0 && power(root, k) > n)
+				root--;
+			while (power(root + 1, k) <= n)
+				root++;
+			return root;
+		}
+
+		private static long power(long base, int k) {
+			long power = 1;
+			for (int i = 0; i < k; i++) {
+				if (power > Long.MAX_VALUE / base)
+					return Long.MAX_VALUE;
+				power *= base;
+			}
+			return power;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package de.hpi.akka_tutorial.primes;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+
+/**
+ * Combinators for iterators over ascending primes.
+ */
+public class PrimeIterators {
+
+	/**
+	 * Merge ascending iterators into one ascending iterator that reports every prime only once.
+	 */
+	public static PrimitiveIterator.OfLong merge(List<PrimitiveIterator.OfLong> iterators) {
+		if (iterators.size() == 1)
+			return iterators.get(0);
+		return new MergingIterator(iterators);
+	}
+
+	/**
+	 * Stop an ascending iterator after the given number.
+	 */
+	public static PrimitiveIterator.OfLong limit(PrimitiveIterator.OfLong iterator, long rangeMax) {
+		return new PrimitiveIterator.OfLong() {
+
+			private long next = iterator.hasNext() ? iterator.nextLong() : Long.MIN_VALUE;
+
+			@Override
+			public boolean hasNext() {
+				return this.next != Long.MIN_VALUE && this.next <= rangeMax;
+			}
+
+			@Override
+			public long nextLong() {
+				if (!this.hasNext())
+					throw new NoSuchElementException();
+				long prime = this.next;
+				this.next = iterator.hasNext() ? iterator.nextLong() : Long.MIN_VALUE;
+				return prime;
+			}
+		};
+	}
+
+	/**
+	 * Count the remaining primes of an iterator.
+	 */
+	public static long count(PrimitiveIterator.OfLong iterator) {
+		long count = 0;
+		for (; iterator.hasNext(); iterator.nextLong())
+			count++;
+		return count;
+	}
+
+	private static final class MergingIterator implements PrimitiveIterator.OfLong {
+
+		private static final class Head implements Comparable<Head> {
+
+			private long prime;
+
+			private final PrimitiveIterator.OfLong iterator;
+
+			private Head(PrimitiveIterator.OfLong iterator) {
+				this.iterator = iterator;
+				this.prime = iterator.nextLong();
+			}
+
+			@Override
+			public int compareTo(Head other) {
+				return Long.compare(this.prime, other.prime);
+			}
+		}
+
+		private final PriorityQueue<Head> heads = new PriorityQueue<>();
+
+		private MergingIterator(List<PrimitiveIterator.OfLong> iterators) {
+			for (PrimitiveIterator.OfLong iterator : iterators)
+				if (iterator.hasNext())
+					this.heads.add(new Head(iterator));
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !this.heads.isEmpty();
+		}
+
+		@Override
+		public long nextLong() {
+			if (this.heads.isEmpty())
+				throw new NoSuchElementException();
+			long prime = this.heads.peek().prime;
+
+			// Advance every iterator that is at this prime
+			while (!this.heads.isEmpty() && this.heads.peek().prime == prime) {
+				Head head = this.heads.poll();
+				if (head.iterator.hasNext()) {
+					head.prime = head.iterator.nextLong();
+					this.heads.add(head);
+				}
+			}
+			return prime;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package de.hpi.akka_tutorial.primes;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Picks the cheaper way to find the primes in a range by its width and magnitude: the {@link SegmentedSieve} pays for
+ * every base prime up to the square root of the range maximum per segment, whereas {@link MillerRabin} pays for every
+ * number in the range. Hence, wide ranges are sieved, and narrow ranges as well as ranges beyond the reach of the sieve
+ * are tested number by number.
+ * <p>
+ * Instances hold a sieve and are not thread-safe; each worker uses its own.
+ */
+public class PrimeScanner {
+
+	// Miller-Rabin takes about as long for one number as the sieve for this many base primes
+	private static final int BASE_PRIMES_PER_TEST = 50;
+
+	private final SegmentedSieve sieve = new SegmentedSieve();
+
+	/**
+	 * Report all primes in a given range in ascending order.
+	 *
+	 * @param rangeMin first number in the range to be checked as prime (inclusive)
+	 * @param rangeMax last number in the range to be checked as prime (inclusive)
+	 * @param consumer receives every prime in the range
+	 */
+	public void scan(long rangeMin, long rangeMax, LongConsumer consumer) {
+		if (shouldSieve(rangeMin, rangeMax))
+			this.sieve.scan(rangeMin, rangeMax, consumer);
+		else
+			MillerRabin.scan(rangeMin, rangeMax, consumer);
+	}
+
+	/**
+	 * @return whether sieving the range is cheaper than testing its numbers one by one
+	 */
+	static boolean shouldSieve(long rangeMin, long rangeMax) {
+		if (rangeMax > SegmentedSieve.MAX_NUMBER)
+			return false;
+		if (rangeMax < 1 << 16)
+			return true;
+
+		// Estimate the number of base primes with the prime number theorem
+		double root = Math.sqrt((double) rangeMax);
+		double basePrimes = root / Math.log(root);
+		return ((double) rangeMax - rangeMin + 1) * BASE_PRIMES_PER_TEST >= basePrimes;
+	}
+}
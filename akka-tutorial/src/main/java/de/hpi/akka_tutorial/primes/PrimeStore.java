@@ -0,0 +1,806 @@
+package de.hpi.akka_tutorial.primes;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * A set of primes in compressed primitive containers, similar to a Roaring bitmap. The numbers are split into buckets of
+ * 2^17 numbers, and a bucket holds its odd numbers as 16 bit offsets, either in a sorted char array while it is sparse or
+ * in a bitmap of 8 KB once that is smaller. A prime thus takes about two bytes instead of the 50 and more bytes of a
+ * boxed long in a hash set. The buckets are sorted by their range, so the primes can be iterated in order without any
+ * global sort, and the count, the minimum, and the maximum are kept up to date as the primes arrive.
+ * <p>
+ * Rank and select queries, twin counts, and gaps are answered from an index over the buckets with cumulative counts of
+ * primes and of twins and with the widest gap per bucket. The index is rebuilt on the first query after the store was
+ * modified, which takes time linear in the number of buckets only, because the containers cache their own summaries.
+ * <p>
+ * Instances are not thread-safe; the listener actor owns its store.
+ */
+public class PrimeStore {
+
+	private static final int BUCKET_BITS = 17;
+
+	// An array container switches to a bitmap once it would be larger than the bitmap
+	private static final int MAX_ARRAY_SIZE = 4096;
+
+	// The heap of a tree map entry, its key, and a container object without its array
+	private static final int BUCKET_OVERHEAD_BYTES = 96;
+
+	private final TreeMap<Long, Container> buckets = new TreeMap<>();
+
+	// 2 is the only even prime, so it has no odd offset
+	private boolean containsTwo = false;
+
+	private long count = 0, min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+
+	// The heap taken by the buckets, which is kept up to date as they grow
+	private long sizeInBytes = 0;
+
+	// The bucket of the last added prime, as the primes arrive in sorted chunks
+	private long lastBucket = -1;
+	private Container lastContainer = null;
+
+	// The index for rank and select queries or null if the store was modified since it was built
+	private Index index = null;
+
+	/**
+	 * Add a prime to the store unless it is already stored.
+	 *
+	 * @return whether the prime was added
+	 */
+	public boolean add(long prime) {
+		if (prime < 2 || (prime != 2 && (prime & 1) == 0))
+			throw new IllegalArgumentException("Not a prime: " + prime);
+
+		boolean added;
+		if (prime == 2) {
+			added = !this.containsTwo;
+			this.containsTwo = true;
+		} else {
+			long bucket = prime >>> BUCKET_BITS;
+			if (bucket != this.lastBucket) {
+				Container container = this.buckets.get(bucket);
+				if (container == null) {
+					this.buckets.put(bucket, container = new ArrayContainer());
+					this.sizeInBytes += BUCKET_OVERHEAD_BYTES + container.sizeInBytes();
+				}
+				this.lastBucket = bucket;
+				this.lastContainer = container;
+			}
+			long containerBytes = this.lastContainer.sizeInBytes();
+			added = this.lastContainer.add(offset(prime));
+			if (this.lastContainer.size() > MAX_ARRAY_SIZE && this.lastContainer instanceof ArrayContainer) {
+				this.lastContainer = ((ArrayContainer) this.lastContainer).toBitmap();
+				this.buckets.put(bucket, this.lastContainer);
+			}
+			this.sizeInBytes += this.lastContainer.sizeInBytes() - containerBytes;
+		}
+
+		if (added) {
+			this.index = null;
+			this.count++;
+			this.min = Math.min(this.min, prime);
+			this.max = Math.max(this.max, prime);
+		}
+		return added;
+	}
+
+	/**
+	 * Add all given primes to the store.
+	 */
+	public void addAll(long[] primes) {
+		for (long prime : primes)
+			this.add(prime);
+	}
+
+	public boolean contains(long prime) {
+		if (prime == 2)
+			return this.containsTwo;
+		if (prime < 2 || (prime & 1) == 0)
+			return false;
+		Container container = this.buckets.get(prime >>> BUCKET_BITS);
+		return container != null && container.contains(offset(prime));
+	}
+
+	/**
+	 * @return the number of stored primes
+	 */
+	public long count() {
+		return this.count;
+	}
+
+	public boolean isEmpty() {
+		return this.count == 0;
+	}
+
+	/**
+	 * @return the smallest stored prime or {@link Long#MAX_VALUE} if the store is empty
+	 */
+	public long min() {
+		return this.min;
+	}
+
+	/**
+	 * @return the largest stored prime or {@link Long#MIN_VALUE} if the store is empty
+	 */
+	public long max() {
+		return this.max;
+	}
+
+	/**
+	 * Report all stored primes in ascending order.
+	 */
+	public void forEach(LongConsumer consumer) {
+		this.forEach(Long.MIN_VALUE, Long.MAX_VALUE, consumer);
+	}
+
+	/**
+	 * Report all stored primes in a given range in ascending order.
+	 *
+	 * @param rangeMin first number of the range (inclusive)
+	 * @param rangeMax last number of the range (inclusive)
+	 */
+	public void forEach(long rangeMin, long rangeMax, LongConsumer consumer) {
+		if (this.containsTwo && rangeMin <= 2 && 2 <= rangeMax)
+			consumer.accept(2);
+		if (rangeMax < 3)
+			return;
+		rangeMin = Math.max(3, rangeMin);
+
+		for (Map.Entry<Long, Container> entry : this.buckets.subMap(rangeMin >>> BUCKET_BITS, true, rangeMax >>> BUCKET_BITS, true).entrySet()) {
+			long base = entry.getKey() << BUCKET_BITS;
+			long min = rangeMin, max = rangeMax;
+			entry.getValue().forEach(offset -> {
+				long prime = base + 2 * offset + 1;
+				if (min <= prime && prime <= max)
+					consumer.accept(prime);
+			});
+		}
+	}
+
+	/**
+	 * Iterate the stored primes in a given range in ascending order. The store must not be modified meanwhile.
+	 *
+	 * @param rangeMin first number of the range (inclusive)
+	 * @param rangeMax last number of the range (inclusive)
+	 */
+	public PrimitiveIterator.OfLong iterator(long rangeMin, long rangeMax) {
+		return new StoreIterator(rangeMin, rangeMax);
+	}
+
+	/**
+	 * Remove all primes from the store.
+	 */
+	public void clear() {
+		this.buckets.clear();
+		this.containsTwo = false;
+		this.count = 0;
+		this.min = Long.MAX_VALUE;
+		this.max = Long.MIN_VALUE;
+		this.sizeInBytes = 0;
+		this.lastBucket = -1;
+		this.lastContainer = null;
+		this.index = null;
+	}
+
+	/**
+	 * @return the number of stored primes that are not larger than x
+	 */
+	public long rank(long x) {
+		if (x < 2)
+			return 0;
+		long rank = this.containsTwo ? 1 : 0;
+		if (x < 3)
+			return rank;
+
+		Index index = this.index();
+		long odd = (x & 1) == 0 ? x - 1 : x;
+		int i = index.floor(odd >>> BUCKET_BITS);
+		if (i < 0)
+			return rank;
+		if (index.keys[i] != odd >>> BUCKET_BITS)
+			return rank + index.cumulative[i + 1];
+		return rank + index.cumulative[i] + index.containers[i].rank(offset(odd));
+	}
+
+	/**
+	 * @return the number of stored primes in [rangeMin, rangeMax]
+	 */
+	public long count(long rangeMin, long rangeMax) {
+		if (rangeMin > rangeMax)
+			return 0;
+		return this.rank(rangeMax) - (rangeMin > Long.MIN_VALUE ? this.rank(rangeMin - 1) : 0);
+	}
+
+	/**
+	 * @param k a zero-based rank
+	 * @return the k-th smallest stored prime or -1 if fewer primes are stored
+	 */
+	public long select(long k) {
+		if (k < 0 || k >= this.count)
+			return -1;
+		if (this.containsTwo) {
+			if (k == 0)
+				return 2;
+			k--;
+		}
+
+		// Find the last bucket with fewer primes before it than the rank
+		Index index = this.index();
+		int low = 0, high = index.keys.length - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (index.cumulative[middle] <= k)
+				low = middle;
+			else
+				high = middle - 1;
+		}
+		return prime(index.keys[low], index.containers[low].select((int) (k - index.cumulative[low])));
+	}
+
+	/**
+	 * @return the smallest stored prime that is larger than x or -1 if there is none
+	 */
+	public long next(long x) {
+		return x == Long.MAX_VALUE ? -1 : this.select(this.rank(x));
+	}
+
+	/**
+	 * @return the largest stored prime that is smaller than x or -1 if there is none
+	 */
+	public long previous(long x) {
+		return x == Long.MIN_VALUE ? -1 : this.select(this.rank(x - 1) - 1);
+	}
+
+	/**
+	 * @return the number of twin primes p and p + 2 in the store with rangeMin &lt;= p and p + 2 &lt;= rangeMax
+	 */
+	public long twins(long rangeMin, long rangeMax) {
+		if (rangeMin > Long.MAX_VALUE - 2 || rangeMin + 2 > rangeMax)
+			return 0;
+		return this.twinsUpTo(rangeMax) - this.twinsUpTo(rangeMin + 1);
+	}
+
+	/**
+	 * @return the number of twin primes in the store whose larger prime is not larger than x
+	 */
+	private long twinsUpTo(long x) {
+		if (x < 5)
+			return 0;
+		Index index = this.index();
+		long odd = (x & 1) == 0 ? x - 1 : x;
+		int i = index.floor(odd >>> BUCKET_BITS);
+		if (i < 0)
+			return 0;
+		if (index.keys[i] != odd >>> BUCKET_BITS)
+			return index.cumulativeTwins[i + 1];
+		return index.cumulativeTwins[i] + index.containers[i].twinsUpTo(offset(odd)) + (index.crossingTwin(i) ? 1 : 0);
+	}
+
+	/**
+	 * Find the widest gap between two consecutive stored primes in a range. Its width is {@code next(p) - p} for the
+	 * returned prime p.
+	 *
+	 * @return the smaller prime of the first widest gap in [rangeMin, rangeMax] or -1 if the range holds less than two primes
+	 */
+	public long widestGap(long rangeMin, long rangeMax) {
+		long first = rangeMin > Long.MIN_VALUE ? this.next(rangeMin - 1) : this.select(0);
+		long last = rangeMax < Long.MAX_VALUE ? this.previous(rangeMax + 1) : this.max;
+		if (first < 0 || last < 0 || first >= last)
+			return -1;
+
+		// The gap after 2 is the only one that starts at an even number
+		long widest = -1, width = 0;
+		if (first == 2) {
+			widest = 2;
+			width = this.next(2) - 2;
+			first = this.next(2);
+			if (first == last)
+				return widest;
+		}
+
+		Index index = this.index();
+		int firstBucket = index.floor(first >>> BUCKET_BITS), lastBucket = index.floor(last >>> BUCKET_BITS);
+		if (firstBucket == lastBucket) {
+			long[] gap = index.widestGap(firstBucket, offset(first), offset(last));
+			return gap[1] > width ? gap[0] : widest;
+		}
+
+		// The edges are scanned, the buckets in between are covered by their summaries
+		long[] gap = index.widestGap(firstBucket, offset(first), (1 << (BUCKET_BITS - 1)) - 1);
+		if (gap[1] > width) {
+			widest = gap[0];
+			width = gap[1];
+		}
+		int middle = index.widestGapBucket(firstBucket + 1, lastBucket - 1);
+		if (middle >= 0 && index.gaps[middle] > width) {
+			widest = index.widestGapIn(middle);
+			width = index.gaps[middle];
+		}
+		long before = index.firsts[lastBucket] - index.lasts[lastBucket - 1];
+		if (before > width) {
+			widest = index.lasts[lastBucket - 1];
+			width = before;
+		}
+		gap = index.widestGap(lastBucket, index.containers[lastBucket].next(0), offset(last));
+		return gap[1] > width ? gap[0] : widest;
+	}
+
+	private Index index() {
+		if (this.index == null)
+			this.index = new Index();
+		return this.index;
+	}
+
+	private static long prime(long bucket, int offset) {
+		return (bucket << BUCKET_BITS) + 2 * offset + 1;
+	}
+
+	/**
+	 * @return an estimate of the heap that the buckets take
+	 */
+	public long sizeInBytes() {
+		return this.sizeInBytes;
+	}
+
+	private static int offset(long prime) {
+		return (int) (prime & ((1 << BUCKET_BITS) - 1)) >>> 1;
+	}
+
+	/**
+	 * The odd numbers of one bucket as 16 bit offsets. Containers cache their number of twins and their widest gap, so
+	 * that rebuilding the index only recomputes them for the containers that changed.
+	 */
+	private abstract static class Container {
+
+		private static final int MAX_OFFSET = (1 << (BUCKET_BITS - 1)) - 1;
+
+		// The cached summaries or -1 if the container was modified since they were computed
+		private int twins = -1, widestGap = -1, widestGapOffset = -1;
+
+		/**
+		 * @return whether the offset was added
+		 */
+		final boolean add(int offset) {
+			boolean added = this.insert(offset);
+			if (added)
+				this.twins = this.widestGap = this.widestGapOffset = -1;
+			return added;
+		}
+
+		abstract boolean insert(int offset);
+
+		abstract boolean contains(int offset);
+
+		abstract int size();
+
+		/**
+		 * Report all offsets in ascending order.
+		 */
+		abstract void forEach(IntConsumer consumer);
+
+		/**
+		 * @return the smallest offset that is not smaller than the given one or -1 if there is none
+		 */
+		abstract int next(int offset);
+
+		/**
+		 * @return the number of offsets that are not larger than the given one
+		 */
+		abstract int rank(int offset);
+
+		/**
+		 * @return the offset with the given zero-based rank
+		 */
+		abstract int select(int rank);
+
+		/**
+		 * @return the number of offsets up to the given one whose predecessor is also in the container, i.e., the number
+		 * of twin primes whose larger prime lies in this bucket up to the given offset
+		 */
+		abstract int twinsUpTo(int offset);
+
+		abstract long sizeInBytes();
+
+		final int first() {
+			return this.next(0);
+		}
+
+		final int last() {
+			return this.select(this.size() - 1);
+		}
+
+		final int twins() {
+			if (this.twins < 0)
+				this.twins = this.twinsUpTo(MAX_OFFSET);
+			return this.twins;
+		}
+
+		/**
+		 * @return the widest distance between two consecutive offsets
+		 */
+		final int widestGap() {
+			if (this.widestGap < 0) {
+				this.widestGap = 0;
+				for (int offset = this.first(), next; (next = offset < MAX_OFFSET ? this.next(offset + 1) : -1) >= 0; offset = next) {
+					if (next - offset > this.widestGap) {
+						this.widestGap = next - offset;
+						this.widestGapOffset = offset;
+					}
+				}
+			}
+			return this.widestGap;
+		}
+
+		/**
+		 * @return the smaller offset of the widest gap
+		 */
+		final int widestGapOffset() {
+			this.widestGap();
+			return this.widestGapOffset;
+		}
+	}
+
+	private static final class ArrayContainer extends Container {
+
+		private char[] offsets = new char[16];
+
+		private int size = 0;
+
+		@Override
+		boolean insert(int offset) {
+			// Primes mostly arrive in ascending order, so check for an append first
+			int index = this.size > 0 && this.offsets[this.size - 1] < offset ? -this.size - 1 : Arrays.binarySearch(this.offsets, 0, this.size, (char) offset);
+			if (index >= 0)
+				return false;
+			index = -index - 1;
+
+			if (this.size == this.offsets.length)
+				this.offsets = Arrays.copyOf(this.offsets, Math.min(2 * this.size, MAX_ARRAY_SIZE + 1));
+			System.arraycopy(this.offsets, index, this.offsets, index + 1, this.size - index);
+			this.offsets[index] = (char) offset;
+			this.size++;
+			return true;
+		}
+
+		@Override
+		boolean contains(int offset) {
+			return Arrays.binarySearch(this.offsets, 0, this.size, (char) offset) >= 0;
+		}
+
+		@Override
+		int size() {
+			return this.size;
+		}
+
+		@Override
+		void forEach(IntConsumer consumer) {
+			for (int i = 0; i < this.size; i++)
+				consumer.accept(this.offsets[i]);
+		}
+
+		@Override
+		int next(int offset) {
+			int index = this.rank(offset - 1);
+			return index < this.size ? this.offsets[index] : -1;
+		}
+
+		@Override
+		int rank(int offset) {
+			if (offset < 0)
+				return 0;
+			int index = Arrays.binarySearch(this.offsets, 0, this.size, (char) offset);
+			return index >= 0 ? index + 1 : -index - 1;
+		}
+
+		@Override
+		int select(int rank) {
+			return this.offsets[rank];
+		}
+
+		@Override
+		int twinsUpTo(int offset) {
+			int twins = 0;
+			for (int i = 1; i < this.size && this.offsets[i] <= offset; i++)
+				if (this.offsets[i] - this.offsets[i - 1] == 1)
+					twins++;
+			return twins;
+		}
+
+		@Override
+		long sizeInBytes() {
+			return 2L * this.offsets.length;
+		}
+
+		BitmapContainer toBitmap() {
+			BitmapContainer bitmap = new BitmapContainer();
+			for (int i = 0; i < this.size; i++)
+				bitmap.insert(this.offsets[i]);
+			return bitmap;
+		}
+	}
+
+	private static final class BitmapContainer extends Container {
+
+		private final long[] words = new long[(1 << (BUCKET_BITS - 1)) / 64];
+
+		private int size = 0;
+
+		@Override
+		boolean insert(int offset) {
+			long word = this.words[offset >>> 6];
+			long bit = 1L << offset;
+			if ((word & bit) != 0)
+				return false;
+			this.words[offset >>> 6] = word | bit;
+			this.size++;
+			return true;
+		}
+
+		@Override
+		boolean contains(int offset) {
+			return (this.words[offset >>> 6] & (1L << offset)) != 0;
+		}
+
+		@Override
+		int size() {
+			return this.size;
+		}
+
+		@Override
+		void forEach(IntConsumer consumer) {
+			for (int i = 0; i < this.words.length; i++)
+				for (long word = this.words[i]; word != 0; word &= word - 1)
+					consumer.accept((i << 6) + Long.numberOfTrailingZeros(word));
+		}
+
+		@Override
+		int next(int offset) {
+			int i = offset >>> 6;
+			if (i >= this.words.length)
+				return -1;
+			long word = this.words[i] & (-1L << offset);
+			while (word == 0) {
+				if (++i == this.words.length)
+					return -1;
+				word = this.words[i];
+			}
+			return (i << 6) + Long.numberOfTrailingZeros(word);
+		}
+
+		@Override
+		int rank(int offset) {
+			if (offset < 0)
+				return 0;
+			int rank = 0;
+			int last = offset >>> 6;
+			for (int i = 0; i < last; i++)
+				rank += Long.bitCount(this.words[i]);
+			return rank + Long.bitCount(this.words[last] & (-1L >>> (63 - (offset & 63))));
+		}
+
+		@Override
+		int select(int rank) {
+			int i = 0;
+			for (int bits; rank >= (bits = Long.bitCount(this.words[i])); i++)
+				rank -= bits;
+			long word = this.words[i];
+			for (; rank > 0; rank--)
+				word &= word - 1;
+			return (i << 6) + Long.numberOfTrailingZeros(word);
+		}
+
+		@Override
+		int twinsUpTo(int offset) {
+			int twins = 0;
+			long carry = 0;
+			int last = offset >>> 6;
+			for (int i = 0; i <= last; i++) {
+				long word = this.words[i];
+				long uppers = word & ((word << 1) | carry);
+				if (i == last)
+					uppers &= -1L >>> (63 - (offset & 63));
+				twins += Long.bitCount(uppers);
+				carry = word >>> 63;
+			}
+			return twins;
+		}
+
+		@Override
+		long sizeInBytes() {
+			return 8L * this.words.length;
+		}
+	}
+
+	/**
+	 * The buckets in an array with cumulative counts and the widest gaps per bucket, where a gap between two buckets
+	 * belongs to the later one. The widest gaps are also kept per block of {@link #GAP_BLOCK} buckets, so that the widest
+	 * gap of a range of buckets takes a number of steps in the order of the square root of the number of buckets.
+	 */
+	private final class Index {
+
+		private static final int GAP_BLOCK = 64;
+
+		private final long[] keys;
+
+		private final Container[] containers;
+
+		// The numbers of odd primes and of twins in the buckets before each bucket
+		private final long[] cumulative, cumulativeTwins;
+
+		private final long[] firsts, lasts, gaps, blockGaps;
+
+		Index() {
+			int n = PrimeStore.this.buckets.size();
+			this.keys = new long[n];
+			this.containers = new Container[n];
+			this.cumulative = new long[n + 1];
+			this.cumulativeTwins = new long[n + 1];
+			this.firsts = new long[n];
+			this.lasts = new long[n];
+			this.gaps = new long[n];
+			this.blockGaps = new long[(n + GAP_BLOCK - 1) / GAP_BLOCK];
+
+			int i = 0;
+			for (Map.Entry<Long, Container> entry : PrimeStore.this.buckets.entrySet()) {
+				Container container = entry.getValue();
+				this.keys[i] = entry.getKey();
+				this.containers[i] = container;
+				this.firsts[i] = prime(this.keys[i], container.first());
+				this.lasts[i] = prime(this.keys[i], container.last());
+				this.cumulative[i + 1] = this.cumulative[i] + container.size();
+				this.cumulativeTwins[i + 1] = this.cumulativeTwins[i] + container.twins() + (this.crossingTwin(i) ? 1 : 0);
+
+				this.gaps[i] = 2L * container.widestGap();
+				if (i > 0)
+					this.gaps[i] = Math.max(this.gaps[i], this.firsts[i] - this.lasts[i - 1]);
+				this.blockGaps[i / GAP_BLOCK] = Math.max(this.blockGaps[i / GAP_BLOCK], this.gaps[i]);
+				i++;
+			}
+		}
+
+		/**
+		 * @return the index of the last bucket whose key is not larger than the given one or -1 if there is none
+		 */
+		int floor(long key) {
+			int index = Arrays.binarySearch(this.keys, key);
+			return index >= 0 ? index : -index - 2;
+		}
+
+		/**
+		 * @return whether the last odd number of the previous bucket and the first odd number of the given bucket are twins
+		 */
+		boolean crossingTwin(int i) {
+			return i > 0 && this.keys[i - 1] == this.keys[i] - 1
+					&& this.containers[i - 1].contains(Container.MAX_OFFSET) && this.containers[i].contains(0);
+		}
+
+		/**
+		 * @return the smaller prime and the width of the first widest gap between the given offsets of a bucket
+		 */
+		long[] widestGap(int i, int fromOffset, int toOffset) {
+			Container container = this.containers[i];
+			long widest = -1, width = 0;
+			for (int offset = container.next(fromOffset), next; offset < toOffset && (next = container.next(offset + 1)) >= 0 && next <= toOffset; offset = next) {
+				if (2L * (next - offset) > width) {
+					widest = prime(this.keys[i], offset);
+					width = 2L * (next - offset);
+				}
+			}
+			return new long[]{widest, width};
+		}
+
+		/**
+		 * @return the first bucket in the given range with the widest gap or -1 if the range is empty
+		 */
+		int widestGapBucket(int from, int to) {
+			int widest = -1;
+			for (int i = from; i <= to; ) {
+				if (i % GAP_BLOCK == 0 && i + GAP_BLOCK - 1 <= to) {
+					if (widest < 0 || this.blockGaps[i / GAP_BLOCK] > this.gaps[widest]) {
+						for (int j = i; j < i + GAP_BLOCK; j++) {
+							if (widest < 0 || this.gaps[j] > this.gaps[widest])
+								widest = j;
+						}
+					}
+					i += GAP_BLOCK;
+				} else {
+					if (widest < 0 || this.gaps[i] > this.gaps[widest])
+						widest = i;
+					i++;
+				}
+			}
+			return widest;
+		}
+
+		/**
+		 * @return the smaller prime of the widest gap of a bucket, which may be the last prime of the previous bucket
+		 */
+		long widestGapIn(int i) {
+			if (i > 0 && this.firsts[i] - this.lasts[i - 1] == this.gaps[i])
+				return this.lasts[i - 1];
+			return prime(this.keys[i], this.containers[i].widestGapOffset());
+		}
+	}
+
+	private final class StoreIterator implements PrimitiveIterator.OfLong {
+
+		private final long rangeMax;
+
+		private final Iterator<Map.Entry<Long, Container>> buckets;
+
+		// The first bucket of the range and the offset of the first odd number of the range in it
+		private final long firstBucket;
+		private final int firstOffset;
+
+		private boolean pendingTwo;
+
+		private long base;
+		private Container container = null;
+		private int offset;
+
+		// The next prime or -1 if there is none
+		private long next;
+
+		StoreIterator(long rangeMin, long rangeMax) {
+			this.rangeMax = rangeMax;
+			this.pendingTwo = PrimeStore.this.containsTwo && rangeMin <= 2 && 2 <= rangeMax;
+
+			long oddMin = Math.max(3, rangeMin) | 1;
+			this.firstBucket = oddMin >>> BUCKET_BITS;
+			this.firstOffset = offset(oddMin);
+			this.buckets = oddMin > rangeMax ? Collections.<Map.Entry<Long, Container>>emptyIterator()
+					: PrimeStore.this.buckets.subMap(this.firstBucket, true, rangeMax >>> BUCKET_BITS, true).entrySet().iterator();
+			this.next = this.findNext();
+		}
+
+		private long findNext() {
+			while (true) {
+				if (this.container == null) {
+					if (!this.buckets.hasNext())
+						return -1;
+					Map.Entry<Long, Container> entry = this.buckets.next();
+					this.base = entry.getKey() << BUCKET_BITS;
+					this.container = entry.getValue();
+					this.offset = entry.getKey() == this.firstBucket ? this.firstOffset : 0;
+				}
+
+				int offset = this.offset < 1 << (BUCKET_BITS - 1) ? this.container.next(this.offset) : -1;
+				if (offset < 0) {
+					this.container = null;
+					continue;
+				}
+				long prime = this.base + 2 * offset + 1;
+				if (prime > this.rangeMax)
+					return -1;
+				this.offset = offset + 1;
+				return prime;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.pendingTwo || this.next >= 0;
+		}
+
+		@Override
+		public long nextLong() {
+			if (this.pendingTwo) {
+				this.pendingTwo = false;
+				return 2;
+			}
+			if (this.next < 0)
+				throw new NoSuchElementException();
+			long prime = this.next;
+			this.next = this.findNext();
+			return prime;
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package de.hpi.akka_tutorial.primes;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Finds primes with a segmented sieve of Eratosthenes. The base primes up to the square root of the largest number seen
+ * so far are cached, so a worker sieves them only once for all of its ranges. A range is sieved in segments of 32 KB,
+ * which fit into the L1/L2 cache, and a segment holds one bit per odd number only. The primes are reported by scanning
+ * the words of a segment for clear bits.
+ * <p>
+ * Instances hold the cache and the segment and are not thread-safe; each worker uses its own.
+ */
+public class SegmentedSieve {
+
+	// 32 KB segments, i.e., 2^18 odd numbers per segment
+	private static final int SEGMENT_BYTES = 1 << 15;
+	private static final int SEGMENT_BITS = SEGMENT_BYTES * 8;
+
+	/**
+	 * The largest base prime bound the cache grows to, which limits the sieve to numbers below its square.
+	 */
+	public static final long MAX_BASE = 1L << 26;
+
+	/**
+	 * The largest number that can be sieved.
+	 */
+	public static final long MAX_NUMBER = MAX_BASE * MAX_BASE - 1;
+
+	private final long[] segment = new long[SEGMENT_BITS / 64];
+
+	// The odd primes up to the base bound
+	private int[] basePrimes = new int[0];
+	private int numBasePrimes = 0;
+	private long baseBound = 0;
+
+	/**
+	 * Report all primes in a given range in ascending order.
+	 *
+	 * @param rangeMin first number in the range to be checked as prime (inclusive)
+	 * @param rangeMax last number in the range to be checked as prime (inclusive, at most {@link #MAX_NUMBER})
+	 * @param consumer receives every prime in the range
+	 */
+	public void scan(long rangeMin, long rangeMax, LongConsumer consumer) {
+		if (rangeMax > MAX_NUMBER)
+			throw new IllegalArgumentException("Cannot sieve numbers beyond " + MAX_NUMBER + ": " + rangeMax);
+
+		if (rangeMin <= 2 && 2 <= rangeMax)
+			consumer.accept(2);
+
+		// The segments cover the odd numbers from 3 on only, as 1 is not a prime
+		long low = Math.max(3, rangeMin | 1);
+		if (low > rangeMax)
+			return;
+		this.ensureBase(sqrt(rangeMax));
+
+		while (low <= rangeMax) {
+			long high = Math.min(rangeMax, low + 2L * (SEGMENT_BITS - 1));
+			this.sieve(low, high, consumer);
+			low += 2L * SEGMENT_BITS;
+		}
+	}
+
+	/**
+	 * Sieve the odd numbers in [low, high], where low is odd, and report the primes among them.
+	 */
+	private void sieve(long low, long high, LongConsumer consumer) {
+		int bits = (int) ((high - low) / 2) + 1;
+		int words = (bits + 63) >>> 6;
+		long[] segment = this.segment;
+		Arrays.fill(segment, 0, words, 0L);
+
+		// Cross out the odd multiples of every base prime, starting at its square
+		int[] basePrimes = this.basePrimes;
+		for (int i = 0; i < this.numBasePrimes; i++) {
+			long prime = basePrimes[i];
+			long square = prime * prime;
+			if (square > high)
+				break;
+
+			long start = square >= low ? square : (low + prime - 1) / prime * prime;
+			if ((start & 1) == 0)
+				start += prime;
+			for (long bit = (start - low) >>> 1; bit < bits; bit += prime)
+				segment[(int) (bit >>> 6)] |= 1L << bit;
+		}
+
+		// Report the numbers whose bits are still clear
+		for (int word = 0; word < words; word++) {
+			long clear = ~segment[word];
+			if (word == words - 1 && (bits & 63) != 0)
+				clear &= (1L << bits) - 1;
+			while (clear != 0) {
+				int bit = (word << 6) + Long.numberOfTrailingZeros(clear);
+				consumer.accept(low + 2L * bit);
+				clear &= clear - 1;
+			}
+		}
+	}
+
+	/**
+	 * Make sure that the cache holds all odd primes up to the given bound. The cache grows at least by doubling, so that
+	 * slowly increasing ranges do not sieve the base primes over and over again.
+	 */
+	private void ensureBase(long bound) {
+		if (bound <= this.baseBound)
+			return;
+		bound = Math.min(MAX_BASE, Math.max(bound, Math.max(2 * this.baseBound, 1 << 16)));
+
+		// A plain sieve over the odd numbers up to the bound, where index i stands for 2i + 1
+		int size = (int) (bound / 2) + 1;
+		boolean[] composite = new boolean[size];
+		int[] primes = new int[Math.max(16, (int) (1.26 * bound / Math.log(bound)))];
+		int count = 0;
+		for (int i = 1; i < size; i++) {
+			if (composite[i])
+				continue;
+			long prime = 2L * i + 1;
+			if (prime > bound)
+				break;
+			if (count == primes.length)
+				primes = Arrays.copyOf(primes, 2 * count);
+			primes[count++] = (int) prime;
+			for (long multiple = (prime * prime) >>> 1; multiple < size; multiple += prime)
+				composite[(int) multiple] = true;
+		}
+
+		this.basePrimes = primes;
+		this.numBasePrimes = count;
+		this.baseBound = bound;
+	}
+
+	/**
+	 * @return the largest number whose square does not exceed n
+	 */
+	private static long sqrt(long n) {
+		long root = (long) Math.sqrt((double) n);
+		while (root * root > n)
+			root--;
+		while ((root + 1) * (root + 1) <= n)
+			root++;
+		return root;
+	}
+}
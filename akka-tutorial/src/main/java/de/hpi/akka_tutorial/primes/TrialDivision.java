@@ -0,0 +1,51 @@
+package de.hpi.akka_tutorial.primes;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Finds primes by testing each number for divisors up to its square root.
+ */
+public class TrialDivision {
+
+	/**
+	 * Report all primes in a given range in ascending order.
+	 *
+	 * @param rangeMin first number in the range to be checked as prime (inclusive)
+	 * @param rangeMax last number in the range to be checked as prime (inclusive)
+	 * @param consumer receives every prime in the range
+	 */
+	public static void scan(long rangeMin, long rangeMax, LongConsumer consumer) {
+		for (long i = rangeMin; i <= rangeMax; i++) {
+			if (isPrime(i))
+				consumer.accept(i);
+			if (i == Long.MAX_VALUE)
+				break;
+		}
+	}
+
+	/**
+	 * Test a single number for primality.
+	 *
+	 * @param n the number to test
+	 * @return whether the number is prime
+	 */
+	public static boolean isPrime(long n) {
+
+		// Check for the most basic primes; 1 is not a prime
+		if (n < 2)
+			return false;
+		if (n == 2 || n == 3)
+			return true;
+
+		// Check if n is an even number
+		if (n % 2 == 0)
+			return false;
+
+		// Check the odds; i <= n / i does not overflow like i * i <= n near Long.MAX_VALUE
+		for (long i = 3; i <= n / i; i += 2)
+			if (n % i == 0)
+				return false;
+
+		return true;
+	}
+}
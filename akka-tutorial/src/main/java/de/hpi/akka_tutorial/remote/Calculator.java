@@ -1,5 +1,6 @@
 package de.hpi.akka_tutorial.remote;
 
+import java.io.File;
 import java.util.Scanner;
 import java.util.concurrent.TimeoutException;
 
@@ -25,7 +26,7 @@ public class Calculator {
 	private static final String DEFAULT_MASTER_SYSTEM_NAME = "MasterActorSystem";
 	private static final String DEFAULT_SLAVE_SYSTEM_NAME = "SlaveActorSystem";
 
-	public static void runMaster(String host, int port, SchedulingStrategy.Factory schedulingStrategyFactory, int numLocalWorkers) {
+	public static void runMaster(String host, int port, SchedulingStrategy.Factory schedulingStrategyFactory, int numLocalWorkers, File archiveFile) {
 		
 		// Create the ActorSystem
 		final Config config = AkkaUtils.createRemoteAkkaConfig(host, port);
@@ -35,7 +36,7 @@ public class Calculator {
 		actorSystem.actorOf(Reaper.props(), Reaper.DEFAULT_NAME);
 
 		// Create the Listener
-		final ActorRef listener = actorSystem.actorOf(Listener.props(), Listener.DEFAULT_NAME);
+		final ActorRef listener = actorSystem.actorOf(Listener.props(archiveFile), Listener.DEFAULT_NAME);
 
 		// Create the Master
 		final ActorRef master = actorSystem.actorOf(Master.props(listener, schedulingStrategyFactory, numLocalWorkers), Master.DEFAULT_NAME);
@@ -68,6 +69,10 @@ public class Calculator {
 					+ "  \"<min>,<max>\" to analyze for primes,\n"
 					+ "  \"all\" to log all calculated primes,\n"
 					+ "  \"max\" to log the largest calculated prime,\n"
+					+ "  \"count <min>,<max>\", \"twins <min>,<max>\", or \"gap <min>,<max>\" to count the primes or twin primes\n"
+					+ "    or to find the widest gap between calculated primes in a range,\n"
+					+ "  \"nth <n>\", \"next <x>\", or \"prev <x>\" to find the n-th calculated prime or the one after or before x,\n"
+					+ "  \"pi <x>\" or \"pi <min>,<max>\" to count the primes up to x or in a range without calculating them,\n"
 					+ "  \"exit\" for a graceful shutdown,\n"
 					+ "  \"kill\" for a hard shutdown:");
 			String line = scanner.nextLine();
@@ -88,7 +93,12 @@ public class Calculator {
 					scanner.close();
 					return;
 				default:
-					Calculator.process(line, master);
+					if (line.startsWith("pi "))
+						Calculator.count(line.substring(3), master);
+					else if (line.contains(" "))
+						Calculator.query(line, listener);
+					else
+						Calculator.process(line, master);
 			}
 		}
 	}
@@ -135,6 +145,73 @@ public class Calculator {
 		}
 	}
 	
+	private static void count(final String arguments, final ActorRef master) {
+
+		// A single number stands for the range from 1 on
+		String[] argumentSplit = arguments.trim().split(",");
+		if (argumentSplit.length > 2) {
+			System.out.println("Invalid range format: " + arguments);
+			return;
+		}
+
+		try {
+			long startNumber = argumentSplit.length == 2 ? Long.valueOf(argumentSplit[0].trim()) : 1;
+			long endNumber = Long.valueOf(argumentSplit[argumentSplit.length - 1].trim());
+
+			// Start the count, whose result the master logs
+			master.tell(new Master.CountMessage(startNumber, endNumber), ActorRef.noSender());
+		} catch (NumberFormatException e) {
+			System.out.println("Invalid number format for count: " + arguments);
+		}
+	}
+
+	private static void query(final String line, final ActorRef listener) {
+
+		// Split the line into the command and its arguments
+		String[] lineSplit = line.trim().split("\\s+", 2);
+		String[] arguments = lineSplit[1].split(",");
+		Listener.QueryMessage.Query query;
+		switch (lineSplit[0]) {
+			case "count":
+				query = Listener.QueryMessage.Query.COUNT;
+				break;
+			case "twins":
+				query = Listener.QueryMessage.Query.TWINS;
+				break;
+			case "gap":
+				query = Listener.QueryMessage.Query.GAP;
+				break;
+			case "nth":
+				query = Listener.QueryMessage.Query.NTH;
+				break;
+			case "next":
+				query = Listener.QueryMessage.Query.NEXT;
+				break;
+			case "prev":
+				query = Listener.QueryMessage.Query.PREVIOUS;
+				break;
+			default:
+				System.out.println("Unknown command: " + line);
+				return;
+		}
+
+		boolean isRange = query == Listener.QueryMessage.Query.COUNT || query == Listener.QueryMessage.Query.TWINS || query == Listener.QueryMessage.Query.GAP;
+		if (arguments.length != (isRange ? 2 : 1)) {
+			System.out.println("Invalid argument format: " + line);
+			return;
+		}
+
+		try {
+			long a = Long.valueOf(arguments[0].trim());
+			long b = isRange ? Long.valueOf(arguments[1].trim()) : a;
+
+			// Ask the listener, which logs the answer
+			listener.tell(new Listener.QueryMessage(query, a, b), ActorRef.noSender());
+		} catch (NumberFormatException e) {
+			System.out.println("Invalid number format for query: " + line);
+		}
+	}
+
 	public static void awaitTermination(final ActorSystem actorSystem) {
 		try {
 			Await.ready(actorSystem.whenTerminated(), Duration.Inf());
@@ -1,15 +1,23 @@
 package de.hpi.akka_tutorial.remote.actors;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.Comparator;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 
 import akka.actor.AbstractLoggingActor;
 import akka.actor.PoisonPill;
 import akka.actor.Props;
+import de.hpi.akka_tutorial.primes.PrimeArchive;
+import de.hpi.akka_tutorial.primes.PrimeIterators;
+import de.hpi.akka_tutorial.primes.PrimeStore;
+import de.hpi.akka_tutorial.remote.messages.PrimeCodec;
 import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
 
 /**
@@ -25,24 +33,34 @@ public class Listener extends AbstractLoggingActor {
 	 * @return the {@link Props}
 	 */
 	public static Props props() {
-		return Props.create(Listener.class);
+		return props(null);
 	}
 
 	/**
-	 * Asks the {@link Listener} to store a given set of primes.
+	 * Create the {@link Props} necessary to instantiate new {@link Listener} actors that keep their primes in an archive.
+	 *
+	 * @param archiveFile the file of the archive or {@code null} to keep the primes in memory only
+	 * @return the {@link Props}
 	 */
-	public static class PrimesMessage implements Serializable {
+	public static Props props(final File archiveFile) {
+		return Props.create(Listener.class, () -> new Listener(archiveFile));
+	}
+
+	/**
+	 * Asks the {@link Listener} to store a given set of primes. Kryo writes the primes with the {@link PrimeCodec}.
+	 */
+	public static class PrimesMessage implements Serializable, KryoSerializable {
 		
 		private static final long serialVersionUID = -1779142448823490939L;
 		
-		private List<Long> primes;
+		private long[] primes;
 		
 		/**
 		 * Construct a new {@link PrimesMessage} object.
 		 * 
-		 * @param primes A list of prime numbers
+		 * @param primes prime numbers in ascending order; the array must not be modified afterwards
 		 */
-		public PrimesMessage(final List<Long> primes) {
+		public PrimesMessage(final long[] primes) {
 			this.primes = primes;
 		}
 
@@ -52,6 +70,16 @@ public class Listener extends AbstractLoggingActor {
 		@SuppressWarnings("unused")
 		private PrimesMessage() {
 		}
+
+		@Override
+		public void write(Kryo kryo, Output output) {
+			PrimeCodec.write(output, this.primes);
+		}
+
+		@Override
+		public void read(Kryo kryo, Input input) {
+			this.primes = PrimeCodec.read(input);
+		}
 	}
 	
 	/**
@@ -70,8 +98,67 @@ public class Listener extends AbstractLoggingActor {
 		private static final long serialVersionUID = 9210465485942285762L;
 	}
 
-	// The set of all prime numbers received by this listener actor
-	private final Set<Long> primes = new HashSet<>();
+	/**
+	 * Asks the {@link Listener} to log the answer to a query on its primes.
+	 */
+	public static class QueryMessage implements Serializable {
+
+		private static final long serialVersionUID = -3581945226785128207L;
+
+		public enum Query {
+			/** The number of primes in [a, b]. */
+			COUNT,
+			/** The a-th smallest prime, counting from one. */
+			NTH,
+			/** The smallest prime that is larger than a. */
+			NEXT,
+			/** The largest prime that is smaller than a. */
+			PREVIOUS,
+			/** The number of twin primes in [a, b]. */
+			TWINS,
+			/** The widest gap between two consecutive primes in [a, b]. */
+			GAP
+		}
+
+		private Query query;
+
+		private long a, b;
+
+		/**
+		 * Construct a new {@link QueryMessage} object.
+		 *
+		 * @param query the kind of query
+		 * @param a the number or the first number of the range that the query refers to
+		 * @param b the last number of the range that the query refers to; ignored by queries on single numbers
+		 */
+		public QueryMessage(final Query query, final long a, final long b) {
+			this.query = query;
+			this.a = a;
+			this.b = b;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private QueryMessage() {
+		}
+	}
+
+	// The set of all prime numbers received by this listener actor that are not archived yet
+	private final PrimeStore primes = new PrimeStore();
+
+	// The file of the archive that keeps the primes across restarts or null if the primes are kept in memory only
+	private final File archiveFile;
+
+	private PrimeArchive archive;
+
+	// The heap that the primes may take before they are spilled to the archive
+	private final long memoryBudget = Runtime.getRuntime().maxMemory() / 4;
+
+	public Listener(final File archiveFile) {
+		this.archiveFile = archiveFile;
+	}
 	
 	@Override
 	public void preStart() throws Exception {
@@ -79,12 +166,24 @@ public class Listener extends AbstractLoggingActor {
 		
 		// Register at this actor system's reaper
 		Reaper.watchWithDefaultReaper(this);
+
+		// Open the archive with the primes of earlier runs
+		if (this.archiveFile != null) {
+			this.archive = PrimeArchive.open(this.archiveFile);
+			this.log().info("Opened archive {} with {} primes.", this.archiveFile, this.archive.count());
+		}
 	}
 
 
 	@Override
 	public void postStop() throws Exception {
 		super.postStop();
+
+		// Write the remaining primes to the archive
+		if (this.archive != null) {
+			this.spill();
+			this.archive.close();
+		}
 		
 		// Log the stop event
 		this.log().info("Stopped {}.", this.getSelf());
@@ -96,33 +195,178 @@ public class Listener extends AbstractLoggingActor {
 				.match(PrimesMessage.class, this::handle)
 				.match(LogPrimesMessage.class, this::handle)
 				.match(LogMaxMessage.class, this::handle)
+				.match(QueryMessage.class, this::handle)
 				.match(ShutdownMessage.class, this::handle)
 				.matchAny(object -> this.log().info(this.getClass().getName() + " received unknown message: " + object.toString()))
 				.build();
 	}
 	
-	private void handle(PrimesMessage message) {
-		this.primes.addAll(message.primes);
+	private void handle(PrimesMessage message) throws IOException {
+		if (this.archive == null) {
+			this.primes.addAll(message.primes);
+			return;
+		}
+
+		// Primes of a repeated subquery might be archived already, but only if the message overlaps the archive
+		long[] primes = message.primes;
+		if (primes.length == 0)
+			return;
+		long first = primes[0];
+		long last = primes[primes.length - 1];
+		if (last < this.archive.min() || first > this.archive.max()) {
+			this.primes.addAll(primes);
+		} else {
+			// Both are ascending, so a single pass over the archived primes in the message's range finds the known ones
+			PrimitiveIterator.OfLong archived = this.archive.iterator(first, last);
+			long next = archived.hasNext() ? archived.nextLong() : Long.MAX_VALUE;
+			for (long prime : primes) {
+				while (next < prime)
+					next = archived.hasNext() ? archived.nextLong() : Long.MAX_VALUE;
+				if (next != prime)
+					this.primes.add(prime);
+			}
+		}
+
+		if (this.primes.sizeInBytes() > this.memoryBudget)
+			this.spill();
+	}
+
+	private void spill() throws IOException {
+		if (this.primes.isEmpty())
+			return;
+		long count = this.primes.count();
+		this.archive.append(this.primes.iterator(Long.MIN_VALUE, Long.MAX_VALUE));
+		this.primes.clear();
+		this.log().info("Archived {} primes in {}, which holds {} primes in {} bytes now.", count, this.archiveFile, this.archive.count(), this.archive.sizeInBytes());
+	}
+
+	/**
+	 * @return the archived and the unarchived primes in a given range in ascending order
+	 */
+	private PrimitiveIterator.OfLong iterator(long rangeMin, long rangeMax) throws IOException {
+		PrimitiveIterator.OfLong primes = this.primes.iterator(rangeMin, rangeMax);
+		if (this.archive == null)
+			return primes;
+		return PrimeIterators.merge(Arrays.asList(this.archive.iterator(rangeMin, rangeMax), primes));
 	}
 	
-	private void handle(LogPrimesMessage message) {
-		String primeList = this.primes.stream()
-				.mapToLong(Long::longValue)
-				.sorted()
-				.mapToObj(prime -> String.valueOf(prime))
-				.collect(Collectors.joining(";"));
+	private void handle(LogPrimesMessage message) throws IOException {
+		// The store and the archive iterate their primes in ascending order already
+		StringBuilder primeList = new StringBuilder();
+		for (PrimitiveIterator.OfLong primes = this.iterator(Long.MIN_VALUE, Long.MAX_VALUE); primes.hasNext(); ) {
+			if (primeList.length() > 0)
+				primeList.append(';');
+			primeList.append(primes.nextLong());
+		}
 		this.log().info(String.format("Primes: %s", primeList));		
 	}
 
 	private void handle(LogMaxMessage message) {
-		Long prime = this.primes.stream()
-				.collect(Collectors.maxBy(Comparator.naturalOrder()))
-				.orElseGet(() -> { return 0L; });
+		long prime = Math.max(0, this.primes.max());
+		if (this.archive != null)
+			prime = Math.max(prime, this.archive.max());
 		this.log().info(String.format("Max prime: %d", prime));		
 	}
 
+	private void handle(QueryMessage message) throws IOException {
+		long start = System.nanoTime();
+		String answer = this.answer(message.query, message.a, message.b);
+		this.log().info(String.format("%s (%.3f ms)", answer, (System.nanoTime() - start) / 1e6));
+	}
+
+	/**
+	 * Answer a query from the indices of the store and the archive. Twins and gaps are indexed by the store only, so
+	 * with an archive they are found by scanning the primes in the queried range.
+	 */
+	private String answer(QueryMessage.Query query, long a, long b) throws IOException {
+		boolean archived = this.archive != null && this.archive.count() > 0;
+		switch (query) {
+			case COUNT:
+				return String.format("Primes in [%d, %d]: %d", a, b, this.rank(b) - (a > Long.MIN_VALUE ? this.rank(a - 1) : 0));
+			case NTH:
+				long nth = archived ? this.select(a) : this.primes.select(a - 1);
+				return nth < 0 ? String.format("Fewer than %d primes", a) : String.format("Prime #%d: %d", a, nth);
+			case NEXT:
+				long next = this.primes.next(a);
+				if (archived) {
+					long archivedNext = this.archive.next(a);
+					if (next < 0 || (archivedNext >= 0 && archivedNext < next))
+						next = archivedNext;
+				}
+				return next < 0 ? String.format("No prime after %d", a) : String.format("Next prime after %d: %d", a, next);
+			case PREVIOUS:
+				long previous = this.primes.previous(a);
+				if (archived)
+					previous = Math.max(previous, this.archive.previous(a));
+				return previous < 0 ? String.format("No prime before %d", a) : String.format("Previous prime before %d: %d", a, previous);
+			case TWINS:
+				long twins = 0;
+				if (!archived) {
+					twins = this.primes.twins(a, b);
+				} else {
+					long last = -1;
+					for (PrimitiveIterator.OfLong primes = this.iterator(a, b); primes.hasNext(); ) {
+						long prime = primes.nextLong();
+						if (prime - last == 2)
+							twins++;
+						last = prime;
+					}
+				}
+				return String.format("Twin primes in [%d, %d]: %d", a, b, twins);
+			case GAP:
+				long widest = -1, width = 0;
+				if (!archived) {
+					widest = this.primes.widestGap(a, b);
+					width = widest < 0 ? 0 : this.primes.next(widest) - widest;
+				} else {
+					long last = -1;
+					for (PrimitiveIterator.OfLong primes = this.iterator(a, b); primes.hasNext(); ) {
+						long prime = primes.nextLong();
+						if (last >= 0 && prime - last > width) {
+							widest = last;
+							width = prime - last;
+						}
+						last = prime;
+					}
+				}
+				return widest < 0 ? String.format("Fewer than two primes in [%d, %d]", a, b)
+						: String.format("Widest gap in [%d, %d]: %d between %d and %d", a, b, width, widest, widest + width);
+			default:
+				throw new IllegalArgumentException("Unknown query: " + query);
+		}
+	}
+
+	/**
+	 * @return the number of archived and unarchived primes that are not larger than x
+	 */
+	private long rank(long x) throws IOException {
+		long rank = this.primes.rank(x);
+		if (this.archive != null)
+			rank += this.archive.rank(x);
+		return rank;
+	}
+
+	/**
+	 * @return the n-th smallest of the archived and unarchived primes, counting from one, or -1 if there are fewer primes
+	 */
+	private long select(long n) throws IOException {
+		long low = Math.min(this.primes.min(), this.archive.min()), high = Math.max(this.primes.max(), this.archive.max());
+		if (n < 1 || this.rank(high) < n)
+			return -1;
+
+		// Search for the smallest number whose rank is n, which is the n-th prime
+		while (low < high) {
+			long middle = low + (high - low) / 2;
+			if (this.rank(middle) >= n)
+				high = middle;
+			else
+				low = middle + 1;
+		}
+		return low;
+	}
+
 	private void handle(ShutdownMessage message) {
-		// We could write all primes to disk here
+		// The remaining primes are archived when the listener stops
 		
 		this.getSelf().tell(PoisonPill.getInstance(), this.getSelf());
 	}
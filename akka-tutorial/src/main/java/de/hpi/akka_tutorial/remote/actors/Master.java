@@ -4,10 +4,16 @@ import static akka.actor.SupervisorStrategy.escalate;
 import static akka.actor.SupervisorStrategy.stop;
 
 import java.io.Serializable;
-import java.util.List;
-import java.util.Objects;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
 import akka.actor.AbstractLoggingActor;
 import akka.actor.ActorRef;
 import akka.actor.Address;
@@ -19,12 +25,14 @@ import akka.actor.SupervisorStrategy;
 import akka.actor.Terminated;
 import akka.japi.pf.DeciderBuilder;
 import akka.remote.RemoteScope;
+import de.hpi.akka_tutorial.primes.PrimeCounter;
 import de.hpi.akka_tutorial.remote.actors.scheduling.SchedulingStrategy;
+import de.hpi.akka_tutorial.remote.messages.PrimeCodec;
 import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
 import scala.concurrent.duration.Duration;
 
 /**
- * The master receives ranges of numbers that it should find all primes in. This is done by delegation to slaves.
+ * The master receives ranges of numbers that it should find or count all primes in. This is done by delegation to slaves.
  */
 public class Master extends AbstractLoggingActor {
 
@@ -73,15 +81,79 @@ public class Master extends AbstractLoggingActor {
 	}
 
 	/**
-	 * Asks the {@link Master} to process some primes as the answer to a {@link Worker.ValidationMessage}.
+	 * Asks the {@link Master} to count the primes in a given range without collecting them.
 	 */
-	public static class PrimesMessage implements Serializable {
+	public static class CountMessage implements Serializable {
+
+		private static final long serialVersionUID = -2262617713458913744L;
+
+		private long startNumber, endNumber;
+
+		/**
+		 * Construct a new {@link CountMessage} object.
+		 *
+		 * @param startNumber first number in the range to be counted (inclusive)
+		 * @param endNumber last number in the range to be counted (inclusive)
+		 */
+		public CountMessage(final long startNumber, final long endNumber) {
+			this.startNumber = startNumber;
+			this.endNumber = endNumber;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private CountMessage() {
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%,d..%,d]", this.getClass().getSimpleName(), this.startNumber, this.endNumber);
+		}
+	}
+
+	/**
+	 * Asks the {@link Master} to process the counts of a part of a count as the answer to a {@link Worker.CountingMessage}.
+	 */
+	public static class CountedMessage implements Serializable {
+
+		private static final long serialVersionUID = 5531083366911240197L;
+
+		private int requestId;
+
+		private PrimeCounter.Chunk chunk;
+
+		/**
+		 * Create a new instance.
+		 *
+		 * @param requestId the ID of the query that is being served
+		 * @param chunk     the counts of the subquery
+		 */
+		public CountedMessage(final int requestId, final PrimeCounter.Chunk chunk) {
+			this.requestId = requestId;
+			this.chunk = chunk;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private CountedMessage() {
+		}
+	}
+
+	/**
+	 * Asks the {@link Master} to process some primes as the answer to a {@link Worker.ValidationMessage}. Kryo writes the
+	 * primes with the {@link PrimeCodec}.
+	 */
+	public static class PrimesMessage implements Serializable, KryoSerializable {
 
 		private static final long serialVersionUID = 4862570515887001983L;
 
 		private int requestId;
 
-		private List<Long> primes;
+		private long[] primes;
 
 		private boolean isComplete;
 
@@ -89,10 +161,10 @@ public class Master extends AbstractLoggingActor {
 		 * Create a new instance.
 		 *
 		 * @param requestId  the ID of the query that is being served
-		 * @param primes     some discovered primes
+		 * @param primes     some discovered primes in ascending order; the array must not be modified afterwards
 		 * @param isComplete whether all primes of the current subquery have been discovered
 		 */
-		public PrimesMessage(final int requestId, final List<Long> primes, final boolean isComplete) {
+		public PrimesMessage(final int requestId, final long[] primes, final boolean isComplete) {
 			this.requestId = requestId;
 			this.primes = primes;
 			this.isComplete = isComplete;
@@ -113,12 +185,31 @@ public class Master extends AbstractLoggingActor {
 			final PrimesMessage that = (PrimesMessage) o;
 			return this.requestId == that.requestId &&
 					this.isComplete == that.isComplete &&
-					Objects.equals(this.primes, that.primes);
+					Arrays.equals(this.primes, that.primes);
 		}
 
 		@Override
 		public int hashCode() {
-			return Objects.hash(this.requestId, this.primes, this.isComplete);
+			return 31 * (31 * this.requestId + Arrays.hashCode(this.primes)) + Boolean.hashCode(this.isComplete);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%d, %d primes, %s]", this.getClass().getSimpleName(), this.requestId, this.primes.length, this.isComplete ? "complete" : "partial");
+		}
+
+		@Override
+		public void write(Kryo kryo, Output output) {
+			output.writeVarInt(this.requestId, true);
+			output.writeBoolean(this.isComplete);
+			PrimeCodec.write(output, this.primes);
+		}
+
+		@Override
+		public void read(Kryo kryo, Input input) {
+			this.requestId = input.readVarInt(true);
+			this.isComplete = input.readBoolean();
+			this.primes = PrimeCodec.read(input);
 		}
 	}
 
@@ -150,6 +241,9 @@ public class Master extends AbstractLoggingActor {
 					.matchAny(o -> escalate())
 					.build());
 
+	// Counts are split into about this many subqueries, so that their partial counts stay few
+	private static final int SUBQUERIES_PER_COUNT = 64;
+
 	// A reference to the listener actor that collects all calculated prime numbers
 	private final ActorRef listener;
 	
@@ -162,6 +256,45 @@ public class Master extends AbstractLoggingActor {
 	// A flag indicating whether this actor is still accepting new range messages
 	private boolean isAcceptingRequests = true;
 
+	// The sums of the scheduled counts by their task IDs
+	private final Map<Integer, CountTask> taskId2count = new HashMap<>();
+
+	/**
+	 * A count of primes that was requested with a {@link CountMessage} and that is the sum of the counts of its tasks.
+	 */
+	private static class CountQuery {
+
+		private final long startNumber, endNumber, startTime = System.nanoTime();
+
+		private int pendingTasks = 0;
+
+		private long count = 0;
+
+		CountQuery(final long startNumber, final long endNumber) {
+			this.startNumber = startNumber;
+			this.endNumber = endNumber;
+		}
+	}
+
+	/**
+	 * A scheduled task that counts the primes in a range or up to some number and adds them to a {@link CountQuery}.
+	 */
+	private static class CountTask {
+
+		private final CountQuery query;
+
+		// 1 or -1 for the lower end of a range
+		private final int sign;
+
+		private final PrimeCounter.Sum sum;
+
+		CountTask(final CountQuery query, final int sign, final PrimeCounter.Sum sum) {
+			this.query = query;
+			this.sign = sign;
+			this.sum = sum;
+		}
+	}
+
 	/**
 	 * Construct a new {@link Master} object.
 	 * 
@@ -218,7 +351,9 @@ public class Master extends AbstractLoggingActor {
 		return receiveBuilder()
 				.match(RemoteSystemMessage.class, this::handle)
 				.match(RangeMessage.class, this::handle)
+				.match(CountMessage.class, this::handle)
 				.match(PrimesMessage.class, this::handle)
+				.match(CountedMessage.class, this::handle)
 				.match(ShutdownMessage.class, this::handle)
 				.match(Terminated.class, this::handle)
 				.matchAny(object -> this.log().info(this.getClass().getName() + " received unknown message: " + object.toString()))
@@ -248,10 +383,75 @@ public class Master extends AbstractLoggingActor {
 		}
 
 		// Schedule the request
-		this.schedulingStrategy.schedule(this.nextQueryId, message.startNumber, message.endNumber);
+		this.schedulingStrategy.schedule(this.nextQueryId, message.startNumber, message.endNumber, SchedulingStrategy.DEFAULT_SUBQUERY_RANGE_SIZE, Worker.ValidationMessage::new);
 		this.nextQueryId++;
 	}
 
+	private void handle(CountMessage message) {
+
+		// Check if we are still accepting requests
+		if (!this.isAcceptingRequests) {
+			this.log().warning("Discarding request {}.", message);
+			return;
+		}
+
+		// Sieve narrow ranges and small numbers directly and count wide ranges as pi(endNumber) - pi(startNumber - 1)
+		CountQuery query = new CountQuery(message.startNumber, message.endNumber);
+		long startNumber = Math.max(1, message.startNumber), endNumber = message.endNumber;
+		if (endNumber < startNumber) {
+			this.log().info("Primes in [{}, {}]: 0", message.startNumber, message.endNumber);
+		} else if (endNumber < PrimeCounter.MIN_COMBINATORIAL || endNumber - startNumber < 2 * PrimeCounter.sieveLimit(endNumber)) {
+			this.scheduleCount(query, 1, PrimeCounter.Sum.ofRange(startNumber, endNumber), 0, startNumber, endNumber);
+		} else {
+			this.schedulePi(query, 1, endNumber);
+			if (startNumber > 2)
+				this.schedulePi(query, -1, startNumber - 1);
+		}
+	}
+
+	private void schedulePi(CountQuery query, int sign, long x) {
+		if (x < PrimeCounter.MIN_COMBINATORIAL)
+			this.scheduleCount(query, sign, PrimeCounter.Sum.ofRange(1, x), 0, 1, x);
+		else
+			this.scheduleCount(query, sign, PrimeCounter.Sum.ofPi(x), x, 1, PrimeCounter.sieveLimit(x));
+	}
+
+	private void scheduleCount(CountQuery query, int sign, PrimeCounter.Sum sum, long x, long startNumber, long endNumber) {
+		int taskId = this.nextQueryId++;
+		this.taskId2count.put(taskId, new CountTask(query, sign, sum));
+		query.pendingTasks++;
+
+		// The workers send counts only, so they can take much larger subqueries than for finding primes
+		long subqueryRangeSize = Math.max(SchedulingStrategy.DEFAULT_SUBQUERY_RANGE_SIZE, (endNumber - startNumber) / SUBQUERIES_PER_COUNT + 1);
+		this.schedulingStrategy.schedule(taskId, startNumber, endNumber, subqueryRangeSize,
+				(id, rangeMin, rangeMax) -> new Worker.CountingMessage(id, x, rangeMin, rangeMax));
+	}
+
+	private void handle(CountedMessage message) {
+
+		// Add the counts to their sum and the sum to its query once it is complete; a late or duplicate count arrives
+		// after its task is done and is ignored, also by the scheduler
+		CountTask task = this.taskId2count.get(message.requestId);
+		if (task != null) {
+			task.sum.add(message.chunk);
+			if (task.sum.isComplete()) {
+				this.taskId2count.remove(message.requestId);
+				CountQuery query = task.query;
+				query.count += task.sign * task.sum.count();
+				if (--query.pendingTasks == 0)
+					this.log().info(String.format("Primes in [%d, %d]: %d (%.3f s)", query.startNumber, query.endNumber, query.count, (System.nanoTime() - query.startTime) / 1e9));
+			}
+		}
+
+		// Notify the scheduler that the worker has finished its task
+		this.schedulingStrategy.finished(message.requestId, this.getSender());
+
+		// Check if work is complete and stop the actor hierarchy if true
+		if (this.hasFinished()) {
+			this.stopSelfAndListener();
+		}
+	}
+
 	private void handle(ShutdownMessage message) {
 		
 		// Stop receiving new queries
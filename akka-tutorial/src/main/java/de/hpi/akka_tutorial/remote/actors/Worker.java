@@ -1,11 +1,14 @@
 package de.hpi.akka_tutorial.remote.actors;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
 
 import akka.actor.AbstractLoggingActor;
+import akka.actor.ActorRef;
 import akka.actor.Props;
+import de.hpi.akka_tutorial.primes.PrimeCounter;
+import de.hpi.akka_tutorial.primes.PrimeScanner;
 
 /**
  * The worker waits tests ranges of numbers for prime numbers.
@@ -14,6 +17,12 @@ public class Worker extends AbstractLoggingActor {
 
 	private static final int MAX_PRIMES_PER_MESSAGE = 1000;
 
+	// The scanner caches the base primes of its sieve across all ranges of this worker
+	private final PrimeScanner scanner = new PrimeScanner();
+
+	// The counter caches the small primes of the last number whose primes it counts
+	private final PrimeCounter counter = new PrimeCounter();
+
 	/**
 	 * Create the {@link Props} necessary to instantiate new {@link Worker} actors.
 	 * @return the {@link Props}
@@ -55,6 +64,41 @@ public class Worker extends AbstractLoggingActor {
 		}
 	}
 	
+	/**
+	 * Asks the {@link Worker} to count the primes in a given range or a chunk of the sieve that counts the primes up to
+	 * some number with the {@link PrimeCounter}.
+	 */
+	public static class CountingMessage implements Serializable {
+
+		private static final long serialVersionUID = 6418830458727126703L;
+
+		private int id;
+
+		private long x, rangeMin, rangeMax;
+
+		/**
+		 * Construct a new {@link CountingMessage} object.
+		 *
+		 * @param id the id of the task that this range belongs to
+		 * @param x the number to count the primes up to or 0 to count the primes in the range
+		 * @param rangeMin first number in the range (inclusive)
+		 * @param rangeMax last number in the range (inclusive)
+		 */
+		public CountingMessage(int id, long x, long rangeMin, long rangeMax) {
+			this.id = id;
+			this.x = x;
+			this.rangeMin = rangeMin;
+			this.rangeMax = rangeMax;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private CountingMessage() {
+		}
+	}
+
 	@Override
 	public void preStart() throws Exception {
 		super.preStart();
@@ -75,6 +119,7 @@ public class Worker extends AbstractLoggingActor {
 	public Receive createReceive() {
 		return receiveBuilder()
 				.match(ValidationMessage.class, this::handle)
+				.match(CountingMessage.class, this::handle)
 				.matchAny(object -> this.log().info(this.getClass().getName() + " received unknown message: " + object.toString()))
 				.build();
 	}
@@ -84,31 +129,14 @@ public class Worker extends AbstractLoggingActor {
 		// Log that we started processing the current task
 		this.log().info("Started discovering primes in [{},{}] ...", message.rangeMin, message.rangeMax);
 
-		// Iterate over the range of numbers and compute the primes
-		List<Long> primeBuffer = new ArrayList<>(MAX_PRIMES_PER_MESSAGE);
-		for (long i = message.rangeMin; i <= message.rangeMax; i++) {
-			if (isPrime(i)) {
-				
-				// Check the buffer size: We must not send too large messages, hence, also reply with intermediate results as necessary
-				if (primeBuffer.size() >= MAX_PRIMES_PER_MESSAGE) {
-					
-					// Create a copy of the elements in the buffer before sending them; never send mutable objects in a message!!!
-					ArrayList<Long> primeBufferCopy = new ArrayList<>(primeBuffer);
-					
-					// Send the intermediate results to the master actor
-					this.getSender().tell(new Master.PrimesMessage(message.id, primeBufferCopy, false), this.getSelf());
-					
-					// Clear the buffer
-					primeBuffer.clear();
-				}
-				
-				// Add the computed prime to the buffer
-				primeBuffer.add(i);
-			}
-		}
+		// Collect the primes in a buffer that sends them in chunks
+		PrimeBuffer primeBuffer = new PrimeBuffer(message.id, this.getSender());
+
+		// Sieve the range or test its numbers one by one, whichever is cheaper
+		this.scanner.scan(message.rangeMin, message.rangeMax, primeBuffer);
 
-		// Send the primes to the master actor
-		this.getSender().tell(new Master.PrimesMessage(message.id, primeBuffer, true), this.getSelf());
+		// Send the remaining primes to the master actor
+		primeBuffer.send(true);
 
 		// Asynchronous version: Consider using a dedicated executor service.
 //		ActorRef sender = this.getSender();
@@ -123,21 +151,51 @@ public class Worker extends AbstractLoggingActor {
 //		});
 	}
 
-	private static boolean isPrime(long n) {
-		
-		// Check for the most basic primes
-		if (n == 1 || n == 2 || n == 3)
-			return true;
-
-		// Check if n is an even number
-		if (n % 2 == 0)
-			return false;
-
-		// Check the odds
-		for (long i = 3; i * i <= n; i += 2)
-			if (n % i == 0)
-				return false;
-		
-		return true;
+	private void handle(CountingMessage message) {
+
+		// Log that we started processing the current task
+		this.log().info("Started counting primes in [{},{}] ...", message.rangeMin, message.rangeMax);
+
+		// Only the counts are sent back, never the primes
+		PrimeCounter.Chunk chunk = this.counter.count(message.x, message.rangeMin, message.rangeMax);
+		this.getSender().tell(new Master.CountedMessage(message.id, chunk), this.getSelf());
+	}
+
+	/**
+	 * Collects the primes of one {@link ValidationMessage} in a primitive array and sends it to the master actor whenever
+	 * it is full. We must not send too large messages, hence, the worker also replies with intermediate results.
+	 */
+	private class PrimeBuffer implements LongConsumer {
+
+		private final int id;
+
+		private final ActorRef master;
+
+		private long[] primes = new long[MAX_PRIMES_PER_MESSAGE];
+
+		private int size = 0;
+
+		PrimeBuffer(int id, ActorRef master) {
+			this.id = id;
+			this.master = master;
+		}
+
+		@Override
+		public void accept(long prime) {
+			if (this.size == this.primes.length)
+				this.send(false);
+			this.primes[this.size++] = prime;
+		}
+
+		void send(boolean isComplete) {
+
+			// Hand the full array over to the message and start a new one, which saves the copy; never send mutable objects in a message!!!
+			long[] primes = this.size == this.primes.length ? this.primes : Arrays.copyOf(this.primes, this.size);
+			this.master.tell(new Master.PrimesMessage(this.id, primes, isComplete), Worker.this.getSelf());
+			if (!isComplete) {
+				this.primes = new long[MAX_PRIMES_PER_MESSAGE];
+				this.size = 0;
+			}
+		}
 	}
-}
\ No newline at end of file
+}
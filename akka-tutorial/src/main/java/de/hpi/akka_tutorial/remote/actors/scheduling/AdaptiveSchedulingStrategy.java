@@ -0,0 +1,170 @@
+package de.hpi.akka_tutorial.remote.actors.scheduling;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.LongSupplier;
+
+import akka.actor.ActorRef;
+
+/**
+ * A {@link ReactiveSchedulingStrategy} that sizes every subquery such that it takes its worker about
+ * {@link #TARGET_SECONDS}. It measures the throughput of every worker per query in units of a cost model in which a
+ * number costs as much as its number of bits, so that subqueries get narrower as the numbers grow and wider for fast
+ * workers. Towards the end of a query, subqueries shrink in the style of guided self-scheduling, i.e., no subquery takes
+ * more than a share of the remaining numbers per worker, so that no worker is left with a long subquery when the others
+ * are done.
+ */
+public class AdaptiveSchedulingStrategy extends ReactiveSchedulingStrategy {
+
+	/**
+	 * {@link SchedulingStrategy.Factory} implementation for the {@link AdaptiveSchedulingStrategy}.
+	 */
+	public static class Factory implements SchedulingStrategy.Factory {
+
+		private final int prefetchDepth;
+
+		public Factory() {
+			this(DEFAULT_PREFETCH_DEPTH);
+		}
+
+		public Factory(int prefetchDepth) {
+			this.prefetchDepth = prefetchDepth;
+		}
+
+		@Override
+		public AdaptiveSchedulingStrategy create(ActorRef master) {
+			return new AdaptiveSchedulingStrategy(master, this.prefetchDepth);
+		}
+	}
+
+	/**
+	 * The time that a subquery should take: long enough to amortize the round trip of its messages, short enough to
+	 * balance the load.
+	 */
+	static final double TARGET_SECONDS = 0.5;
+
+	// A subquery takes at most the remaining numbers divided by this factor and the number of subqueries held by all workers
+	private static final int GUIDED_FACTOR = 2;
+
+	// Subqueries never get narrower than this, because their messages would cost more than their numbers
+	private static final long MIN_SUBQUERY_RANGE_SIZE = 1_000;
+
+	// The weight of the latest measurement in the smoothed throughput
+	private static final double SMOOTHING = 0.5;
+
+	/**
+	 * A held subquery with the time it was sent at.
+	 */
+	private static class Measurement {
+
+		private final int queryId;
+
+		private final long rangeMin, rangeMax, startTime;
+
+		Measurement(final int queryId, final long rangeMin, final long rangeMax, final long startTime) {
+			this.queryId = queryId;
+			this.rangeMin = rangeMin;
+			this.rangeMax = rangeMax;
+			this.startTime = startTime;
+		}
+	}
+
+	// The nanosecond clock for the measurements
+	private final LongSupplier clock;
+
+	// The held subqueries of every worker in the order that the worker processes them
+	private final Map<ActorRef, Queue<Measurement>> worker2measurements = new HashMap<>();
+
+	// The time at which every worker completed its latest subquery, i.e., started the next one it held
+	private final Map<ActorRef, Long> worker2completionTime = new HashMap<>();
+
+	// The smoothed throughput of every worker in costs per second by query
+	private final Map<Integer, Map<ActorRef, Double>> queryId2throughputs = new HashMap<>();
+
+	public AdaptiveSchedulingStrategy(ActorRef master) {
+		this(master, DEFAULT_PREFETCH_DEPTH);
+	}
+
+	public AdaptiveSchedulingStrategy(ActorRef master, int prefetchDepth) {
+		this(master, prefetchDepth, System::nanoTime);
+	}
+
+	AdaptiveSchedulingStrategy(ActorRef master, int prefetchDepth, LongSupplier clock) {
+		super(master, prefetchDepth);
+		this.clock = clock;
+	}
+
+	/**
+	 * The cost model: a number costs as much as its number of bits, which is how the costs of the Miller-Rabin test
+	 * grow and which bounds those of the sieve. The measured throughput makes up for the constant factors and for the
+	 * overestimate of the sieve.
+	 *
+	 * @return the estimated costs of the numbers in a range
+	 */
+	static double cost(long rangeMin, long rangeMax) {
+		return (double) (rangeMax - rangeMin + 1) * costPerNumber(rangeMin + (rangeMax - rangeMin) / 2);
+	}
+
+	private static double costPerNumber(long number) {
+		return 64 - Long.numberOfLeadingZeros(Math.max(2, number));
+	}
+
+	@Override
+	protected long nextSubqueryRangeSize(int queryId, ActorRef worker, long startNumber, long remainingNumbers, long subqueryRangeSize) {
+
+		// Probe with the preferred size until the worker has been measured on this query
+		Double throughput = this.getThroughput(queryId, worker);
+		long size = throughput == null ? subqueryRangeSize : (long) (throughput * TARGET_SECONDS / costPerNumber(startNumber));
+
+		// Shrink the subqueries towards the end of the query
+		size = Math.min(size, remainingNumbers / (GUIDED_FACTOR * Math.max(1, this.countWorkers()) * this.getPrefetchDepth()));
+		return Math.max(size, MIN_SUBQUERY_RANGE_SIZE);
+	}
+
+	@Override
+	protected void subqueryAssigned(int queryId, ActorRef worker, long rangeMin, long rangeMax) {
+		this.worker2measurements.computeIfAbsent(worker, key -> new ArrayDeque<>())
+				.add(new Measurement(queryId, rangeMin, rangeMax, this.clock.getAsLong()));
+	}
+
+	@Override
+	protected void subqueryCompleted(int queryId, ActorRef worker, long rangeMin, long rangeMax) {
+		Queue<Measurement> measurements = this.worker2measurements.get(worker);
+		Measurement measurement = measurements == null ? null : measurements.poll();
+		long now = this.clock.getAsLong();
+		Long previousCompletionTime = this.worker2completionTime.put(worker, now);
+		if (measurement == null || measurement.queryId != queryId || measurement.rangeMin != rangeMin)
+			return;
+
+		// A prefetched subquery starts only when the worker completes its predecessor
+		long startTime = previousCompletionTime == null ? measurement.startTime : Math.max(measurement.startTime, previousCompletionTime);
+		double seconds = Math.max(1e-6, (now - startTime) / 1e9);
+		double throughput = cost(measurement.rangeMin, measurement.rangeMax) / seconds;
+		this.queryId2throughputs.computeIfAbsent(queryId, id -> new HashMap<>())
+				.merge(worker, throughput, (previous, latest) -> (1 - SMOOTHING) * previous + SMOOTHING * latest);
+	}
+
+	@Override
+	protected void queryCompleted(int queryId) {
+		this.queryId2throughputs.remove(queryId);
+	}
+
+	@Override
+	public void removeWorker(ActorRef worker) {
+		this.worker2measurements.remove(worker);
+		this.worker2completionTime.remove(worker);
+		for (Map<ActorRef, Double> throughputs : this.queryId2throughputs.values())
+			throughputs.remove(worker);
+		super.removeWorker(worker);
+	}
+
+	/**
+	 * @return the smoothed throughput of a worker on a query in costs per second or {@code null} if it was not measured
+	 */
+	Double getThroughput(int queryId, ActorRef worker) {
+		Map<ActorRef, Double> throughputs = this.queryId2throughputs.get(queryId);
+		return throughputs == null ? null : throughputs.get(worker);
+	}
+}
@@ -1,16 +1,14 @@
 package de.hpi.akka_tutorial.remote.actors.scheduling;
 
-import java.util.Collection;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
-import java.util.stream.Collectors;
 
 import akka.actor.ActorRef;
-import de.hpi.akka_tutorial.remote.actors.Worker;
 
 public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 
@@ -19,9 +17,41 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 	 */
 	public static class Factory implements SchedulingStrategy.Factory {
 
+		private final int prefetchDepth;
+
+		public Factory() {
+			this(DEFAULT_PREFETCH_DEPTH);
+		}
+
+		public Factory(int prefetchDepth) {
+			this.prefetchDepth = prefetchDepth;
+		}
+
 		@Override
 		public ReactiveSchedulingStrategy create(ActorRef master) {
-			return new ReactiveSchedulingStrategy(master);
+			return new ReactiveSchedulingStrategy(master, this.prefetchDepth);
+		}
+	}
+
+	/**
+	 * The default number of subqueries that a worker holds at once: one to process and one to start right away
+	 * afterwards, so that the worker does not idle for the round trip to the master.
+	 */
+	public static final int DEFAULT_PREFETCH_DEPTH = 2;
+
+	/**
+	 * A subquery message with the range that it covers.
+	 */
+	private static class Subquery {
+
+		private final Object message;
+
+		private final long rangeMin, rangeMax;
+
+		Subquery(final Object message, final long rangeMin, final long rangeMax) {
+			this.message = message;
+			this.rangeMin = rangeMin;
+			this.rangeMax = rangeMax;
 		}
 	}
 
@@ -30,8 +60,11 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 	 */
 	private class QueryTracker {
 
-		// Give each worker at most this many numbers at once to check.
-		private final int MAX_SUBQUERY_RANGE_SIZE = 100_000;
+		// Give each worker this many numbers at once to check, unless a subclass decides otherwise.
+		private final long subqueryRangeSize;
+
+		// Creates the messages for the subqueries.
+		private final SubqueryFactory subqueryFactory;
 
 		// The range of values that was not yet scheduled to workers.
 		private long remainingRangeStartNumber, remainingRangeEndNumber;
@@ -39,35 +72,41 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 		// This is the ID of the query that is being tracked.
 		private final int id;
 
-		// Keeps track of the currently posed subqueries and which actor is processing it.
-		private final Map<ActorRef, Worker.ValidationMessage> runningSubqueries = new HashMap<>();
+		// Keeps track of the currently posed subqueries of each actor in the order that the actor processes them.
+		private final Map<ActorRef, Queue<Subquery>> runningSubqueries = new HashMap<>();
 
 		// Keeps track of failed subqueries, so as to reschedule them to some worker.
-		private final Queue<Worker.ValidationMessage> failedSubqueries = new LinkedList<>();
+		private final Queue<Subquery> failedSubqueries = new LinkedList<>();
+
+		// Whether this tracker is in the rotation of trackers that have subqueries to assign.
+		private boolean isActive = false;
 
-		QueryTracker(final int id, final long startNumber, final long endNumber) {
+		QueryTracker(final int id, final long startNumber, final long endNumber, final long subqueryRangeSize, final SubqueryFactory subqueryFactory) {
 			this.id = id;
+			this.subqueryRangeSize = subqueryRangeSize;
+			this.subqueryFactory = subqueryFactory;
 			this.remainingRangeStartNumber = startNumber;
 			this.remainingRangeEndNumber = endNumber;
 		}
 
 		/**
-		 * Assign a subquery of the tracked query to the worker. If a subquery was available, a {@link Worker.ValidationMessage} is send to the worker with master as sender.
+		 * Assign a subquery of the tracked query to the worker. If a subquery was available, a message of the subquery factory, e.g., a {@link de.hpi.akka_tutorial.remote.actors.Worker.ValidationMessage}, is send to the worker with master as sender.
 		 *
 		 * @return {@code true}, if work was assigned and {@code false} otherwise
 		 */
 		boolean assignWork(ActorRef worker, ActorRef master) {
 
 			// Select a failed subquery if any
-			Worker.ValidationMessage subquery = this.failedSubqueries.poll();
+			Subquery subquery = this.failedSubqueries.poll();
 			
 			// Create a new subquery if no failed subquery was selected
-			if (subquery == null) {
-				long subqueryRangeSize = Math.min(this.remainingRangeEndNumber - this.remainingRangeStartNumber + 1, MAX_SUBQUERY_RANGE_SIZE);
-				if (subqueryRangeSize > 0) {
-					subquery = new Worker.ValidationMessage(this.id, this.remainingRangeStartNumber, this.remainingRangeStartNumber + subqueryRangeSize - 1);
-					this.remainingRangeStartNumber += subqueryRangeSize;
-				}
+			long remainingNumbers = this.remainingRangeEndNumber - this.remainingRangeStartNumber + 1;
+			if (subquery == null && remainingNumbers > 0) {
+				long subqueryRangeSize = ReactiveSchedulingStrategy.this.nextSubqueryRangeSize(this.id, worker, this.remainingRangeStartNumber, remainingNumbers, this.subqueryRangeSize);
+				subqueryRangeSize = Math.max(1, Math.min(remainingNumbers, subqueryRangeSize));
+				long rangeMin = this.remainingRangeStartNumber, rangeMax = rangeMin + subqueryRangeSize - 1;
+				subquery = new Subquery(this.subqueryFactory.create(this.id, rangeMin, rangeMax), rangeMin, rangeMax);
+				this.remainingRangeStartNumber += subqueryRangeSize;
 			}
 			
 			// Return false if no work was assigned
@@ -76,21 +115,22 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 			}
 			
 			// Assign and send the subquery to the worker
-			worker.tell(subquery, master);
-			this.runningSubqueries.put(worker, subquery);
+			worker.tell(subquery.message, master);
+			this.runningSubqueries.computeIfAbsent(worker, key -> new ArrayDeque<>()).add(subquery);
+			ReactiveSchedulingStrategy.this.subqueryAssigned(this.id, worker, subquery.rangeMin, subquery.rangeMax);
 			
 			return true;
 		}
 		
 		/**
-		 * Handle the failure of a subquery. That is, prepare to re-schedule the failed subquery.
+		 * Handle the failure of a worker. That is, prepare to re-schedule all its subqueries.
 		 *
 		 * @param worker the actor that just failed
 		 */
 		void workFailed(ActorRef worker) {
-			Worker.ValidationMessage failedTask = this.runningSubqueries.remove(worker);
-			if (failedTask != null) {
-				this.failedSubqueries.add(failedTask);
+			Queue<Subquery> failedTasks = this.runningSubqueries.remove(worker);
+			if (failedTasks != null) {
+				this.failedSubqueries.addAll(failedTasks);
 			}
 		}
 
@@ -98,10 +138,27 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 		 * Handle the completion of a subquery.
 		 *
 		 * @param worker the actor that just completed
+		 * @return whether the worker was running a subquery of this query; a duplicate completion finds none
 		 */
-		void workCompleted(ActorRef worker) {
-			Worker.ValidationMessage completedTask = this.runningSubqueries.remove(worker);
+		boolean workCompleted(ActorRef worker) {
+			Queue<Subquery> runningTasks = this.runningSubqueries.get(worker);
+			if (runningTasks == null)
+				return false;
+			Subquery completedTask = runningTasks.poll();
 			assert completedTask != null;
+			if (runningTasks.isEmpty())
+				this.runningSubqueries.remove(worker);
+			ReactiveSchedulingStrategy.this.subqueryCompleted(this.id, worker, completedTask.rangeMin, completedTask.rangeMax);
+			return true;
+		}
+
+		/**
+		 * Check whether this query has subqueries to assign, i.e., failed ones or numbers that were not scheduled yet.
+		 *
+		 * @return whether this query has subqueries to assign
+		 */
+		boolean hasWork() {
+			return !this.failedSubqueries.isEmpty() || this.remainingRangeStartNumber <= this.remainingRangeEndNumber;
 		}
 
 		/**
@@ -117,25 +174,63 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 	}
 
 
+	/**
+	 * This class keeps the subqueries that a worker holds.
+	 */
+	private static class WorkerState {
+
+		private final ActorRef worker;
+
+		// The trackers of the worker's subqueries in the order that the worker processes them
+		private final Deque<QueryTracker> trackers = new ArrayDeque<>();
+
+		// Whether the worker is in the deque of idle workers
+		private boolean isIdle = false;
+
+		// Whether the worker was removed, so that it is skipped in the deque of idle workers
+		private boolean isRemoved = false;
+
+		WorkerState(final ActorRef worker) {
+			this.worker = worker;
+		}
+	}
+
 	// A mapping of pending range queries to the query tracker that watches the progress of each range query; the queries are kept in their insertion order
 	private final LinkedHashMap<Integer, QueryTracker> queryId2tracker = new LinkedHashMap<>();
 
-	// A mapping of known works to their current task
-	private final Map<ActorRef, QueryTracker> worker2tracker = new HashMap<>();
+	// The query trackers that have subqueries to assign; each assignment takes the first one and moves it to the end
+	private final Deque<QueryTracker> activeTrackers = new ArrayDeque<>();
+
+	// A mapping of known workers to the trackers of their subqueries in the order that the workers process them
+	private final Map<ActorRef, WorkerState> worker2state = new HashMap<>();
+
+	// The workers that hold fewer subqueries than the prefetch depth, each at most once; removed workers are skipped lazily
+	private final Deque<WorkerState> idleWorkers = new ArrayDeque<>();
+
+	// The number of subqueries that each worker holds at once
+	private final int prefetchDepth;
 
 	// A reference to the actor in whose name we send messages
 	private final ActorRef master;
 
 	public ReactiveSchedulingStrategy(ActorRef master) {
+		this(master, DEFAULT_PREFETCH_DEPTH);
+	}
+
+	public ReactiveSchedulingStrategy(ActorRef master, int prefetchDepth) {
+		if (prefetchDepth < 1)
+			throw new IllegalArgumentException("The prefetch depth must be positive: " + prefetchDepth);
 		this.master = master;
+		this.prefetchDepth = prefetchDepth;
 	}
 
 	@Override
-	public void schedule(final int taskId, final long startNumber, final long endNumber) {
+	public void schedule(final int taskId, final long startNumber, final long endNumber, final long subqueryRangeSize, final SubqueryFactory subqueryFactory) {
 
 		// Create a new tracker for the query
-		QueryTracker tracker = new QueryTracker(taskId, startNumber, endNumber);
+		QueryTracker tracker = new QueryTracker(taskId, startNumber, endNumber, subqueryRangeSize, subqueryFactory);
 		this.queryId2tracker.put(tracker.id, tracker);
+		this.activate(tracker);
 
 		// Assign existing, possible free, workers to the new query
 		this.assignSubqueries();
@@ -149,28 +244,38 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 	@Override
 	public void finished(final int taskId, final ActorRef worker) {
 		
-		// Find the query being processed
+		// Find the query being processed and the worker; late or duplicate completions may find neither of them
 		QueryTracker queryTracker = this.queryId2tracker.get(taskId);
+		WorkerState state = this.worker2state.get(worker);
+		if (queryTracker == null || state == null)
+			return;
 
-		// Mark the worker as free
-		queryTracker.workCompleted(worker);
-		this.worker2tracker.put(worker, null);
+		// Free the worker's slot of the subquery; the worker processes its subqueries in order
+		if (!queryTracker.workCompleted(worker))
+			return;
+		state.trackers.removeFirstOccurrence(queryTracker);
+		this.markIdle(state);
 
 		// Check if the query is complete
 		if (queryTracker.isComplete()) {
 			// Remove the query tracker
 			this.queryId2tracker.remove(queryTracker.id);
-		} else {
-			// Re-assign the now free worker
-			this.assignSubqueries();
+			this.queryCompleted(queryTracker.id);
 		}
+
+		// Refill the worker's freed slot, possibly with a subquery of another query
+		this.assignSubqueries();
 	}
 
 	@Override
 	public void addWorker(final ActorRef worker) {
 
 		// Add the new worker
-		this.worker2tracker.put(worker, null);
+		WorkerState state = new WorkerState(worker);
+		WorkerState replacedState = this.worker2state.put(worker, state);
+		if (replacedState != null)
+			replacedState.isRemoved = true;
+		this.markIdle(state);
 
 		// Assign possibly open subqueries to the new worker
 		this.assignSubqueries();
@@ -180,51 +285,109 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 	public void removeWorker(final ActorRef worker) {
 
 		// Remove the worker from the list of workers
-		QueryTracker processedTracker = this.worker2tracker.remove(worker);
+		WorkerState state = this.worker2state.remove(worker);
+		if (state == null)
+			return;
+		state.isRemoved = true;
 
-		// If the worker was processing some subquery, then we need to re-schedule this subquery
-		if (processedTracker != null) {
-			processedTracker.workFailed(worker);
+		// If the worker was holding some subqueries, then we need to re-schedule all of them
+		if (!state.trackers.isEmpty()) {
+			for (QueryTracker processedTracker : state.trackers) {
+				processedTracker.workFailed(worker);
+				this.activate(processedTracker);
+			}
 
-			// We might have some free workers that could process the re-scheduled subquery
+			// We might have some free workers that could process the re-scheduled subqueries
 			this.assignSubqueries();
 		}
 	}
 
-	private void assignSubqueries() {
+	/**
+	 * Put a tracker into the rotation of trackers that have subqueries to assign, unless it is already in there.
+	 */
+	private void activate(QueryTracker tracker) {
+		if (!tracker.isActive && tracker.hasWork()) {
+			tracker.isActive = true;
+			this.activeTrackers.add(tracker);
+		}
+	}
 
-		// Collect all currently idle workers
-		Collection<ActorRef> idleWorkers = this.worker2tracker.entrySet().stream()
-				.filter(e -> e.getValue() == null)
-				.map(Map.Entry::getKey)
-				.collect(Collectors.toList());
-		
-		// Return if no query is present
-		if (this.queryId2tracker.isEmpty())
-			return;
-		
-		// Assign idle workers to pending subqueries
-		Iterator<QueryTracker> queryTrackerIterator = this.queryId2tracker.values().iterator();
-		QueryTracker queryTracker = queryTrackerIterator.next();
-		for (ActorRef idleWorker : idleWorkers) {
-			
-			// Find a query tracker that can assign a subquery to this idle worker
-			while (!queryTracker.assignWork(idleWorker, this.master)) {
-				// Check if there is any (further) on-going query
-				if (!queryTrackerIterator.hasNext()) 
-					return;
-				
-				// Select the (next) query tracker
-				queryTracker = queryTrackerIterator.next();
-			}
+	/**
+	 * Put a worker at the end of the idle workers if it has a free slot and is not already in there.
+	 */
+	private void markIdle(WorkerState state) {
+		if (!state.isIdle && !state.isRemoved && state.trackers.size() < this.prefetchDepth) {
+			state.isIdle = true;
+			this.idleWorkers.add(state);
+		}
+	}
+
+	private void assignSubqueries() {
 
-			// Assign the subquery to the worker and keep track of the assignment
-			this.worker2tracker.put(idleWorker, queryTracker);
+		// Assign one subquery at a time to the first idle worker and take turns among the workers and among the queries,
+		// so that all workers get a subquery before any gets a second one and no query starves the others
+		while (!this.activeTrackers.isEmpty() && !this.idleWorkers.isEmpty()) {
+
+			// Take the first idle worker that was not removed in the meantime
+			WorkerState state = this.idleWorkers.poll();
+			state.isIdle = false;
+			if (state.isRemoved)
+				continue;
+
+			// Take the next query tracker in the rotation
+			QueryTracker queryTracker = this.activeTrackers.poll();
+			queryTracker.isActive = false;
+			if (queryTracker.assignWork(state.worker, this.master))
+				state.trackers.add(queryTracker);
+
+			// Requeue both if they can take part in further assignments
+			this.activate(queryTracker);
+			this.markIdle(state);
 		}
 	}
 
 	@Override
 	public int countWorkers() {
-		return this.worker2tracker.keySet().size();
+		return this.worker2state.size();
+	}
+
+	/**
+	 * @return the number of subqueries that each worker holds at once
+	 */
+	protected int getPrefetchDepth() {
+		return this.prefetchDepth;
+	}
+
+	/**
+	 * Decide how many numbers the next new subquery of a query covers. Subqueries that are re-scheduled after a failure
+	 * keep their size.
+	 *
+	 * @param queryId the ID of the query
+	 * @param worker the worker that is about to get the subquery
+	 * @param startNumber the first number of the subquery
+	 * @param remainingNumbers the number of numbers of the query that are not scheduled yet
+	 * @param subqueryRangeSize the preferred number of numbers per subquery of the query
+	 * @return the number of numbers of the subquery
+	 */
+	protected long nextSubqueryRangeSize(int queryId, ActorRef worker, long startNumber, long remainingNumbers, long subqueryRangeSize) {
+		return subqueryRangeSize;
+	}
+
+	/**
+	 * Notify that a subquery was sent to a worker.
+	 */
+	protected void subqueryAssigned(int queryId, ActorRef worker, long rangeMin, long rangeMax) {
+	}
+
+	/**
+	 * Notify that a worker completed a subquery.
+	 */
+	protected void subqueryCompleted(int queryId, ActorRef worker, long rangeMin, long rangeMax) {
+	}
+
+	/**
+	 * Notify that all subqueries of a query are completed.
+	 */
+	protected void queryCompleted(int queryId) {
 	}
 }
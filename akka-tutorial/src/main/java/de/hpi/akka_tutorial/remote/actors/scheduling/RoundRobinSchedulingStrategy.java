@@ -6,7 +6,6 @@ import java.util.Map;
 import akka.actor.ActorRef;
 import akka.routing.RoundRobinRoutingLogic;
 import akka.routing.Router;
-import de.hpi.akka_tutorial.remote.actors.Worker;
 
 public class RoundRobinSchedulingStrategy implements SchedulingStrategy {
 
@@ -38,7 +37,7 @@ public class RoundRobinSchedulingStrategy implements SchedulingStrategy {
 	}
 	
 	@Override
-	public void schedule(final int taskId, final long startNumber, final long endNumber) {
+	public void schedule(final int taskId, final long startNumber, final long endNumber, final long subqueryRangeSize, final SubqueryFactory subqueryFactory) {
 		
 		// Break the work up into numberOfWorkers chunks of numbers
 		final long numberOfNumbers = endNumber - startNumber + 1;
@@ -55,7 +54,7 @@ public class RoundRobinSchedulingStrategy implements SchedulingStrategy {
 				currentEndNumber = endNumber;
 
 			// Send a new message to the router for this subset of numbers
-			this.workerRouter.route(new Worker.ValidationMessage(taskId, currentStartNumber, currentEndNumber), this.master);
+			this.workerRouter.route(subqueryFactory.create(taskId, currentStartNumber, currentEndNumber), this.master);
 		}
 		
 		// Store the task with numberOfWorkers pending responses
@@ -65,8 +64,11 @@ public class RoundRobinSchedulingStrategy implements SchedulingStrategy {
 	@Override
 	public void finished(final int taskId, final ActorRef worker) {
 		
-		// Decrement the number of pending responses for this task
-		final int newPendingResponses = this.taskId2numberPendingResponses.get(taskId) - 1;
+		// Decrement the number of pending responses for this task; late or duplicate responses find no task
+		final Integer pendingResponses = this.taskId2numberPendingResponses.get(taskId);
+		if (pendingResponses == null)
+			return;
+		final int newPendingResponses = pendingResponses - 1;
 		
 		if (newPendingResponses == 0) {
 			// Task is completed
@@ -1,7 +1,6 @@
 package de.hpi.akka_tutorial.remote.actors.scheduling;
 
 import akka.actor.ActorRef;
-import de.hpi.akka_tutorial.remote.actors.Worker;
 
 public interface SchedulingStrategy {
 
@@ -21,13 +20,38 @@ public interface SchedulingStrategy {
 	}
 
 	/**
-	 * Schedule a new prime checking task in the given range.
+	 * Creates the messages that ask a worker to process a part of a task's range.
+	 */
+	interface SubqueryFactory {
+
+		/**
+		 * Create a message for a part of a task's range.
+		 *
+		 * @param taskId the id of the task that the part belongs to
+		 * @param rangeMin first number of the part (inclusive)
+		 * @param rangeMax last number of the part (inclusive)
+		 * @return the message for the worker
+		 */
+		Object create(int taskId, long rangeMin, long rangeMax);
+	}
+
+	/**
+	 * The default number of numbers that a worker checks for primes at once.
+	 */
+	long DEFAULT_SUBQUERY_RANGE_SIZE = 100_000;
+
+	/**
+	 * Schedule a new task in the given range whose parts are processed by the messages of a factory, e.g.,
+	 * {@link de.hpi.akka_tutorial.remote.actors.Worker.ValidationMessage}s to find primes or
+	 * {@link de.hpi.akka_tutorial.remote.actors.Worker.CountingMessage}s to count them.
 	 *
 	 * @param taskId the id of the task that is to be split and scheduled
 	 * @param startNumber first number of the range
 	 * @param endNumber last number of the range
+	 * @param subqueryRangeSize the preferred number of numbers per part
+	 * @param subqueryFactory creates the message for a part of the range
 	 */
-	void schedule(final int taskId, final long startNumber, final long endNumber);
+	void schedule(final int taskId, final long startNumber, final long endNumber, final long subqueryRangeSize, final SubqueryFactory subqueryFactory);
 
 	/**
 	 * Notify the completion of a worker's task.
@@ -45,21 +69,21 @@ public interface SchedulingStrategy {
 	boolean hasTasksInProgress();
 
 	/**
-	 * Add a new {@link Worker} actor.
+	 * Add a new {@link de.hpi.akka_tutorial.remote.actors.Worker} actor.
 	 *
 	 * @param worker the worker actor to add
 	 */
 	void addWorker(final ActorRef worker);
 
 	/**
-	 * Remove a {@link Worker} actor.
+	 * Remove a {@link de.hpi.akka_tutorial.remote.actors.Worker} actor.
 	 *
 	 * @param worker the worker actor to remove
 	 */
 	void removeWorker(final ActorRef worker);
 
 	/**
-	 * Count the number of active {@link Worker} actors.
+	 * Count the number of active {@link de.hpi.akka_tutorial.remote.actors.Worker} actors.
 	 */
 	int countWorkers();
 }
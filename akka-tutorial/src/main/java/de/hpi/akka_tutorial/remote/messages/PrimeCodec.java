@@ -0,0 +1,94 @@
+package de.hpi.akka_tutorial.remote.messages;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Writes ascending primes compactly for the messages that carry them. The first prime is written as it is, and the
+ * others either as varint gaps to their predecessors or, if the primes are dense enough, as a bitmap over the odd
+ * offsets from the first prime, whichever is shorter. A gap below 128 takes one byte, so that primes up to about 10^18
+ * take one to two bytes each, whereas a list of boxed longs takes ten bytes and more per prime.
+ */
+public class PrimeCodec {
+
+	private static final byte GAPS = 0, BITMAP = 1;
+
+	/**
+	 * Write the primes to Kryo output.
+	 *
+	 * @param primes ascending primes
+	 */
+	public static void write(Output output, long[] primes) {
+		output.writeVarInt(primes.length, true);
+		if (primes.length == 0)
+			return;
+		long first = primes[0];
+		output.writeVarLong(first, true);
+
+		int bitmapBytes = bitmapBytes(primes);
+		if (bitmapBytes >= 0 && bitmapBytes < gapBytes(primes)) {
+			output.writeByte(BITMAP);
+			output.writeVarInt(bitmapBytes, true);
+
+			// Bit i stands for the number first + 2(i + 1)
+			byte[] bitmap = new byte[bitmapBytes];
+			for (int i = 1; i < primes.length; i++) {
+				long bit = (primes[i] - first) / 2 - 1;
+				bitmap[(int) (bit >>> 3)] |= 1 << (bit & 7);
+			}
+			output.writeBytes(bitmap);
+		} else {
+			output.writeByte(GAPS);
+			for (int i = 1; i < primes.length; i++)
+				output.writeVarLong(primes[i] - primes[i - 1], true);
+		}
+	}
+
+	/**
+	 * Read primes written by {@link #write(Output, long[])} from Kryo input.
+	 *
+	 * @return the ascending primes
+	 */
+	public static long[] read(Input input) {
+		long[] primes = new long[input.readVarInt(true)];
+		if (primes.length == 0)
+			return primes;
+		long first = input.readVarLong(true);
+		primes[0] = first;
+
+		if (input.readByte() == BITMAP) {
+			byte[] bitmap = input.readBytes(input.readVarInt(true));
+			int count = 1;
+			for (int i = 0; i < bitmap.length; i++)
+				for (int bits = bitmap[i] & 0xff; bits != 0; bits &= bits - 1)
+					primes[count++] = first + 2 * (8L * i + Integer.numberOfTrailingZeros(bits) + 1);
+		} else {
+			for (int i = 1; i < primes.length; i++)
+				primes[i] = primes[i - 1] + input.readVarLong(true);
+		}
+		return primes;
+	}
+
+	/**
+	 * @return the size of the bitmap over the odd offsets or -1 if some offset is even or the bitmap would be too large
+	 */
+	private static int bitmapBytes(long[] primes) {
+		long first = primes[0];
+		for (int i = 1; i < primes.length; i++)
+			if (((primes[i] - first) & 1) != 0)
+				return -1;
+		long bits = (primes[primes.length - 1] - first) / 2;
+		return bits / 8 < primes.length * 9L ? (int) ((bits + 7) / 8) : -1;
+	}
+
+	private static long gapBytes(long[] primes) {
+		long bytes = 0;
+		for (int i = 1; i < primes.length; i++)
+			bytes += varLongBytes(primes[i] - primes[i - 1]);
+		return bytes;
+	}
+
+	private static int varLongBytes(long value) {
+		return Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 6) / 7);
+	}
+}
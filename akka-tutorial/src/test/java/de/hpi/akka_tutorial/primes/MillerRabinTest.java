@@ -0,0 +1,67 @@
+package de.hpi.akka_tutorial.primes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for {@link MillerRabin} and the {@link PrimeScanner} that selects it.
+ */
+public class MillerRabinTest {
+
+	@Test
+	public void shouldMatchTheSieve() {
+		List<Long> expected = new ArrayList<>();
+		new SegmentedSieve().scan(-5, 1_000_000, expected::add);
+		List<Long> actual = new ArrayList<>();
+		MillerRabin.scan(-5, 1_000_000, actual::add);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void shouldRejectPseudoprimes() {
+		// Carmichael numbers, strong pseudoprimes to the bases 2; 2, 3, 5, 7; 2, 7, 61; and the first nine primes, and squares
+		long[] composites = {561, 1105, 1729, 2047, 3215031751L, 4759123141L, 3825123056546413051L, 4611686014132420609L,
+				Long.MAX_VALUE};
+		for (long composite : composites)
+			assertFalse(Long.toString(composite), MillerRabin.isPrime(composite));
+		assertFalse(MillerRabin.isPrime(1));
+		assertFalse(MillerRabin.isPrime(0));
+		assertFalse(MillerRabin.isPrime(-7));
+	}
+
+	@Test
+	public void shouldMatchBigIntegerOnLargeNumbers() {
+		Random random = new Random(42);
+		for (int i = 0; i < 100_000; i++) {
+			long n = random.nextLong() >>> (1 + random.nextInt(63));
+			assertEquals(Long.toString(n), BigInteger.valueOf(n).isProbablePrime(64), MillerRabin.isPrime(n));
+		}
+		assertTrue(MillerRabin.isPrime(Long.MAX_VALUE - 24));
+		assertTrue(MillerRabin.isPrime(4294967291L));
+		assertTrue(MillerRabin.isPrime(4294967311L));
+	}
+
+	@Test
+	public void shouldScanUpToTheLargestLong() {
+		List<Long> primes = new ArrayList<>();
+		new PrimeScanner().scan(Long.MAX_VALUE - 30, Long.MAX_VALUE, primes::add);
+		assertEquals(Arrays.asList(Long.MAX_VALUE - 24), primes);
+	}
+
+	@Test
+	public void shouldSieveWideRangesOnly() {
+		assertTrue(PrimeScanner.shouldSieve(1, 10));
+		assertTrue(PrimeScanner.shouldSieve(1_000_000_000_000L, 1_000_000_099_999L));
+		assertFalse(PrimeScanner.shouldSieve(1_000_000_000_000L, 1_000_000_000_099L));
+		assertFalse(PrimeScanner.shouldSieve(Long.MAX_VALUE - 100_000, Long.MAX_VALUE));
+	}
+}
@@ -0,0 +1,115 @@
+package de.hpi.akka_tutorial.primes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This class contains tests for the {@link PrimeArchive}.
+ */
+public class PrimeArchiveTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static PrimeStore primes(long rangeMin, long rangeMax) {
+		PrimeStore store = new PrimeStore();
+		new PrimeScanner().scan(rangeMin, rangeMax, store::add);
+		return store;
+	}
+
+	private static void append(PrimeArchive archive, PrimeStore store, TreeSet<Long> expected) throws IOException {
+		archive.append(store.iterator(Long.MIN_VALUE, Long.MAX_VALUE));
+		store.forEach(expected::add);
+	}
+
+	private static List<Long> toList(PrimitiveIterator.OfLong iterator) {
+		List<Long> primes = new ArrayList<>();
+		iterator.forEachRemaining((long prime) -> primes.add(prime));
+		return primes;
+	}
+
+	@Test
+	public void shouldKeepThePrimesAcrossRestarts() throws IOException {
+		File file = this.folder.newFile();
+		TreeSet<Long> expected = new TreeSet<>();
+
+		// Overlapping blocks whose ranges interleave
+		try (PrimeArchive archive = PrimeArchive.open(file)) {
+			append(archive, primes(1_000_000, 2_000_000), expected);
+			append(archive, primes(1, 100), expected);
+		}
+		try (PrimeArchive archive = PrimeArchive.open(file)) {
+			assertEquals(expected.size(), archive.count());
+			// A block whose range overlaps the first one without repeating its primes
+			PrimeStore interleaved = new PrimeStore();
+			for (PrimitiveIterator.OfLong primes = primes(500_000, 3_000_000).iterator(Long.MIN_VALUE, Long.MAX_VALUE); primes.hasNext(); ) {
+				long prime = primes.nextLong();
+				if (prime % 4 == 1 && !archive.contains(prime))
+					interleaved.add(prime);
+			}
+			append(archive, interleaved, expected);
+			append(archive, primes(Long.MAX_VALUE - 1_000, Long.MAX_VALUE), expected);
+		}
+
+		try (PrimeArchive archive = PrimeArchive.open(file)) {
+			assertEquals(expected.size(), archive.count());
+			assertEquals((long) expected.first(), archive.min());
+			assertEquals((long) expected.last(), archive.max());
+			assertEquals(new ArrayList<>(expected), toList(archive.iterator(Long.MIN_VALUE, Long.MAX_VALUE)));
+			assertEquals(new ArrayList<>(expected.subSet(1_500_000L, true, 2_500_000L, true)), toList(archive.iterator(1_500_000, 2_500_000)));
+
+			for (long prime : new long[]{2, 97, 1_000_003, 2_999_957, Long.MAX_VALUE - 24})
+				assertEquals(Long.toString(prime), expected.contains(prime), archive.contains(prime));
+			assertTrue(archive.contains(1_999_993));
+			assertFalse(archive.contains(1_999_995));
+			assertFalse(archive.contains(101));
+
+			// Ranks and neighbors around index entries, block boundaries, and the ends of the archive
+			for (long x : new long[]{Long.MIN_VALUE, 0, 2, 3, 96, 97, 98, 500_000, 1_000_003, 1_999_993, 1_999_994, 2_999_957, 3_000_000, Long.MAX_VALUE - 24, Long.MAX_VALUE}) {
+				assertEquals(Long.toString(x), expected.headSet(x, true).size(), archive.rank(x));
+				assertEquals(Long.toString(x), expected.higher(x) == null ? -1 : (long) expected.higher(x), archive.next(x));
+				assertEquals(Long.toString(x), expected.lower(x) == null ? -1 : (long) expected.lower(x), archive.previous(x));
+			}
+			List<Long> sorted = new ArrayList<>(expected);
+			for (int i = 0; i < sorted.size(); i += 997) {
+				long prime = sorted.get(i);
+				assertEquals(i + 1, archive.rank(prime));
+				assertEquals(i == 0 ? -1 : (long) sorted.get(i - 1), archive.previous(prime));
+				assertEquals(i + 1 == sorted.size() ? -1 : (long) sorted.get(i + 1), archive.next(prime));
+			}
+		}
+	}
+
+	@Test
+	public void shouldCutOffAnIncompleteBlock() throws IOException {
+		File file = this.folder.newFile();
+		long size;
+		try (PrimeArchive archive = PrimeArchive.open(file)) {
+			archive.append(primes(1, 1_000).iterator(Long.MIN_VALUE, Long.MAX_VALUE));
+			size = archive.sizeInBytes();
+			archive.append(primes(1_000, 100_000).iterator(Long.MIN_VALUE, Long.MAX_VALUE));
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(raf.length() - 10);
+		}
+
+		try (PrimeArchive archive = PrimeArchive.open(file)) {
+			assertEquals(168, archive.count());
+			assertEquals(997, archive.max());
+			assertEquals(size, archive.sizeInBytes());
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package de.hpi.akka_tutorial.primes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link PrimeCounter} against the {@link SegmentedSieve}.
+ */
+public class PrimeCounterTest {
+
+	private static long sieve(long rangeMin, long rangeMax) {
+		long[] count = {0};
+		new SegmentedSieve().scan(rangeMin, rangeMax, prime -> count[0]++);
+		return count[0];
+	}
+
+	@Test
+	public void shouldMatchTheSieve() {
+		Random random = new Random(42);
+		List<Long> numbers = new ArrayList<>();
+		numbers.add(PrimeCounter.MIN_COMBINATORIAL);
+		numbers.add(PrimeCounter.MIN_COMBINATORIAL - 1);
+		numbers.add(100_000_000L);
+		for (int i = 0; i < 5; i++)
+			numbers.add(PrimeCounter.MIN_COMBINATORIAL + random.nextInt(300_000_000));
+
+		// The square of a prime is the edge case of the points x / q
+		numbers.add(17_389L * 17_389L);
+
+		for (long x : numbers)
+			assertEquals(Long.toString(x), sieve(1, x), PrimeCounter.pi(x));
+	}
+
+	@Test
+	public void shouldMatchKnownValues() {
+		assertEquals(0, PrimeCounter.pi(1));
+		assertEquals(1, PrimeCounter.pi(2));
+		assertEquals(455_052_511L, PrimeCounter.pi(10_000_000_000L));
+		assertEquals(37_607_912_018L, PrimeCounter.pi(1_000_000_000_000L));
+	}
+
+	@Test
+	public void shouldSumChunksInAnyOrder() {
+		long x = 3_000_000_007L;
+		long limit = PrimeCounter.sieveLimit(x);
+
+		// Uneven chunks, some of them narrower than a segment of the sieve
+		PrimeCounter counter = new PrimeCounter();
+		List<PrimeCounter.Chunk> chunks = new ArrayList<>();
+		Random random = new Random(42);
+		for (long rangeMin = 1; rangeMin <= limit; ) {
+			long rangeMax = Math.min(limit, rangeMin + random.nextInt(random.nextBoolean() ? 1_000 : 1_000_000));
+			chunks.add(counter.count(x, rangeMin, rangeMax));
+			rangeMin = rangeMax + 1;
+		}
+		Collections.shuffle(chunks, random);
+
+		PrimeCounter.Sum sum = PrimeCounter.Sum.ofPi(x);
+		for (PrimeCounter.Chunk chunk : chunks) {
+			assertFalse(sum.isComplete());
+			sum.add(chunk);
+		}
+		assertTrue(sum.isComplete());
+		assertEquals(PrimeCounter.pi(x), sum.count());
+
+		// Ranges are counted directly
+		PrimeCounter.Sum range = PrimeCounter.Sum.ofRange(1_000_000_000L, 1_001_000_000L);
+		range.add(counter.count(0, 1_000_500_001L, 1_001_000_000L));
+		range.add(counter.count(0, 1_000_000_000L, 1_000_500_000L));
+		assertTrue(range.isComplete());
+		assertEquals(sieve(1_000_000_000L, 1_001_000_000L), range.count());
+	}
+}
@@ -0,0 +1,142 @@
+package de.hpi.akka_tutorial.primes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link PrimeStore}.
+ */
+public class PrimeStoreTest {
+
+	private static List<Long> primes(long rangeMin, long rangeMax) {
+		List<Long> primes = new ArrayList<>();
+		new PrimeScanner().scan(rangeMin, rangeMax, primes::add);
+		return primes;
+	}
+
+	private static List<Long> toList(PrimeStore store, long rangeMin, long rangeMax) {
+		List<Long> primes = new ArrayList<>();
+		store.forEach(rangeMin, rangeMax, primes::add);
+
+		// The iterator must agree with forEach
+		List<Long> iterated = new ArrayList<>();
+		store.iterator(rangeMin, rangeMax).forEachRemaining((long prime) -> iterated.add(prime));
+		assertEquals(primes, iterated);
+		return primes;
+	}
+
+	@Test
+	public void shouldBehaveLikeASortedSet() {
+		List<Long> primes = primes(1, 2_000_000);
+		primes.addAll(primes(1_000_000_000_000L, 1_000_000_300_000L));
+		primes.addAll(primes(Long.MAX_VALUE - 1_000, Long.MAX_VALUE));
+
+		// Add the primes in shuffled chunks, some of them twice
+		List<Long> shuffled = new ArrayList<>(primes);
+		shuffled.addAll(primes.subList(0, 10_000));
+		Collections.shuffle(shuffled, new Random(42));
+
+		PrimeStore store = new PrimeStore();
+		TreeSet<Long> expected = new TreeSet<>();
+		for (long prime : shuffled)
+			assertEquals(expected.add(prime), store.add(prime));
+
+		assertEquals(expected.size(), store.count());
+		assertEquals((long) expected.first(), store.min());
+		assertEquals((long) expected.last(), store.max());
+		assertEquals(new ArrayList<>(expected), toList(store, Long.MIN_VALUE, Long.MAX_VALUE));
+		assertEquals(new ArrayList<>(expected.subSet(100_000L, true, 1_500_000L, true)), toList(store, 100_000, 1_500_000));
+		assertEquals(new ArrayList<>(expected.subSet(2L, true, 3L, true)), toList(store, 2, 3));
+		for (long boundary = 1 << 17; boundary < 2_000_000; boundary += 1 << 17)
+			for (long rangeMin = boundary - 3; rangeMin <= boundary + 3; rangeMin++)
+				assertEquals(new ArrayList<>(expected.subSet(rangeMin, true, rangeMin + 300_000, true)), toList(store, rangeMin, rangeMin + 300_000));
+
+		assertTrue(store.contains(2));
+		assertTrue(store.contains(1_999_993));
+		assertFalse(store.contains(1_999_995));
+		assertFalse(store.contains(1_000_000_000_001L));
+	}
+
+	@Test
+	public void shouldAnswerRangeQueriesLikeASortedSet() {
+		// Dense buckets near zero, sparse buckets near 10^12, and a single prime far beyond them
+		List<Long> primes = primes(1, 1_000_000);
+		for (long rangeMin = 1_000_000_000_000L; rangeMin < 1_000_010_000_000L; rangeMin += 1_000_000)
+			primes.addAll(primes(rangeMin, rangeMin + 3_000));
+		primes.add(Long.MAX_VALUE - 24);
+
+		PrimeStore store = new PrimeStore();
+		TreeSet<Long> expected = new TreeSet<>();
+		for (long prime : primes) {
+			store.add(prime);
+			expected.add(prime);
+		}
+		List<Long> sorted = new ArrayList<>(expected);
+
+		Random random = new Random(42);
+		for (int i = 0; i < 2_000; i++) {
+			long a = random.nextBoolean() ? random.nextInt(1_100_000) - 10 : 1_000_000_000_000L + random.nextInt(10_000_000);
+			long b = a + (random.nextBoolean() ? random.nextInt(1_000) : random.nextInt(1_000_000_000));
+			checkQueries(store, expected, sorted, a, b);
+		}
+		checkQueries(store, expected, sorted, Long.MIN_VALUE, Long.MAX_VALUE);
+		checkQueries(store, expected, sorted, 2, 3);
+		checkQueries(store, expected, sorted, 3, 7);
+
+		for (int k : new int[]{0, 1, 2, 1_000, sorted.size() - 1})
+			assertEquals((long) sorted.get(k), store.select(k));
+		assertEquals(-1, store.select(sorted.size()));
+		assertEquals(-1, store.next(Long.MAX_VALUE - 24));
+		assertEquals(-1, store.previous(2));
+
+		// The store does not test for primality, so twins across a bucket boundary can be checked with any odd numbers
+		PrimeStore boundary = new PrimeStore();
+		boundary.addAll(new long[]{(1 << 17) - 3, (1 << 17) - 1, (1 << 17) + 1, (1 << 18) + 1});
+		assertEquals(2, boundary.twins(0, 1 << 18));
+		assertEquals(1, boundary.twins((1 << 17) - 1, 1 << 18));
+		assertEquals(0, boundary.twins(1 << 17, 1 << 18));
+		assertEquals((1 << 17) + 1, boundary.widestGap(0, Long.MAX_VALUE));
+		assertEquals((1 << 17) - 3, boundary.widestGap(0, 1 << 17));
+	}
+
+	private static void checkQueries(PrimeStore store, TreeSet<Long> expected, List<Long> sorted, long a, long b) {
+		List<Long> range = new ArrayList<>(expected.subSet(a, true, b, true));
+		String message = "[" + a + ", " + b + "]";
+		assertEquals(message, range.size(), store.count(a, b));
+		assertEquals(message, expected.headSet(b, true).size(), store.rank(b));
+		assertEquals(message, expected.higher(a) == null ? -1 : (long) expected.higher(a), store.next(a));
+		assertEquals(message, expected.lower(b) == null ? -1 : (long) expected.lower(b), store.previous(b));
+
+		int twins = 0;
+		long widest = -1, width = 0;
+		for (int i = 1; i < range.size(); i++) {
+			long gap = range.get(i) - range.get(i - 1);
+			if (gap == 2)
+				twins++;
+			if (gap > width) {
+				widest = range.get(i - 1);
+				width = gap;
+			}
+		}
+		assertEquals(message, twins, store.twins(a, b));
+		assertEquals(message, widest, store.widestGap(a, b));
+	}
+
+	@Test
+	public void shouldTakeAboutTwoBytesPerPrime() {
+		PrimeStore store = new PrimeStore();
+		PrimeScanner scanner = new PrimeScanner();
+		for (long magnitude : new long[]{0, 1_000_000_000L, 1_000_000_000_000L, 1_000_000_000_000_000_000L})
+			scanner.scan(magnitude, magnitude + 1_000_000, store::add);
+		assertTrue(store.sizeInBytes() + " bytes", store.sizeInBytes() < 2.5 * store.count());
+	}
+}
@@ -0,0 +1,48 @@
+package de.hpi.akka_tutorial.primes;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link SegmentedSieve} against {@link TrialDivision}.
+ */
+public class SegmentedSieveTest {
+
+	private static List<Long> sieve(SegmentedSieve sieve, long rangeMin, long rangeMax) {
+		List<Long> primes = new ArrayList<>();
+		sieve.scan(rangeMin, rangeMax, primes::add);
+		return primes;
+	}
+
+	private static List<Long> trialDivision(long rangeMin, long rangeMax) {
+		List<Long> primes = new ArrayList<>();
+		TrialDivision.scan(rangeMin, rangeMax, primes::add);
+		return primes;
+	}
+
+	@Test
+	public void shouldMatchTrialDivisionOnSmallRanges() {
+		SegmentedSieve sieve = new SegmentedSieve();
+		for (long rangeMin = 0; rangeMin <= 40; rangeMin++)
+			for (long rangeMax = rangeMin - 1; rangeMax <= 60; rangeMax++)
+				assertEquals("[" + rangeMin + "," + rangeMax + "]", trialDivision(rangeMin, rangeMax), sieve(sieve, rangeMin, rangeMax));
+	}
+
+	@Test
+	public void shouldMatchTrialDivisionAcrossSegments() {
+		SegmentedSieve sieve = new SegmentedSieve();
+		assertEquals(trialDivision(1, 1_000_000), sieve(sieve, 1, 1_000_000));
+		assertEquals(trialDivision(999_999_000_000L, 999_999_020_000L), sieve(sieve, 999_999_000_000L, 999_999_020_000L));
+	}
+
+	@Test
+	public void shouldCountThePrimesBelowTenMillion() {
+		long[] count = new long[1];
+		new SegmentedSieve().scan(2, 10_000_000, prime -> count[0]++);
+		assertEquals(664_579, count[0]);
+	}
+}
@@ -0,0 +1,54 @@
+package de.hpi.akka_tutorial.remote.actors;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.akka_tutorial.primes.PrimeCounter;
+import de.hpi.akka_tutorial.remote.actors.scheduling.ReactiveSchedulingStrategy;
+import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link Master} with a test probe standing in for its only worker.
+ */
+public class MasterTest {
+
+	private ActorSystem actorSystem;
+
+	@Before
+	public void setUp() {
+		this.actorSystem = ActorSystem.create();
+	}
+
+	@Test
+	public void shouldIgnoreADuplicateCount() {
+		TestKit worker = new TestKit(this.actorSystem), listener = new TestKit(this.actorSystem), watcher = new TestKit(this.actorSystem);
+		ActorRef master = this.actorSystem.actorOf(Master.props(listener.getRef(), masterRef -> {
+			ReactiveSchedulingStrategy strategy = new ReactiveSchedulingStrategy(masterRef, 1);
+			strategy.addWorker(worker.getRef());
+			return strategy;
+		}, 0));
+		watcher.watch(master);
+
+		// The worker answers the only subquery of the count twice; the first answer completes and logs the count
+		master.tell(new Master.CountMessage(1, 100), ActorRef.noSender());
+		worker.expectMsgClass(Worker.CountingMessage.class);
+		PrimeCounter.Chunk chunk = new PrimeCounter().count(0, 1, 100);
+		Master.CountedMessage counted = new Master.CountedMessage(0, chunk);
+		master.tell(counted, worker.getRef());
+		master.tell(counted, worker.getRef());
+
+		// The master survived the duplicate: it has nothing left to do and shuts down cleanly once asked to
+		master.tell(new ShutdownMessage(), ActorRef.noSender());
+		listener.expectMsgClass(ShutdownMessage.class);
+		watcher.expectTerminated(master);
+	}
+
+	@After
+	public void tearDown() {
+		this.actorSystem.terminate();
+	}
+
+}
@@ -8,8 +8,6 @@ import org.junit.Before;
 import org.junit.Test;
 import scala.concurrent.duration.Duration;
 
-import java.util.Arrays;
-
 /**
  * This class contains tests for {@link Worker}s.
  */
@@ -32,7 +30,7 @@ public class WorkerTest {
 			worker.tell(new Worker.ValidationMessage(0, 1, 10), this.getRef());
 
 			// Expect the correct response.
-			Master.PrimesMessage expectedMsg = new Master.PrimesMessage(0, Arrays.asList(1L, 2L, 3L, 5L, 7L), true);
+			Master.PrimesMessage expectedMsg = new Master.PrimesMessage(0, new long[]{2, 3, 5, 7}, true);
 			this.expectMsg(Duration.create(3, "secs"), expectedMsg);
 		}};
 	}
@@ -47,7 +45,7 @@ public class WorkerTest {
 			worker.tell(new Worker.ValidationMessage(1, 5, 11), this.getRef());
 
 			// Expect the correct response.
-			Master.PrimesMessage expectedMsg = new Master.PrimesMessage(1, Arrays.asList(5L, 7L, 11L), true);
+			Master.PrimesMessage expectedMsg = new Master.PrimesMessage(1, new long[]{5, 7, 11}, true);
 			this.expectMsg(Duration.create(3, "secs"), expectedMsg);
 		}};
 	}
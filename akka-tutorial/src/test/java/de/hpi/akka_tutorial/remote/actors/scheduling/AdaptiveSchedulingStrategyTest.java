@@ -0,0 +1,126 @@
+package de.hpi.akka_tutorial.remote.actors.scheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link AdaptiveSchedulingStrategy} with simulated workers and a simulated clock.
+ */
+public class AdaptiveSchedulingStrategyTest {
+
+	private ActorSystem actorSystem;
+
+	@Before
+	public void setUp() {
+		this.actorSystem = ActorSystem.create();
+	}
+
+	@Test
+	public void shouldSizeSubqueriesByThroughput() {
+		long[] now = {0};
+		TestKit master = new TestKit(this.actorSystem);
+		AdaptiveSchedulingStrategy strategy = new AdaptiveSchedulingStrategy(master.getRef(), 1, () -> now[0]);
+
+		// A fast and a slow worker with their throughput in costs per second
+		TestKit fast = new TestKit(this.actorSystem), slow = new TestKit(this.actorSystem);
+		Map<TestKit, Double> throughputs = new HashMap<>();
+		throughputs.put(fast, 1e9);
+		throughputs.put(slow, 1e8);
+		strategy.addWorker(fast.getRef());
+		strategy.addWorker(slow.getRef());
+
+		long endNumber = 100_000_000;
+		strategy.schedule(0, 1, endNumber, SchedulingStrategy.DEFAULT_SUBQUERY_RANGE_SIZE, (id, rangeMin, rangeMax) -> new long[]{id, rangeMin, rangeMax});
+
+		// Let the workers complete their subqueries in the order of their simulated end times
+		Map<TestKit, long[]> running = new HashMap<>();
+		Map<TestKit, Long> endTimes = new HashMap<>();
+		Map<TestKit, List<Long>> sizes = new HashMap<>();
+		List<long[]> subqueries = new ArrayList<>();
+		for (TestKit worker : throughputs.keySet()) {
+			sizes.put(worker, new ArrayList<>());
+			receive(worker, now[0], throughputs, running, endTimes, sizes, subqueries);
+		}
+		while (!running.isEmpty()) {
+			TestKit worker = running.keySet().stream().min(Comparator.comparing(endTimes::get)).get();
+			now[0] = endTimes.get(worker);
+			running.remove(worker);
+			strategy.finished(0, worker.getRef());
+			if (worker.msgAvailable())
+				receive(worker, now[0], throughputs, running, endTimes, sizes, subqueries);
+		}
+		assertFalse(strategy.hasTasksInProgress());
+
+		// The subqueries cover the query without gaps or overlaps
+		subqueries.sort(Comparator.comparing(subquery -> subquery[1]));
+		long expectedMin = 1;
+		for (long[] subquery : subqueries) {
+			assertEquals(expectedMin, subquery[1]);
+			expectedMin = subquery[2] + 1;
+		}
+		assertEquals(endNumber + 1, expectedMin);
+
+		// After the probe, the fast worker gets wider subqueries that take about the target time
+		long fastSize = sizes.get(fast).get(1), slowSize = sizes.get(slow).get(1);
+		assertTrue(fastSize > 5 * slowSize);
+		double seconds = AdaptiveSchedulingStrategy.cost(1, slowSize) / throughputs.get(slow);
+		assertEquals(AdaptiveSchedulingStrategy.TARGET_SECONDS, seconds, 0.2);
+
+		// The subqueries shrink towards the end of the query
+		List<Long> fastSizes = sizes.get(fast);
+		assertTrue(fastSizes.get(fastSizes.size() - 1) < fastSize / 10);
+	}
+
+	@Test
+	public void shouldForgetRemovedWorkers() {
+		long[] now = {0};
+		TestKit master = new TestKit(this.actorSystem), worker = new TestKit(this.actorSystem);
+		AdaptiveSchedulingStrategy strategy = new AdaptiveSchedulingStrategy(master.getRef(), 1, () -> now[0]);
+		strategy.addWorker(worker.getRef());
+		strategy.schedule(0, 1, 10_000_000, SchedulingStrategy.DEFAULT_SUBQUERY_RANGE_SIZE, (id, rangeMin, rangeMax) -> new long[]{id, rangeMin, rangeMax});
+		worker.expectMsgClass(long[].class);
+		now[0] += 1_000_000;
+		strategy.finished(0, worker.getRef());
+		worker.expectMsgClass(long[].class);
+		assertNotNull(strategy.getThroughput(0, worker.getRef()));
+
+		// The running subquery goes to the next worker with the size it had
+		strategy.removeWorker(worker.getRef());
+		assertEquals(null, strategy.getThroughput(0, worker.getRef()));
+		TestKit replacement = new TestKit(this.actorSystem);
+		strategy.addWorker(replacement.getRef());
+		long[] subquery = replacement.expectMsgClass(long[].class);
+		assertEquals(100_001, subquery[1]);
+	}
+
+	private static void receive(TestKit worker, long now, Map<TestKit, Double> throughputs, Map<TestKit, long[]> running,
+								Map<TestKit, Long> endTimes, Map<TestKit, List<Long>> sizes, List<long[]> subqueries) {
+		long[] subquery = worker.expectMsgClass(long[].class);
+		double seconds = AdaptiveSchedulingStrategy.cost(subquery[1], subquery[2]) / throughputs.get(worker);
+		running.put(worker, subquery);
+		endTimes.put(worker, now + (long) (seconds * 1e9));
+		sizes.get(worker).add(subquery[2] - subquery[1] + 1);
+		subqueries.add(subquery);
+	}
+
+	@After
+	public void tearDown() {
+		this.actorSystem.terminate();
+	}
+
+}
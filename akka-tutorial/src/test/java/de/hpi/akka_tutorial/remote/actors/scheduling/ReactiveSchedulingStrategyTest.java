@@ -0,0 +1,103 @@
+package de.hpi.akka_tutorial.remote.actors.scheduling;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link ReactiveSchedulingStrategy} with simulated workers.
+ */
+public class ReactiveSchedulingStrategyTest {
+
+	private static final SchedulingStrategy.SubqueryFactory SUBQUERIES = (id, rangeMin, rangeMax) -> new long[]{id, rangeMin, rangeMax};
+
+	private ActorSystem actorSystem;
+
+	@Before
+	public void setUp() {
+		this.actorSystem = ActorSystem.create();
+	}
+
+	@Test
+	public void shouldPrefetchSubqueries() {
+		TestKit master = new TestKit(this.actorSystem), first = new TestKit(this.actorSystem), second = new TestKit(this.actorSystem);
+		ReactiveSchedulingStrategy strategy = new ReactiveSchedulingStrategy(master.getRef(), 3);
+		strategy.addWorker(first.getRef());
+		strategy.addWorker(second.getRef());
+		strategy.schedule(0, 1, 1_000, 100, SUBQUERIES);
+
+		// Both workers get a subquery before either gets a second one
+		assertArrayEquals(new long[]{0, 1, 100}, first.expectMsgClass(long[].class));
+		assertArrayEquals(new long[]{0, 101, 200}, second.expectMsgClass(long[].class));
+		assertArrayEquals(new long[]{0, 201, 300}, first.expectMsgClass(long[].class));
+		assertArrayEquals(new long[]{0, 301, 400}, second.expectMsgClass(long[].class));
+		assertArrayEquals(new long[]{0, 401, 500}, first.expectMsgClass(long[].class));
+		assertArrayEquals(new long[]{0, 501, 600}, second.expectMsgClass(long[].class));
+		assertFalse(first.msgAvailable());
+
+		// Every completed subquery is refilled right away
+		strategy.finished(0, first.getRef());
+		assertArrayEquals(new long[]{0, 601, 700}, first.expectMsgClass(long[].class));
+		assertFalse(second.msgAvailable());
+
+		// A second query takes turns with the first one in the freed slots
+		strategy.schedule(1, 1, 200, 100, SUBQUERIES);
+		strategy.finished(0, second.getRef());
+		assertArrayEquals(new long[]{0, 701, 800}, second.expectMsgClass(long[].class));
+		strategy.finished(0, second.getRef());
+		assertArrayEquals(new long[]{1, 1, 100}, second.expectMsgClass(long[].class));
+		strategy.finished(0, second.getRef());
+		assertArrayEquals(new long[]{0, 801, 900}, second.expectMsgClass(long[].class));
+		strategy.finished(0, second.getRef());
+		assertArrayEquals(new long[]{1, 101, 200}, second.expectMsgClass(long[].class));
+		strategy.finished(1, second.getRef());
+		assertArrayEquals(new long[]{0, 901, 1_000}, second.expectMsgClass(long[].class));
+		strategy.finished(0, second.getRef());
+		assertFalse(second.msgAvailable());
+	}
+
+	@Test
+	public void shouldRescheduleAllSubqueriesOfAFailedWorker() {
+		TestKit master = new TestKit(this.actorSystem), failing = new TestKit(this.actorSystem), replacement = new TestKit(this.actorSystem);
+		ReactiveSchedulingStrategy strategy = new ReactiveSchedulingStrategy(master.getRef(), 2);
+		strategy.addWorker(failing.getRef());
+		strategy.schedule(0, 1, 300, 100, SUBQUERIES);
+		failing.expectMsgClass(long[].class);
+		failing.expectMsgClass(long[].class);
+
+		// The replacement gets both subqueries of the failed worker and then the remaining one
+		strategy.removeWorker(failing.getRef());
+		strategy.addWorker(replacement.getRef());
+		List<long[]> subqueries = new ArrayList<>();
+		subqueries.add(replacement.expectMsgClass(long[].class));
+		subqueries.add(replacement.expectMsgClass(long[].class));
+		assertFalse(replacement.msgAvailable());
+		strategy.finished(0, replacement.getRef());
+		subqueries.add(replacement.expectMsgClass(long[].class));
+		strategy.finished(0, replacement.getRef());
+		assertTrue(strategy.hasTasksInProgress());
+		strategy.finished(0, replacement.getRef());
+		assertFalse(strategy.hasTasksInProgress());
+
+		subqueries.sort(Comparator.comparing(subquery -> subquery[1]));
+		assertArrayEquals(new long[]{0, 1, 100}, subqueries.get(0));
+		assertArrayEquals(new long[]{0, 101, 200}, subqueries.get(1));
+		assertArrayEquals(new long[]{0, 201, 300}, subqueries.get(2));
+	}
+
+	@After
+	public void tearDown() {
+		this.actorSystem.terminate();
+	}
+
+}
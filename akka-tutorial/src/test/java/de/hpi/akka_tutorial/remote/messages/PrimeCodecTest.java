@@ -0,0 +1,81 @@
+package de.hpi.akka_tutorial.remote.messages;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import akka.actor.ActorSystem;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import de.hpi.akka_tutorial.primes.SegmentedSieve;
+import de.hpi.akka_tutorial.remote.actors.Master;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+
+/**
+ * This class contains tests for the {@link PrimeCodec} and the messages that use it.
+ */
+public class PrimeCodecTest {
+
+	private ActorSystem actorSystem;
+
+	@Before
+	public void setUp() {
+		this.actorSystem = ActorSystem.create("test", AkkaUtils.createRemoteAkkaConfig("127.0.0.1", 0));
+	}
+
+	@After
+	public void tearDown() {
+		this.actorSystem.terminate();
+	}
+
+	private static long[] primes(long rangeMin, long rangeMax) {
+		long[] primes = new long[(int) (rangeMax - rangeMin + 1)];
+		int[] count = {0};
+		new SegmentedSieve().scan(rangeMin, rangeMax, prime -> primes[count[0]++] = prime);
+		return Arrays.copyOf(primes, count[0]);
+	}
+
+	private static byte[] write(long[] primes) {
+		Output output = new Output(16, -1);
+		PrimeCodec.write(output, primes);
+		return output.toBytes();
+	}
+
+	@Test
+	public void shouldRoundTripGapsAndBitmaps() {
+		long[][] inputs = {
+				{}, {2}, {2, 3}, {3, 5, 7}, {7, 1_000_003}, {Long.MAX_VALUE - 24},
+				primes(1, 10_000), primes(1_000_000_000_000L, 1_000_000_100_000L), primes(1L << 50, (1L << 50) + 10_000)};
+		for (long[] primes : inputs)
+			assertArrayEquals(Arrays.toString(primes), primes, PrimeCodec.read(new Input(write(primes))));
+	}
+
+	@Test
+	public void shouldTakeOneToTwoBytesPerPrime() {
+		for (long magnitude : new long[]{0, 1_000_000_000L, 1_000_000_000_000L, 1_000_000_000_000_000L}) {
+			long[] primes = primes(magnitude, magnitude + 100_000);
+			double bytesPerPrime = (double) write(primes).length / primes.length;
+			assertTrue(magnitude + ": " + bytesPerPrime, bytesPerPrime <= 2);
+		}
+	}
+
+	@Test
+	public void shouldSerializeThePrimesMessageWithTheCodec() throws Exception {
+		long[] primes = primes(1_000_000_000L, 1_000_100_000L);
+		Master.PrimesMessage message = new Master.PrimesMessage(42, primes, true);
+
+		Serialization serialization = SerializationExtension.get(this.actorSystem);
+		byte[] bytes = serialization.serialize(message).get();
+		assertEquals(message, serialization.deserialize(bytes, Master.PrimesMessage.class).get());
+		assertTrue(bytes.length + " bytes", bytes.length < 2 * primes.length);
+	}
+}
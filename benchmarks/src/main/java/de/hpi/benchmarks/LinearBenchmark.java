@@ -0,0 +1,55 @@
+package de.hpi.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hpi.octopus.jfr.KernelSampler;
+import de.hpi.octopus.kernels.LinearKernel;
+
+/**
+ * Benchmarks the inner loop of the linear combination search over a window of sign vectors for the cracked passwords
+ * of the students file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LinearBenchmark {
+
+	// Number of sign vectors per search; small against the 2^43 vectors of a full run
+	@Param({"65536"})
+	int windowSize;
+
+	private int[] values;
+	private KernelSampler sampler;
+	private long next = 0;
+
+	@Setup
+	public void setUp() {
+		StudentsData data = StudentsData.get();
+		Map<String, Integer> passwords = data.getPasswords();
+		this.values = data.getIds().stream().mapToInt(passwords::get).toArray();
+		this.sampler = new KernelSampler("benchmark");
+	}
+
+	@Benchmark
+	public long search() {
+		long start = this.next;
+		this.next += this.windowSize;
+		return LinearKernel.search(start, start + this.windowSize - 1, this.values, this.sampler);
+	}
+}
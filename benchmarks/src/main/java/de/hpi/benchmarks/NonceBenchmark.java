@@ -0,0 +1,56 @@
+package de.hpi.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hpi.octopus.jfr.KernelSampler;
+import de.hpi.octopus.kernels.NonceKernel;
+
+/**
+ * Benchmarks the nonce search of the hash mining phase for the record ids of the students file as partners. The full
+ * prefix length of 5 takes about a million hashes per search; shorter prefixes give quicker, noisier runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class NonceBenchmark {
+
+	@Param({"3", "5"})
+	int prefixLength;
+
+	private List<String> ids;
+	private Random random;
+	private KernelSampler sampler;
+	private int next = 0;
+
+	@Setup
+	public void setUp() {
+		this.ids = StudentsData.get().getIds();
+		this.random = new Random(13);
+		this.sampler = new KernelSampler("benchmark");
+	}
+
+	@Benchmark
+	public String findHash() {
+		int index = this.next++;
+		int partner = Integer.parseInt(this.ids.get(index % this.ids.size()));
+		int prefix = (index % 2 == 0) ? -1 : 1;
+		return NonceKernel.findHash(partner, prefix, this.prefixLength, this.random, this.sampler);
+	}
+}
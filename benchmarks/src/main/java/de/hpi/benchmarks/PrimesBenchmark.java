@@ -0,0 +1,88 @@
+package de.hpi.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.hpi.akka_tutorial.primes.MillerRabin;
+import de.hpi.akka_tutorial.primes.PrimeScanner;
+import de.hpi.akka_tutorial.primes.SegmentedSieve;
+import de.hpi.akka_tutorial.primes.TrialDivision;
+
+/**
+ * Benchmarks the prime tests of the akka-tutorial worker, trial division and Miller-Rabin, on single numbers and on a
+ * range as large as one subquery of the reactive scheduler, where the range is scanned by trial division, by the
+ * segmented sieve, and by the scanner that picks the sieve or Miller-Rabin. The numbers are the cracked student passwords
+ * shifted to the given magnitude.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PrimesBenchmark {
+
+	@Param({"0", "1000000000", "1000000000000"})
+	long magnitude;
+
+	// Range size of one subquery in the ReactiveSchedulingStrategy
+	@Param({"100000"})
+	int rangeSize;
+
+	private final SegmentedSieve sieve = new SegmentedSieve();
+	private final PrimeScanner scanner = new PrimeScanner();
+
+	private long[] numbers;
+	private int next = 0;
+
+	@Setup
+	public void setUp() {
+		this.numbers = StudentsData.get().getPasswords().values().stream()
+				.mapToLong(password -> this.magnitude + password)
+				.toArray();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public boolean isPrime() {
+		return TrialDivision.isPrime(this.numbers[this.next++ % this.numbers.length]);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public boolean millerRabin() {
+		return MillerRabin.isPrime(this.numbers[this.next++ % this.numbers.length]);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void scan(Blackhole blackhole) {
+		long rangeMin = this.numbers[this.next++ % this.numbers.length];
+		TrialDivision.scan(rangeMin, rangeMin + this.rangeSize - 1, blackhole::consume);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void sieve(Blackhole blackhole) {
+		long rangeMin = this.numbers[this.next++ % this.numbers.length];
+		this.sieve.scan(rangeMin, rangeMin + this.rangeSize - 1, blackhole::consume);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void scanner(Blackhole blackhole) {
+		long rangeMin = this.numbers[this.next++ % this.numbers.length];
+		this.scanner.scan(rangeMin, rangeMin + this.rangeSize - 1, blackhole::consume);
+	}
+}
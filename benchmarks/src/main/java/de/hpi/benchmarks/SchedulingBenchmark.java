@@ -0,0 +1,107 @@
+package de.hpi.benchmarks;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.CallingThreadDispatcher;
+import de.hpi.akka_tutorial.remote.actors.scheduling.ReactiveSchedulingStrategy;
+import de.hpi.akka_tutorial.remote.actors.scheduling.SchedulingStrategy;
+
+/**
+ * Benchmarks the bookkeeping of the akka-tutorial's reactive scheduler for one completed subquery, i.e., a call of
+ * {@code finished} that refills the worker's freed slot. The workers are actors that drop their messages, and the
+ * queries never run out of numbers, so that every worker always holds as many subqueries as the prefetch depth allows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SchedulingBenchmark {
+
+	@Param({"10", "100", "1000", "10000"})
+	int workers;
+
+	@Param({"1", "16"})
+	int queries;
+
+	@Param({"2"})
+	int prefetchDepth;
+
+	/**
+	 * A worker that drops its subqueries.
+	 */
+	public static class Sink extends AbstractActor {
+
+		@Override
+		public Receive createReceive() {
+			return this.receiveBuilder().matchAny(message -> {}).build();
+		}
+	}
+
+	private ActorSystem actorSystem;
+	private SchedulingStrategy strategy;
+
+	private ActorRef[] workerRefs;
+
+	// The queries of the subqueries that every worker holds, in the order that the worker would process them
+	private ArrayDeque<Integer>[] workerQueries;
+
+	// The queries of the subqueries that the scheduler created since the latest call
+	private final ArrayDeque<Integer> createdQueries = new ArrayDeque<>();
+
+	private int next = 0;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		this.actorSystem = ActorSystem.create("benchmark");
+		this.strategy = new ReactiveSchedulingStrategy(this.actorSystem.deadLetters(), this.prefetchDepth);
+		for (int query = 0; query < this.queries; query++)
+			this.strategy.schedule(query, 1, Long.MAX_VALUE - 1, SchedulingStrategy.DEFAULT_SUBQUERY_RANGE_SIZE, (taskId, rangeMin, rangeMax) -> {
+				this.createdQueries.add(taskId);
+				return rangeMin;
+			});
+
+		// Add the workers one by one, so that all subqueries that the scheduler creates go to the latest worker
+		this.workerRefs = new ActorRef[this.workers];
+		this.workerQueries = new ArrayDeque[this.workers];
+		for (int worker = 0; worker < this.workers; worker++) {
+			this.workerRefs[worker] = this.actorSystem.actorOf(Props.create(Sink.class).withDispatcher(CallingThreadDispatcher.Id()));
+			this.workerQueries[worker] = new ArrayDeque<>();
+			this.strategy.addWorker(this.workerRefs[worker]);
+			this.workerQueries[worker].addAll(this.createdQueries);
+			this.createdQueries.clear();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.actorSystem.terminate();
+	}
+
+	@Benchmark
+	public void finished() {
+		int worker = this.next++ % this.workers;
+		this.strategy.finished(this.workerQueries[worker].poll(), this.workerRefs[worker]);
+		this.workerQueries[worker].add(this.createdQueries.poll());
+	}
+}
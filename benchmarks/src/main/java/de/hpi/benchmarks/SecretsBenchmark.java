@@ -0,0 +1,79 @@
+package de.hpi.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.hpi.octopus.jfr.KernelSampler;
+import de.hpi.octopus.kernels.DigestTable;
+import de.hpi.octopus.kernels.SecretsKernel;
+
+/**
+ * Benchmarks the SHA-256 hash of a single candidate and the password scan of a window of candidates against all
+ * digests of the students file, optionally padded with random digests to show that the scan's cost per candidate does
+ * not grow with the number of targets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SecretsBenchmark {
+
+	// Number of candidates per scan, i.e., a small chunk of the 0..1,000,000 password space
+	@Param({"10000"})
+	int windowSize;
+
+	// Random digests added to the students' digests
+	@Param({"0", "1000000"})
+	int extraTargets;
+
+	private DigestTable targets;
+	private List<Integer> passwords;
+	private KernelSampler sampler;
+	private int next = 0;
+
+	@Setup
+	public void setUp() {
+		StudentsData data = StudentsData.get();
+		Map<String, String> targets = new HashMap<>(data.getSecrets());
+		Random random = new Random(42);
+		for (int i = 0; i < this.extraTargets; i++)
+			targets.put("extra" + i, String.format("%016x%016x%016x%016x", random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong()));
+		this.targets = DigestTable.of(targets);
+		this.passwords = new ArrayList<>(data.getPasswords().values());
+		this.sampler = new KernelSampler("benchmark");
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public String hash() {
+		int password = this.passwords.get(this.next++ % this.passwords.size());
+		return SecretsKernel.hash(password);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void scan(Blackhole blackhole) {
+		// Each window ends with a real password, so every scan also exercises the match path
+		int password = this.passwords.get(this.next++ % this.passwords.size());
+		int start = Math.max(0, password - this.windowSize + 1);
+		SecretsKernel.scan(start, password, this.targets, (id, cleartext) -> blackhole.consume(cleartext), this.sampler);
+	}
+}
@@ -0,0 +1,60 @@
+package de.hpi.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hpi.octopus.jfr.KernelSampler;
+import de.hpi.octopus.kernels.SequenceKernel;
+
+/**
+ * Benchmarks the longest common substring of two genes and the search of the best partner of one gene among all genes
+ * of the students file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SequenceBenchmark {
+
+	private Map<String, String> sequences;
+	private List<String> ids;
+	private KernelSampler sampler;
+	private int next = 0;
+
+	@Setup
+	public void setUp() {
+		StudentsData data = StudentsData.get();
+		this.sequences = data.getSequences();
+		this.ids = data.getIds();
+		this.sampler = new KernelSampler("benchmark");
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public String longestOverlap() {
+		int index = this.next++;
+		String str1 = this.sequences.get(this.ids.get(index % this.ids.size()));
+		String str2 = this.sequences.get(this.ids.get((index + 1) % this.ids.size()));
+		return SequenceKernel.longestOverlap(str1, str2);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public String bestPartner() {
+		String id = this.ids.get(this.next++ % this.ids.size());
+		return SequenceKernel.bestPartner(id, this.sequences, this.sampler);
+	}
+}
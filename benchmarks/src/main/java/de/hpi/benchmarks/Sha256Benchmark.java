@@ -0,0 +1,76 @@
+package de.hpi.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.hpi.octopus.kernels.ShortSha256;
+
+/**
+ * Benchmarks the raw SHA-256 digest of one password candidate: the generic {@link MessageDigest}, which the kernels used
+ * before, against the single-block {@link ShortSha256}, hashing one candidate at a time and all of its lanes at once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class Sha256Benchmark {
+
+	private static final int BATCH = 1024;
+
+	private MessageDigest messageDigest;
+	private ShortSha256 sha256;
+	private long[] digests;
+	private int next = 0;
+
+	@Setup
+	public void setUp() throws NoSuchAlgorithmException {
+		this.messageDigest = MessageDigest.getInstance("SHA-256");
+		this.sha256 = new ShortSha256();
+		this.digests = new long[4 * ShortSha256.LANES];
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void messageDigest(Blackhole blackhole) {
+		for (int i = 0; i < BATCH; i++)
+			blackhole.consume(this.messageDigest.digest(Integer.toString(this.next++ % 1000000).getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void singleLane(Blackhole blackhole) {
+		for (int i = 0; i < BATCH; i++) {
+			this.sha256.digest(this.next++ % 1000000, this.digests, 0);
+			blackhole.consume(this.digests[0]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void interleavedLanes(Blackhole blackhole) {
+		for (int i = 0; i < BATCH; i += ShortSha256.LANES) {
+			int candidate = this.next % 1000000;
+			this.next += ShortSha256.LANES;
+			this.sha256.digest(candidate, candidate + 1, candidate + 2, candidate + 3, this.digests);
+			blackhole.consume(this.digests[0]);
+			blackhole.consume(this.digests[12]);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package de.hpi.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.hpi.octopus.kernels.SecretsKernel;
+
+/**
+ * The benchmark inputs: the records of the students file, which is found via the system property {@code students} or
+ * in the current or parent directory, plus the cracked passwords, which are computed once per JVM.
+ */
+public class StudentsData {
+
+	public static final String PROPERTY = "students";
+
+	// Largest password candidate, as in the octopus master's default configuration
+	public static final int MAX_PASSWORD = Integer.getInteger("octopus.max-password", 1000000);
+
+	private static StudentsData instance;
+
+	public static synchronized StudentsData get() {
+		if (instance == null)
+			instance = new StudentsData(locate());
+		return instance;
+	}
+
+	private static File locate() {
+		String property = System.getProperty(PROPERTY);
+		if (property != null)
+			return new File(property);
+		for (String candidate : new String[]{"students.csv", "../students.csv"}) {
+			File file = new File(candidate);
+			if (file.exists())
+				return file;
+		}
+		throw new IllegalStateException("Could not find students.csv; pass its location with -D" + PROPERTY + "=<path>");
+	}
+
+	// Record id to password digest and gene sequence, in file order
+	private final Map<String, String> secrets = new LinkedHashMap<>();
+	private final Map<String, String> sequences = new LinkedHashMap<>();
+
+	private Map<String, Integer> passwords;
+
+	private StudentsData(File file) {
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(file.toPath(), Charset.defaultCharset());
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read " + file, e);
+		}
+		for (String line : lines.subList(1, lines.size())) {
+			if (line.isEmpty())
+				continue;
+			String[] lineSplit = line.split(";");
+			this.secrets.put(lineSplit[0], lineSplit[2]);
+			this.sequences.put(lineSplit[0], lineSplit[3]);
+		}
+	}
+
+	public Map<String, String> getSecrets() {
+		return Collections.unmodifiableMap(this.secrets);
+	}
+
+	public Map<String, String> getSequences() {
+		return Collections.unmodifiableMap(this.sequences);
+	}
+
+	public List<String> getIds() {
+		return new ArrayList<>(this.secrets.keySet());
+	}
+
+	/**
+	 * @return the cleartext passwords of all records, cracked with a single pass over all candidates on first use
+	 */
+	public synchronized Map<String, Integer> getPasswords() {
+		if (this.passwords == null) {
+			Map<String, String> digest2id = new HashMap<>();
+			this.secrets.forEach((id, digest) -> digest2id.put(digest, id));
+			Map<String, Integer> cracked = new LinkedHashMap<>();
+			for (int candidate = 0; candidate <= MAX_PASSWORD && cracked.size() < digest2id.size(); candidate++) {
+				String id = digest2id.get(SecretsKernel.hash(candidate));
+				if (id != null)
+					cracked.put(id, candidate);
+			}
+			this.passwords = cracked;
+		}
+		return this.passwords;
+	}
+}
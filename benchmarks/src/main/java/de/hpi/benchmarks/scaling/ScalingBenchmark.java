@@ -0,0 +1,339 @@
+package de.hpi.benchmarks.scaling;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+
+/**
+ * End-to-end scaling benchmark of octopus: for each configuration, it generates a synthetic students file, starts one
+ * master and N slave JVMs on this machine, runs the full analysis, and records the time of each phase. The
+ * {@code SerialAnalyzer} runs on the same files as the single-threaded baseline.
+ * <p>
+ * In strong scaling mode, each dataset is analyzed by 1 + each number of slaves nodes; in weak scaling mode, the
+ * number of records grows with the number of nodes. The results are appended to {@code <output>.csv} and
+ * {@code <output>.json} after every run.
+ */
+public class ScalingBenchmark {
+
+	static final String[] PHASES = {"secrets", "sequences", "linear", "hashes"};
+
+	// The phase times that the octopus master prints in seconds and the serial analyzer prints in milliseconds
+	private static final Pattern MASTER_PHASE = Pattern.compile("^(Password Cracking|Gene Analysis|Linear Combination|Hash Mining): ([0-9.]+) sec$");
+	private static final Pattern SERIAL_PHASE = Pattern.compile("^(Decryption|Substring|Linear Combination|Encryption): ([0-9]+)$");
+	private static final Map<String, String> MASTER_PHASES = new HashMap<>();
+	private static final Map<String, String> SERIAL_PHASES = new HashMap<>();
+
+	static {
+		MASTER_PHASES.put("Password Cracking", "secrets");
+		MASTER_PHASES.put("Gene Analysis", "sequences");
+		MASTER_PHASES.put("Linear Combination", "linear");
+		MASTER_PHASES.put("Hash Mining", "hashes");
+		SERIAL_PHASES.put("Decryption", "secrets");
+		SERIAL_PHASES.put("Substring", "sequences");
+		SERIAL_PHASES.put("Linear Combination", "linear");
+		SERIAL_PHASES.put("Encryption", "hashes");
+	}
+
+	static class Options {
+
+		@Parameter(names = {"-m", "--mode"}, description = "strong (fixed records per run) or weak (records per node)")
+		String mode = "strong";
+
+		@Parameter(names = {"-r", "--records"}, description = "records per dataset (strong) or per node (weak)")
+		List<Integer> records = new ArrayList<>(Arrays.asList(42));
+
+		@Parameter(names = {"-s", "--slaves"}, description = "numbers of slave JVMs to run with")
+		List<Integer> slaves = new ArrayList<>(Arrays.asList(0, 1, 2, 3));
+
+		@Parameter(names = {"-w", "--workers"}, description = "number of workers per JVM")
+		int workers = 4;
+
+		@Parameter(names = {"-o", "--output"}, description = "path prefix of the result and log files")
+		String output = "scaling";
+
+		@Parameter(names = {"--octopus-jar"}, description = "the shaded octopus jar")
+		String octopusJar = "../octopus/target/hechzell-mkonrad-1.0.jar";
+
+		@Parameter(names = {"--jvm-args"}, description = "additional arguments for every started JVM, separated by spaces")
+		String jvmArgs = "";
+
+		@Parameter(names = {"-h", "--host"}, description = "host to bind the octopus JVMs against")
+		String host = "127.0.0.1";
+
+		@Parameter(names = {"-p", "--port"}, description = "port of the master; slaves use the following ports")
+		int port = 7877;
+
+		@Parameter(names = {"--seed"}, description = "seed of the synthetic datasets")
+		long seed = 42;
+
+		@Parameter(names = {"--gene-length"}, description = "length of the synthetic genes")
+		int geneLength = 3000;
+
+		@Parameter(names = {"--linear-bits"}, description = "number of leading records that the linear combination solution may negate")
+		int linearBits = 24;
+
+		@Parameter(names = {"--no-serial"}, description = "skip the serial baseline")
+		boolean noSerial = false;
+
+		@Parameter(names = {"--timeout"}, description = "minutes after which a run is aborted")
+		int timeoutMinutes = 120;
+
+		@Parameter(names = {"--help"}, help = true)
+		boolean help = false;
+	}
+
+	/**
+	 * The measurements of one distributed run.
+	 */
+	static class Run {
+		final int records, nodes, workers;
+		final Map<String, Long> phaseMillis;
+		final Map<String, Long> serialMillis;
+
+		Run(int records, int nodes, int workers, Map<String, Long> phaseMillis, Map<String, Long> serialMillis) {
+			this.records = records;
+			this.nodes = nodes;
+			this.workers = workers;
+			this.phaseMillis = phaseMillis;
+			this.serialMillis = serialMillis;
+		}
+
+		long totalMillis() {
+			return total(this.phaseMillis);
+		}
+
+		double recordsPerSecond() {
+			return this.records / (this.totalMillis() / 1000.0);
+		}
+	}
+
+	private final Options options;
+	private final File outputDirectory;
+	private final Map<Integer, File> datasets = new HashMap<>();
+	private final Map<Integer, Map<String, Long>> serialResults = new HashMap<>();
+	private final List<Run> runs = new ArrayList<>();
+
+	ScalingBenchmark(Options options) {
+		this.options = options;
+		File prefix = new File(options.output).getAbsoluteFile();
+		this.outputDirectory = prefix.getParentFile();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new Options();
+		JCommander jCommander = JCommander.newBuilder().addObject(options).programName(ScalingBenchmark.class.getName()).build();
+		try {
+			jCommander.parse(args);
+			if (!options.mode.equals("strong") && !options.mode.equals("weak"))
+				throw new ParameterException("Unknown mode: " + options.mode);
+			if (options.linearBits < 1)
+				throw new ParameterException("The linear bits must be positive");
+		} catch (ParameterException e) {
+			System.out.printf("Could not parse args: %s\n", e.getMessage());
+			jCommander.usage();
+			System.exit(1);
+		}
+		if (options.help) {
+			jCommander.usage();
+			return;
+		}
+
+		new ScalingBenchmark(options).run();
+	}
+
+	void run() throws IOException, InterruptedException {
+		for (int records : this.options.records) {
+			for (int slaves : this.options.slaves) {
+				int datasetRecords = this.options.mode.equals("weak") ? records * (slaves + 1) : records;
+				File dataset = this.dataset(datasetRecords);
+
+				Map<String, Long> serial = null;
+				if (!this.options.noSerial)
+					serial = this.serialResults.computeIfAbsent(datasetRecords, key -> this.runSerial(key, dataset));
+
+				System.out.println("Running " + datasetRecords + " records on " + (slaves + 1) + " nodes with " + this.options.workers + " workers each");
+				Map<String, Long> phases = this.runDistributed(datasetRecords, slaves, dataset);
+				this.runs.add(new Run(datasetRecords, slaves + 1, (slaves + 1) * this.options.workers, phases, serial));
+				this.writeResults();
+			}
+		}
+	}
+
+	private File dataset(int records) throws IOException {
+		File file = this.datasets.get(records);
+		if (file == null) {
+			file = new File(this.outputDirectory, "students-" + records + ".csv");
+			new StudentsGenerator(this.options.seed, this.options.geneLength, this.options.linearBits).generate(records, file);
+			this.datasets.put(records, file);
+		}
+		return file;
+	}
+
+	private Map<String, Long> runSerial(int records, File dataset) {
+		System.out.println("Running the serial baseline on " + records + " records");
+		String classpath = System.getProperty("java.class.path");
+		List<String> command = this.javaCommand();
+		command.addAll(Arrays.asList("-cp", classpath, SerialBaseline.class.getName(), dataset.getPath()));
+		try {
+			File log = this.logFile("serial-" + records);
+			Process process = this.start(command, log);
+			this.await(process, "serial baseline");
+			return parsePhases(log, SERIAL_PHASE, SERIAL_PHASES, 1);
+		} catch (IOException | InterruptedException e) {
+			throw new IllegalStateException("The serial baseline failed", e);
+		}
+	}
+
+	private Map<String, Long> runDistributed(int records, int slaves, File dataset) throws IOException, InterruptedException {
+		String label = records + "-records-" + (slaves + 1) + "-nodes";
+		List<Process> processes = new ArrayList<>();
+		try {
+			List<String> master = this.javaCommand();
+			master.addAll(Arrays.asList("-jar", this.options.octopusJar, "master",
+					"-h", this.options.host, "-p", String.valueOf(this.options.port),
+					"-w", String.valueOf(this.options.workers), "-s", String.valueOf(slaves),
+					"-i", dataset.getPath()));
+			File masterLog = this.logFile("master-" + label);
+			Process masterProcess = this.start(master, masterLog);
+			processes.add(masterProcess);
+
+			for (int i = 0; i < slaves; i++) {
+				List<String> slave = this.javaCommand();
+				slave.addAll(Arrays.asList("-jar", this.options.octopusJar, "slave",
+						"-h", this.options.host, "-p", String.valueOf(this.options.port + 1 + i),
+						"-w", String.valueOf(this.options.workers),
+						"-mh", this.options.host, "-mp", String.valueOf(this.options.port)));
+				processes.add(this.start(slave, this.logFile("slave" + i + "-" + label)));
+			}
+
+			this.await(masterProcess, "master");
+
+			// The master shuts its slaves' workers down, after which the slaves terminate on their own
+			for (Process process : processes)
+				if (!process.waitFor(30, TimeUnit.SECONDS))
+					process.destroyForcibly();
+
+			return parsePhases(masterLog, MASTER_PHASE, MASTER_PHASES, 1000);
+		} finally {
+			for (Process process : processes)
+				process.destroyForcibly();
+		}
+	}
+
+	private List<String> javaCommand() {
+		List<String> command = new ArrayList<>();
+		command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+		for (String arg : this.options.jvmArgs.trim().split("\\s+"))
+			if (!arg.isEmpty())
+				command.add(arg);
+		return command;
+	}
+
+	private File logFile(String name) {
+		return new File(this.outputDirectory, new File(this.options.output).getName() + "-" + name + ".log");
+	}
+
+	private Process start(List<String> command, File log) throws IOException {
+		return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+	}
+
+	private void await(Process process, String name) throws InterruptedException {
+		if (!process.waitFor(this.options.timeoutMinutes, TimeUnit.MINUTES)) {
+			process.destroyForcibly();
+			throw new IllegalStateException("The " + name + " did not finish within " + this.options.timeoutMinutes + " minutes");
+		}
+	}
+
+	static Map<String, Long> parsePhases(File log, Pattern pattern, Map<String, String> phaseNames, double toMillis) throws IOException {
+		Map<String, Long> phases = new LinkedHashMap<>();
+		for (String line : Files.readAllLines(log.toPath(), Charset.defaultCharset())) {
+			Matcher matcher = pattern.matcher(line.trim());
+			if (matcher.matches())
+				phases.put(phaseNames.get(matcher.group(1)), Math.round(Double.parseDouble(matcher.group(2)) * toMillis));
+		}
+		for (String phase : PHASES)
+			if (!phases.containsKey(phase))
+				throw new IllegalStateException("No time for phase " + phase + " in " + log + "; see the log for errors");
+		return phases;
+	}
+
+	static long total(Map<String, Long> phaseMillis) {
+		return phaseMillis.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	/**
+	 * Write all runs so far. Speedup and efficiency are relative to the first run of the same series, i.e., the same
+	 * dataset size in strong scaling mode and the same records per node in weak scaling mode.
+	 */
+	private void writeResults() throws IOException {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		Map<Integer, Run> firstOfSeries = new HashMap<>();
+		for (int i = 0; i < this.runs.size(); i++) {
+			Run run = this.runs.get(i);
+			int series = this.options.records.get(i / this.options.slaves.size());
+			Run first = firstOfSeries.computeIfAbsent(series, key -> run);
+			double speedup = run.recordsPerSecond() / first.recordsPerSecond();
+
+			Map<String, Object> row = new LinkedHashMap<>();
+			row.put("mode", this.options.mode);
+			row.put("records", run.records);
+			row.put("nodes", run.nodes);
+			row.put("workers", run.workers);
+			for (String phase : PHASES)
+				row.put(phase + "_ms", run.phaseMillis.get(phase));
+			row.put("total_ms", run.totalMillis());
+			row.put("records_per_second", run.recordsPerSecond());
+			row.put("speedup", speedup);
+			row.put("efficiency", speedup * first.workers / run.workers);
+			row.put("serial_ms", run.serialMillis == null ? null : total(run.serialMillis));
+			row.put("speedup_vs_serial", run.serialMillis == null ? null : (double) total(run.serialMillis) / run.totalMillis());
+			rows.add(row);
+		}
+
+		try (PrintWriter csv = new PrintWriter(this.options.output + ".csv", "UTF-8")) {
+			csv.println(String.join(",", rows.get(0).keySet()));
+			for (Map<String, Object> row : rows) {
+				List<String> values = new ArrayList<>();
+				row.values().forEach(value -> values.add(format(value)));
+				csv.println(String.join(",", values));
+			}
+		}
+
+		try (PrintWriter json = new PrintWriter(this.options.output + ".json", "UTF-8")) {
+			json.println("[");
+			for (int i = 0; i < rows.size(); i++) {
+				List<String> fields = new ArrayList<>();
+				for (Map.Entry<String, Object> entry : rows.get(i).entrySet()) {
+					Object value = entry.getValue();
+					fields.add("\"" + entry.getKey() + "\": " + (value instanceof String ? "\"" + value + "\"" : format(value)));
+				}
+				json.println("  {" + String.join(", ", fields) + "}" + (i < rows.size() - 1 ? "," : ""));
+			}
+			json.println("]");
+		}
+	}
+
+	private static String format(Object value) {
+		if (value == null)
+			return "null";
+		if (value instanceof Double)
+			return String.format(Locale.ROOT, "%.3f", (Double) value);
+		return value.toString();
+	}
+}
@@ -0,0 +1,29 @@
+package de.hpi.benchmarks.scaling;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import de.uni_potsdam.hpi.SerialAnalyzer;
+
+/**
+ * Runs the {@link SerialAnalyzer} on a students file. It prints the milliseconds spent in each phase, which the
+ * {@link ScalingBenchmark} parses from this JVM's output.
+ */
+public class SerialBaseline {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.out.println("Usage: SerialBaseline <students csv>");
+			System.exit(1);
+		}
+
+		List<String> lines = Files.readAllLines(Paths.get(args[0]), Charset.defaultCharset());
+		lines.remove(0);
+		lines.removeIf(String::isEmpty);
+
+		new SerialAnalyzer().analyze(lines.toArray(new String[0]));
+	}
+}
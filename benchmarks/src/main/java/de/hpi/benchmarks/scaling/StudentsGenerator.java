@@ -0,0 +1,120 @@
+package de.hpi.benchmarks.scaling;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import de.hpi.benchmarks.StudentsData;
+import de.hpi.octopus.kernels.SecretsKernel;
+
+/**
+ * Generates synthetic student files with the structure of {@code students.csv}: record ids 1..n, a name, the SHA-256
+ * digest of a password in [0, 1,000,000], and an RNA gene. The data is built so that every phase of the analysis has a
+ * solution:
+ * <ul>
+ * <li>The passwords are chosen such that a sign vector that is negative only for some of the first {@code linearBits}
+ * records (in id order) combines them to zero, so the linear combination search terminates early.</li>
+ * <li>Each gene shares a planted substring with a random other gene, so that the best partners are well defined.</li>
+ * </ul>
+ */
+public class StudentsGenerator {
+
+	public static final String HEADER = "ID;Name;Password;Gene";
+
+	private static final String[] NAMES = {"Sophia", "Jackson", "Emma", "Aiden", "Olivia", "Lucas", "Ava", "Liam", "Mia", "Noah"};
+	private static final char[] NUCLEOTIDES = {'A', 'C', 'G', 'U'};
+
+	private final Random random;
+	private final int geneLength;
+	private final int linearBits;
+
+	/**
+	 * @param seed the seed of all random choices, so that equal parameters give equal files
+	 * @param geneLength the length of each gene; {@code students.csv} has 3000
+	 * @param linearBits the number of leading records that may be negative in the linear combination solution
+	 */
+	public StudentsGenerator(long seed, int geneLength, int linearBits) {
+		this.random = new Random(seed);
+		this.geneLength = geneLength;
+		this.linearBits = linearBits;
+	}
+
+	public void generate(int records, File file) throws IOException {
+		if (records < 2)
+			throw new IllegalArgumentException("At least two records are needed, but " + records + " were requested");
+
+		int[] passwords = this.passwords(records);
+		String[] genes = this.genes(records);
+
+		try (PrintWriter writer = new PrintWriter(file, Charset.defaultCharset().name())) {
+			writer.println(HEADER);
+			for (int i = 0; i < records; i++)
+				writer.println((i + 1) + ";" + NAMES[i % NAMES.length] + ";" + SecretsKernel.hash(passwords[i]) + ";" + genes[i]);
+		}
+	}
+
+	private int[] passwords(int records) {
+		// Pick the negative records among the first ones, leaving at least one positive record
+		int bits = Math.min(this.linearBits, records - 1);
+		boolean[] negative = new boolean[records];
+		int negatives = 0;
+		while (negatives == 0) {
+			for (int i = 0; i < bits; i++) {
+				negative[i] = this.random.nextBoolean();
+				if (negative[i])
+					negatives++;
+			}
+		}
+		int positives = records - negatives;
+
+		// Keep the positive passwords small enough for the few negative ones to balance them
+		int maxPassword = StudentsData.MAX_PASSWORD;
+		int maxPositive = (int) Math.min(maxPassword, (long) negatives * maxPassword / positives);
+
+		int[] passwords = new int[records];
+		long remaining = 0;
+		for (int i = 0; i < records; i++) {
+			if (!negative[i]) {
+				passwords[i] = this.random.nextInt(maxPositive + 1);
+				remaining += passwords[i];
+			}
+		}
+
+		// Split the positive sum among the negative records, each at most the largest password
+		int negativesLeft = negatives;
+		for (int i = 0; i < records; i++) {
+			if (!negative[i])
+				continue;
+			negativesLeft--;
+			long min = Math.max(0, remaining - (long) negativesLeft * maxPassword);
+			long max = Math.min(maxPassword, remaining);
+			passwords[i] = (int) (negativesLeft == 0 ? remaining : min + (long) (this.random.nextDouble() * (max - min + 1)));
+			passwords[i] = (int) Math.min(passwords[i], max);
+			remaining -= passwords[i];
+		}
+		return passwords;
+	}
+
+	private String[] genes(int records) {
+		char[][] genes = new char[records][this.geneLength];
+		for (char[] gene : genes)
+			for (int i = 0; i < gene.length; i++)
+				gene[i] = NUCLEOTIDES[this.random.nextInt(NUCLEOTIDES.length)];
+
+		// Plant a random segment of some other gene into each gene
+		int segmentLength = Math.max(1, this.geneLength / 10);
+		for (int i = 0; i < records; i++) {
+			int other = (i + 1 + this.random.nextInt(records - 1)) % records;
+			int from = this.random.nextInt(this.geneLength - segmentLength + 1);
+			int to = this.random.nextInt(this.geneLength - segmentLength + 1);
+			System.arraycopy(genes[other], from, genes[i], to, segmentLength);
+		}
+
+		String[] result = new String[records];
+		for (int i = 0; i < records; i++)
+			result[i] = new String(genes[i]);
+		return result;
+	}
+}
@@ -2,6 +2,9 @@ package de.hpi.octopus;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
@@ -17,9 +20,11 @@ public class OctopusApp {
 
     	MasterCommand masterCommand = new MasterCommand();
         SlaveCommand slaveCommand = new SlaveCommand();
+        ServeCommand serveCommand = new ServeCommand();
         JCommander jCommander = JCommander.newBuilder()
         	.addCommand(OctopusMaster.MASTER_ROLE, masterCommand)
             .addCommand(OctopusSlave.SLAVE_ROLE, slaveCommand)
+            .addCommand(OctopusService.SERVE_COMMAND, serveCommand)
             .build();
 
         try {
@@ -31,10 +36,16 @@ public class OctopusApp {
 
             switch (jCommander.getParsedCommand()) {
                 case OctopusMaster.MASTER_ROLE:
-                    OctopusMaster.start(ACTOR_SYSTEM_NAME, masterCommand.workers, masterCommand.host, masterCommand.port, masterCommand.inputFile, masterCommand.slaves);
+                    OctopusSystem.startFlightRecording(masterCommand.jfrFile);
+                    OctopusMaster.start(ACTOR_SYSTEM_NAME, masterCommand.workers, masterCommand.host, masterCommand.port, masterCommand.inputFiles, masterCommand.slaves, masterCommand.metricsPort, masterCommand.dictionaryFile);
                     break;
                 case OctopusSlave.SLAVE_ROLE:
-                    OctopusSlave.start(ACTOR_SYSTEM_NAME, slaveCommand.workers, slaveCommand.host, slaveCommand.port, slaveCommand.masterhost, slaveCommand.masterport);
+                    OctopusSystem.startFlightRecording(slaveCommand.jfrFile);
+                    OctopusSlave.start(ACTOR_SYSTEM_NAME, slaveCommand.workers, slaveCommand.host, slaveCommand.port, slaveCommand.masterhost, slaveCommand.masterport, slaveCommand.metricsPort, slaveCommand.dictionaryFile);
+                    break;
+                case OctopusService.SERVE_COMMAND:
+                    OctopusSystem.startFlightRecording(serveCommand.jfrFile);
+                    OctopusService.start(ACTOR_SYSTEM_NAME, serveCommand.workers, serveCommand.host, serveCommand.port, serveCommand.serveHost, serveCommand.servePort, serveCommand.inputDirectory, serveCommand.metricsPort, serveCommand.dictionaryFile);
                     break;
                 default:
                     throw new AssertionError();
@@ -58,6 +69,9 @@ public class OctopusApp {
         public static final int DEFAULT_WORKERS = 4;
         public static final String DEFAULT_INPUT_FILE = "../students.csv";
         public static final int DEFAULT_SLAVES = 0;
+        public static final int DEFAULT_METRICS_PORT = 0;
+        public static final int DEFAULT_SERVE_PORT = 7880;
+        public static final String DEFAULT_SERVE_HOST = "127.0.0.1";
 
     	@Parameter(names = {"-h", "--host"}, description = "this machine's host name or IP to bind against")
         String host = this.getDefaultHost();
@@ -77,6 +91,15 @@ public class OctopusApp {
 
     	@Parameter(names = {"-w", "--workers"}, description = "number of workers to start locally", required = false)
         int workers = DEFAULT_WORKERS;
+
+        @Parameter(names = {"-mx", "--metrics-port"}, description = "port to serve Prometheus metrics on (0 to disable)", required = false)
+        int metricsPort = DEFAULT_METRICS_PORT;
+
+        @Parameter(names = {"--jfr"}, description = "write a Java Flight Recorder recording of this run to the given file", required = false)
+        String jfrFile = null;
+
+        @Parameter(names = {"--dictionary"}, description = "load the cracked password digests from and save them to the given file", required = false)
+        String dictionaryFile = null;
     }
 
     @Parameters(commandDescription = "start a master actor system")
@@ -87,13 +110,31 @@ public class OctopusApp {
             return DEFAULT_MASTER_PORT;
         }
 
-        @Parameter(names = {"-i", "--input"}, description = "input csv file", required = false)
-        String inputFile = DEFAULT_INPUT_FILE;
+        @Parameter(names = {"-i", "--input"}, description = "input csv files, comma separated; the files are analyzed as concurrent jobs", required = false)
+        List<String> inputFiles = new ArrayList<>(Collections.singletonList(DEFAULT_INPUT_FILE));
 
         @Parameter(names = {"-s", "--slaves"}, description = "number of slaves to work with", required = false)
         int slaves = DEFAULT_SLAVES;
     }
 
+    @Parameters(commandDescription = "start a master actor system that keeps running and accepts jobs over HTTP")
+    static class ServeCommand extends CommandBase {
+
+        @Override
+        int getDefaultPort() {
+            return DEFAULT_MASTER_PORT;
+        }
+
+        @Parameter(names = {"-sh", "--serve-host"}, description = "host name or IP to accept jobs on; the jobs are not authenticated, so only bind to trusted networks", required = false)
+        String serveHost = DEFAULT_SERVE_HOST;
+
+        @Parameter(names = {"-sp", "--serve-port"}, description = "port to accept jobs on", required = false)
+        int servePort = DEFAULT_SERVE_PORT;
+
+        @Parameter(names = {"-in", "--input-dir"}, description = "directory of the students files that jobs may name by path; without it, jobs must send their file", required = false)
+        String inputDirectory = null;
+    }
+
     @Parameters(commandDescription = "start a slave actor system")
     static class SlaveCommand extends CommandBase {
 
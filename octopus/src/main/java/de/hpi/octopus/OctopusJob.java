@@ -0,0 +1,141 @@
+package de.hpi.octopus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSelection;
+import akka.actor.ActorSystem;
+import akka.pattern.Patterns;
+import akka.util.Timeout;
+import de.hpi.octopus.actors.Master;
+import de.hpi.octopus.actors.Master.Phase;
+import de.hpi.octopus.actors.Reporter;
+import de.hpi.octopus.actors.StudentRecord;
+import de.hpi.octopus.metrics.OctopusMetrics;
+import scala.concurrent.Await;
+
+/**
+ * The analysis of one students file: it asks the master of the local actor system for the four phases one after the
+ * other, each of which reads the results of the earlier ones from the {@link StudentRecord}s.
+ */
+public class OctopusJob {
+
+    /**
+     * Learns about each phase as soon as it is done.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void phaseCompleted(Phase phase, long millis) throws IOException;
+    }
+
+    private static final Timeout TIMEOUT = new Timeout(1000, TimeUnit.SECONDS);
+
+    private final String id;
+
+    // Record id to password digest and gene sequence
+    private final Map<String, String> secrets;
+    private final Map<String, String> sequences;
+
+    private OctopusJob(String id, Map<String, String> secrets, Map<String, String> sequences) {
+        this.id = id;
+        this.secrets = secrets;
+        this.sequences = sequences;
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public int size() {
+        return this.secrets.size();
+    }
+
+    /**
+     * Create a job for the same records under another id, e.g., to analyze a cached file again.
+     */
+    public OctopusJob withId(String id) {
+        return new OctopusJob(id, this.secrets, this.sequences);
+    }
+
+    public static OctopusJob fromFile(String id, File file) throws IOException {
+        return fromLines(id, Files.readAllLines(file.toPath(), Charset.defaultCharset()));
+    }
+
+    /**
+     * Parse the lines of a students file, the first of which is the header.
+     *
+     * @throws IllegalArgumentException if the file has no records or a malformed line, whose number, counted from 1, it
+     *         names
+     */
+    public static OctopusJob fromLines(String id, List<String> lines) {
+        Map<String, String> secrets = new HashMap<String, String>(42);
+        Map<String, String> sequences = new HashMap<String, String>(42);
+
+        for (int number = 2; number <= lines.size(); number++) {
+            String line = lines.get(number - 1);
+            if (line.length() > 0) {
+                String[] lineSplit = line.split(";");
+                // The line itself is not part of the message, which may be shown to whoever submitted the file
+                if (lineSplit.length < 4)
+                    throw new IllegalArgumentException("Malformed line " + number);
+                secrets.put(lineSplit[0], lineSplit[2]);
+                sequences.put(lineSplit[0], lineSplit[3]);
+            }
+        }
+        if (secrets.isEmpty())
+            throw new IllegalArgumentException("No records");
+
+        // The maps are shared by all jobs on the same file and must not be modified; they are not wrapped as
+        // unmodifiable, though, because Kryo cannot deserialize such wrappers on the slaves
+        return new OctopusJob(id, secrets, sequences);
+    }
+
+    /**
+     * Run all phases of this job on the given actor system's master, block until the last one is done, and return the
+     * job's report: the results of all phases by record. The phases pass only record ids to each other; their results
+     * stay in the records until the report collects them.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<Phase, Object>> run(ActorSystem system, Listener listener) throws Exception {
+        ActorSelection master = system.actorSelection("/user/" + Master.DEFAULT_NAME);
+
+        try {
+            List<String> cracked = new ArrayList<>(this.ask(master, Phase.SECRETS, new Master.SecretsTaskMessage(this.id, this.secrets), listener));
+            List<String> analyzed = new ArrayList<>(this.ask(master, Phase.SEQUENCES, new Master.SequenceTaskMessage(this.id, this.sequences), listener));
+            this.ask(master, Phase.LINEAR, new Master.LinearTaskMessage(this.id, cracked), listener);
+            List<String> mined = new ArrayList<>(this.ask(master, Phase.HASHES, new Master.HashTaskMessage(this.id, analyzed), listener));
+
+            ActorRef reporter = system.actorOf(Reporter.props(this.id));
+            return (Map<String, Map<Phase, Object>>) Await.result(Patterns.ask(reporter, new Reporter.CollectMessage(mined), TIMEOUT), TIMEOUT.duration());
+        } finally {
+            // Without a client, e.g., after a timeout, the master must not keep working on the job; after the last
+            // phase, the master has forgotten the job already and ignores this
+            master.tell(new Master.CancelJobMessage(this.id), ActorRef.noSender());
+            ActorRef records = StudentRecord.region(system);
+            for (String recordId : this.secrets.keySet())
+                records.tell(new StudentRecord.DropMessage(this.id, recordId), ActorRef.noSender());
+        }
+    }
+
+    /**
+     * Ask the master for a phase and return the ids of the records whose results the phase stored.
+     */
+    @SuppressWarnings("unchecked")
+    private Collection<String> ask(ActorSelection master, Phase phase, Object task, Listener listener) throws Exception {
+        long t1 = System.currentTimeMillis();
+        Collection<String> recordIds = (Collection<String>) Await.result(Patterns.ask(master, task, TIMEOUT), TIMEOUT.duration());
+        long t2 = System.currentTimeMillis();
+        OctopusMetrics.get().phaseFinished(phase, t2 - t1);
+        listener.phaseCompleted(phase, t2 - t1);
+        return recordIds;
+    }
+}
@@ -3,36 +3,33 @@ package de.hpi.octopus;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.cluster.Cluster;
-import akka.pattern.Patterns;
-import akka.util.Timeout;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
+import de.hpi.octopus.actors.Broker;
+import de.hpi.octopus.actors.Dictionary;
 import de.hpi.octopus.actors.Master;
 import de.hpi.octopus.actors.Reaper;
+import de.hpi.octopus.actors.StudentRecord;
 import de.hpi.octopus.actors.Worker;
 import de.hpi.octopus.actors.listeners.ClusterListener;
 import de.hpi.octopus.messages.ShutdownMessage;
 import scala.concurrent.Await;
-import scala.concurrent.Future;
 import scala.concurrent.duration.Duration;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 public class OctopusMaster extends OctopusSystem {
 	
 	public static final String MASTER_ROLE = "master";
 
-	public static void start(String actorSystemName, int workers, String host, int port, String inputFile, int slaves) {
+	public static void start(String actorSystemName, int workers, String host, int port, List<String> inputFiles, int slaves, int metricsPort, String dictionaryFile) {
 
 	    final Config config = createConfiguration(actorSystemName, MASTER_ROLE, host, port, host, port);
 
@@ -47,6 +44,8 @@ public class OctopusMaster extends OctopusSystem {
 
 		final ActorSystem system = createSystem(actorSystemName, complete);
 
+		startMetrics(system, host, metricsPort);
+
 		Cluster.get(system).registerOnMemberUp(new Runnable() {
 			@Override
 			public void run() {
@@ -56,92 +55,29 @@ public class OctopusMaster extends OctopusSystem {
 
                 // Create the Reaper.
                 system.actorOf(Reaper.props(), Reaper.DEFAULT_NAME);
+                StudentRecord.startRegion(system);
+                system.actorOf(Dictionary.props(dictionaryFile), Dictionary.DEFAULT_NAME);
+                system.actorOf(Broker.props(), Broker.DEFAULT_NAME);
 
 
 				for (int i = 0; i < workers; i++)
 					system.actorOf(Worker.props(), Worker.DEFAULT_NAME + i);
 
-                List<String> names = new ArrayList<>(42);
-                List<String> secrets = new ArrayList<>(42);
-                List<String> sequences = new ArrayList<>(42);
-
-                Map<String, String> secretsMap = new HashMap<String, String>(42);
-                Map<String, String> sequenceMap = new HashMap<String, String>(42);
-
-                Path filePath = new File(inputFile).toPath();
-                Charset charset = Charset.defaultCharset();
-                List<String> stringList = null;
-                try {
-                    stringList = Files.readAllLines(filePath, charset);
-                } catch (IOException e) {
-                    System.out.println("[ERROR] Input file not found: " + inputFile);
-                    e.printStackTrace();
-                }
-                stringList.remove(0);
-                String[] stringArray = stringList.toArray(new String[]{});
-
-                for (String line : stringArray) {
-                    if(line.length() > 0) {
-                        String[] lineSplit = line.split(";");
-                        names.add(lineSplit[1]);
-                        secrets.add(lineSplit[2]);
-                        sequences.add(lineSplit[3]);
-
-                        secretsMap.put(lineSplit[0], lineSplit[2]);
-                        sequenceMap.put(lineSplit[0], lineSplit[3]);
-                    }
+                // Every input file is a job of its own; the master interleaves the chunks of all jobs on its workers
+                List<Thread> jobs = new ArrayList<>(inputFiles.size());
+                for (int i = 0; i < inputFiles.size(); i++) {
+                    String inputFile = inputFiles.get(i);
+                    String jobId = i + "-" + new File(inputFile).getName();
+                    jobs.add(new Thread(() -> runJob(system, jobId, inputFile), "job-" + jobId));
                 }
 
-
                 try {
                     Thread.sleep(5000);
-                    final Timeout timeout = new Timeout(1000, TimeUnit.SECONDS);
-                    long t1 = System.currentTimeMillis();
-                    final Future<Object> secretsFuture = Patterns.ask(system.actorSelection("/user/" + Master.DEFAULT_NAME), new Master.SecretsTaskMessage(secretsMap), timeout);
-                    final Map solvedSecrets;
-                    solvedSecrets = (Map) Await.result(secretsFuture, timeout.duration());
-                    long t2 = System.currentTimeMillis();
-                    double secretsTime = (t2 - t1) / 1000;
-                    //System.out.println("Time: " + (t2-t1));
-                    System.out.println(solvedSecrets);
-
-                    t1 = System.currentTimeMillis();
-                    final Future<Object> sequenceFuture = Patterns.ask(system.actorSelection("/user/" + Master.DEFAULT_NAME), new Master.SequenceTaskMessage(sequenceMap), timeout);
-                    final Map solvedSequences;
-                    solvedSequences = (Map) Await.result(sequenceFuture, timeout.duration());
-                    t2 = System.currentTimeMillis();
-                    double sequenceTime = (t2 - t1) / 1000;
-                    //System.out.println("Time: " + (t2-t1));
-                    System.out.println(solvedSequences);
-
-                    t1 = System.currentTimeMillis();
-                    final Future<Object> linearFuture = Patterns.ask(system.actorSelection("/user/" + Master.DEFAULT_NAME), new Master.LinearTaskMessage(solvedSecrets), timeout);
-                    final Map solvedLinear;
-                    solvedLinear = (Map) Await.result(linearFuture, timeout.duration());
-                    t2 = System.currentTimeMillis();
-                    double linearTime = (t2 - t1) / 1000;
-                    //System.out.println("Time: " + (t2-t1));
-                    System.out.println(solvedLinear);
-
-                    t1 = System.currentTimeMillis();
-                    final Future<Object> hashFuture = Patterns.ask(system.actorSelection("/user/" + Master.DEFAULT_NAME), new Master.HashTaskMessage(solvedSequences, solvedLinear), timeout);
-                    final Map solvedHash;
-                    solvedHash = (Map) Await.result(hashFuture, timeout.duration());
-                    t2 = System.currentTimeMillis();
-                    double hashTime = (t2 - t1) / 1000;
-                    //System.out.println("Time: " + (t2-t1));
-                    System.out.println(solvedHash);
-
-
-
-                    System.out.println("#########################");
-                    System.out.println("Password Cracking: " + secretsTime + " sec");
-                    System.out.println("Gene Analysis: " + sequenceTime + " sec");
-                    System.out.println("Linear Combination: " + linearTime + " sec");
-                    System.out.println("Hash Mining: " + hashTime + " sec");
-                    System.out.println("---------------------------");
-                    System.out.println("Overall Time: " + (secretsTime +  sequenceTime + linearTime + hashTime) + " sec");
-                    System.out.println("#########################");
+
+                    for (Thread job : jobs)
+                        job.start();
+                    for (Thread job : jobs)
+                        job.join();
 
                     Thread.sleep(10000);
 
@@ -159,6 +95,43 @@ public class OctopusMaster extends OctopusSystem {
 		});
 	}
 
+    private static void runJob(ActorSystem system, String jobId, String inputFile) {
+        OctopusJob job;
+        try {
+            job = OctopusJob.fromFile(jobId, new File(inputFile));
+        } catch (IOException e) {
+            System.out.println("[ERROR] Input file not found: " + inputFile);
+            e.printStackTrace();
+            return;
+        }
+
+        try {
+            Map<Master.Phase, Double> times = new EnumMap<>(Master.Phase.class);
+            Map<String, Map<Master.Phase, Object>> report = job.run(system, (phase, millis) -> times.put(phase, millis / 1000.0));
+            for (Master.Phase phase : Master.Phase.values()) {
+                Map<String, Object> results = new HashMap<>();
+                report.forEach((recordId, record) -> results.put(recordId, record.get(phase)));
+                System.out.println(jobId + ": " + results);
+            }
+
+            // Print the summary in one piece, so that the summaries of concurrent jobs do not interleave
+            synchronized (OctopusMaster.class) {
+                System.out.println("#########################");
+                System.out.println("Job: " + jobId);
+                System.out.println("Password Cracking: " + times.get(Master.Phase.SECRETS) + " sec");
+                System.out.println("Gene Analysis: " + times.get(Master.Phase.SEQUENCES) + " sec");
+                System.out.println("Linear Combination: " + times.get(Master.Phase.LINEAR) + " sec");
+                System.out.println("Hash Mining: " + times.get(Master.Phase.HASHES) + " sec");
+                System.out.println("---------------------------");
+                System.out.println("Overall Time: " + times.values().stream().mapToDouble(Double::doubleValue).sum() + " sec");
+                System.out.println("#########################");
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
     public static void awaitTermination(final ActorSystem actorSystem) {
         try {
             Await.ready(actorSystem.whenTerminated(), Duration.Inf());
@@ -0,0 +1,64 @@
+package de.hpi.octopus;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.sun.net.httpserver.HttpServer;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorSystem;
+import akka.cluster.Cluster;
+import de.hpi.octopus.actors.Broker;
+import de.hpi.octopus.actors.Dictionary;
+import de.hpi.octopus.actors.Master;
+import de.hpi.octopus.actors.Reaper;
+import de.hpi.octopus.actors.StudentRecord;
+import de.hpi.octopus.actors.Worker;
+import de.hpi.octopus.actors.listeners.ClusterListener;
+import de.hpi.octopus.service.JobServer;
+
+/**
+ * A long-running master that accepts jobs over HTTP (see {@link JobServer}) instead of analyzing a fixed list of input
+ * files. Its cluster, including any slaves that join it, stays up between jobs, so that each job runs on warm JVMs.
+ */
+public class OctopusService extends OctopusSystem {
+
+	public static final String SERVE_COMMAND = "serve";
+
+	public static void start(String actorSystemName, int workers, String host, int port, String serveHost, int servePort, String inputDirectory, int metricsPort, String dictionaryFile) {
+
+		final Config config = createConfiguration(actorSystemName, OctopusMaster.MASTER_ROLE, host, port, host, port);
+
+		// Slaves may join at any time, so do not wait for any
+		final Config complete = ConfigFactory.load(ConfigFactory.parseString("akka.cluster.role.slave.min-nr-of-members = 0\n").withFallback(config));
+
+		final ActorSystem system = createSystem(actorSystemName, complete);
+
+		startMetrics(system, host, metricsPort);
+
+		Cluster.get(system).registerOnMemberUp(new Runnable() {
+			@Override
+			public void run() {
+				system.actorOf(ClusterListener.props(), ClusterListener.DEFAULT_NAME);
+				system.actorOf(Master.props(), Master.DEFAULT_NAME);
+				system.actorOf(Reaper.props(), Reaper.DEFAULT_NAME);
+				StudentRecord.startRegion(system);
+				system.actorOf(Dictionary.props(dictionaryFile), Dictionary.DEFAULT_NAME);
+				system.actorOf(Broker.props(), Broker.DEFAULT_NAME);
+
+				for (int i = 0; i < workers; i++)
+					system.actorOf(Worker.props(), Worker.DEFAULT_NAME + i);
+
+				try {
+					final HttpServer server = JobServer.start(system, serveHost, servePort, inputDirectory == null ? null : new File(inputDirectory));
+					system.registerOnTermination(() -> server.stop(0));
+					system.log().info("Accepting jobs on http://{}:{}{}", serveHost, servePort, JobServer.PATH);
+				} catch (IOException e) {
+					system.log().error(e, "Could not accept jobs on {}:{}", serveHost, servePort);
+					system.terminate();
+				}
+			}
+		});
+	}
+}
@@ -5,7 +5,10 @@ import com.typesafe.config.Config;
 import akka.actor.ActorSystem;
 import akka.cluster.Cluster;
 import com.typesafe.config.ConfigFactory;
+import de.hpi.octopus.actors.Broker;
+import de.hpi.octopus.actors.Dictionary;
 import de.hpi.octopus.actors.Reaper;
+import de.hpi.octopus.actors.StudentRecord;
 import de.hpi.octopus.actors.Worker;
 import de.hpi.octopus.actors.listeners.MetricsListener;
 import scala.concurrent.Await;
@@ -17,18 +20,23 @@ public class OctopusSlave extends OctopusSystem {
 
 	public static final String SLAVE_ROLE = "slave";
 	
-	public static void start(String actorSystemName, int workers, String host, int port, String masterhost, int masterport) {
+	public static void start(String actorSystemName, int workers, String host, int port, String masterhost, int masterport, int metricsPort, String dictionaryFile) {
 		
 		final Config config = createConfiguration(actorSystemName, SLAVE_ROLE, host, port, masterhost, masterport);
 
 		final ActorSystem system = createSystem(actorSystemName, config);
 
+		startMetrics(system, host, metricsPort);
+
 		Cluster.get(system).registerOnMemberUp(new Runnable() {
 			@Override
 			public void run() {
 				//system.actorOf(ClusterListener.props(), ClusterListener.DEFAULT_NAME);
 				system.actorOf(MetricsListener.props(), MetricsListener.DEFAULT_NAME);
                 system.actorOf(Reaper.props(), Reaper.DEFAULT_NAME);
+                StudentRecord.startRegion(system);
+                system.actorOf(Dictionary.props(dictionaryFile), Dictionary.DEFAULT_NAME);
+                system.actorOf(Broker.props(), Broker.DEFAULT_NAME);
 
 				for (int i = 0; i < workers; i++)
 					system.actorOf(Worker.props(), Worker.DEFAULT_NAME + i);
@@ -1,5 +1,8 @@
 package de.hpi.octopus;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.text.ParseException;
 import java.util.concurrent.TimeUnit;
 
 import com.typesafe.config.Config;
@@ -7,6 +10,11 @@ import com.typesafe.config.ConfigFactory;
 
 import akka.actor.ActorSystem;
 import akka.cluster.Cluster;
+import com.sun.net.httpserver.HttpServer;
+import de.hpi.octopus.metrics.MetricsServer;
+import de.hpi.octopus.metrics.OctopusMetrics;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
 import scala.concurrent.Await;
 import scala.concurrent.duration.Duration;
 
@@ -59,4 +67,37 @@ public class OctopusSystem {
 		
 		return system;
 	}
+
+	protected static void startMetrics(ActorSystem system, String host, int metricsPort) {
+
+		// Expose the node's metrics via JMX and, if requested, via HTTP for Prometheus
+		OctopusMetrics.get().registerMBean();
+		if (metricsPort <= 0)
+			return;
+
+		try {
+			final HttpServer server = MetricsServer.start(host, metricsPort);
+			system.registerOnTermination(() -> server.stop(0));
+			system.log().info("Serving metrics on http://{}:{}{}", host, metricsPort, MetricsServer.PATH);
+		} catch (IOException e) {
+			system.log().error(e, "Could not serve metrics on {}:{}", host, metricsPort);
+		}
+	}
+
+	static void startFlightRecording(String jfrFile) {
+		if (jfrFile == null)
+			return;
+
+		// Record the JVM's default events plus our chunk and kernel events; the recording is written when the JVM exits
+		try {
+			Recording recording = new Recording(Configuration.getConfiguration("default"));
+			recording.setName("octopus");
+			recording.setDestination(Paths.get(jfrFile));
+			recording.setDumpOnExit(true);
+			recording.start();
+			System.out.println("Recording flight data to " + jfrFile);
+		} catch (IOException | ParseException e) {
+			System.out.println("[ERROR] Could not start flight recording: " + e.getMessage());
+		}
+	}
 }
@@ -0,0 +1,635 @@
+package de.hpi.octopus.actors;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSelection;
+import akka.actor.PoisonPill;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import akka.cluster.Cluster;
+import akka.cluster.ClusterEvent.CurrentClusterState;
+import akka.cluster.ClusterEvent.MemberUp;
+import akka.cluster.Member;
+import akka.cluster.MemberStatus;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import de.hpi.octopus.OctopusMaster;
+import de.hpi.octopus.actors.Master.ChunkCompletedMessage;
+import de.hpi.octopus.actors.Master.Phase;
+import de.hpi.octopus.actors.Master.RecordsStoredMessage;
+import de.hpi.octopus.actors.Master.RegistrationMessage;
+import de.hpi.octopus.actors.StudentRecord.GetResultMessage;
+import de.hpi.octopus.actors.StudentRecord.ResultMessage;
+import de.hpi.octopus.actors.StudentRecord.StoreResultMessage;
+import de.hpi.octopus.actors.Worker.CancelChunkMessage;
+import de.hpi.octopus.actors.Worker.HashSubTaskMessage;
+import de.hpi.octopus.actors.Worker.LinearSubTaskMessage;
+import de.hpi.octopus.actors.Worker.PartitionLostMessage;
+import de.hpi.octopus.actors.Worker.ProbeCreditMessage;
+import de.hpi.octopus.actors.Worker.ResultBuffer;
+import de.hpi.octopus.actors.Worker.ResultCreditMessage;
+import de.hpi.octopus.actors.Worker.SubTask;
+import de.hpi.octopus.kernels.DigestTable;
+import de.hpi.octopus.messages.ShutdownMessage;
+import de.hpi.octopus.metrics.MeteredMailbox;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.Serializable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The broker of a node stands in for all workers of its node: it registers the node's combined capacity with the
+ * master, slices every chunk it receives among its local workers, and combines their results into batches, which it
+ * stores in the {@link StudentRecord}s and reports to the master. The master thus exchanges messages per node rather
+ * than per worker. Chunks of the later phases name only their records; the broker reads the earlier phases' results
+ * that they work on from the records before it slices them.
+ */
+public class Broker extends AbstractActor {
+
+    ////////////////////////
+    // Actor Construction //
+    ////////////////////////
+
+    public static final String DEFAULT_NAME = "broker";
+
+    // Combined results are sent in batches of this size or at this age, whichever comes first; the broker holds back the
+    // credits of its workers while it buffers the maximum number of results
+    private static final int RESULT_BATCH_SIZE = 1024;
+    private static final long RESULT_FLUSH_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final int MAX_BUFFERED_RESULTS = 16384;
+
+    public static Props props() {
+        return Props.create(Broker.class).withMailbox(MeteredMailbox.CONFIG_PATH);
+    }
+
+    ////////////////////
+    // Actor messages //
+    ////////////////////
+
+    /**
+     * Makes the {@link Broker} the owner of a partition of a job's target digests in the join mode of the password
+     * phase: it cracks the targets of its partition by joining them with the candidate digests that the workers send.
+     */
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class JoinPartitionMessage implements Serializable {
+        private static final long serialVersionUID = 7212316416386925064L;
+        private JoinPartitionMessage() {}
+        private String jobId;
+        private int partition;
+        private Map<String, String> targets;
+    }
+
+    /**
+     * Candidate digests, four longs each, and their candidates that fall into a partition owned by the {@link Broker}.
+     */
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class ProbeMessage implements Serializable {
+        private static final long serialVersionUID = -1307440315297712856L;
+        private ProbeMessage() {}
+        private String jobId;
+        private int partition;
+        private long[] digests;
+        private int[] candidates;
+    }
+
+    /**
+     * Tells the {@link Broker} to drop its partitions of a job, because the job's password phase is done.
+     */
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class DropPartitionsMessage implements Serializable {
+        private static final long serialVersionUID = -6446386618812102813L;
+        private DropPartitionsMessage() {}
+        private String jobId;
+    }
+
+    /////////////////
+    // Actor State //
+    /////////////////
+
+    private final LoggingAdapter log = Logging.getLogger(this.context().system(), this);
+    private final Cluster cluster = Cluster.get(this.context().system());
+    private final ActorRef records = StudentRecord.region(this.context().system());
+
+    /**
+     * A chunk received from the master and the slices of it that its workers have not yet completed.
+     */
+    private static class Chunk {
+        private final long id;
+        private final Phase phase;
+        private final ActorRef master;
+        private final Map<Long, Slice> slices = new HashMap<>();
+
+        Chunk(long id, Phase phase, ActorRef master) {
+            this.id = id;
+            this.phase = phase;
+            this.master = master;
+        }
+    }
+
+    /**
+     * The part of a chunk that one local worker processes.
+     */
+    private static class Slice {
+        private final long id;
+        private final Chunk chunk;
+        private final SubTask subTask;
+        private ActorRef worker;
+
+        Slice(long id, Chunk chunk, SubTask subTask) {
+            this.id = id;
+            this.chunk = chunk;
+            this.subTask = subTask;
+        }
+    }
+
+    // The calibrations of the local workers and their slices in the order in which they process them
+    private final Map<ActorRef, RegistrationMessage> workers = new LinkedHashMap<>();
+    private final Map<ActorRef, Deque<Slice>> outstandingSlices = new HashMap<>();
+
+    // The master's chunks that are not yet completed, and the slices by their broker-local ids
+    private final Map<Long, Chunk> chunks = new HashMap<>();
+    private final Map<Long, Slice> slices = new HashMap<>();
+    private long nextSliceId = 0;
+
+    /**
+     * A chunk that waits for the results of earlier phases that it works on: the number of results still missing, the
+     * results read so far by phase, and how to create the chunk's sub task from them.
+     */
+    private static class Load {
+        private final long chunkId;
+        private final ActorRef master;
+        private final Function<Map<Phase, Map<String, Object>>, SubTask> subTask;
+        private final Map<Phase, Map<String, Object>> results = new EnumMap<>(Phase.class);
+        private int missing;
+
+        Load(long chunkId, ActorRef master, Function<Map<Phase, Map<String, Object>>, SubTask> subTask) {
+            this.chunkId = chunkId;
+            this.master = master;
+            this.subTask = subTask;
+        }
+    }
+
+    // The chunks that wait for results of earlier phases by chunk id, and these chunks by the job, record and phase of
+    // the results they wait for; each result is read once however many chunks wait for it
+    private final Map<Long, Load> loads = new HashMap<>();
+    private final Map<String, List<Load>> reads = new HashMap<>();
+
+    // The master, once it is up, and the result batches this broker may still send to it
+    private ActorSelection master;
+    private int resultCredits = 0;
+
+    // The combined results per job and phase, and the workers whose result credits are held back until they are sent
+    private final Map<String, ResultBuffer<?>> results = new LinkedHashMap<>();
+    private final Deque<ActorRef> creditsOwed = new ArrayDeque<>();
+    private int bufferedResults = 0;
+    private long lastFlushNanos = System.nanoTime();
+
+    // Completed chunks whose completion waits until their results are sent
+    private final Deque<Chunk> completedChunks = new ArrayDeque<>();
+
+    /**
+     * A probe that arrived before its partition, and the worker to return its credit to.
+     */
+    private static class EarlyProbe {
+        private final ProbeMessage message;
+        private final ActorRef prober;
+
+        EarlyProbe(ProbeMessage message, ActorRef prober) {
+            this.message = message;
+            this.prober = prober;
+        }
+    }
+
+    // The partitions of target digests owned by this broker by job and partition, probes that arrived before their
+    // partition, and the jobs whose partitions are dropped already
+    private final Map<String, DigestTable> partitions = new HashMap<>();
+    private final Map<String, List<EarlyProbe>> earlyProbes = new HashMap<>();
+    private final Set<String> droppedJobs = new HashSet<>();
+    private final ActorSelection dictionary = this.context().system().actorSelection("/user/" + Dictionary.DEFAULT_NAME);
+    private final Dictionary.View dictionaryView = Dictionary.view(this.context().system());
+
+    /////////////////////
+    // Actor Lifecycle //
+    /////////////////////
+
+    @Override
+    public void preStart() {
+        this.cluster.subscribe(this.self(), MemberUp.class);
+        Reaper.watchWithDefaultReaper(this);
+    }
+
+    @Override
+    public void postStop() {
+        this.cluster.unsubscribe(this.self());
+    }
+
+    ////////////////////
+    // Actor Behavior //
+    ////////////////////
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(CurrentClusterState.class, this::handle)
+                .match(MemberUp.class, this::handle)
+                .match(RegistrationMessage.class, this::handle)
+                .match(LinearSubTaskMessage.class, this::handle)
+                .match(HashSubTaskMessage.class, this::handle)
+                .match(SubTask.class, subTask -> this.slice(subTask, this.sender()))
+                .match(ResultMessage.class, this::handle)
+                .match(CancelChunkMessage.class, this::handle)
+                .match(ChunkCompletedMessage.class, this::handle)
+                .match(ResultCreditMessage.class, this::handle)
+                .match(Master.SecretRevealedMessage.class, message ->
+                        this.combine(message.getJobId() + "/" + Phase.SECRETS, message.getMap(), map -> this.store(message.getJobId(), Phase.SECRETS, map)))
+                .match(Master.SequenceRevealedMessage.class, message ->
+                        this.combine(message.getJobId() + "/" + Phase.SEQUENCES, message.getMap(), map -> this.store(message.getJobId(), Phase.SEQUENCES, map)))
+                .match(Master.LinearRevealedMessage.class, message ->
+                        this.combine(message.getJobId() + "/" + Phase.LINEAR, message.getMap(), map -> new Master.LinearRevealedMessage(message.getJobId(), map)))
+                .match(Master.HashRevealedMessage.class, message ->
+                        this.combine(message.getJobId() + "/" + Phase.HASHES, message.getMap(), map -> this.store(message.getJobId(), Phase.HASHES, map)))
+                .match(Master.RainbowValuesMessage.class, message ->
+                        this.combine(message.getJobId() + "/" + message.getStep(), message.getValues(), map -> new Master.RainbowValuesMessage(message.getJobId(), message.getStep(), map)))
+                .match(JoinPartitionMessage.class, this::handle)
+                .match(ProbeMessage.class, message -> this.probe(message, this.sender()))
+                .match(DropPartitionsMessage.class, this::handle)
+                .match(PartitionLostMessage.class, this::handle)
+                .match(Terminated.class, this::handle)
+                .match(ShutdownMessage.class, this::handle)
+                .matchAny(object -> this.log.info("Received unknown message: \"{}\"", object.toString()))
+                .build();
+    }
+
+    private void handle(CurrentClusterState message) {
+        message.getMembers().forEach(member -> {
+            if (member.status().equals(MemberStatus.up()))
+                this.masterUp(member);
+        });
+    }
+
+    private void handle(MemberUp message) {
+        this.masterUp(message.member());
+    }
+
+    private void masterUp(Member member) {
+        if (member.hasRole(OctopusMaster.MASTER_ROLE)) {
+            this.master = this.getContext().actorSelection(member.address() + "/user/" + Master.DEFAULT_NAME);
+            this.register();
+        }
+    }
+
+    private void handle(RegistrationMessage message) {
+        if (this.workers.put(this.sender(), message) == null) {
+            this.context().watch(this.sender());
+            this.outstandingSlices.put(this.sender(), new ArrayDeque<>());
+            this.sender().tell(new ResultCreditMessage(message.getResultCredits()), this.self());
+        }
+        this.register();
+    }
+
+    /**
+     * Register this node with the master as a single worker with the combined throughput of all local workers. The
+     * broker registers again whenever its workers change, and the master keeps the latest registration.
+     */
+    private void register() {
+        if (this.master == null || this.workers.isEmpty())
+            return;
+
+        double hashesPerSecond = 0, cellsPerSecond = 0;
+        for (RegistrationMessage worker : this.workers.values()) {
+            hashesPerSecond += Math.max(0, worker.getHashesPerSecond());
+            cellsPerSecond += Math.max(0, worker.getCellsPerSecond());
+        }
+
+        // Every chunk is sliced among all local workers, so the node takes as many chunks as a single worker
+        this.master.tell(new RegistrationMessage(hashesPerSecond, cellsPerSecond, Worker.CHUNK_CREDITS, Worker.RESULT_CREDITS), this.self());
+        this.log.info("Registered {} workers ({} hashes/s, {} cells/s)", this.workers.size(), (long) hashesPerSecond, (long) cellsPerSecond);
+    }
+
+    private void handle(LinearSubTaskMessage message) {
+        // The linear search combines the passwords of all records
+        Load load = new Load(message.getChunkId(), this.sender(), results -> new LinearSubTaskMessage(message.getJobId(), message.getChunkId(),
+                message.getRecordIds(), cast(results.get(Phase.SECRETS)), message.getStart(), message.getEnd()));
+        this.load(load, message.getJobId(), Phase.SECRETS, message.getRecordIds());
+    }
+
+    private void handle(HashSubTaskMessage message) {
+        // The hash of each record of the chunk is mined from the record's partner and prefix
+        List<String> recordIds = new ArrayList<>();
+        for (long recordId = message.getStart(); recordId <= message.getEnd(); recordId++)
+            recordIds.add(Long.toString(recordId));
+        Load load = new Load(message.getChunkId(), this.sender(), results -> new HashSubTaskMessage(message.getJobId(), message.getChunkId(),
+                cast(results.get(Phase.SEQUENCES)), cast(results.get(Phase.LINEAR)), (int) message.getStart(), (int) message.getEnd()));
+        this.load(load, message.getJobId(), Phase.SEQUENCES, recordIds);
+        this.load(load, message.getJobId(), Phase.LINEAR, recordIds);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Map<String, V> cast(Map<String, Object> results) {
+        return (Map<String, V>) (Map<String, ?>) results;
+    }
+
+    /**
+     * Read a phase's results of the given records for a chunk that waits for them.
+     */
+    private void load(Load load, String jobId, Phase phase, List<String> recordIds) {
+        this.loads.put(load.chunkId, load);
+        load.results.put(phase, new HashMap<>());
+        for (String recordId : recordIds) {
+            load.missing++;
+            List<Load> waiting = this.reads.computeIfAbsent(jobId + "/" + recordId + "/" + phase, key -> new ArrayList<>());
+            if (waiting.isEmpty())
+                this.records.tell(new GetResultMessage(jobId, recordId, phase), this.self());
+            waiting.add(load);
+        }
+    }
+
+    private void handle(ResultMessage message) {
+        List<Load> waiting = this.reads.remove(message.getJobId() + "/" + message.getRecordId() + "/" + message.getPhase());
+        if (waiting == null)
+            return;
+
+        for (Load load : waiting) {
+            // Chunks that were cancelled while they waited are dropped
+            if (this.loads.get(load.chunkId) != load)
+                continue;
+            load.results.get(message.getPhase()).put(message.getRecordId(), message.getResult());
+            if (--load.missing == 0) {
+                this.loads.remove(load.chunkId);
+                this.slice(load.subTask.apply(load.results), load.master);
+            }
+        }
+    }
+
+    private void slice(SubTask subTask, ActorRef master) {
+        Chunk chunk = new Chunk(subTask.getChunkId(), subTask.getPhase(), master);
+        this.chunks.put(chunk.id, chunk);
+
+        // Slice the chunk among the least loaded workers, at most one slice per work unit, weighted by throughput
+        List<ActorRef> workers = new ArrayList<>(this.workers.keySet());
+        workers.sort(Comparator.comparingInt((ActorRef worker) -> this.outstandingSlices.get(worker).size())
+                .thenComparing(Comparator.comparingDouble((ActorRef worker) -> this.weight(worker, chunk.phase)).reversed()));
+        long size = subTask.getEnd() - subTask.getStart() + 1;
+        if (workers.size() > size)
+            workers = workers.subList(0, (int) size);
+
+        double totalWeight = workers.stream().mapToDouble(worker -> this.weight(worker, chunk.phase)).sum();
+        double cumulativeWeight = 0;
+        long start = subTask.getStart();
+        for (int i = 0; i < workers.size(); i++) {
+            cumulativeWeight += this.weight(workers.get(i), chunk.phase);
+            long end = (i == workers.size() - 1) ? subTask.getEnd() : subTask.getStart() + (long) (size * cumulativeWeight / totalWeight) - 1;
+            if (start <= end) {
+                long id = this.nextSliceId++;
+                Slice slice = new Slice(id, chunk, subTask.slice(id, start, end));
+                chunk.slices.put(id, slice);
+                this.slices.put(id, slice);
+                this.assign(slice, workers.get(i));
+            }
+            start = Math.max(start, end + 1);
+        }
+    }
+
+    private void assign(Slice slice, ActorRef worker) {
+        slice.worker = worker;
+        this.outstandingSlices.get(worker).add(slice);
+        worker.tell(slice.subTask, this.self());
+    }
+
+    private double weight(ActorRef worker, Phase phase) {
+        RegistrationMessage calibration = this.workers.get(worker);
+        double throughput = (phase == Phase.SEQUENCES) ? calibration.getCellsPerSecond() : calibration.getHashesPerSecond();
+        return throughput > 0 ? throughput : 1;
+    }
+
+    private void handle(CancelChunkMessage message) {
+        if (this.loads.remove(message.getChunkId()) != null)
+            return;
+
+        Chunk chunk = this.chunks.remove(message.getChunkId());
+        if (chunk == null)
+            return;
+
+        for (Slice slice : chunk.slices.values()) {
+            this.slices.remove(slice.id);
+            this.outstandingSlices.get(slice.worker).remove(slice);
+            slice.worker.tell(new CancelChunkMessage(slice.id), this.self());
+        }
+    }
+
+    private void handle(ChunkCompletedMessage message) {
+        Slice slice = this.slices.remove(message.getChunkId());
+        if (slice == null)
+            return;
+        this.outstandingSlices.get(this.sender()).remove(slice);
+
+        Chunk chunk = slice.chunk;
+        chunk.slices.remove(slice.id);
+        if (chunk.slices.isEmpty() && this.chunks.remove(chunk.id) != null) {
+            // The chunk's results must reach the master before its completion does
+            this.completedChunks.add(chunk);
+            this.flush();
+        }
+    }
+
+    /**
+     * Take over a worker's result batch into the buffer with the given key, i.e., the batch's job and phase or rainbow
+     * table step.
+     */
+    private <V> void combine(String key, Map<String, V> results, Function<Map<String, V>, Object> message) {
+        this.buffer(key, results, message);
+
+        // The worker's batch is taken over; it may send the next one unless the broker is full
+        if (this.bufferedResults < MAX_BUFFERED_RESULTS)
+            this.sender().tell(new ResultCreditMessage(1), this.self());
+        else
+            this.creditsOwed.add(this.sender());
+
+        this.flush();
+    }
+
+    private <V> void buffer(String key, Map<String, V> results, Function<Map<String, V>, Object> message) {
+        @SuppressWarnings("unchecked")
+        ResultBuffer<V> buffer = (ResultBuffer<V>) this.results.computeIfAbsent(key, k -> new ResultBuffer<V>(message));
+        int before = buffer.size();
+        results.forEach(buffer::add);
+        this.bufferedResults += buffer.size() - before;
+    }
+
+    private void handle(JoinPartitionMessage message) {
+        if (this.droppedJobs.contains(message.jobId))
+            return;
+
+        // Targets that are cracked already are reported at once
+        Map<String, String> unknownTargets = new HashMap<>();
+        Map<String, Integer> knownTargets = new HashMap<>();
+        message.targets.forEach((id, hash) -> {
+            Integer password = this.dictionaryView.lookup(hash);
+            if (password == null)
+                unknownTargets.put(id, hash);
+            else
+                knownTargets.put(id, password);
+        });
+        this.crack(message.jobId, knownTargets);
+
+        String key = message.jobId + "/" + message.partition;
+        this.partitions.put(key, DigestTable.of(unknownTargets));
+        this.log.info("Owning partition {} of {} with {} targets", message.partition, message.jobId, message.targets.size());
+
+        List<EarlyProbe> probes = this.earlyProbes.remove(key);
+        if (probes != null)
+            probes.forEach(probe -> this.probe(probe.message, probe.prober));
+    }
+
+    /**
+     * Join a probe with the targets of its partition and return its credit to the worker that sent it, so that every
+     * worker has a bounded number of probes in the owners' mailboxes.
+     */
+    private void probe(ProbeMessage message, ActorRef prober) {
+        String key = message.jobId + "/" + message.partition;
+        DigestTable targets = this.partitions.get(key);
+        if (targets == null) {
+            // Probes and partitions come from different senders, so a probe may overtake its partition
+            if (this.droppedJobs.contains(message.jobId))
+                prober.tell(new ProbeCreditMessage(message.jobId, message.partition), this.self());
+            else
+                this.earlyProbes.computeIfAbsent(key, k -> new ArrayList<>()).add(new EarlyProbe(message, prober));
+            return;
+        }
+
+        Map<String, Integer> cracked = new HashMap<>();
+        Map<String, Integer> crackedDigests = new HashMap<>();
+        long[] digests = message.digests;
+        for (int i = 0; i < message.candidates.length; i++) {
+            int entry = targets.find(digests[4 * i], digests[4 * i + 1], digests[4 * i + 2], digests[4 * i + 3]);
+            if (entry < 0)
+                continue;
+            crackedDigests.put(String.format("%016x%016x%016x%016x", digests[4 * i], digests[4 * i + 1], digests[4 * i + 2], digests[4 * i + 3]), message.candidates[i]);
+            for (; entry >= 0; entry = targets.next(entry))
+                cracked.put(targets.id(entry), message.candidates[i]);
+        }
+        if (!crackedDigests.isEmpty())
+            this.dictionary.tell(new Dictionary.AddMessage(crackedDigests), this.self());
+        this.crack(message.jobId, cracked);
+        prober.tell(new ProbeCreditMessage(message.jobId, message.partition), this.self());
+    }
+
+    private void crack(String jobId, Map<String, Integer> passwords) {
+        if (passwords.isEmpty())
+            return;
+
+        this.buffer(jobId + "/" + Phase.SECRETS, passwords, map -> this.store(jobId, Phase.SECRETS, map));
+        this.flush();
+    }
+
+    private void handle(DropPartitionsMessage message) {
+        this.droppedJobs.add(message.jobId);
+        this.partitions.keySet().removeIf(key -> key.startsWith(message.jobId + "/"));
+        Iterator<Map.Entry<String, List<EarlyProbe>>> probes = this.earlyProbes.entrySet().iterator();
+        while (probes.hasNext()) {
+            Map.Entry<String, List<EarlyProbe>> entry = probes.next();
+            if (entry.getKey().startsWith(message.jobId + "/")) {
+                for (EarlyProbe probe : entry.getValue())
+                    probe.prober.tell(new ProbeCreditMessage(probe.message.jobId, probe.message.partition), this.self());
+                probes.remove();
+            }
+        }
+    }
+
+    private void handle(PartitionLostMessage message) {
+        for (ActorRef worker : this.workers.keySet())
+            worker.tell(message, this.self());
+    }
+
+    /**
+     * Store the combined results in their records and create the message that reports the records to the master. The
+     * linear search's single result goes to the master itself instead, which picks one of possibly several solutions.
+     */
+    private Object store(String jobId, Phase phase, Map<String, ?> results) {
+        results.forEach((recordId, result) -> this.records.tell(new StoreResultMessage(jobId, recordId, phase, result), this.self()));
+        return new RecordsStoredMessage(jobId, phase, new ArrayList<>(results.keySet()));
+    }
+
+    private void handle(ResultCreditMessage message) {
+        this.resultCredits += message.getCredits();
+        this.flush();
+    }
+
+    /**
+     * Send the combined results that are due to the master as far as the credits allow: all of them if a completion
+     * waits for them or if the broker is full, otherwise the batches that are large or old enough. Then send the
+     * completions of chunks that no longer wait for results, and return the workers' held back credits.
+     */
+    private void flush() {
+        boolean due = !this.completedChunks.isEmpty() || this.bufferedResults >= MAX_BUFFERED_RESULTS
+                || System.nanoTime() - this.lastFlushNanos >= RESULT_FLUSH_NANOS;
+
+        Iterator<ResultBuffer<?>> buffers = this.results.values().iterator();
+        while (buffers.hasNext() && this.resultCredits > 0) {
+            ResultBuffer<?> buffer = buffers.next();
+            if (buffer.size() == 0) {
+                buffers.remove();
+            } else if (due || buffer.size() >= RESULT_BATCH_SIZE) {
+                this.bufferedResults -= buffer.size();
+                this.master.tell(buffer.drain(), this.self());
+                this.resultCredits--;
+                this.lastFlushNanos = System.nanoTime();
+                buffers.remove();
+            }
+        }
+
+        if (this.bufferedResults == 0)
+            while (!this.completedChunks.isEmpty()) {
+                Chunk chunk = this.completedChunks.poll();
+                chunk.master.tell(new ChunkCompletedMessage(chunk.phase, chunk.id), this.self());
+            }
+
+        while (!this.creditsOwed.isEmpty() && this.bufferedResults < MAX_BUFFERED_RESULTS)
+            this.creditsOwed.poll().tell(new ResultCreditMessage(1), this.self());
+    }
+
+    private void handle(Terminated message) {
+        ActorRef worker = message.getActor();
+        this.context().unwatch(worker);
+        this.workers.remove(worker);
+        Deque<Slice> lostSlices = this.outstandingSlices.remove(worker);
+        this.creditsOwed.removeIf(worker::equals);
+
+        // Without local workers, the broker leaves it to the master to re-assign its chunks
+        if (this.workers.isEmpty()) {
+            this.log.warning("All local workers terminated");
+            this.self().tell(PoisonPill.getInstance(), this.self());
+            return;
+        }
+
+        // The slices of a terminated worker go to the least loaded remaining worker
+        for (Slice slice : lostSlices) {
+            ActorRef replacement = this.workers.keySet().stream()
+                    .min(Comparator.comparingInt((ActorRef candidate) -> this.outstandingSlices.get(candidate).size()))
+                    .get();
+            this.assign(slice, replacement);
+        }
+        this.register();
+    }
+
+    private void handle(ShutdownMessage message) {
+        for (ActorRef worker : this.workers.keySet())
+            worker.tell(new ShutdownMessage(), this.self());
+        this.self().tell(PoisonPill.getInstance(), this.self());
+    }
+}
@@ -0,0 +1,180 @@
+package de.hpi.octopus.actors;
+
+import akka.actor.AbstractActor;
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.Props;
+import akka.cluster.Cluster;
+import akka.cluster.ddata.DistributedData;
+import akka.cluster.ddata.Key;
+import akka.cluster.ddata.LWWMap;
+import akka.cluster.ddata.LWWMapKey;
+import akka.cluster.ddata.Replicator;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The cracked password digests of all jobs, replicated to every node of the cluster with Akka Distributed Data. Each
+ * node's dictionary actor follows the replicated map and publishes it to the node's workers, which look digests up
+ * before they scan for them and add every digest that they crack. The dictionary can be loaded from and saved to a
+ * local snapshot file, so that it survives restarts of the cluster.
+ */
+public class Dictionary extends AbstractActor {
+
+    ////////////////////////
+    // Actor Construction //
+    ////////////////////////
+
+    public static final String DEFAULT_NAME = "dictionary";
+
+    private static final Key<LWWMap<String, Integer>> KEY = LWWMapKey.create("cracked-digests");
+
+    /**
+     * @param snapshotFile the file to load the dictionary from and save it to, or {@code null} for none
+     */
+    public static Props props(String snapshotFile) {
+        return Props.create(Dictionary.class, () -> new Dictionary(snapshotFile));
+    }
+
+    /**
+     * A node's view of the replicated dictionary, which its workers read without asking the dictionary actor. There is
+     * one view per actor system, so that several nodes in one JVM, e.g., in tests, do not share their dictionaries.
+     */
+    public static class View implements Extension {
+
+        private final Map<String, Integer> passwords = new ConcurrentHashMap<>();
+
+        /**
+         * Look up the password of a digest that was cracked before on any node.
+         *
+         * @return the password or {@code null} if the digest is not yet cracked
+         */
+        public Integer lookup(String digest) {
+            return this.passwords.get(digest);
+        }
+
+        public int size() {
+            return this.passwords.size();
+        }
+    }
+
+    private static final AbstractExtensionId<View> VIEW = new AbstractExtensionId<View>() {
+        @Override
+        public View createExtension(ExtendedActorSystem system) {
+            return new View();
+        }
+    };
+
+    /**
+     * @return the given actor system's view of the dictionary
+     */
+    public static View view(ActorSystem system) {
+        return VIEW.get(system);
+    }
+
+    ////////////////////
+    // Actor messages //
+    ////////////////////
+
+    /**
+     * Adds cracked digests and their passwords to the dictionary.
+     */
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class AddMessage {
+        private Map<String, Integer> passwords;
+    }
+
+    /////////////////
+    // Actor State //
+    /////////////////
+
+    private final LoggingAdapter log = Logging.getLogger(this.context().system(), this);
+    private final Cluster cluster = Cluster.get(this.context().system());
+    private final ActorRef replicator = DistributedData.get(this.context().system()).replicator();
+    private final View view = view(this.context().system());
+    private final String snapshotFile;
+
+    private Dictionary(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    /////////////////////
+    // Actor Lifecycle //
+    /////////////////////
+
+    @Override
+    public void preStart() throws IOException {
+        this.replicator.tell(new Replicator.Subscribe<>(KEY, this.self()), this.self());
+
+        if (this.snapshotFile != null && new File(this.snapshotFile).exists()) {
+            Map<String, Integer> passwords = new HashMap<>();
+            for (String line : Files.readAllLines(new File(this.snapshotFile).toPath(), StandardCharsets.UTF_8)) {
+                String[] fields = line.split(";");
+                if (fields.length == 2)
+                    passwords.put(fields[0], Integer.parseInt(fields[1]));
+            }
+            this.add(passwords);
+            this.log.info("Loaded {} cracked digests from {}", passwords.size(), this.snapshotFile);
+        }
+    }
+
+    @Override
+    public void postStop() throws IOException {
+        this.replicator.tell(new Replicator.Unsubscribe<>(KEY, this.self()), this.self());
+
+        if (this.snapshotFile != null) {
+            try (BufferedWriter writer = Files.newBufferedWriter(new File(this.snapshotFile).toPath(), StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Integer> entry : this.view.passwords.entrySet()) {
+                    writer.write(entry.getKey() + ";" + entry.getValue());
+                    writer.newLine();
+                }
+            }
+            this.log.info("Saved {} cracked digests to {}", this.view.size(), this.snapshotFile);
+        }
+    }
+
+    ////////////////////
+    // Actor Behavior //
+    ////////////////////
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(AddMessage.class, message -> this.add(message.passwords))
+                .match(Replicator.Changed.class, message -> this.view.passwords.putAll(((Replicator.Changed<LWWMap<String, Integer>>) message).dataValue().getEntries()))
+                .match(Replicator.UpdateResponse.class, message -> {/*Ignore*/})
+                .matchAny(object -> this.log.info("Received unknown message: \"{}\"", object.toString()))
+                .build();
+    }
+
+    /**
+     * Publish the passwords to the local workers at once and replicate them to the other nodes. The update is written
+     * locally only; the replicator gossips it, as a delta, to all other nodes.
+     */
+    private void add(Map<String, Integer> passwords) {
+        if (passwords.isEmpty())
+            return;
+        this.view.passwords.putAll(passwords);
+        this.replicator.tell(new Replicator.Update<>(KEY, LWWMap.create(), Replicator.writeLocal(), dictionary -> {
+            LWWMap<String, Integer> updated = dictionary;
+            for (Map.Entry<String, Integer> entry : passwords.entrySet())
+                updated = updated.put(this.cluster, entry.getKey(), entry.getValue());
+            return updated;
+        }), this.self());
+    }
+}
@@ -2,27 +2,39 @@ package de.hpi.octopus.actors;
 
 import akka.actor.*;
 import akka.cluster.Cluster;
-import akka.cluster.metrics.AdaptiveLoadBalancingPool;
-import akka.cluster.metrics.SystemLoadAverageMetricsSelector;
-import akka.cluster.routing.ClusterRouterPool;
-import akka.cluster.routing.ClusterRouterPoolSettings;
+import akka.cluster.ClusterEvent.CurrentClusterState;
+import akka.cluster.metrics.ClusterMetricsChanged;
+import akka.cluster.metrics.ClusterMetricsExtension;
+import akka.cluster.metrics.NodeMetrics;
+import akka.cluster.metrics.StandardMetrics;
+import akka.cluster.metrics.StandardMetrics.Cpu;
+import akka.cluster.metrics.StandardMetrics.HeapMemory;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
-import akka.routing.RoundRobinRoutingLogic;
-import akka.routing.Routee;
-import akka.routing.Router;
 import akka.util.Timeout;
+import de.hpi.octopus.actors.StudentRecord.StoreResultMessage;
 import de.hpi.octopus.actors.Worker.WorkMessage;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import scala.Function1;
 import scala.Int;
+import scala.concurrent.duration.FiniteDuration;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
 
+import de.hpi.octopus.jfr.ChunkAssignedEvent;
+import de.hpi.octopus.jfr.ChunkFailedEvent;
+import de.hpi.octopus.kernels.DigestTable;
+import de.hpi.octopus.kernels.RainbowKernel.Step;
+import de.hpi.octopus.kernels.RainbowTable;
 import de.hpi.octopus.messages.ShutdownMessage;
+import de.hpi.octopus.metrics.MeteredMailbox;
+import de.hpi.octopus.metrics.OctopusMetrics;
 
 public class Master extends AbstractActor {
 
@@ -31,27 +43,31 @@ public class Master extends AbstractActor {
     ////////////////////////
 
     public static final String DEFAULT_NAME = "master";
-    private ActorRef sender;
 
     public static Props props() {
-        return Props.create(Master.class);
+        return Props.create(Master.class).withMailbox(MeteredMailbox.CONFIG_PATH);
     }
 
-    Router workerRouter = new Router(new RoundRobinRoutingLogic());
-
-    Map<String, Integer> crackedPasswords = new HashMap<String, Integer>();
-    Map<String, String> sequences = new HashMap<String, String>();
-    Map<String, String> hashes = new HashMap<String, String>();
-    boolean solvedPrefixes = false;
-
     ////////////////////
     // Actor messages //
     ////////////////////
 
     @Data
     @AllArgsConstructor
+    @SuppressWarnings("unused")
     public static class RegistrationMessage implements Serializable {
         private static final long serialVersionUID = 4545299661052078209L;
+
+        private RegistrationMessage() {
+        }
+
+        // Calibrated kernel throughput of the registering worker
+        private double hashesPerSecond;
+        private double cellsPerSecond;
+
+        // The chunks the worker accepts at a time and the result batches it asks to have in flight at a time
+        private int chunkCredits;
+        private int resultCredits;
     }
 
     @Data
@@ -80,11 +96,42 @@ public class Master extends AbstractActor {
         private status result;
     }
 
+    /**
+     * The phases of the analysis, each with the unit in which its workers count their processed work.
+     */
+    public enum Phase {
+        SECRETS("hashes"), SEQUENCES("cells"), LINEAR("combinations"), HASHES("hashes");
+
+        private final String unit;
+
+        Phase(String unit) {
+            this.unit = unit;
+        }
+
+        public String getUnit() {
+            return this.unit;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    @SuppressWarnings("unused")
+    public static class ChunkCompletedMessage implements Serializable {
+        private static final long serialVersionUID = 2906345437712468712L;
+
+        private ChunkCompletedMessage() {
+        }
+
+        private Phase phase;
+        private long chunkId;
+    }
+
     @Data
     @AllArgsConstructor
     @SuppressWarnings("unused")
     public static class SecretsTaskMessage implements Serializable {
         private static final long serialVersionUID = -6823011111281387872L;
+        private String jobId;
         private Map<String, String> Map = new HashMap<String, String>(42);
     }
 
@@ -93,6 +140,7 @@ public class Master extends AbstractActor {
     @SuppressWarnings("unused")
     public static class SecretRevealedMessage implements Serializable {
         private static final long serialVersionUID = -6823011111281387872L;
+        private String jobId;
         private Map<String, Integer> Map = new HashMap<String, Integer>();
 
         public SecretRevealedMessage() {
@@ -104,6 +152,7 @@ public class Master extends AbstractActor {
     @SuppressWarnings("unused")
     public static class SequenceTaskMessage implements Serializable {
         private static final long serialVersionUID = -6823011111281387872L;
+        private String jobId;
         private Map<String, String> Map = new HashMap<String, String>(42);
     }
 
@@ -112,18 +161,24 @@ public class Master extends AbstractActor {
     @SuppressWarnings("unused")
     public static class SequenceRevealedMessage implements Serializable {
         private static final long serialVersionUID = -6823011111281387872L;
+        private String jobId;
         private Map<String, String> Map = new HashMap<String, String>();
 
         public SequenceRevealedMessage() {
         }
     }
 
+    /**
+     * Asks the master for the linear combination of the passwords of the given records, which the brokers read from the
+     * records.
+     */
     @Data
     @AllArgsConstructor
     @SuppressWarnings("unused")
     public static class LinearTaskMessage implements Serializable {
         private static final long serialVersionUID = -6823011111281387872L;
-        private Map<String, Integer> Map = new HashMap<String, Integer>(42);
+        private String jobId;
+        private List<String> recordIds = new ArrayList<String>(42);
     }
 
     @Data
@@ -131,19 +186,23 @@ public class Master extends AbstractActor {
     @SuppressWarnings("unused")
     public static class LinearRevealedMessage implements Serializable {
         private static final long serialVersionUID = -6823011111281387872L;
+        private String jobId;
         private Map<String, Integer> Map = new HashMap<String, Integer>();
 
         public LinearRevealedMessage() {
         }
     }
 
+    /**
+     * Asks the master for the hashes of the given records, whose partners and prefixes the brokers read from the records.
+     */
     @Data
     @AllArgsConstructor
     @SuppressWarnings("unused")
     public static class HashTaskMessage implements Serializable {
         private static final long serialVersionUID = -6823011111281387872L;
-        private Map<String, String> Seq = new HashMap<String, String>(42);
-        private Map<String, Integer> Lin = new HashMap<String, Integer>(42);
+        private String jobId;
+        private List<String> recordIds = new ArrayList<String>(42);
     }
 
     @Data
@@ -151,17 +210,209 @@ public class Master extends AbstractActor {
     @SuppressWarnings("unused")
     public static class HashRevealedMessage implements Serializable {
         private static final long serialVersionUID = -6823011111281387872L;
+        private String jobId;
         private Map<String, String> Map = new HashMap<String, String>();
 
         public HashRevealedMessage() {
         }
     }
 
+    /**
+     * The values that the workers computed for some indices of a step of a rainbow table lookup, by index (see
+     * {@link Worker.RainbowSubTaskMessage}). The values are results like any other, so that the brokers combine them
+     * and send them under the same credits.
+     */
+    @Data
+    @AllArgsConstructor
+    @SuppressWarnings("unused")
+    public static class RainbowValuesMessage implements Serializable {
+        private static final long serialVersionUID = -3371529432385517417L;
+
+        private RainbowValuesMessage() {
+        }
+
+        private String jobId;
+        private Step step;
+        private Map<String, Integer> values;
+    }
+
+    /**
+     * Tells the master that the results of the given records are stored in their {@link StudentRecord}s.
+     */
+    @Data
+    @AllArgsConstructor
+    @SuppressWarnings("unused")
+    public static class RecordsStoredMessage implements Serializable {
+        private static final long serialVersionUID = 1730514606402516213L;
+
+        private RecordsStoredMessage() {
+        }
+
+        private String jobId;
+        private Phase phase;
+        private List<String> recordIds;
+    }
+
+    /**
+     * Tells the master that a job's client is gone, e.g., because it disconnected or its task timed out: the master
+     * cancels the job's chunks and forgets the job, so that an abandoned job uses neither the workers nor its memory.
+     */
+    @Data
+    @AllArgsConstructor
+    @SuppressWarnings("unused")
+    public static class CancelJobMessage implements Serializable {
+        private static final long serialVersionUID = -4190321398407541283L;
+
+        private CancelJobMessage() {
+        }
+
+        private String jobId;
+    }
+
     /////////////////
     // Actor State //
     /////////////////
 
     private final LoggingAdapter log = Logging.getLogger(getContext().system(), this);
+    private final Cluster cluster = Cluster.get(getContext().system());
+    private final ClusterMetricsExtension metricsExtension = ClusterMetricsExtension.get(getContext().system());
+
+    // Calibrated throughput of each registered worker and the latest load metrics of each cluster node
+    private final Map<ActorRef, RegistrationMessage> capacities = new HashMap<>();
+    private final Map<Address, NodeMetrics> nodeMetrics = new HashMap<>();
+
+    /**
+     * A job is the analysis of one input file. Its client sends the tasks of the four phases one after the other, and
+     * the job holds the state of the current one.
+     */
+    private static class Job {
+        private final String id;
+        private ActorRef client;
+        private Phase phase;
+        private boolean reported;
+
+        // The number of records of the current task, i.e., the number of results to wait for, and the records whose
+        // results are stored so far
+        private int expectedResults;
+        private Set<String> completed;
+
+        // The brokers that own the partitions of the targets, or null for lost ones, and the targets of the partitions
+        // if the current task cracks its passwords by a hash join
+        private List<ActorRef> joinOwners;
+        private List<Map<String, String>> joinPartitions;
+
+        // The rainbow table lookup if the current task cracks its passwords with the rainbow table
+        private Rainbow rainbow;
+
+        // The chunks of the current task that wait for their preferred worker or, if it died, for any worker
+        private final Map<ActorRef, Deque<Chunk>> queuedChunks = new HashMap<>();
+        private final Deque<Chunk> unassignedChunks = new ArrayDeque<>();
+
+        // The times of the completed chunks of the current task, kept sorted for the median
+        private final List<Long> chunkNanos = new ArrayList<>();
+
+        Job(String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * The state of a password task that is cracked with the rainbow table: its targets that are not yet cracked and the
+     * current step of the lookup, whose values the workers compute one per index of the step's range.
+     */
+    private static class Rainbow {
+        private final List<String> ids = new ArrayList<>();
+        private final Map<String, String> hashes = new HashMap<>();
+        private long[] digests;
+
+        // The step whose values the task waits for, or null while it waits for the table, and the values so far
+        private Step step;
+        private int[] values;
+        private BitSet received;
+        private int missing;
+
+        // The target, chain and column of every tail that hit an endpoint of the table
+        private int[] hitTargets, hitChains, hitColumns;
+    }
+
+    /**
+     * A chunk that was sent to one or, if speculatively duplicated, several workers and is not yet completed.
+     */
+    private static class Chunk {
+        private final long id;
+        private final Job job;
+        private final Phase phase;
+        private final long start, end;
+        private final Object subTask;
+        private long startNanos;
+        private final List<ActorRef> workers = new ArrayList<>(2);
+
+        Chunk(long id, Job job, long start, long end, Object subTask) {
+            this.id = id;
+            this.job = job;
+            this.phase = job.phase;
+            this.start = start;
+            this.end = end;
+            this.subTask = subTask;
+        }
+    }
+
+    /**
+     * Creates the sub task message of a chunk from its id and range.
+     */
+    @FunctionalInterface
+    private interface SubTaskFactory {
+        Object create(long chunkId, long start, long end);
+    }
+
+    // Each worker's share of a task is split into this many chunks, so that the chunks of concurrent jobs interleave
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    // A chunk whose elapsed time exceeds this multiple of its task's median chunk time is duplicated to an idle worker
+    private static final double SPECULATION_THRESHOLD = 1.5;
+    private static final FiniteDuration SPECULATION_INTERVAL = FiniteDuration.create(1, TimeUnit.SECONDS);
+    private static final Deque<Chunk> NO_CHUNKS = new ArrayDeque<>();
+
+    // Admission control: the master grants each worker at most this many result batches in flight and returns a credit
+    // only after it has merged a batch, so that its mailbox holds a bounded number of batches however far behind it is
+    private static final int MAX_RESULT_CREDITS = 8;
+
+    /**
+     * Tells the master itself to look for straggling chunks.
+     */
+    private static class SpeculationTickMessage {
+    }
+
+    // Password tasks with at least this many targets are cracked by a distributed hash join
+    private final int joinThreshold = this.getContext().getSystem().settings().config().getInt("octopus.join-threshold");
+
+    // The candidate passwords are the numbers from 0 to this one
+    private final int maxPassword = this.getContext().getSystem().settings().config().getInt("octopus.max-password");
+
+    // Password tasks are cracked with a rainbow table of chains of this length in this file if one is configured; the
+    // table is built by the workers when the first task needs it
+    private final String rainbowFile = this.getContext().getSystem().settings().config().getString("octopus.rainbow-table.file");
+    private final int chainLength = this.getContext().getSystem().settings().config().getInt("octopus.rainbow-table.chain-length");
+    private final int chains = this.getContext().getSystem().settings().config().getInt("octopus.rainbow-table.chains");
+    private RainbowTable rainbowTable;
+
+    // The job whose task builds the rainbow table and the jobs whose tasks wait for it
+    private Job rainbowBuilder;
+    private final List<Job> rainbowWaiters = new ArrayList<>();
+    private final ActorSelection dictionary = this.getContext().getSystem().actorSelection("/user/" + Dictionary.DEFAULT_NAME);
+    private final Dictionary.View dictionaryView = Dictionary.view(this.getContext().getSystem());
+
+    private long nextChunkId = 0;
+    private Cancellable speculationSchedule;
+
+    // The running jobs by id, and the same jobs in the order in which they get their next chunk
+    private final Map<String, Job> jobs = new HashMap<>();
+    private final Deque<Job> jobRotation = new ArrayDeque<>();
+
+    // The chunks that are not yet completed by id, and the chunks that each worker has been sent but not yet completed
+    private final Map<Long, Chunk> runningChunks = new LinkedHashMap<>();
+    private final Map<ActorRef, Deque<Chunk>> outstandingChunks = new HashMap<>();
+    private final OctopusMetrics metrics = OctopusMetrics.get();
 
     private final Queue<WorkMessage> unassignedWork = new LinkedList<>();
     private final Queue<ActorRef> idleWorkers = new LinkedList<>();
@@ -178,129 +429,331 @@ public class Master extends AbstractActor {
         return receiveBuilder()
                 .match(RegistrationMessage.class, this::handle)
                 .match(SecretsTaskMessage.class, this::handle)
-                .match(SecretRevealedMessage.class, this::handle)
                 .match(SequenceTaskMessage.class, this::handle)
-                .match(SequenceRevealedMessage.class, this::handle)
                 .match(LinearTaskMessage.class, this::handle)
                 .match(LinearRevealedMessage.class, this::handle)
+                .match(RainbowValuesMessage.class, this::handle)
                 .match(HashTaskMessage.class, this::handle)
-                .match(HashRevealedMessage.class, this::handle)
+                .match(RecordsStoredMessage.class, this::handle)
+                .match(ChunkCompletedMessage.class, this::handle)
+                .match(CancelJobMessage.class, this::handle)
+                .match(SpeculationTickMessage.class, message -> this.speculate())
                 .match(ShutdownMessage.class, this::handle)
                 .match(Terminated.class, this::handle)
+                .match(ClusterMetricsChanged.class, this::handle)
+                .match(CurrentClusterState.class, message -> {/*Ignore*/})
                 .matchAny(object -> this.log.info("Received unknown message: \"{}\"", object.toString()))
                 .build();
     }
 
-    private void handle(SecretsTaskMessage message) throws InterruptedException {
-        this.sender = getSender();
-        this.crackedPasswords = new HashMap<String, Integer>();
-        final int chunkSize = 1000000 / this.workerRouter.routees().size();
+    private void handle(SecretsTaskMessage message) {
         Map<String, String> hashes = message.Map;
+        Job job = this.startTask(message.jobId, Phase.SECRETS, hashes.size());
 
-        for (int i = 0; i < this.idleWorkers.size(); i++) {
-            int currentStartNumber = (i * chunkSize);
-            int currentEndNumber = currentStartNumber + chunkSize - 1;
-            // Handle any remainder if this is the last worker
-            if (i == this.idleWorkers.size() - 1)
-                currentEndNumber = 1000000;
-//            System.out.println("start: " + currentStartNumber + " end: " + currentEndNumber);
-            this.workerRouter.route(new Worker.SecretsSubTaskMessage(hashes, currentStartNumber, currentEndNumber), this.self());
+        if (!this.rainbowFile.isEmpty()) {
+            this.startRainbow(job, hashes);
+            return;
         }
-    }
 
+        if (hashes.size() >= this.joinThreshold && !this.idleWorkers.isEmpty()) {
+            this.startJoin(job, hashes);
+            return;
+        }
 
-    private void handle(SecretRevealedMessage message) {
-//        System.out.println("id: " + message.Map.keySet() + " cleartext: " + message.Map.values());
-        Map.Entry<String, Integer> entry = message.Map.entrySet().iterator().next();
-        this.crackedPasswords.put(entry.getKey(), entry.getValue());
-//        System.out.println(this.crackedPasswords.size());
-        if (this.crackedPasswords.size() >= 42) {
-            this.sender.tell(this.crackedPasswords, this.sender);
+        this.split(job, 0, this.maxPassword, RegistrationMessage::getHashesPerSecond,
+                (chunkId, start, end) -> new Worker.SecretsSubTaskMessage(job.id, chunkId, hashes, (int) start, (int) end));
+    }
+
+    /**
+     * Crack many targets with a distributed hash join instead of sending all targets to every worker: the targets are
+     * partitioned by digest prefix, one partition per broker, and the workers send each candidate digest to the broker
+     * that owns its partition, which looks it up in a hash table of its targets.
+     */
+    private void startJoin(Job job, Map<String, String> hashes) {
+        List<ActorRef> owners = new ArrayList<>(this.idleWorkers);
+        List<String> ownerPaths = new ArrayList<>(owners.size());
+        List<Map<String, String>> partitions = new ArrayList<>(owners.size());
+        for (ActorRef owner : owners) {
+            ownerPaths.add(owner.path().toStringWithAddress(this.cluster.selfAddress()));
+            partitions.add(new HashMap<>());
         }
+        hashes.forEach((id, hash) -> partitions.get(DigestTable.partition(hash, owners.size())).put(id, hash));
+
+        for (int partition = 0; partition < owners.size(); partition++)
+            owners.get(partition).tell(new Broker.JoinPartitionMessage(job.id, partition, partitions.get(partition)), this.self());
+        job.joinOwners = owners;
+        job.joinPartitions = partitions;
+        this.log.info("Joining {} targets of {} in {} partitions", hashes.size(), job.id, owners.size());
+
+        this.split(job, 0, this.maxPassword, RegistrationMessage::getHashesPerSecond,
+                (chunkId, start, end) -> new Worker.JoinSubTaskMessage(job.id, chunkId, (int) start, (int) end, ownerPaths));
     }
 
-    private void handle(SequenceTaskMessage message) throws InterruptedException {
-        this.sender = getSender();
-        final int chunkSize = 42 / this.workerRouter.routees().size();
-        Map<String, String> sequences = message.Map;
+    /**
+     * Crack the targets with the rainbow table, which trades the scan of the whole candidate space for a table of
+     * bounded size: the workers compute the tails of every target from every column, the master looks their endpoints
+     * up in the table, and the workers walk the hit chains to the candidates. Targets that the table does not cover are
+     * scanned for as usual. The table is built first if it does not exist or was built with other parameters.
+     */
+    private void startRainbow(Job job, Map<String, String> hashes) {
+        Rainbow rainbow = new Rainbow();
+        job.rainbow = rainbow;
+
+        // Targets that are cracked already are stored at once
+        Map<String, Integer> known = new HashMap<>();
+        hashes.forEach((id, hash) -> {
+            Integer password = this.dictionaryView.lookup(hash);
+            if (password != null) {
+                known.put(id, password);
+            } else {
+                rainbow.ids.add(id);
+                rainbow.hashes.put(id, hash);
+            }
+        });
+        this.store(job, known);
+        if (rainbow.ids.isEmpty()) {
+            this.finishRainbow(job);
+            return;
+        }
 
-        for (int i = 0; i < this.idleWorkers.size(); i++) {
-            int currentStartNumber = (i * chunkSize) + 1;
-            int currentEndNumber = currentStartNumber + chunkSize - 1;
-            // Handle any remainder if this is the last worker
-            if (i == this.idleWorkers.size() - 1)
-                currentEndNumber = 42;
-//            System.out.println("start: " + currentStartNumber + " end: " + currentEndNumber);
-            this.workerRouter.route(new Worker.SequenceSubTaskMessage(sequences, currentStartNumber, currentEndNumber), this.self());
+        rainbow.digests = new long[4 * rainbow.ids.size()];
+        for (int target = 0; target < rainbow.ids.size(); target++) {
+            String hash = rainbow.hashes.get(rainbow.ids.get(target));
+            for (int word = 0; word < 4; word++)
+                rainbow.digests[4 * target + word] = Long.parseUnsignedLong(hash.substring(16 * word, 16 * word + 16), 16);
         }
-    }
 
-    private void handle(SequenceRevealedMessage message) {
-//        System.out.println("id: " + message.Map.keySet() + " seq: " + message.Map.values());
-        Map.Entry<String, String> entry = message.Map.entrySet().iterator().next();
-        this.sequences.put(entry.getKey(), entry.getValue());
-//        System.out.println(this.sequences.size());
-        if (this.sequences.size() >= 42) {
-            this.sender.tell(this.sequences, this.sender);
+        if (this.rainbowTable == null && this.rainbowBuilder == null)
+            this.openRainbowTable();
+        if (this.rainbowTable != null) {
+            this.startTails(job);
+        } else if (this.rainbowBuilder != null) {
+            this.rainbowWaiters.add(job);
+        } else {
+            this.rainbowBuilder = job;
+            this.startStep(job, Step.CHAINS, this.chains(),
+                    (chunkId, start, end) -> new Worker.RainbowSubTaskMessage(job.id, chunkId, Step.CHAINS, this.space(), this.chainLength, this.chains(), start, end, 0, null, null, null));
         }
     }
 
-    private void handle(LinearTaskMessage message) throws InterruptedException {
-        this.sender = getSender();
-        long maxNumber = (long) Math.pow(2, 43);
-        final long chunkSize = maxNumber / this.workerRouter.routees().size();
-        Map<String, Integer> passwords = message.Map;
+    private long space() {
+        return this.maxPassword + 1L;
+    }
 
-        for (int i = 0; i < this.idleWorkers.size(); i++) {
-            long currentStartNumber = (i * chunkSize);
-            long currentEndNumber = currentStartNumber + chunkSize - 1;
-            // Handle any remainder if this is the last worker
-            if (i == this.idleWorkers.size() - 1)
-                currentEndNumber = maxNumber;
-//            System.out.println("start: " + currentStartNumber + " end: " + currentEndNumber);
-            this.workerRouter.route(new Worker.LinearSubTaskMessage(passwords, currentStartNumber, currentEndNumber), this.self());
+    /**
+     * The number of chains is configured or, by default, five times the candidate space divided by the chain length,
+     * which covers about 90 percent of the candidates.
+     */
+    private int chains() {
+        return this.chains > 0 ? this.chains : (int) Math.max(1, Math.min(Integer.MAX_VALUE, 5 * this.space() / this.chainLength));
+    }
+
+    private void openRainbowTable() {
+        File file = new File(this.rainbowFile);
+        if (!file.exists())
+            return;
+        try {
+            RainbowTable table = RainbowTable.open(file);
+            if (table.fits(this.space(), this.chainLength, this.chains())) {
+                this.rainbowTable = table;
+                this.log.info("Opened the rainbow table {} with {} chains", file, table.size());
+            } else {
+                this.log.info("The rainbow table {} was built with other parameters; rebuilding it", file);
+            }
+        } catch (IOException e) {
+            this.log.error(e, "Could not open the rainbow table {}; rebuilding it", file);
         }
     }
 
-    private void handle(LinearRevealedMessage message) {
-//        System.out.println(message.Map);
-        if (!this.solvedPrefixes) {
-            this.solvedPrefixes = true;
+    private void startStep(Job job, Step step, int size, SubTaskFactory subTasks) {
+        Rainbow rainbow = job.rainbow;
+        rainbow.step = step;
+        rainbow.values = new int[size];
+        rainbow.received = new BitSet(size);
+        rainbow.missing = size;
+        this.split(job, 0, size - 1L, RegistrationMessage::getHashesPerSecond, subTasks);
+    }
+
+    private void startTails(Job job) {
+        Rainbow rainbow = job.rainbow;
+        this.startStep(job, Step.TAILS, rainbow.ids.size() * this.chainLength, (chunkId, start, end) -> {
+            // Each chunk carries the digests of its targets only
+            int firstTarget = (int) (start / this.chainLength);
+            int lastTarget = (int) (end / this.chainLength);
+            long[] digests = Arrays.copyOfRange(rainbow.digests, 4 * firstTarget, 4 * (lastTarget + 1));
+            return new Worker.RainbowSubTaskMessage(job.id, chunkId, Step.TAILS, this.space(), this.chainLength, this.chains(), start, end, firstTarget, digests, null, null);
+        });
+    }
 
-            for (ActorRef worker: this.idleWorkers){
-                worker.tell(new Worker.AbortMessage(), this.self());
+    private void handle(RainbowValuesMessage message) {
+        this.metrics.resultReceived();
+        this.returnResultCredit();
+
+        // Values of earlier steps may still arrive from cancelled copies of their chunks
+        Job job = this.jobs.get(message.jobId);
+        if (job == null || job.phase != Phase.SECRETS || job.reported || job.rainbow == null || job.rainbow.step != message.step)
+            return;
+
+        Rainbow rainbow = job.rainbow;
+        for (Map.Entry<String, Integer> value : message.values.entrySet()) {
+            int index = Integer.parseInt(value.getKey());
+            if (!rainbow.received.get(index)) {
+                rainbow.received.set(index);
+                rainbow.values[index] = value.getValue();
+                rainbow.missing--;
             }
+        }
+        if (rainbow.missing > 0)
+            return;
+
+        switch (message.step) {
+            case CHAINS:
+                this.chainsBuilt(job);
+                break;
+            case TAILS:
+                this.tailsComputed(job);
+                break;
+            case WALKS:
+                this.chainsWalked(job);
+                break;
+        }
+    }
 
-            this.sender.tell(message.Map, this.sender);
+    private void chainsBuilt(Job job) {
+        File file = new File(this.rainbowFile);
+        try {
+            this.rainbowTable = RainbowTable.write(file, this.space(), this.chainLength, job.rainbow.values);
+            this.log.info("Built the rainbow table {} with {} of {} chains", file, this.rainbowTable.size(), job.rainbow.values.length);
+        } catch (IOException e) {
+            this.log.error(e, "Could not write the rainbow table {}", file);
+        }
+
+        List<Job> waiting = new ArrayList<>(this.rainbowWaiters);
+        waiting.add(0, job);
+        this.rainbowBuilder = null;
+        this.rainbowWaiters.clear();
+        for (Job waiter : waiting) {
+            if (waiter.reported || waiter.rainbow == null)
+                continue;
+            if (this.rainbowTable != null)
+                this.startTails(waiter);
+            else
+                this.finishRainbow(waiter);
         }
     }
 
-    private void handle(HashTaskMessage message) throws InterruptedException {
-        System.out.println("Start hash generation");
-        this.sender = getSender();
-        final int chunkSize = 42 / this.workerRouter.routees().size();
-        Map<String, String> partners = message.Seq;
-        Map<String, Integer> prefixes = message.Lin;
-
-        for (int i = 0; i < this.idleWorkers.size(); i++) {
-            int currentStartNumber = (i * chunkSize) + 1;
-            int currentEndNumber = currentStartNumber + chunkSize - 1;
-            // Handle any remainder if this is the last worker
-            if (i == this.idleWorkers.size() - 1)
-                currentEndNumber = 42;
-//            System.out.println("start: " + currentStartNumber + " end: " + currentEndNumber);
-            this.workerRouter.route(new Worker.HashSubTaskMessage(partners, prefixes, currentStartNumber, currentEndNumber), this.self());
+    private void tailsComputed(Job job) {
+        Rainbow rainbow = job.rainbow;
+        List<int[]> hits = new ArrayList<>();
+        for (int index = 0; index < rainbow.values.length; index++) {
+            int chain = this.rainbowTable.find(rainbow.values[index]);
+            if (chain >= 0)
+                hits.add(new int[]{index / this.chainLength, chain, index % this.chainLength});
+        }
+        rainbow.hitTargets = hits.stream().mapToInt(hit -> hit[0]).toArray();
+        rainbow.hitChains = hits.stream().mapToInt(hit -> hit[1]).toArray();
+        rainbow.hitColumns = hits.stream().mapToInt(hit -> hit[2]).toArray();
+        this.log.info("{} tails of {} targets of {} hit the rainbow table", hits.size(), rainbow.ids.size(), job.id);
+        if (hits.isEmpty()) {
+            this.finishRainbow(job);
+            return;
         }
+
+        this.startStep(job, Step.WALKS, hits.size(), (chunkId, start, end) -> {
+            // Each chunk carries the target digests, chains and columns of its hits only
+            long[] digests = new long[4 * (int) (end - start + 1)];
+            for (int hit = (int) start; hit <= end; hit++)
+                System.arraycopy(rainbow.digests, 4 * rainbow.hitTargets[hit], digests, 4 * (hit - (int) start), 4);
+            return new Worker.RainbowSubTaskMessage(job.id, chunkId, Step.WALKS, this.space(), this.chainLength, this.chains(), start, end, start, digests,
+                    Arrays.copyOfRange(rainbow.hitChains, (int) start, (int) end + 1), Arrays.copyOfRange(rainbow.hitColumns, (int) start, (int) end + 1));
+        });
     }
 
-    private void handle(HashRevealedMessage message) {
-//        System.out.println("id: " + message.Map.keySet() + " seq: " + message.Map.values());
-        Map.Entry<String, String> entry = message.Map.entrySet().iterator().next();
-        this.hashes.put(entry.getKey(), entry.getValue());
-//        System.out.println(this.sequences.size());
-        if (this.hashes.size() >= 42) {
-            this.sender.tell(this.hashes, this.sender);
+    private void chainsWalked(Job job) {
+        Rainbow rainbow = job.rainbow;
+        Map<String, Integer> cracked = new HashMap<>();
+        for (int hit = 0; hit < rainbow.values.length; hit++)
+            if (rainbow.values[hit] >= 0)
+                cracked.put(rainbow.ids.get(rainbow.hitTargets[hit]), rainbow.values[hit]);
+
+        Map<String, Integer> crackedDigests = new HashMap<>();
+        cracked.forEach((id, password) -> crackedDigests.put(rainbow.hashes.remove(id), password));
+        if (!crackedDigests.isEmpty())
+            this.dictionary.tell(new Dictionary.AddMessage(crackedDigests), this.self());
+        this.store(job, cracked);
+        this.finishRainbow(job);
+    }
+
+    /**
+     * Scan for the targets that the rainbow table did not crack, if any, and report the task otherwise.
+     */
+    private void finishRainbow(Job job) {
+        Map<String, String> remaining = job.rainbow.hashes;
+        job.rainbow = null;
+        if (remaining.isEmpty()) {
+            if (job.completed.size() >= job.expectedResults)
+                this.report(job);
+            return;
         }
+
+        this.log.info("Scanning for {} targets of {} that the rainbow table does not cover", remaining.size(), job.id);
+        this.split(job, 0, this.maxPassword, RegistrationMessage::getHashesPerSecond,
+                (chunkId, start, end) -> new Worker.SecretsSubTaskMessage(job.id, chunkId, remaining, (int) start, (int) end));
+    }
+
+    /**
+     * Store passwords that the master cracked itself in their records, as the brokers do with their workers' results.
+     */
+    private void store(Job job, Map<String, Integer> passwords) {
+        ActorRef records = StudentRecord.region(this.getContext().getSystem());
+        passwords.forEach((recordId, password) -> records.tell(new StoreResultMessage(job.id, recordId, Phase.SECRETS, password), this.self()));
+        job.completed.addAll(passwords.keySet());
+    }
+
+    private void handle(SequenceTaskMessage message) {
+        Map<String, String> sequences = message.Map;
+        Job job = this.startTask(message.jobId, Phase.SEQUENCES, sequences.size());
+
+        this.split(job, 1, sequences.size(), RegistrationMessage::getCellsPerSecond,
+                (chunkId, start, end) -> new Worker.SequenceSubTaskMessage(job.id, chunkId, sequences, (int) start, (int) end));
+    }
+
+    private void handle(LinearTaskMessage message) {
+        long maxNumber = (long) Math.pow(2, 43);
+        List<String> recordIds = message.recordIds;
+        Job job = this.startTask(message.jobId, Phase.LINEAR, 1);
+
+        // The linear search is plain integer arithmetic, so the hash throughput is the closer proxy for its speed
+        this.split(job, 0, maxNumber, RegistrationMessage::getHashesPerSecond,
+                (chunkId, start, end) -> new Worker.LinearSubTaskMessage(job.id, chunkId, recordIds, start, end));
+    }
+
+    private void handle(LinearRevealedMessage message) {
+        this.metrics.resultReceived();
+        this.returnResultCredit();
+//        System.out.println(message.Map);
+        // Workers whose range holds no solution report an empty result
+        Job job = this.jobs.get(message.jobId);
+        if (job != null && job.phase == Phase.LINEAR && !job.reported && !message.Map.isEmpty()) {
+            // Workers may find different solutions, so the master picks the first one and stores it for the hash phase
+            ActorRef records = StudentRecord.region(this.getContext().getSystem());
+            message.Map.forEach((recordId, prefix) -> records.tell(new StoreResultMessage(job.id, recordId, Phase.LINEAR, prefix), this.self()));
+            job.completed.addAll(message.Map.keySet());
+            this.report(job);
+        }
+    }
+
+    private void handle(HashTaskMessage message) {
+        System.out.println("Start hash generation");
+        int records = message.recordIds.size();
+        Job job = this.startTask(message.jobId, Phase.HASHES, records);
+
+        this.split(job, 1, records, RegistrationMessage::getHashesPerSecond,
+                (chunkId, start, end) -> new Worker.HashSubTaskMessage(job.id, chunkId, (int) start, (int) end));
+    }
+
+    private void handle(RecordsStoredMessage message) {
+        this.collect(message.jobId, message.phase, message.recordIds);
     }
 
     @Override
@@ -309,11 +762,22 @@ public class Master extends AbstractActor {
 
         // Register at this actor system's reaper
         Reaper.watchWithDefaultReaper(this);
+
+        // Follow the load of all cluster nodes to weight the workers' chunks
+        this.metricsExtension.subscribe(this.self());
+
+        // Periodically look for straggling chunks to duplicate
+        this.speculationSchedule = this.getContext().getSystem().scheduler().schedule(
+                SPECULATION_INTERVAL, SPECULATION_INTERVAL, this.self(), new SpeculationTickMessage(),
+                this.getContext().getSystem().dispatcher(), this.self());
     }
 
     @Override
     public void postStop() throws Exception {
         super.postStop();
+
+        this.metricsExtension.unsubscribe(this.self());
+        this.speculationSchedule.cancel();
     }
 
 
@@ -335,22 +799,411 @@ public class Master extends AbstractActor {
 
 
     private void handle(RegistrationMessage message) {
-        this.context().watch(this.sender());
-        this.idleWorkers.add(this.sender());
+        // Workers register once per master they see come up; only count them once but keep their latest calibration
+        if (this.capacities.put(this.sender(), message) == null) {
+            this.context().watch(this.sender());
+            this.idleWorkers.add(this.sender());
+            this.sender().tell(new Worker.ResultCreditMessage(Math.max(1, Math.min(MAX_RESULT_CREDITS, message.resultCredits))), this.self());
+            this.feedIdleWorkers();
+        }
 
+        System.out.println("#Registered Workers:" + this.idleWorkers.size());
 
-        //this.assign(this.sender());
-        // add worker to router
-        this.workerRouter = this.workerRouter.addRoutee(this.sender());
+        this.log.info("Registered {} ({} hashes/s, {} cells/s)", this.sender(), (long) message.hashesPerSecond, (long) message.cellsPerSecond);
+    }
 
-        System.out.println("#Registered Workers:" + this.idleWorkers.size());
-        System.out.println("#Routable Workers:" + this.workerRouter.routees().size());
+    /**
+     * Give the sender of a result batch the credit for the batch back, now that the batch is merged. Batches of
+     * finished tasks are credited, too, because their worker has spent the credit all the same.
+     */
+    private void returnResultCredit() {
+        this.sender().tell(new Worker.ResultCreditMessage(1), this.self());
+    }
 
+    private void handle(ChunkCompletedMessage message) {
+        Deque<Chunk> chunks = this.outstandingChunks.get(this.sender());
+        if (chunks != null && chunks.removeIf(chunk -> chunk.id == message.chunkId))
+            this.metrics.chunkCompleted();
+
+        // Only the first copy of a chunk completes it; cancel the others
+        Chunk chunk = this.runningChunks.remove(message.chunkId);
+        if (chunk != null) {
+            if (chunk.phase == chunk.job.phase) {
+                List<Long> times = chunk.job.chunkNanos;
+                long nanos = System.nanoTime() - chunk.startNanos;
+                int index = Collections.binarySearch(times, nanos);
+                times.add(index < 0 ? -index - 1 : index, nanos);
+            }
+            this.cancel(chunk, this.sender());
+        }
 
-        this.log.info("Registered {}", this.sender());
+        this.feedIdleWorkers();
+        this.speculate();
+    }
+
+    private Job startTask(String jobId, Phase phase, int expectedResults) {
+        Job job = this.jobs.get(jobId);
+        if (job == null) {
+            job = new Job(jobId);
+            this.jobs.put(jobId, job);
+            this.jobRotation.add(job);
+        }
+        job.client = this.getSender();
+        job.phase = phase;
+        job.reported = false;
+        job.expectedResults = expectedResults;
+        job.completed = new HashSet<>();
+        job.rainbow = null;
+        job.chunkNanos.clear();
+        return job;
+    }
+
+    private void collect(String jobId, Phase phase, List<String> recordIds) {
+        this.metrics.resultReceived();
+        this.returnResultCredit();
+
+        // Results of finished tasks or jobs may still arrive from cancelled copies of their chunks
+        Job job = this.jobs.get(jobId);
+        if (job == null || job.phase != phase || job.reported)
+            return;
+
+        // Speculative copies of a chunk report the same records again; their records keep the first result, which
+        // matters for the hashes in particular: their nonces are random, so a copy finds different ones
+        job.completed.addAll(recordIds);
+        if (job.completed.size() >= job.expectedResults)
+            this.report(job);
+    }
+
+    /**
+     * Tell the job's client that its current task is done and drop all of the task's remaining chunks. The client gets
+     * the ids of the records whose results are stored in their {@link StudentRecord}s, where the next phase reads them.
+     * The job ends with its last phase.
+     */
+    private void report(Job job) {
+        job.reported = true;
+        job.client.tell(job.completed, this.self());
+        this.drop(job);
+
+        if (job.phase == Phase.HASHES) {
+            this.jobs.remove(job.id);
+            this.jobRotation.remove(job);
+        }
+
+        this.feedIdleWorkers();
+    }
+
+    private void handle(CancelJobMessage message) {
+        Job job = this.jobs.remove(message.jobId);
+        if (job == null)
+            return;
+
+        this.log.info("Cancelling {} in phase {}", job.id, job.phase);
+        job.reported = true;
+        this.jobRotation.remove(job);
+        this.rainbowWaiters.remove(job);
+        this.drop(job);
+
+        // The jobs that waited for the cancelled job's rainbow table scan for their targets instead
+        if (job == this.rainbowBuilder) {
+            List<Job> waiting = new ArrayList<>(this.rainbowWaiters);
+            this.rainbowBuilder = null;
+            this.rainbowWaiters.clear();
+            for (Job waiter : waiting)
+                if (waiter.rainbow != null)
+                    this.finishRainbow(waiter);
+        }
+
+        this.feedIdleWorkers();
+    }
+
+    /**
+     * Drop the job's partitions of a join, cancel its running chunks, and forget its queued ones.
+     */
+    private void drop(Job job) {
+        if (job.joinOwners != null) {
+            for (ActorRef owner : job.joinOwners)
+                if (owner != null)
+                    owner.tell(new Broker.DropPartitionsMessage(job.id), this.self());
+            job.joinOwners = null;
+            job.joinPartitions = null;
+        }
+
+        for (Chunk chunk : new ArrayList<>(this.runningChunks.values())) {
+            if (chunk.job == job) {
+                this.runningChunks.remove(chunk.id);
+                this.cancel(chunk, null);
+            }
+        }
+        int queued = job.unassignedChunks.size();
+        for (Deque<Chunk> chunks : job.queuedChunks.values())
+            queued += chunks.size();
+        this.metrics.chunksQueued(-queued);
+        job.queuedChunks.clear();
+        job.unassignedChunks.clear();
+    }
+
+    /**
+     * Cancel the copies of a chunk on all of its workers except the given one.
+     */
+    private void cancel(Chunk chunk, ActorRef except) {
+        for (ActorRef worker : chunk.workers) {
+            if (worker.equals(except))
+                continue;
+            worker.tell(new Worker.CancelChunkMessage(chunk.id), this.self());
+            Deque<Chunk> copies = this.outstandingChunks.get(worker);
+            if (copies != null && copies.remove(chunk))
+                this.metrics.chunkCancelled();
+        }
+    }
+
+    /**
+     * Split the task's range among all registered workers by their weight and each worker's share into
+     * {@link #CHUNKS_PER_WORKER} chunks, queue the chunks, and hand them out to the idle workers.
+     */
+    private void split(Job job, long start, long end, ToDoubleFunction<RegistrationMessage> throughput, SubTaskFactory subTasks) {
+        List<ActorRef> workers = this.workersByWeight(throughput);
+        if (workers.isEmpty()) {
+            this.queue(job, null, start, end, subTasks);
+        } else {
+            List<long[]> ranges = this.splitWeighted(start, end, workers, throughput);
+            for (int i = 0; i < workers.size(); i++) {
+                long[] range = ranges.get(i);
+//                System.out.println("start: " + range[0] + " end: " + range[1]);
+                long size = range[1] - range[0] + 1;
+                for (int j = 0; j < CHUNKS_PER_WORKER; j++) {
+                    long chunkStart = range[0] + size * j / CHUNKS_PER_WORKER;
+                    long chunkEnd = range[0] + size * (j + 1) / CHUNKS_PER_WORKER - 1;
+                    if (chunkStart <= chunkEnd)
+                        this.queue(job, workers.get(i), chunkStart, chunkEnd, subTasks);
+                }
+            }
+        }
+        this.feedIdleWorkers();
+    }
+
+    private void queue(Job job, ActorRef worker, long start, long end, SubTaskFactory subTasks) {
+        long id = this.nextChunkId++;
+        Chunk chunk = new Chunk(id, job, start, end, subTasks.create(id, start, end));
+        this.runningChunks.put(id, chunk);
+        if (worker == null)
+            job.unassignedChunks.add(chunk);
+        else
+            job.queuedChunks.computeIfAbsent(worker, key -> new ArrayDeque<>()).add(chunk);
+        this.metrics.chunksQueued(1);
+    }
+
+    /**
+     * Top up every worker with chunks until it has as many outstanding chunks as it has chunk credits, so that a worker
+     * never holds more chunks than it accepts but always has its next chunk at hand. The jobs take turns, so that the
+     * chunks of concurrent jobs interleave on every worker.
+     */
+    private void feedIdleWorkers() {
+        for (ActorRef worker : this.idleWorkers) {
+            int credits = Math.max(1, this.capacities.get(worker).chunkCredits);
+            while (this.outstandingChunks.getOrDefault(worker, NO_CHUNKS).size() < credits) {
+                Chunk chunk = this.nextChunk(worker);
+                if (chunk == null)
+                    break;
+                this.metrics.chunksQueued(-1);
+                this.assign(chunk, worker);
+            }
+        }
+    }
+
+    /**
+     * Take the next chunk for the worker from the first job in the rotation that has one and move that job to the end
+     * of the rotation.
+     */
+    private Chunk nextChunk(ActorRef worker) {
+        Iterator<Job> rotation = this.jobRotation.iterator();
+        while (rotation.hasNext()) {
+            Job job = rotation.next();
+            Chunk chunk = job.queuedChunks.getOrDefault(worker, NO_CHUNKS).poll();
+            if (chunk == null)
+                chunk = job.unassignedChunks.poll();
+            if (chunk != null) {
+                rotation.remove();
+                this.jobRotation.add(job);
+                return chunk;
+            }
+        }
+        return null;
+    }
+
+    private void assign(Chunk chunk, ActorRef worker) {
+        worker.tell(chunk.subTask, this.self());
+        if (chunk.workers.isEmpty())
+            chunk.startNanos = System.nanoTime();
+        chunk.workers.add(worker);
+        this.outstandingChunks.computeIfAbsent(worker, key -> new ArrayDeque<>()).add(chunk);
+        this.metrics.chunkDispatched();
+        new ChunkAssignedEvent().commit(chunk.phase.name(), chunk.start, chunk.end, worker.path().name(), this.nodeOf(worker).toString());
+    }
+
+    /**
+     * Duplicate straggling chunks to idle workers, the longest running chunk to the strongest worker. A chunk straggles
+     * if it has been running for longer than its task's median chunk time by the speculation threshold. Workers are
+     * idle if they have neither an outstanding nor a queued chunk.
+     */
+    private void speculate() {
+        List<ActorRef> idle = new ArrayList<>();
+        for (ActorRef worker : this.workersByWeight(RegistrationMessage::getHashesPerSecond))
+            if (this.outstandingChunks.getOrDefault(worker, NO_CHUNKS).isEmpty() && !this.hasQueuedChunks(worker))
+                idle.add(worker);
+        if (idle.isEmpty())
+            return;
+
+        long now = System.nanoTime();
+        List<Chunk> stragglers = new ArrayList<>();
+        for (Chunk chunk : this.runningChunks.values()) {
+            List<Long> times = chunk.job.chunkNanos;
+            if (chunk.workers.size() == 1 && !times.isEmpty() && now - chunk.startNanos > times.get(times.size() / 2) * SPECULATION_THRESHOLD)
+                stragglers.add(chunk);
+        }
+        stragglers.sort(Comparator.comparingLong((Chunk chunk) -> chunk.startNanos));
+
+        for (int i = 0; i < stragglers.size() && i < idle.size(); i++) {
+            Chunk chunk = stragglers.get(i);
+            this.log.info("Speculatively assigning {} chunk {} to {}", chunk.phase, chunk.id, idle.get(i));
+            this.metrics.chunkSpeculated();
+            this.assign(chunk, idle.get(i));
+        }
+    }
+
+    private boolean hasQueuedChunks(ActorRef worker) {
+        for (Job job : this.jobRotation)
+            if (!job.unassignedChunks.isEmpty() || !job.queuedChunks.getOrDefault(worker, NO_CHUNKS).isEmpty())
+                return true;
+        return false;
+    }
+
+    private Address nodeOf(ActorRef worker) {
+        Address address = worker.path().address();
+        return address.hasLocalScope() ? this.cluster.selfAddress() : address;
     }
 
     private void handle(Terminated message) {
-        this.context().unwatch(message.getActor());
+        ActorRef worker = message.getActor();
+        this.context().unwatch(worker);
+        this.idleWorkers.remove(worker);
+        this.capacities.remove(worker);
+
+        for (Job job : this.jobRotation)
+            if (job.joinOwners != null)
+                for (int partition = 0; partition < job.joinOwners.size(); partition++)
+                    if (worker.equals(job.joinOwners.get(partition)))
+                        this.partitionLost(job, partition);
+
+        // Chunks without any remaining worker go back to their job to be taken by any worker
+        Deque<Chunk> lostChunks = this.outstandingChunks.remove(worker);
+        if (lostChunks != null) {
+            this.metrics.chunksLost(lostChunks.size());
+            for (Chunk chunk : lostChunks) {
+                chunk.workers.remove(worker);
+                if (chunk.workers.isEmpty()) {
+                    chunk.job.unassignedChunks.add(chunk);
+                    this.metrics.chunksQueued(1);
+                }
+                new ChunkFailedEvent().commit(chunk.phase.name(), chunk.start, chunk.end, worker.path().name(), this.nodeOf(worker).toString());
+            }
+        }
+        for (Job job : this.jobRotation) {
+            Deque<Chunk> queued = job.queuedChunks.remove(worker);
+            if (queued != null)
+                job.unassignedChunks.addAll(queued);
+        }
+
+        this.feedIdleWorkers();
+    }
+
+    /**
+     * Fall back to scanning for the targets of a join partition whose owner is lost, as far as they are not cracked
+     * yet, and tell the workers to stop probing the partition. The probes that the owner has not yet joined are lost
+     * with it, so the scan covers all candidates.
+     */
+    private void partitionLost(Job job, int partition) {
+        job.joinOwners.set(partition, null);
+        for (ActorRef broker : this.idleWorkers)
+            broker.tell(new Worker.PartitionLostMessage(job.id, partition), this.self());
+
+        Map<String, String> remaining = new HashMap<>();
+        job.joinPartitions.get(partition).forEach((id, hash) -> {
+            if (!job.completed.contains(id))
+                remaining.put(id, hash);
+        });
+        this.log.warning("Lost the owner of target partition {} of {}; scanning for its {} remaining targets", partition, job.id, remaining.size());
+        if (!remaining.isEmpty())
+            this.split(job, 0, this.maxPassword, RegistrationMessage::getHashesPerSecond,
+                    (chunkId, start, end) -> new Worker.SecretsSubTaskMessage(job.id, chunkId, remaining, (int) start, (int) end));
+    }
+
+    private void handle(ClusterMetricsChanged message) {
+        for (NodeMetrics metrics : message.getNodeMetrics())
+            this.nodeMetrics.put(metrics.address(), metrics);
+    }
+
+    /**
+     * List all registered workers, the strongest first, so that the largest chunks are handed out earliest.
+     */
+    private List<ActorRef> workersByWeight(ToDoubleFunction<RegistrationMessage> throughput) {
+        List<ActorRef> workers = new ArrayList<>(this.idleWorkers);
+        workers.sort(Comparator.comparingDouble((ActorRef worker) -> this.weight(worker, throughput)).reversed());
+        return workers;
+    }
+
+    /**
+     * Split the range [start, end] into one consecutive sub-range per worker, each sized proportionally to the worker's
+     * weight. Sub-ranges of very weak workers may be empty, i.e., their start is greater than their end.
+     */
+    private List<long[]> splitWeighted(long start, long end, List<ActorRef> workers, ToDoubleFunction<RegistrationMessage> throughput) {
+        double[] weights = workers.stream().mapToDouble(worker -> this.weight(worker, throughput)).toArray();
+        double totalWeight = Arrays.stream(weights).sum();
+        double size = end - start + 1;
+
+        List<long[]> ranges = new ArrayList<>(workers.size());
+        long currentStart = start;
+        double cumulativeWeight = 0;
+        for (int i = 0; i < weights.length; i++) {
+            cumulativeWeight += weights[i];
+            // Handle any remainder if this is the last worker
+            long currentEnd = (i == weights.length - 1) ? end : start + (long) (size * cumulativeWeight / totalWeight) - 1;
+            ranges.add(new long[]{currentStart, currentEnd});
+            currentStart = currentEnd + 1;
+        }
+        return ranges;
+    }
+
+    /**
+     * The weight of a worker is its calibrated kernel throughput scaled down by the current load of its node.
+     */
+    private double weight(ActorRef worker, ToDoubleFunction<RegistrationMessage> throughput) {
+        RegistrationMessage capacity = this.capacities.get(worker);
+        double kernelThroughput = (capacity == null || throughput.applyAsDouble(capacity) <= 0) ? 1 : throughput.applyAsDouble(capacity);
+        return kernelThroughput * this.nodeFactor(worker);
+    }
+
+    /**
+     * Rate the free capacity of the worker's node between 0.1 (saturated) and 1 (idle) using the latest cluster metrics:
+     * CPU usage (or the load average if the platform does not report it) and, as a penalty, a nearly exhausted heap.
+     */
+    private double nodeFactor(ActorRef worker) {
+        NodeMetrics metrics = this.nodeMetrics.get(this.nodeOf(worker));
+        if (metrics == null)
+            return 1;
+
+        double factor = 1;
+        Cpu cpu = StandardMetrics.extractCpu(metrics);
+        if (cpu != null) {
+            if (cpu.cpuCombined().isDefined())
+                factor = 1 - (Double) cpu.cpuCombined().get();
+            else if (cpu.systemLoadAverage().isDefined())
+                factor = 1 - (Double) cpu.systemLoadAverage().get() / cpu.processors();
+        }
+
+        HeapMemory heap = StandardMetrics.extractHeapMemory(metrics);
+        if (heap != null && heap.max().isDefined() && heap.used() > 0.9 * (Long) heap.max().get())
+            factor /= 2;
+
+        return Math.max(0.1, Math.min(1, factor));
     }
 }
\ No newline at end of file
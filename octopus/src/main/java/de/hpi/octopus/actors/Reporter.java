@@ -0,0 +1,93 @@
+package de.hpi.octopus.actors;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import de.hpi.octopus.actors.Master.Phase;
+import de.hpi.octopus.actors.StudentRecord.GetReportMessage;
+import de.hpi.octopus.actors.StudentRecord.ReportMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Collects the final report of a job from its {@link StudentRecord}s once all phases are done: the results of all
+ * phases by record. The reporter answers a single {@link CollectMessage} and stops.
+ */
+public class Reporter extends AbstractActor {
+
+    ////////////////////////
+    // Actor Construction //
+    ////////////////////////
+
+    public static Props props(String jobId) {
+        return Props.create(Reporter.class, () -> new Reporter(jobId));
+    }
+
+    private Reporter(String jobId) {
+        this.jobId = jobId;
+    }
+
+    ////////////////////
+    // Actor messages //
+    ////////////////////
+
+    /**
+     * Asks the {@link Reporter} for the results of the given records. It answers with a map from record id to the
+     * record's results by phase.
+     */
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class CollectMessage implements Serializable {
+        private static final long serialVersionUID = 5368327815093370128L;
+        private CollectMessage() {}
+        private List<String> recordIds = new ArrayList<>();
+    }
+
+    /////////////////
+    // Actor State //
+    /////////////////
+
+    private final String jobId;
+
+    private ActorRef client;
+    private int expectedRecords;
+    private final Map<String, Map<Phase, Object>> report = new HashMap<>();
+
+    ////////////////////
+    // Actor Behavior //
+    ////////////////////
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(CollectMessage.class, this::handle)
+                .match(ReportMessage.class, this::handle)
+                .build();
+    }
+
+    private void handle(CollectMessage message) {
+        this.client = this.sender();
+        this.expectedRecords = message.recordIds.size();
+        ActorRef records = StudentRecord.region(this.getContext().getSystem());
+        for (String recordId : message.recordIds)
+            records.tell(new GetReportMessage(this.jobId, recordId), this.self());
+        this.complete();
+    }
+
+    private void handle(ReportMessage message) {
+        this.report.put(message.getRecordId(), message.getResults());
+        this.complete();
+    }
+
+    private void complete() {
+        if (this.report.size() < this.expectedRecords)
+            return;
+        this.client.tell(this.report, this.self());
+        this.getContext().stop(this.self());
+    }
+}
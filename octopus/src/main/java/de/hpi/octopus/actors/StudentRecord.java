@@ -0,0 +1,224 @@
+package de.hpi.octopus.actors;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.PoisonPill;
+import akka.actor.Props;
+import akka.cluster.sharding.ClusterSharding;
+import akka.cluster.sharding.ClusterShardingSettings;
+import akka.cluster.sharding.ShardCoordinator.LeastShardAllocationStrategy;
+import akka.cluster.sharding.ShardRegion;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import de.hpi.octopus.actors.Master.Phase;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The results of one student record of one job. The records are sharded across all nodes of the cluster by job and
+ * record id, so that the results of a cohort are spread over the cluster's memory instead of being held by the master:
+ * the brokers store their workers' results here, the master only counts them, the brokers read the earlier phases'
+ * results back for the later phases, and the job reads all of them once in its final report.
+ */
+public class StudentRecord extends AbstractActor {
+
+    ////////////////////////
+    // Actor Construction //
+    ////////////////////////
+
+    public static final String TYPE_NAME = "student-record";
+
+    // Records are spread over this many shards; there should be several shards per node
+    private static final int NUMBER_OF_SHARDS = 100;
+
+    public static Props props() {
+        return Props.create(StudentRecord.class);
+    }
+
+    /**
+     * Start this node's region of the record shards. Every node hosts shards.
+     */
+    public static ActorRef startRegion(ActorSystem system) {
+        // The records are not persisted, so their shards must never be handed off to another node: shards are allocated
+        // to the node with the fewest of them, but never rebalanced
+        return ClusterSharding.get(system).start(TYPE_NAME, props(), ClusterShardingSettings.create(system),
+                new RecordMessageExtractor(), new LeastShardAllocationStrategy(Integer.MAX_VALUE, 0), PoisonPill.getInstance());
+    }
+
+    /**
+     * The region of the record shards on this node, through which all records are addressed.
+     */
+    public static ActorRef region(ActorSystem system) {
+        return ClusterSharding.get(system).shardRegion(TYPE_NAME);
+    }
+
+    ////////////////////
+    // Actor messages //
+    ////////////////////
+
+    /**
+     * A message to the record with the given id of the given job.
+     */
+    public interface RecordMessage {
+        String getJobId();
+
+        String getRecordId();
+    }
+
+    /**
+     * Stores the result of a phase in the record; the first result of each phase wins.
+     */
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class StoreResultMessage implements Serializable, RecordMessage {
+        private static final long serialVersionUID = -5237061728916330442L;
+        private StoreResultMessage() {}
+        private String jobId;
+        private String recordId;
+        private Phase phase;
+        private Object result;
+    }
+
+    /**
+     * Asks the record for the result of a phase. The record answers with a {@link ResultMessage} as soon as it has the
+     * result, because results may still be on their way when the phase is reported complete.
+     */
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class GetResultMessage implements Serializable, RecordMessage {
+        private static final long serialVersionUID = 2170367216458316529L;
+        private GetResultMessage() {}
+        private String jobId;
+        private String recordId;
+        private Phase phase;
+    }
+
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class ResultMessage implements Serializable {
+        private static final long serialVersionUID = -3166946893460526245L;
+        private ResultMessage() {}
+        private String jobId;
+        private String recordId;
+        private Phase phase;
+        private Object result;
+    }
+
+    /**
+     * Asks the record for the results of all phases. The record answers with a {@link ReportMessage} as soon as it has
+     * all of them.
+     */
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class GetReportMessage implements Serializable, RecordMessage {
+        private static final long serialVersionUID = -1915425339066871027L;
+        private GetReportMessage() {}
+        private String jobId;
+        private String recordId;
+    }
+
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class ReportMessage implements Serializable {
+        private static final long serialVersionUID = 8250281617336046742L;
+        private ReportMessage() {}
+        private String recordId;
+        private Map<Phase, Object> results;
+    }
+
+    /**
+     * Drops the record once its job is done.
+     */
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class DropMessage implements Serializable, RecordMessage {
+        private static final long serialVersionUID = 6470208914137926007L;
+        private DropMessage() {}
+        private String jobId;
+        private String recordId;
+    }
+
+    /**
+     * Routes the {@link RecordMessage}s to the record of their job and record id.
+     */
+    private static class RecordMessageExtractor extends ShardRegion.HashCodeMessageExtractor {
+
+        RecordMessageExtractor() {
+            super(NUMBER_OF_SHARDS);
+        }
+
+        @Override
+        public String entityId(Object message) {
+            if (message instanceof RecordMessage)
+                return ((RecordMessage) message).getJobId() + "/" + ((RecordMessage) message).getRecordId();
+            return null;
+        }
+    }
+
+    /////////////////
+    // Actor State //
+    /////////////////
+
+    private final LoggingAdapter log = Logging.getLogger(this.context().system(), this);
+
+    private final Map<Phase, Object> results = new EnumMap<>(Phase.class);
+    private final List<ActorRef> readers = new ArrayList<>();
+    private final List<GetResultMessage> reads = new ArrayList<>();
+    private final List<ActorRef> reporters = new ArrayList<>();
+
+    ////////////////////
+    // Actor Behavior //
+    ////////////////////
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(StoreResultMessage.class, this::handle)
+                .match(GetResultMessage.class, this::handle)
+                .match(GetReportMessage.class, this::handle)
+                .match(DropMessage.class, message -> this.getContext().getParent().tell(new ShardRegion.Passivate(PoisonPill.getInstance()), this.self()))
+                .matchAny(object -> this.log.info("Received unknown message: \"{}\"", object.toString()))
+                .build();
+    }
+
+    private void handle(StoreResultMessage message) {
+        if (this.results.putIfAbsent(message.phase, message.result) != null)
+            return;
+
+        // Answer the reads that waited for this result
+        for (int i = this.reads.size() - 1; i >= 0; i--) {
+            GetResultMessage read = this.reads.get(i);
+            if (read.phase == message.phase) {
+                this.readers.get(i).tell(new ResultMessage(message.jobId, message.recordId, message.phase, message.result), this.self());
+                this.reads.remove(i);
+                this.readers.remove(i);
+            }
+        }
+
+        // Answer the reports that waited for the last result
+        if (this.results.size() == Phase.values().length) {
+            for (ActorRef reporter : this.reporters)
+                reporter.tell(new ReportMessage(message.recordId, new HashMap<>(this.results)), this.self());
+            this.reporters.clear();
+        }
+    }
+
+    private void handle(GetResultMessage message) {
+        Object result = this.results.get(message.phase);
+        if (result != null) {
+            this.sender().tell(new ResultMessage(message.jobId, message.recordId, message.phase, result), this.self());
+        } else {
+            this.reads.add(message);
+            this.readers.add(this.sender());
+        }
+    }
+
+    private void handle(GetReportMessage message) {
+        if (this.results.size() == Phase.values().length)
+            this.sender().tell(new ReportMessage(message.recordId, new HashMap<>(this.results)), this.self());
+        else
+            this.reporters.add(this.sender());
+    }
+}
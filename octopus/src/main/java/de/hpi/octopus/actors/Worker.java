@@ -1,30 +1,49 @@
 package de.hpi.octopus.actors;
 
 import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSelection;
 import akka.actor.PoisonPill;
 import akka.actor.Props;
 import akka.cluster.Cluster;
-import akka.cluster.ClusterEvent.CurrentClusterState;
-import akka.cluster.ClusterEvent.MemberUp;
-import akka.cluster.Member;
-import akka.cluster.MemberStatus;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
-import de.hpi.octopus.OctopusMaster;
-import de.hpi.octopus.actors.Master.CompletionMessage;
 import de.hpi.octopus.actors.Master.RegistrationMessage;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
 import java.io.Serializable;
-import java.io.UnsupportedEncodingException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Random;
-
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import de.hpi.octopus.actors.Master.ChunkCompletedMessage;
+import de.hpi.octopus.actors.Master.Phase;
+import de.hpi.octopus.jfr.ChunkFinishedEvent;
+import de.hpi.octopus.jfr.ChunkStartedEvent;
+import de.hpi.octopus.jfr.KernelSampler;
+import de.hpi.octopus.jfr.ResultFlushEvent;
+import de.hpi.octopus.kernels.DigestTable;
+import de.hpi.octopus.kernels.LinearKernel;
+import de.hpi.octopus.kernels.NonceKernel;
+import de.hpi.octopus.kernels.RainbowKernel;
+import de.hpi.octopus.kernels.RainbowKernel.Step;
+import de.hpi.octopus.kernels.SecretsKernel;
+import de.hpi.octopus.kernels.SequenceKernel;
+import de.hpi.octopus.kernels.ShortSha256;
 import de.hpi.octopus.messages.ShutdownMessage;
+import de.hpi.octopus.metrics.MeteredMailbox;
+import de.hpi.octopus.metrics.OctopusMetrics;
 
 public class Worker extends AbstractActor {
 
@@ -34,24 +53,67 @@ public class Worker extends AbstractActor {
 
     public static final String DEFAULT_NAME = "worker";
 
+    // Time spent on each kernel when measuring this worker's throughput at registration
+    private static final long CALIBRATION_NANOS = 100_000_000L;
+    private static final int CALIBRATION_SEQUENCE_LENGTH = 500;
+
+    // Work per slice of a chunk; sequence and hash chunks are sliced per record
+    private static final long SECRETS_SLICE_SIZE = 10_000;
+    private static final long LINEAR_SLICE_SIZE = 1 << 20;
+    private static final long RAINBOW_SLICE_HASHES = 1_000_000;
+
+    // Flow control: the chunks this worker accepts at a time, so that the next one is at hand when the current one is
+    // done, and the result batches it asks to have in flight to the master at a time
+    public static final int CHUNK_CREDITS = 2;
+    public static final int RESULT_CREDITS = 4;
+
+    // Results are sent in batches of this size or at this age, whichever comes first; the worker pauses its chunk when
+    // it has buffered the maximum number of results and no credit to send them
+    private static final int RESULT_BATCH_SIZE = 256;
+    private static final long RESULT_FLUSH_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final int MAX_BUFFERED_RESULTS = 4096;
+
+    // The probes of the join take result credits, too; the worker pauses its chunk when this many probes wait for one
+    private static final int MAX_PENDING_PROBES = 64;
+
     public static Props props() {
-        return Props.create(Worker.class);
+        return Props.create(Worker.class).withMailbox(MeteredMailbox.CONFIG_PATH);
     }
 
     ////////////////////
     // Actor messages //
     ////////////////////
 
+    /**
+     * A sub task covers the range [start, end] of its task. The {@link Broker} slices the sub tasks it receives from the
+     * master into smaller ones for its workers.
+     */
+    interface SubTask {
+        Phase getPhase();
+
+        long getChunkId();
+
+        long getStart();
+
+        long getEnd();
+
+        SubTask slice(long chunkId, long start, long end);
+    }
+
     /**
      * Asks the {@link Worker} to discover all primes in a given range.
      */
-    public static class SecretsSubTaskMessage implements Serializable {
+    public static class SecretsSubTaskMessage implements Serializable, SubTask {
 
         private static final long serialVersionUID = -7467053227355130231L;
+        private String jobId;
+        private long chunkId;
         private Map<String, String> hashes;
         private int start, end;
 
-        public SecretsSubTaskMessage(Map<String, String> hashes, int start, int end) {
+        public SecretsSubTaskMessage(String jobId, long chunkId, Map<String, String> hashes, int start, int end) {
+            this.jobId = jobId;
+            this.chunkId = chunkId;
             this.hashes = hashes;
             this.start = start;
             this.end = end;
@@ -62,15 +124,167 @@ public class Worker extends AbstractActor {
         @SuppressWarnings("unused")
         private SecretsSubTaskMessage() {
         }
+
+        @Override
+        public Phase getPhase() {
+            return Phase.SECRETS;
+        }
+
+        @Override
+        public long getChunkId() {
+            return this.chunkId;
+        }
+
+        @Override
+        public long getStart() {
+            return this.start;
+        }
+
+        @Override
+        public long getEnd() {
+            return this.end;
+        }
+
+        @Override
+        public SubTask slice(long chunkId, long start, long end) {
+            return new SecretsSubTaskMessage(this.jobId, chunkId, this.hashes, (int) start, (int) end);
+        }
     }
 
-    public static class SequenceSubTaskMessage implements Serializable {
+    /**
+     * Asks the {@link Worker} to hash the candidates in a given range and send each digest to the broker that owns the
+     * digest's partition of the targets, which joins them with its targets (see {@link Broker.ProbeMessage}).
+     */
+    public static class JoinSubTaskMessage implements Serializable, SubTask {
+
+        private static final long serialVersionUID = 2593108315416432127L;
+        private String jobId;
+        private long chunkId;
+        private int start, end;
+        private List<String> owners;
+
+        public JoinSubTaskMessage(String jobId, long chunkId, int start, int end, List<String> owners) {
+            this.jobId = jobId;
+            this.chunkId = chunkId;
+            this.start = start;
+            this.end = end;
+            this.owners = owners;
+        }
+        /**
+         * For serialization/deserialization only.
+         */
+        @SuppressWarnings("unused")
+        private JoinSubTaskMessage() {
+        }
+
+        @Override
+        public Phase getPhase() {
+            return Phase.SECRETS;
+        }
+
+        @Override
+        public long getChunkId() {
+            return this.chunkId;
+        }
+
+        @Override
+        public long getStart() {
+            return this.start;
+        }
+
+        @Override
+        public long getEnd() {
+            return this.end;
+        }
+
+        @Override
+        public SubTask slice(long chunkId, long start, long end) {
+            return new JoinSubTaskMessage(this.jobId, chunkId, (int) start, (int) end, this.owners);
+        }
+    }
+
+    /**
+     * Asks the {@link Worker} to compute one step of a rainbow table lookup for every index in a given range and report
+     * the results to the master in {@link Master.RainbowValuesMessage}s (see {@link RainbowKernel}): the endpoints of
+     * chains, the endpoints of the tails of the targets, where index k is the tail of target k / chainLength from
+     * column k % chainLength, or the candidates of the chains that the tails hit.
+     */
+    public static class RainbowSubTaskMessage implements Serializable, SubTask {
+
+        private static final long serialVersionUID = -4187563140870323712L;
+        private String jobId;
+        private long chunkId;
+        private Step step;
+        private long space;
+        private int chainLength, chains;
+        private long start, end;
+
+        // The target digests of the range, four longs each, and the chains and columns of the hits of the range; the
+        // first of them belongs to the index first of the step
+        private long first;
+        private long[] digests;
+        private int[] hitChains, hitColumns;
+
+        public RainbowSubTaskMessage(String jobId, long chunkId, Step step, long space, int chainLength, int chains, long start, long end,
+                                     long first, long[] digests, int[] hitChains, int[] hitColumns) {
+            this.jobId = jobId;
+            this.chunkId = chunkId;
+            this.step = step;
+            this.space = space;
+            this.chainLength = chainLength;
+            this.chains = chains;
+            this.start = start;
+            this.end = end;
+            this.first = first;
+            this.digests = digests;
+            this.hitChains = hitChains;
+            this.hitColumns = hitColumns;
+        }
+        /**
+         * For serialization/deserialization only.
+         */
+        @SuppressWarnings("unused")
+        private RainbowSubTaskMessage() {
+        }
+
+        @Override
+        public Phase getPhase() {
+            return Phase.SECRETS;
+        }
+
+        @Override
+        public long getChunkId() {
+            return this.chunkId;
+        }
+
+        @Override
+        public long getStart() {
+            return this.start;
+        }
+
+        @Override
+        public long getEnd() {
+            return this.end;
+        }
+
+        @Override
+        public SubTask slice(long chunkId, long start, long end) {
+            return new RainbowSubTaskMessage(this.jobId, chunkId, this.step, this.space, this.chainLength, this.chains, start, end,
+                    this.first, this.digests, this.hitChains, this.hitColumns);
+        }
+    }
+
+    public static class SequenceSubTaskMessage implements Serializable, SubTask {
 
         private static final long serialVersionUID = -7467053227355130231L;
+        private String jobId;
+        private long chunkId;
         private Map<String, String> sequences;
         private int start, end;
 
-        public SequenceSubTaskMessage(Map<String, String> sequences, int start, int end) {
+        public SequenceSubTaskMessage(String jobId, long chunkId, Map<String, String> sequences, int start, int end) {
+            this.jobId = jobId;
+            this.chunkId = chunkId;
             this.sequences = sequences;
             this.start = start;
             this.end = end;
@@ -81,15 +295,54 @@ public class Worker extends AbstractActor {
         @SuppressWarnings("unused")
         private SequenceSubTaskMessage() {
         }
+
+        @Override
+        public Phase getPhase() {
+            return Phase.SEQUENCES;
+        }
+
+        @Override
+        public long getChunkId() {
+            return this.chunkId;
+        }
+
+        @Override
+        public long getStart() {
+            return this.start;
+        }
+
+        @Override
+        public long getEnd() {
+            return this.end;
+        }
+
+        @Override
+        public SubTask slice(long chunkId, long start, long end) {
+            return new SequenceSubTaskMessage(this.jobId, chunkId, this.sequences, (int) start, (int) end);
+        }
     }
 
-    public static class LinearSubTaskMessage implements Serializable {
+    /**
+     * Asks the {@link Worker} to search a range of sign vectors for the passwords of the given records. The master sends
+     * only the record ids; the broker reads the passwords from the records before it slices the chunk.
+     */
+    public static class LinearSubTaskMessage implements Serializable, SubTask {
 
         private static final long serialVersionUID = 4926542426875360288L;
+        private String jobId;
+        private long chunkId;
+        private List<String> recordIds;
         private Map<String, Integer> passwords;
         private long start, end;
 
-        public LinearSubTaskMessage(Map<String, Integer> passwords, long start, long end) {
+        public LinearSubTaskMessage(String jobId, long chunkId, List<String> recordIds, long start, long end) {
+            this(jobId, chunkId, recordIds, null, start, end);
+        }
+
+        public LinearSubTaskMessage(String jobId, long chunkId, List<String> recordIds, Map<String, Integer> passwords, long start, long end) {
+            this.jobId = jobId;
+            this.chunkId = chunkId;
+            this.recordIds = recordIds;
             this.passwords = passwords;
             this.start = start;
             this.end = end;
@@ -100,16 +353,61 @@ public class Worker extends AbstractActor {
         @SuppressWarnings("unused")
         private LinearSubTaskMessage() {
         }
+
+        public String getJobId() {
+            return this.jobId;
+        }
+
+        public List<String> getRecordIds() {
+            return this.recordIds;
+        }
+
+        @Override
+        public Phase getPhase() {
+            return Phase.LINEAR;
+        }
+
+        @Override
+        public long getChunkId() {
+            return this.chunkId;
+        }
+
+        @Override
+        public long getStart() {
+            return this.start;
+        }
+
+        @Override
+        public long getEnd() {
+            return this.end;
+        }
+
+        @Override
+        public SubTask slice(long chunkId, long start, long end) {
+            return new LinearSubTaskMessage(this.jobId, chunkId, this.recordIds, this.passwords, start, end);
+        }
     }
 
-    public static class HashSubTaskMessage implements Serializable {
+    /**
+     * Asks the {@link Worker} to mine the hashes of a range of records. The master sends only the range; the broker reads
+     * the records' partners and prefixes from the records before it slices the chunk.
+     */
+    public static class HashSubTaskMessage implements Serializable, SubTask {
 
         private static final long serialVersionUID = 4926542426875360288L;
+        private String jobId;
+        private long chunkId;
         private Map<String, String> partners;
         private Map<String, Integer> prefixes;
         private int start, end;
 
-        public HashSubTaskMessage(Map<String, String> partners, Map<String, Integer> prefixes, int start, int end) {
+        public HashSubTaskMessage(String jobId, long chunkId, int start, int end) {
+            this(jobId, chunkId, null, null, start, end);
+        }
+
+        public HashSubTaskMessage(String jobId, long chunkId, Map<String, String> partners, Map<String, Integer> prefixes, int start, int end) {
+            this.jobId = jobId;
+            this.chunkId = chunkId;
             this.partners = partners;
             this.prefixes = prefixes;
             this.start = start;
@@ -121,6 +419,35 @@ public class Worker extends AbstractActor {
         @SuppressWarnings("unused")
         private HashSubTaskMessage() {
         }
+
+        public String getJobId() {
+            return this.jobId;
+        }
+
+        @Override
+        public Phase getPhase() {
+            return Phase.HASHES;
+        }
+
+        @Override
+        public long getChunkId() {
+            return this.chunkId;
+        }
+
+        @Override
+        public long getStart() {
+            return this.start;
+        }
+
+        @Override
+        public long getEnd() {
+            return this.end;
+        }
+
+        @Override
+        public SubTask slice(long chunkId, long start, long end) {
+            return new HashSubTaskMessage(this.jobId, chunkId, this.partners, this.prefixes, (int) start, (int) end);
+        }
     }
 
 
@@ -132,9 +459,56 @@ public class Worker extends AbstractActor {
         private int[] y;
     }
 
+    /**
+     * Tells the {@link Worker} to drop a chunk, because another worker already completed a copy of it.
+     */
     @Data @AllArgsConstructor @SuppressWarnings("unused")
-    public static class AbortMessage implements Serializable {
-        private static final long serialVersionUID = -7643194361868862395L;
+    public static class CancelChunkMessage implements Serializable {
+        private static final long serialVersionUID = 3093727810658426420L;
+        private CancelChunkMessage() {}
+        private long chunkId;
+    }
+
+    /**
+     * Grants the {@link Worker} credits to send further result batches to the master.
+     */
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class ResultCreditMessage implements Serializable {
+        private static final long serialVersionUID = -2405917470165838253L;
+        private ResultCreditMessage() {}
+        private int credits;
+    }
+
+    /**
+     * Returns the result credit of a probe to the {@link Worker} once the owner of the probe's partition has joined it.
+     */
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class ProbeCreditMessage implements Serializable {
+        private static final long serialVersionUID = 5018263412298034722L;
+        private ProbeCreditMessage() {}
+        private String jobId;
+        private int partition;
+    }
+
+    /**
+     * Tells the {@link Worker} that the owner of a partition of a join is lost, so that it does not probe the partition
+     * anymore and takes back the credits of the probes it sent to the owner. The master scans for the partition's
+     * targets instead.
+     */
+    @Data @AllArgsConstructor @SuppressWarnings("unused")
+    public static class PartitionLostMessage implements Serializable {
+        private static final long serialVersionUID = -3352407788136610577L;
+        private PartitionLostMessage() {}
+        private String jobId;
+        private int partition;
+    }
+
+    /**
+     * Tells the {@link Worker} itself to process the next slice of a chunk.
+     */
+    @Data @AllArgsConstructor
+    private static class ContinueMessage {
+        private long chunkId;
     }
 
     /////////////////
@@ -143,7 +517,124 @@ public class Worker extends AbstractActor {
 
     private final LoggingAdapter log = Logging.getLogger(this.context().system(), this);
     private final Cluster cluster = Cluster.get(this.context().system());
-    private boolean foundALinearSolution = false;
+
+    // Kernel throughput of this worker as measured by calibrate(); reported with its registration
+    private double hashesPerSecond = -1;
+    private double cellsPerSecond = -1;
+
+    private final OctopusMetrics metrics = OctopusMetrics.get();
+    private final ActorSelection dictionary = this.context().system().actorSelection("/user/" + Dictionary.DEFAULT_NAME);
+    private final Dictionary.View dictionaryView = Dictionary.view(this.context().system());
+
+    /**
+     * Processes the slice [from, to] of a chunk and tells whether the chunk is done early.
+     */
+    @FunctionalInterface
+    private interface SliceProcessor {
+        boolean process(long from, long to);
+    }
+
+    /**
+     * The results of a chunk that are not yet sent, and how to wrap them into the chunk's result message.
+     */
+    static class ResultBuffer<V> {
+        private final Function<Map<String, V>, Object> message;
+        private Map<String, V> results = new HashMap<>();
+
+        ResultBuffer(Function<Map<String, V>, Object> message) {
+            this.message = message;
+        }
+
+        void add(String id, V result) {
+            this.results.put(id, result);
+        }
+
+        int size() {
+            return this.results.size();
+        }
+
+        Object drain() {
+            Object batch = this.message.apply(this.results);
+            this.results = new HashMap<>();
+            return batch;
+        }
+    }
+
+    /**
+     * A probe of the join that waits for a result credit, and the partition owner to send it to.
+     */
+    private static class Probe {
+        private final String partition;
+        private final ActorSelection owner;
+        private final Broker.ProbeMessage message;
+
+        Probe(ActorSelection owner, Broker.ProbeMessage message) {
+            this.partition = message.getJobId() + "/" + message.getPartition();
+            this.owner = owner;
+            this.message = message;
+        }
+    }
+
+    /**
+     * A chunk received from the master. Chunks are processed in slices, each in its own message, so that the worker
+     * can take cancellations in between.
+     */
+    private static class Chunk {
+        private final long id;
+        private final Phase phase;
+        private final long start, end, sliceSize;
+        private final KernelSampler sampler;
+        private final SliceProcessor processor;
+        private final ActorRef master;
+        private final ResultBuffer<?> results;
+        private final Queue<Probe> probes;
+        private long next;
+
+        // Flight recorder bookkeeping
+        private ChunkFinishedEvent event;
+        private long startNanos;
+        private long unitsBefore;
+
+        Chunk(long id, Phase phase, long start, long end, long sliceSize, KernelSampler sampler, ActorRef master, ResultBuffer<?> results, SliceProcessor processor) {
+            this(id, phase, start, end, sliceSize, sampler, master, results, new ArrayDeque<>(), processor);
+        }
+
+        Chunk(long id, Phase phase, long start, long end, long sliceSize, KernelSampler sampler, ActorRef master, ResultBuffer<?> results, Queue<Probe> probes, SliceProcessor processor) {
+            this.id = id;
+            this.phase = phase;
+            this.start = start;
+            this.end = end;
+            this.sliceSize = sliceSize;
+            this.sampler = sampler;
+            this.master = master;
+            this.results = results;
+            this.probes = probes;
+            this.processor = processor;
+            this.next = start;
+        }
+    }
+
+    // The chunk being processed and the chunks waiting for it
+    private Chunk currentChunk;
+    private final Queue<Chunk> pendingChunks = new LinkedList<>();
+
+    // The result batches this worker may still send before the master grants new credits, the time of its last batch,
+    // and whether the current chunk waits for a credit
+    private int resultCredits = 0;
+    private long lastFlushNanos = System.nanoTime();
+    private boolean paused = false;
+
+    // The probes sent per partition that the partition's owner has not yet returned the credit of, and the partitions
+    // whose owner is lost
+    private final Map<String, Integer> probesInFlight = new HashMap<>();
+    private final Set<String> lostPartitions = new HashSet<>();
+
+    // Throughput samplers of the hot kernels
+    private final KernelSampler hashScanSampler = new KernelSampler("hash scan");
+    private final KernelSampler lcsSampler = new KernelSampler("LCS");
+    private final KernelSampler linearSampler = new KernelSampler("linear search");
+    private final KernelSampler nonceSampler = new KernelSampler("nonce search");
+    private final KernelSampler rainbowSampler = new KernelSampler("rainbow chain");
 
     /////////////////////
     // Actor Lifecycle //
@@ -151,14 +642,19 @@ public class Worker extends AbstractActor {
 
     @Override
     public void preStart() {
-        this.cluster.subscribe(this.self(), MemberUp.class);
         Reaper.watchWithDefaultReaper(this);
+        this.metrics.workerStarted(this.self().path().name());
+
+        // Workers register with the broker of their node, which registers the whole node with the master
+        this.calibrate();
+        this.getContext().getSystem()
+                .actorSelection("/user/" + Broker.DEFAULT_NAME)
+                .tell(new RegistrationMessage(this.hashesPerSecond, this.cellsPerSecond, CHUNK_CREDITS, RESULT_CREDITS), this.self());
     }
 
     @Override
     public void postStop() {
-
-        this.cluster.unsubscribe(this.self());
+        this.metrics.workerStopped(this.self().path().name());
     }
 
     ////////////////////
@@ -168,13 +664,17 @@ public class Worker extends AbstractActor {
     @Override
     public Receive createReceive() {
         return receiveBuilder()
-                .match(CurrentClusterState.class, this::handle)
-                .match(MemberUp.class, this::handle)
                 .match(SecretsSubTaskMessage.class, this::handle)
+                .match(JoinSubTaskMessage.class, this::handle)
+                .match(RainbowSubTaskMessage.class, this::handle)
                 .match(SequenceSubTaskMessage.class, this::handle)
                 .match(HashSubTaskMessage.class, this::handle)
                 .match(LinearSubTaskMessage.class, this::handle)
-                .match(AbortMessage.class, this::handle)
+                .match(CancelChunkMessage.class, this::handle)
+                .match(ResultCreditMessage.class, this::handle)
+                .match(ProbeCreditMessage.class, this::handle)
+                .match(PartitionLostMessage.class, this::handle)
+                .match(ContinueMessage.class, this::handle)
                 .match(ShutdownMessage.class, this::handle)
                 .matchAny(object -> this.log.info("Received unknown message: \"{}\"", object.toString()))
                 .build();
@@ -182,227 +682,348 @@ public class Worker extends AbstractActor {
 
 
     private void handle(SecretsSubTaskMessage message) {
-        int start = message.start;
-        int end = message.end;
-
-        System.out.println("My Range: " + start + "-" + end);
-
-        Map<String, String> hashes = message.hashes;
-        Map<String, Integer> cleartext;
-
-        for (int i = start; i <= end; i++) {
-            String hash = this.hash(i);
-            //System.out.println("Number: " + i + " Hash: " + hash);
+        System.out.println("My Range: " + message.start + "-" + message.end);
+
+        ResultBuffer<Integer> results = new ResultBuffer<>(cleartexts -> new Master.SecretRevealedMessage(message.jobId, cleartexts));
+
+        // Digests that are cracked already are not scanned for; the chunk whose range holds the password reports them
+        Map<String, String> unknownHashes = new HashMap<>();
+        message.hashes.forEach((id, hash) -> {
+            Integer password = this.dictionaryView.lookup(hash);
+            if (password == null)
+                unknownHashes.put(id, hash);
+            else if (password >= message.start && password <= message.end)
+                results.add(id, password);
+        });
 
+        DigestTable targets = DigestTable.of(unknownHashes);
+        this.enqueue(new Chunk(message.chunkId, Phase.SECRETS, message.start, message.end, SECRETS_SLICE_SIZE, this.hashScanSampler, this.sender(), results, (from, to) -> {
+            if (unknownHashes.isEmpty())
+                return true;
+            Map<String, Integer> cracked = new HashMap<>();
+            SecretsKernel.scan((int) from, (int) to, targets, (id, password) -> {
+                results.add(id, password);
+                cracked.put(unknownHashes.get(id), password);
+            }, this.hashScanSampler);
+            if (!cracked.isEmpty())
+                this.dictionary.tell(new Dictionary.AddMessage(cracked), this.self());
+            return false;
+        }));
+    }
 
-            for (Map.Entry<String,String> entry : hashes.entrySet()) {
-                String key = entry.getKey();
-                String value = entry.getValue();
+    private void handle(JoinSubTaskMessage message) {
+        List<ActorSelection> owners = new ArrayList<>(message.owners.size());
+        for (String owner : message.owners)
+            owners.add(this.context().actorSelection(owner));
+        ShortSha256 sha256 = new ShortSha256();
+        long[] lanes = new long[4 * ShortSha256.LANES];
+
+        // The owners of the partitions report the cracked passwords, so the chunk itself has no results, only probes
+        ResultBuffer<Integer> results = new ResultBuffer<>(cleartexts -> new Master.SecretRevealedMessage(message.jobId, cleartexts));
+        Queue<Probe> probes = new ArrayDeque<>();
+        this.enqueue(new Chunk(message.chunkId, Phase.SECRETS, message.start, message.end, SECRETS_SLICE_SIZE, this.hashScanSampler, this.sender(), results, probes, (from, to) -> {
+            int candidates = (int) (to - from + 1);
+            long[] digests = new long[4 * candidates];
+            int[] partitions = new int[candidates];
+            int[] partitionSizes = new int[owners.size()];
+            for (int i = 0; i < candidates; i += ShortSha256.LANES) {
+                int candidate = (int) from + i;
+                sha256.digest(candidate, candidate + 1, candidate + 2, candidate + 3, lanes);
+                int hashed = Math.min(ShortSha256.LANES, candidates - i);
+                System.arraycopy(lanes, 0, digests, 4 * i, 4 * hashed);
+                this.hashScanSampler.tick(hashed);
+            }
+            for (int i = 0; i < candidates; i++) {
+                partitions[i] = DigestTable.partition(digests[4 * i], owners.size());
+                partitionSizes[partitions[i]]++;
+            }
 
-                if (hash.equals(value)) {
-//                    System.out.println("Match!");
-                    cleartext = new HashMap<String, Integer>();
-                    cleartext.put(key, i);
-                    this.sender().tell(new Master.SecretRevealedMessage(cleartext), this.self());
+            for (int partition = 0; partition < owners.size(); partition++) {
+                if (partitionSizes[partition] == 0 || this.lostPartitions.contains(message.jobId + "/" + partition))
+                    continue;
+                long[] partitionDigests = new long[4 * partitionSizes[partition]];
+                int[] partitionCandidates = new int[partitionSizes[partition]];
+                int next = 0;
+                for (int i = 0; i < candidates; i++) {
+                    if (partitions[i] != partition)
+                        continue;
+                    System.arraycopy(digests, 4 * i, partitionDigests, 4 * next, 4);
+                    partitionCandidates[next++] = (int) from + i;
                 }
-
+                probes.add(new Probe(owners.get(partition), new Broker.ProbeMessage(message.jobId, partition, partitionDigests, partitionCandidates)));
             }
-        }
+            return false;
+        }));
     }
 
-    private void handle(SequenceSubTaskMessage message) {
-        int start = message.start;
-        int end = message.end;
-
-        System.out.println("My SequenceRange: " + start + "-" + end);
-
-        Map<String, String> sequences = message.sequences;
-        Map<String, String> cleartext;
-        String id;
-        String sequence;
-        int maxSubstringLength;
-        String maxSubstringPartner;
-
-        for (int i = start; i <= end; i++) {
-            id = Integer.toString(i);
-            sequence = sequences.get(id);
-            maxSubstringLength = 0;
-            maxSubstringPartner = "";
-            int overlapSize;
-            for (Map.Entry<String,String> entry : sequences.entrySet()) {
-                String key = entry.getKey();
-                String value = entry.getValue();
-                if(!key.equals(id)) {
-                    overlapSize = this.longestOverlap(value, sequence).length();
-                    if (overlapSize > maxSubstringLength) {
-                        maxSubstringLength = overlapSize;
-                        maxSubstringPartner = key;
-                    }
+    private void handle(RainbowSubTaskMessage message) {
+        ShortSha256 sha256 = new ShortSha256();
+        int length = message.chainLength;
+
+        // Every value costs up to a chain length of hashes
+        ResultBuffer<Integer> results = new ResultBuffer<>(values -> new Master.RainbowValuesMessage(message.jobId, message.step, values));
+        this.enqueue(new Chunk(message.chunkId, Phase.SECRETS, message.start, message.end, Math.max(1, RAINBOW_SLICE_HASHES / length), this.rainbowSampler, this.sender(), results, (from, to) -> {
+            for (long index = from; index <= to; index++) {
+                int value;
+                switch (message.step) {
+                    case CHAINS:
+                        value = RainbowKernel.endpoint(index, message.chains, length, message.space, sha256, this.rainbowSampler);
+                        break;
+                    case TAILS:
+                        int target = (int) (index / length - message.first);
+                        value = RainbowKernel.tail(message.digests[4 * target], (int) (index % length), length, message.space, sha256, this.rainbowSampler);
+                        break;
+                    default:
+                        int hit = (int) (index - message.first);
+                        value = RainbowKernel.candidate(message.hitChains[hit], message.chains, message.hitColumns[hit], message.space, message.digests, 4 * hit, sha256, this.rainbowSampler);
                 }
+                results.add(Long.toString(index), value);
             }
-            cleartext = new HashMap<String, String>();
-            cleartext.put(id, maxSubstringPartner);
-            this.sender().tell(new Master.SequenceRevealedMessage(cleartext), this.self());
-        }
+            return false;
+        }));
     }
-    private void handle(HashSubTaskMessage message) {
-        int start = message.start;
-        int end = message.end;
 
-        System.out.println("My HashRange: " + start + "-" + end);
+    private void handle(SequenceSubTaskMessage message) {
+        System.out.println("My SequenceRange: " + message.start + "-" + message.end);
+
+        ResultBuffer<String> results = new ResultBuffer<>(partners -> new Master.SequenceRevealedMessage(message.jobId, partners));
+        this.enqueue(new Chunk(message.chunkId, Phase.SEQUENCES, message.start, message.end, 1, this.lcsSampler, this.sender(), results, (from, to) -> {
+            String id = Long.toString(from);
+            results.add(id, SequenceKernel.bestPartner(id, message.sequences, this.lcsSampler));
+            return false;
+        }));
+    }
 
-        Map<String, String> partners = message.partners;
-        Map<String, Integer> prefixes = message.prefixes;
-        String hash = "";
-        Random rand = new Random();
+    private void handle(HashSubTaskMessage message) {
+        System.out.println("My HashRange: " + message.start + "-" + message.end);
 
-        for (int i = start; i <= end; i++) {
-            int prefix = prefixes.get(Integer.toString(i));
-            int partner = Integer.parseInt(partners.get(Integer.toString(i)));
-            while (1==1) {
-                int nonce = rand.nextInt();
-                hash = this.hash(partner + nonce);
-                if(prefix == -1 && hash.substring(0, 5).equals("00000")){
-                    break;
-                }
-                else if(prefix == 1 && hash.substring(0, 5).equals("11111")){
-                    break;
-                }
-            }
-            Map<String, String> cleartext = new HashMap<String, String>();
-            cleartext.put(Integer.toString(i), hash);
-            this.sender().tell(new Master.HashRevealedMessage(cleartext), this.self());
-        }
+        Random rand = new Random();
+        ResultBuffer<String> results = new ResultBuffer<>(hashes -> new Master.HashRevealedMessage(message.jobId, hashes));
+        this.enqueue(new Chunk(message.chunkId, Phase.HASHES, message.start, message.end, 1, this.nonceSampler, this.sender(), results, (from, to) -> {
+            String id = Long.toString(from);
+            int prefix = message.prefixes.get(id);
+            int partner = Integer.parseInt(message.partners.get(id));
+            results.add(id, NonceKernel.findHash(partner, prefix, rand, this.nonceSampler));
+            return false;
+        }));
     }
 
-    private void handle(AbortMessage message) {
-        this.foundALinearSolution = true;
+    private void handle(LinearSubTaskMessage message) {
+        System.out.println("My LinearRange: " + message.start + "-" + message.end);
+
+        // The kernel works on the passwords in record id order (numeric for numeric ids), so that every worker and the
+        // serial analyzer enumerate the same sign vectors no matter how the map was deserialized
+        List<String> ids = new ArrayList<>(message.passwords.keySet());
+        ids.sort(Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()));
+        int[] values = ids.stream().mapToInt(message.passwords::get).toArray();
+
+        ResultBuffer<Integer> results = new ResultBuffer<>(prefixes -> new Master.LinearRevealedMessage(message.jobId, prefixes));
+        this.enqueue(new Chunk(message.chunkId, Phase.LINEAR, message.start, message.end, LINEAR_SLICE_SIZE, this.linearSampler, this.sender(), results, (from, to) -> {
+            long solution = LinearKernel.search(from, to, values, this.linearSampler);
+            if (solution < 0)
+                return false;
+            int[] prefixes = LinearKernel.binaryFromLong(solution, values.length);
+            for (int idx = 0; idx < ids.size(); idx++)
+                results.add(ids.get(idx), prefixes[idx]);
+            return true;
+        }));
     }
 
+    private void handle(CancelChunkMessage message) {
+        this.pendingChunks.removeIf(chunk -> chunk.id == message.chunkId);
 
-    private void handle(LinearSubTaskMessage message) {
-        long start = message.start;
-        long end = message.end;
+        if (this.currentChunk != null && this.currentChunk.id == message.chunkId) {
+            this.log.info("Cancelled chunk {} at {} of [{}, {}]", message.chunkId, this.currentChunk.next, this.currentChunk.start, this.currentChunk.end);
+            this.chunkFinished(this.currentChunk);
+            this.startNextChunk();
+        }
+    }
 
-        System.out.println("My LinearRange: " + start + "-" + end);
+    private void handle(ProbeCreditMessage message) {
+        // The credits of probes to a lost owner are taken back already
+        String partition = message.jobId + "/" + message.partition;
+        Integer inFlight = this.probesInFlight.get(partition);
+        if (inFlight == null)
+            return;
+        if (inFlight > 1)
+            this.probesInFlight.put(partition, inFlight - 1);
+        else
+            this.probesInFlight.remove(partition);
+        this.resultCredits++;
+        this.resume();
+    }
 
-        Map<String, Integer> passwords = message.passwords;
+    private void handle(PartitionLostMessage message) {
+        String partition = message.jobId + "/" + message.partition;
+        this.lostPartitions.add(partition);
+        if (this.currentChunk != null)
+            this.currentChunk.probes.removeIf(probe -> probe.partition.equals(partition));
+        for (Chunk chunk : this.pendingChunks)
+            chunk.probes.removeIf(probe -> probe.partition.equals(partition));
+
+        Integer inFlight = this.probesInFlight.remove(partition);
+        if (inFlight != null)
+            this.resultCredits += inFlight;
+        this.resume();
+    }
 
-        Map<String, Integer> cleartext = new HashMap<String, Integer>();
+    private void handle(ContinueMessage message) {
+        // Continuations of cancelled chunks may still arrive
+        Chunk chunk = this.currentChunk;
+        if (chunk == null || chunk.id != message.chunkId)
+            return;
 
-        for (long i = start; i <= end; i++) {
-            int[] prefixes = this.binaryFromLong(i);
-            int sum = 0;
-            int idx = 0;
-            for (Map.Entry<String, Integer> entry : passwords.entrySet()) {
-//                String key = entry.getKey();
-                sum += entry.getValue() * prefixes[idx];
-                idx ++;
-            }
-            if (sum == 0 || this.foundALinearSolution) {
-                idx = 0;
-                for (Map.Entry<String, Integer> entry : passwords.entrySet()) {
-//                String key = entry.getKey();
-                    cleartext.put(entry.getKey(), prefixes[idx]);
-                    idx ++;
-                }
-                break;
-            }
-        }
+        long to = Math.min(chunk.end, chunk.next + chunk.sliceSize - 1);
+        boolean done = chunk.processor.process(chunk.next, to);
+        chunk.next = done ? chunk.end + 1 : to + 1;
 
-        this.sender().tell(new Master.LinearRevealedMessage(cleartext), this.self());
+        this.proceed(chunk);
     }
 
-    private int[] binaryFromLong(long number){
-        String binary = Long.toBinaryString(number);
-        int[] prefixes = new int[42];
-        for (int i = 0; i < prefixes.length; i++)
-            prefixes[i] = 1;
+    private void handle(ResultCreditMessage message) {
+        this.resultCredits += message.credits;
+        this.resume();
+    }
 
-        int i = 0;
-        for (int j = binary.length() - 1; j >= 0 && i < 42; j--) {
-            if (binary.charAt(j) == '1')
-                prefixes[i] = -1;
-            i++;
+    /**
+     * Proceed with the paused chunk, if any, after the worker got credits back.
+     */
+    private void resume() {
+        if (this.paused) {
+            this.paused = false;
+            this.proceed(this.currentChunk);
         }
-        return prefixes;
     }
 
-    private void handle(CurrentClusterState message) {
-        message.getMembers().forEach(member -> {
-            if (member.status().equals(MemberStatus.up()))
-                this.register(member);
-        });
+    /**
+     * Send the chunk's buffered results if the batch is due and a credit allows it, then either complete the chunk or
+     * process its next slice. Without a credit, the worker pauses the chunk when its results cannot be buffered any
+     * further or must be sent before the chunk completes, until the master grants it a new credit.
+     */
+    private void proceed(Chunk chunk) {
+        boolean finished = chunk.next > chunk.end;
+        this.sendProbes(chunk);
+        int buffered = chunk.results.size();
+        if (buffered > 0 && this.resultCredits > 0
+                && (finished || buffered >= RESULT_BATCH_SIZE || System.nanoTime() - this.lastFlushNanos >= RESULT_FLUSH_NANOS))
+            this.flush(chunk);
+
+        if (finished && chunk.results.size() == 0 && chunk.probes.isEmpty()) {
+            this.chunkFinished(chunk);
+            chunk.master.tell(new ChunkCompletedMessage(chunk.phase, chunk.id), this.self());
+            this.startNextChunk();
+        } else if (finished || chunk.results.size() >= MAX_BUFFERED_RESULTS || chunk.probes.size() >= MAX_PENDING_PROBES) {
+            this.paused = true;
+        } else {
+            this.self().tell(new ContinueMessage(chunk.id), this.self());
+        }
     }
 
-    private void handle(MemberUp message) {
-        this.register(message.member());
+    private void enqueue(Chunk chunk) {
+        this.pendingChunks.add(chunk);
+        if (this.currentChunk == null)
+            this.startNextChunk();
     }
 
-    private void register(Member member) {
-        if (member.hasRole(OctopusMaster.MASTER_ROLE))
-            this.getContext()
-                    .actorSelection(member.address() + "/user/" + Master.DEFAULT_NAME)
-                    .tell(new RegistrationMessage(), this.self());
-    }
+    private void startNextChunk() {
+        Chunk chunk = this.pendingChunks.poll();
+        this.currentChunk = chunk;
+        this.paused = false;
+        if (chunk == null)
+            return;
 
-    private void handle(ShutdownMessage message) {
-        // Stop self and all child actors by sending a poison pill
-        System.out.println("Worker: " + this.toString() + " received Shutdown");
-        this.getSelf().tell(PoisonPill.getInstance(), this.getSelf());
-    }
+        chunk.startNanos = System.nanoTime();
+        chunk.unitsBefore = chunk.sampler.total();
+        new ChunkStartedEvent().commit(chunk.phase.name(), chunk.start, chunk.end, this.self().path().name(), this.cluster.selfAddress().toString());
+        chunk.event = new ChunkFinishedEvent();
+        chunk.event.begin();
 
-    private String hash(int number) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashedBytes = digest.digest(String.valueOf(number).getBytes("UTF-8"));
+        this.self().tell(new ContinueMessage(chunk.id), this.self());
+    }
 
-            StringBuffer stringBuffer = new StringBuffer();
-            for (int i = 0; i < hashedBytes.length; i++) {
-                stringBuffer.append(Integer.toString((hashedBytes[i] & 0xff) + 0x100, 16).substring(1));
-            }
-            return stringBuffer.toString();
+    private void chunkFinished(Chunk chunk) {
+        chunk.sampler.flush();
+        long workUnits = chunk.sampler.total() - chunk.unitsBefore;
+        this.metrics.workDone(chunk.phase, workUnits);
+        this.metrics.workerBusy(this.self().path().name(), System.nanoTime() - chunk.startNanos);
+        chunk.event.end();
+        if (chunk.event.shouldCommit()) {
+            chunk.event.workUnits = workUnits;
+            chunk.event.commit(chunk.phase.name(), chunk.start, chunk.end, this.self().path().name(), this.cluster.selfAddress().toString());
         }
-        catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
-            throw new RuntimeException(e.getMessage());
+    }
+
+    /**
+     * Send the chunk's probes as far as the credits allow. Each takes a result credit, which the partition's owner
+     * returns once it has joined the probe, so that no worker floods an owner however fast it hashes.
+     */
+    private void sendProbes(Chunk chunk) {
+        while (!chunk.probes.isEmpty() && this.resultCredits > 0) {
+            Probe probe = chunk.probes.poll();
+            probe.owner.tell(probe.message, this.self());
+            this.probesInFlight.merge(probe.partition, 1, Integer::sum);
+            this.resultCredits--;
         }
     }
 
-    private String longestOverlap(String str1, String str2) {
-        if (str1.isEmpty() || str2.isEmpty())
-            return "";
+    private void flush(Chunk chunk) {
+        int results = chunk.results.size();
+        chunk.master.tell(chunk.results.drain(), this.self());
+        this.resultCredits--;
+        this.lastFlushNanos = System.nanoTime();
+
+        ResultFlushEvent event = new ResultFlushEvent();
+        if (event.shouldCommit()) {
+            event.phase = chunk.phase.name();
+            event.results = results;
+            event.worker = this.self().path().name();
+            event.commit();
+        }
+    }
 
-        if (str1.length() > str2.length()) {
-            String temp = str1;
-            str1 = str2;
-            str2 = temp;
+    /**
+     * Run both hot kernels for a short, fixed amount of time and remember their throughput, so that the master and the
+     * broker can size this worker's chunks according to the hardware it actually runs on.
+     */
+    private void calibrate() {
+        long deadline = System.nanoTime() + CALIBRATION_NANOS;
+        long start = System.nanoTime();
+        long hashes = 0;
+        ShortSha256 sha256 = new ShortSha256();
+        long[] digests = new long[4 * ShortSha256.LANES];
+        while (System.nanoTime() < deadline) {
+            int candidate = (int) hashes;
+            sha256.digest(candidate, candidate + 1, candidate + 2, candidate + 3, digests);
+            hashes += ShortSha256.LANES;
+        }
+        this.hashesPerSecond = hashes / ((System.nanoTime() - start) / 1e9);
+
+        Random random = new Random(42);
+        String str1 = randomSequence(random, CALIBRATION_SEQUENCE_LENGTH);
+        String str2 = randomSequence(random, CALIBRATION_SEQUENCE_LENGTH);
+        deadline = System.nanoTime() + CALIBRATION_NANOS;
+        start = System.nanoTime();
+        long cells = 0;
+        while (System.nanoTime() < deadline) {
+            SequenceKernel.longestOverlap(str1, str2);
+            cells += (long) str1.length() * str2.length();
         }
+        this.cellsPerSecond = cells / ((System.nanoTime() - start) / 1e9);
 
-        int[] currentRow = new int[str1.length()];
-        int[] lastRow = str2.length() > 1 ? new int[str1.length()] : null;
-        int longestSubstringLength = 0;
-        int longestSubstringStart = 0;
+        this.log.info("Calibrated: {} hashes/s, {} LCS cells/s", (long) this.hashesPerSecond, (long) this.cellsPerSecond);
+    }
 
-        for (int str2Index = 0; str2Index < str2.length(); str2Index++) {
-            char str2Char = str2.charAt(str2Index);
-            for (int str1Index = 0; str1Index < str1.length(); str1Index++) {
-                int newLength;
-                if (str1.charAt(str1Index) == str2Char) {
-                    newLength = str1Index == 0 || str2Index == 0 ? 1 : lastRow[str1Index - 1] + 1;
+    private static String randomSequence(Random random, int length) {
+        final String alphabet = "ACGU";
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++)
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return builder.toString();
+    }
 
-                    if (newLength > longestSubstringLength) {
-                        longestSubstringLength = newLength;
-                        longestSubstringStart = str1Index - (newLength - 1);
-                    }
-                } else {
-                    newLength = 0;
-                }
-                currentRow[str1Index] = newLength;
-            }
-            int[] temp = currentRow;
-            currentRow = lastRow;
-            lastRow = temp;
-        }
-        return str1.substring(longestSubstringStart, longestSubstringStart + longestSubstringLength);
+    private void handle(ShutdownMessage message) {
+        // Stop self and all child actors by sending a poison pill
+        System.out.println("Worker: " + this.toString() + " received Shutdown");
+        this.getSelf().tell(PoisonPill.getInstance(), this.getSelf());
     }
-}
\ No newline at end of file
+}
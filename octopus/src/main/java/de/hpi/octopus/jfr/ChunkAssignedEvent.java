@@ -0,0 +1,11 @@
+package de.hpi.octopus.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.hpi.octopus.ChunkAssigned")
+@Label("Chunk Assigned")
+@Description("The master sent a chunk to a worker")
+public class ChunkAssignedEvent extends ChunkEvent {
+}
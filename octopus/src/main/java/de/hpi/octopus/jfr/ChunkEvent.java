@@ -0,0 +1,41 @@
+package de.hpi.octopus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Common fields of all flight recorder events that describe the life cycle of a chunk.
+ */
+@Category({"Octopus", "Chunk"})
+@StackTrace(false)
+public abstract class ChunkEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Range Start")
+    long rangeStart;
+
+    @Label("Range End")
+    long rangeEnd;
+
+    @Label("Worker")
+    String worker;
+
+    @Label("Node")
+    String node;
+
+    /**
+     * Fill in the chunk fields and commit the event.
+     */
+    public void commit(String phase, long rangeStart, long rangeEnd, String worker, String node) {
+        this.phase = phase;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.worker = worker;
+        this.node = node;
+        this.commit();
+    }
+}
@@ -0,0 +1,11 @@
+package de.hpi.octopus.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.hpi.octopus.ChunkFailed")
+@Label("Chunk Failed")
+@Description("A chunk was lost, because its worker terminated before completing it")
+public class ChunkFailedEvent extends ChunkEvent {
+}
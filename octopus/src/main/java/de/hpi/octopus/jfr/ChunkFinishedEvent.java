@@ -0,0 +1,17 @@
+package de.hpi.octopus.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Spans the processing of a chunk: {@link #begin()} it when the worker starts the chunk.
+ */
+@Name("de.hpi.octopus.ChunkFinished")
+@Label("Chunk Finished")
+@Description("A worker processed a chunk; the event's duration is the processing time")
+public class ChunkFinishedEvent extends ChunkEvent {
+
+    @Label("Work Units")
+    public long workUnits;
+}
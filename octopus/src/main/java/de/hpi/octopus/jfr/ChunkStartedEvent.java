@@ -0,0 +1,11 @@
+package de.hpi.octopus.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.hpi.octopus.ChunkStarted")
+@Label("Chunk Started")
+@Description("A worker took a chunk out of its mailbox and started processing it")
+public class ChunkStartedEvent extends ChunkEvent {
+}
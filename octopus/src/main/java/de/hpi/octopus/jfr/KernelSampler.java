@@ -0,0 +1,60 @@
+package de.hpi.octopus.jfr;
+
+/**
+ * Emits a {@link KernelThroughputEvent} about every {@link #SAMPLE_INTERVAL_NANOS} while a kernel loop calls
+ * {@link #tick(long)}. The clock is only read every {@link #CLOCK_MASK}+1 ticks, so the sampler costs next to nothing
+ * inside hot loops, and nothing at all beyond a counter when no recording is running.
+ */
+public class KernelSampler {
+
+    private static final long SAMPLE_INTERVAL_NANOS = 100_000_000L;
+    private static final int CLOCK_MASK = 0x3FF;
+
+    private final String kernel;
+
+    private KernelThroughputEvent event;
+    private long ticks = 0;
+    private long units = 0;
+    private long total = 0;
+    private long sampleStartNanos;
+
+    public KernelSampler(String kernel) {
+        this.kernel = kernel;
+        this.startSample();
+    }
+
+    public void tick(long workUnits) {
+        this.units += workUnits;
+        this.total += workUnits;
+        if ((++this.ticks & CLOCK_MASK) == 0 && System.nanoTime() - this.sampleStartNanos >= SAMPLE_INTERVAL_NANOS)
+            this.flush();
+    }
+
+    /**
+     * @return all work units ticked since this sampler was created
+     */
+    public long total() {
+        return this.total;
+    }
+
+    /**
+     * Commit the current sample, e.g., at the end of a chunk, and start the next one.
+     */
+    public void flush() {
+        this.event.end();
+        if (this.units > 0 && this.event.shouldCommit()) {
+            this.event.kernel = this.kernel;
+            this.event.workUnits = this.units;
+            this.event.rate = this.units / ((System.nanoTime() - this.sampleStartNanos) / 1e9);
+            this.event.commit();
+        }
+        this.startSample();
+    }
+
+    private void startSample() {
+        this.event = new KernelThroughputEvent();
+        this.event.begin();
+        this.units = 0;
+        this.sampleStartNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,25 @@
+package de.hpi.octopus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("de.hpi.octopus.KernelThroughput")
+@Label("Kernel Throughput")
+@Description("Periodic throughput sample of a hot compute kernel; the event's duration is the sampling interval")
+@Category({"Octopus", "Kernel"})
+@StackTrace(false)
+public class KernelThroughputEvent extends Event {
+
+    @Label("Kernel")
+    public String kernel;
+
+    @Label("Work Units")
+    public long workUnits;
+
+    @Label("Work Units per Second")
+    public double rate;
+}
@@ -0,0 +1,25 @@
+package de.hpi.octopus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("de.hpi.octopus.ResultFlush")
+@Label("Result Flush")
+@Description("A worker sent a batch of results to the master")
+@Category({"Octopus", "Chunk"})
+@StackTrace(false)
+public class ResultFlushEvent extends Event {
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Results")
+    public int results;
+
+    @Label("Worker")
+    public String worker;
+}
@@ -0,0 +1,133 @@
+package de.hpi.octopus.kernels;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An open addressing hash table from SHA-256 digests to record ids. The digests are kept as four longs each in one
+ * primitive array, so that a lookup costs one hash probe and a few long comparisons no matter how many digests the table
+ * holds. Records that share a digest are chained, so that a lookup finds all of them.
+ */
+public final class DigestTable {
+
+    private static final int EMPTY = -1;
+
+    // The digests of the entries, four longs per entry, their record ids, and the next entry with the same digest
+    private final long[] digests;
+    private final String[] ids;
+    private final int[] sameDigest;
+
+    // The slots of the table point to the first entry of each distinct digest
+    private final int[] slots;
+    private final int mask;
+
+    private DigestTable(int capacity) {
+        this.digests = new long[4 * capacity];
+        this.ids = new String[capacity];
+        this.sameDigest = new int[capacity];
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2;
+        this.slots = new int[size];
+        this.mask = size - 1;
+        Arrays.fill(this.slots, EMPTY);
+    }
+
+    /**
+     * Build a table from record ids and their lower case hex digests.
+     */
+    public static DigestTable of(Map<String, String> targets) {
+        DigestTable table = new DigestTable(targets.size());
+        int entry = 0;
+        for (Map.Entry<String, String> target : targets.entrySet())
+            table.insert(entry++, target.getKey(), target.getValue());
+        return table;
+    }
+
+    public int size() {
+        return this.ids.length;
+    }
+
+    private void insert(int entry, String id, String hex) {
+        for (int i = 0; i < 4; i++)
+            this.digests[4 * entry + i] = Long.parseUnsignedLong(hex.substring(16 * i, 16 * i + 16), 16);
+        this.ids[entry] = id;
+        this.sameDigest[entry] = EMPTY;
+
+        long d0 = this.digests[4 * entry], d1 = this.digests[4 * entry + 1], d2 = this.digests[4 * entry + 2], d3 = this.digests[4 * entry + 3];
+        int slot = slot(d0) & this.mask;
+        while (this.slots[slot] != EMPTY) {
+            int other = this.slots[slot];
+            if (this.equals(other, d0, d1, d2, d3)) {
+                this.sameDigest[entry] = other;
+                this.slots[slot] = entry;
+                return;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.slots[slot] = entry;
+    }
+
+    /**
+     * Find the first entry with the given digest.
+     *
+     * @return the entry or a negative number if no record has the digest
+     * @see #next(int) for the further entries with the same digest
+     */
+    public int find(long d0, long d1, long d2, long d3) {
+        int slot = slot(d0) & this.mask;
+        int entry;
+        while ((entry = this.slots[slot]) != EMPTY) {
+            if (this.equals(entry, d0, d1, d2, d3))
+                return entry;
+            slot = (slot + 1) & this.mask;
+        }
+        return EMPTY;
+    }
+
+    public int find(byte[] digest) {
+        return this.find(word(digest, 0), word(digest, 1), word(digest, 2), word(digest, 3));
+    }
+
+    /**
+     * @return the next entry with the same digest as the given one or a negative number if there is none
+     */
+    public int next(int entry) {
+        return this.sameDigest[entry];
+    }
+
+    public String id(int entry) {
+        return this.ids[entry];
+    }
+
+    private boolean equals(int entry, long d0, long d1, long d2, long d3) {
+        int offset = 4 * entry;
+        return this.digests[offset] == d0 && this.digests[offset + 1] == d1 && this.digests[offset + 2] == d2 && this.digests[offset + 3] == d3;
+    }
+
+    /**
+     * The digests are uniformly distributed already, so the slot is taken from the bits that do not pick the partition.
+     */
+    private static int slot(long d0) {
+        return (int) d0 ^ (int) (d0 >>> 32);
+    }
+
+    /**
+     * Read the i-th big endian long of a digest.
+     */
+    public static long word(byte[] digest, int i) {
+        long word = 0;
+        for (int b = 8 * i; b < 8 * i + 8; b++)
+            word = (word << 8) | (digest[b] & 0xff);
+        return word;
+    }
+
+    /**
+     * Assign a digest, given by its first long, to one of the partitions by its 16 bit prefix.
+     */
+    public static int partition(long d0, int partitions) {
+        return (int) (d0 >>> 48) % partitions;
+    }
+
+    public static int partition(String hex, int partitions) {
+        return Integer.parseInt(hex.substring(0, 4), 16) % partitions;
+    }
+}
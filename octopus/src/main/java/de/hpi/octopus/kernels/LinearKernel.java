@@ -0,0 +1,51 @@
+package de.hpi.octopus.kernels;
+
+import de.hpi.octopus.jfr.KernelSampler;
+
+/**
+ * The linear combination kernel: find signs (+1/-1) for a list of numbers such that their signed sum is zero. Candidate
+ * sign vectors are enumerated as the bits of a counter, a set bit meaning -1.
+ */
+public final class LinearKernel {
+
+    private LinearKernel() {
+    }
+
+    /**
+     * Search the sign vectors encoded by [start, end] for the first one whose signed sum of the values is zero.
+     *
+     * @param values the numbers to combine
+     * @param sampler is ticked once per tested sign vector
+     * @return the encoding of the first solution or -1 if there is none in the range
+     */
+    public static long search(long start, long end, int[] values, KernelSampler sampler) {
+        for (long i = start; i <= end; i++) {
+            int[] prefixes = binaryFromLong(i, values.length);
+            sampler.tick(1);
+            int sum = 0;
+            for (int idx = 0; idx < values.length; idx++)
+                sum += values[idx] * prefixes[idx];
+            if (sum == 0)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Decode a sign vector: bit i of the number is the sign of value i, a set bit meaning -1.
+     */
+    public static int[] binaryFromLong(long number, int length) {
+        String binary = Long.toBinaryString(number);
+        int[] prefixes = new int[length];
+        for (int i = 0; i < prefixes.length; i++)
+            prefixes[i] = 1;
+
+        int i = 0;
+        for (int j = binary.length() - 1; j >= 0 && i < length; j--) {
+            if (binary.charAt(j) == '1')
+                prefixes[i] = -1;
+            i++;
+        }
+        return prefixes;
+    }
+}
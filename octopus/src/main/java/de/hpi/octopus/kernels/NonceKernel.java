@@ -0,0 +1,51 @@
+package de.hpi.octopus.kernels;
+
+import java.util.Random;
+
+import de.hpi.octopus.jfr.KernelSampler;
+
+/**
+ * The hash mining kernel: find a random nonce whose SHA-256 digest, added to the partner id, starts with a given prefix.
+ */
+public final class NonceKernel {
+
+    public static final int PREFIX_LENGTH = 5;
+
+    private NonceKernel() {
+    }
+
+    /**
+     * Mine a digest of {@code partner + nonce} that starts with {@link #PREFIX_LENGTH} zeros (prefix -1) or ones (prefix 1).
+     *
+     * @param sampler is ticked once per hashed nonce
+     * @return the digest that was found
+     */
+    public static String findHash(int partner, int prefix, Random rand, KernelSampler sampler) {
+        return findHash(partner, prefix, PREFIX_LENGTH, rand, sampler);
+    }
+
+    /**
+     * Mine {@link ShortSha256#LANES} nonces at a time. A prefix of up to 16 hex digits is compared against the high
+     * bits of the raw digest, so that only the found digest is formatted.
+     */
+    public static String findHash(int partner, int prefix, int prefixLength, Random rand, KernelSampler sampler) {
+        String fullPrefix = new String(new char[prefixLength]).replace('\0', prefix == -1 ? '0' : '1');
+        int prefixBits = 4 * Math.min(prefixLength, 16);
+        long prefixValue = (prefix == -1 || prefixBits == 0) ? 0 : 0x1111111111111111L >>> (64 - prefixBits);
+
+        ShortSha256 sha256 = new ShortSha256();
+        long[] digests = new long[4 * ShortSha256.LANES];
+        while (true) {
+            sha256.digest(partner + rand.nextInt(), partner + rand.nextInt(), partner + rand.nextInt(), partner + rand.nextInt(), digests);
+            sampler.tick(ShortSha256.LANES);
+            for (int lane = 0; lane < ShortSha256.LANES; lane++) {
+                long high = digests[4 * lane];
+                if (prefixBits > 0 && high >>> (64 - prefixBits) != prefixValue)
+                    continue;
+                String hash = ShortSha256.hex(digests, 4 * lane);
+                if (hash.startsWith(fullPrefix))
+                    return hash;
+            }
+        }
+    }
+}
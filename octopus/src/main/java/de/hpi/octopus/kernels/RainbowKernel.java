@@ -0,0 +1,81 @@
+package de.hpi.octopus.kernels;
+
+import de.hpi.octopus.jfr.KernelSampler;
+
+/**
+ * The rainbow table kernel: chains that alternate SHA-256 hashes and reductions over the candidate space [0, space).
+ * Chain j starts at candidate j * space / chains and applies the reduction of column i after its i-th hash, so that two
+ * chains only merge if they collide in the same column. A chain of length t covers the candidates x_0 to x_(t-1), of
+ * which the table keeps only the endpoint x_t.
+ */
+public final class RainbowKernel {
+
+    /**
+     * The steps of a lookup: build the chains of the table, compute the tails of the targets from every column, and
+     * walk the chains whose endpoints the tails hit to the candidates.
+     */
+    public enum Step {CHAINS, TAILS, WALKS}
+
+    private RainbowKernel() {
+    }
+
+    public static int start(long chain, long chains, long space) {
+        return (int) (chain * space / chains);
+    }
+
+    /**
+     * Map a digest, given by its first long, to a candidate with the reduction function of the given column.
+     */
+    public static int reduce(long d0, int column, long space) {
+        long x = d0 ^ (column + 1) * 0x9E3779B97F4A7C15L;
+        x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        return (int) Long.remainderUnsigned(x, space);
+    }
+
+    /**
+     * Walk a chain from the candidate in column from to the candidate in column to.
+     */
+    public static int walk(int candidate, int from, int to, long space, ShortSha256 sha256, KernelSampler sampler) {
+        long[] digest = new long[4];
+        for (int column = from; column < to; column++) {
+            sha256.digest(candidate, digest, 0);
+            candidate = reduce(digest[0], column, space);
+        }
+        sampler.tick(Math.max(0, to - from));
+        return candidate;
+    }
+
+    /**
+     * @return the endpoint of the given chain
+     */
+    public static int endpoint(long chain, long chains, int chainLength, long space, ShortSha256 sha256, KernelSampler sampler) {
+        return walk(start(chain, chains, space), 0, chainLength, space, sha256, sampler);
+    }
+
+    /**
+     * @return the endpoint of a chain that holds a candidate with the given digest in the given column
+     */
+    public static int tail(long d0, int column, int chainLength, long space, ShortSha256 sha256, KernelSampler sampler) {
+        return walk(reduce(d0, column, space), column + 1, chainLength, space, sha256, sampler);
+    }
+
+    /**
+     * Walk the given chain to the given column and check whether the candidate there has the target digest, which is
+     * not the case for a false alarm, i.e., a tail that merges into the chain only after the column.
+     *
+     * @param target the digests of the targets, four longs each
+     * @param offset the offset of the target digest in the array
+     * @return the candidate or a negative number on a false alarm
+     */
+    public static int candidate(long chain, long chains, int column, long space, long[] target, int offset, ShortSha256 sha256, KernelSampler sampler) {
+        int candidate = walk(start(chain, chains, space), 0, column, space, sha256, sampler);
+        long[] digest = new long[4];
+        sha256.digest(candidate, digest, 0);
+        sampler.tick(1);
+        for (int word = 0; word < 4; word++)
+            if (digest[word] != target[offset + word])
+                return -1;
+        return candidate;
+    }
+}
@@ -0,0 +1,111 @@
+package de.hpi.octopus.kernels;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * The endpoints of the chains of a rainbow table (see {@link RainbowKernel}) in a memory-mapped file. The file holds a
+ * header with the table's parameters and one entry of two ints per distinct endpoint, the endpoint and its chain,
+ * sorted by endpoint; of chains that merged, only the first is kept. A lookup is a binary search in the mapped file, so
+ * the table needs no heap and is loaded lazily by the operating system.
+ */
+public final class RainbowTable {
+
+    private static final int MAGIC = 0x4f435254;
+    private static final int HEADER_BYTES = 32;
+    private static final int ENTRY_BYTES = 8;
+
+    private final MappedByteBuffer entries;
+    private final long space;
+    private final int chainLength;
+    private final int chains;
+    private final int size;
+
+    private RainbowTable(MappedByteBuffer entries) {
+        this.entries = entries;
+        this.space = entries.getLong(8);
+        this.chainLength = entries.getInt(16);
+        this.chains = entries.getInt(20);
+        this.size = entries.getInt(24);
+    }
+
+    /**
+     * Write the endpoints of all chains of a table to the given file, replacing it, and map it.
+     *
+     * @param endpoints the endpoint of every chain, by chain
+     */
+    public static RainbowTable write(File file, long space, int chainLength, int[] endpoints) throws IOException {
+        long[] sorted = new long[endpoints.length];
+        for (int chain = 0; chain < endpoints.length; chain++)
+            sorted[chain] = ((long) endpoints[chain] << 32) | chain;
+        Arrays.sort(sorted);
+
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++)
+            if (i == 0 || (sorted[i] >>> 32) != (sorted[size - 1] >>> 32))
+                sorted[size++] = sorted[i];
+
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            long bytes = HEADER_BYTES + (long) size * ENTRY_BYTES;
+            out.setLength(bytes);
+            MappedByteBuffer buffer = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.putInt(MAGIC).putInt(0).putLong(space).putInt(chainLength).putInt(endpoints.length).putInt(size).putInt(0);
+            for (int i = 0; i < size; i++)
+                buffer.putLong(sorted[i]);
+            buffer.force();
+            return new RainbowTable(buffer);
+        }
+    }
+
+    /**
+     * Map an existing table.
+     */
+    public static RainbowTable open(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            MappedByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+            if (in.length() < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+                throw new IOException(file + " is not a rainbow table");
+            RainbowTable table = new RainbowTable(buffer);
+            if (in.length() != HEADER_BYTES + (long) table.size * ENTRY_BYTES)
+                throw new IOException(file + " is truncated");
+            return table;
+        }
+    }
+
+    /**
+     * @return whether the table was built with the given parameters
+     */
+    public boolean fits(long space, int chainLength, int chains) {
+        return this.space == space && this.chainLength == chainLength && this.chains == chains;
+    }
+
+    /**
+     * @return the chain with the given endpoint or a negative number if no chain ends there
+     */
+    public int find(int endpoint) {
+        int low = 0, high = this.size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = HEADER_BYTES + middle * ENTRY_BYTES;
+            int value = this.entries.getInt(entry);
+            if (value < endpoint)
+                low = middle + 1;
+            else if (value > endpoint)
+                high = middle - 1;
+            else
+                return this.entries.getInt(entry + 4);
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of distinct endpoints
+     */
+    public int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,75 @@
+package de.hpi.octopus.kernels;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+import de.hpi.octopus.jfr.KernelSampler;
+
+/**
+ * The password cracking kernel: hash candidate numbers with SHA-256 and compare them against the target digests.
+ */
+public final class SecretsKernel {
+
+    private SecretsKernel() {
+    }
+
+    /**
+     * Hash the decimal representation of a number with SHA-256. This is the plain {@link MessageDigest} reference
+     * for the data generators; the kernels use {@link ShortSha256}.
+     *
+     * @param number the number to hash
+     * @return the lower case hex digest
+     */
+    public static String hash(int number) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hashedBytes = digest.digest(String.valueOf(number).getBytes("UTF-8"));
+
+            StringBuffer stringBuffer = new StringBuffer();
+            for (int i = 0; i < hashedBytes.length; i++) {
+                stringBuffer.append(Integer.toString((hashedBytes[i] & 0xff) + 0x100, 16).substring(1));
+            }
+            return stringBuffer.toString();
+        }
+        catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    /**
+     * Hash every candidate in [start, end] and report each candidate whose digest is one of the targets.
+     *
+     * @param targets maps record ids to the hex digests that should be cracked
+     * @param onMatch receives the record id and the cleartext of every cracked digest
+     * @param sampler is ticked once per hashed candidate
+     */
+    public static void scan(int start, int end, Map<String, String> targets, ObjIntConsumer<String> onMatch, KernelSampler sampler) {
+        scan(start, end, DigestTable.of(targets), onMatch, sampler);
+    }
+
+    /**
+     * Hash every candidate in [start, end], {@link ShortSha256#LANES} at a time, and look its raw digest up in the
+     * targets, so that the cost per candidate does not depend on the number of targets.
+     */
+    public static void scan(int start, int end, DigestTable targets, ObjIntConsumer<String> onMatch, KernelSampler sampler) {
+        ShortSha256 sha256 = new ShortSha256();
+        long[] digests = new long[4 * ShortSha256.LANES];
+        for (long i = start; i <= end; i += ShortSha256.LANES) {
+            // The lanes past the end hash numbers beyond the range, which are not looked up
+            int candidate = (int) i;
+            sha256.digest(candidate, candidate + 1, candidate + 2, candidate + 3, digests);
+            int lanes = (int) Math.min(ShortSha256.LANES, end - i + 1);
+            sampler.tick(lanes);
+
+            for (int lane = 0; lane < lanes; lane++) {
+                int offset = 4 * lane;
+                int entry = targets.find(digests[offset], digests[offset + 1], digests[offset + 2], digests[offset + 3]);
+                for (; entry >= 0; entry = targets.next(entry))
+                    onMatch.accept(targets.id(entry), candidate + lane);
+            }
+        }
+    }
+}
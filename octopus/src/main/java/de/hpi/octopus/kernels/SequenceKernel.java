@@ -0,0 +1,82 @@
+package de.hpi.octopus.kernels;
+
+import java.util.Map;
+
+import de.hpi.octopus.jfr.KernelSampler;
+
+/**
+ * The gene analysis kernel: find the partner whose gene shares the longest common substring with a given gene.
+ */
+public final class SequenceKernel {
+
+    private SequenceKernel() {
+    }
+
+    /**
+     * Find the record whose sequence has the longest overlap with the sequence of the given record.
+     *
+     * @param id the record to find a partner for
+     * @param sequences maps all record ids to their sequences
+     * @param sampler is ticked with the number of dynamic programming cells of every comparison
+     * @return the id of the best partner or the empty string if there is none
+     */
+    public static String bestPartner(String id, Map<String, String> sequences, KernelSampler sampler) {
+        String sequence = sequences.get(id);
+        int maxSubstringLength = 0;
+        String maxSubstringPartner = "";
+        for (Map.Entry<String, String> entry : sequences.entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            if (!key.equals(id)) {
+                int overlapSize = longestOverlap(value, sequence).length();
+                sampler.tick((long) value.length() * sequence.length());
+                if (overlapSize > maxSubstringLength) {
+                    maxSubstringLength = overlapSize;
+                    maxSubstringPartner = key;
+                }
+            }
+        }
+        return maxSubstringPartner;
+    }
+
+    /**
+     * Compute the longest common substring of two strings with a two-row dynamic program.
+     */
+    public static String longestOverlap(String str1, String str2) {
+        if (str1.isEmpty() || str2.isEmpty())
+            return "";
+
+        if (str1.length() > str2.length()) {
+            String temp = str1;
+            str1 = str2;
+            str2 = temp;
+        }
+
+        int[] currentRow = new int[str1.length()];
+        int[] lastRow = str2.length() > 1 ? new int[str1.length()] : null;
+        int longestSubstringLength = 0;
+        int longestSubstringStart = 0;
+
+        for (int str2Index = 0; str2Index < str2.length(); str2Index++) {
+            char str2Char = str2.charAt(str2Index);
+            for (int str1Index = 0; str1Index < str1.length(); str1Index++) {
+                int newLength;
+                if (str1.charAt(str1Index) == str2Char) {
+                    newLength = str1Index == 0 || str2Index == 0 ? 1 : lastRow[str1Index - 1] + 1;
+
+                    if (newLength > longestSubstringLength) {
+                        longestSubstringLength = newLength;
+                        longestSubstringStart = str1Index - (newLength - 1);
+                    }
+                } else {
+                    newLength = 0;
+                }
+                currentRow[str1Index] = newLength;
+            }
+            int[] temp = currentRow;
+            currentRow = lastRow;
+            lastRow = temp;
+        }
+        return str1.substring(longestSubstringStart, longestSubstringStart + longestSubstringLength);
+    }
+}
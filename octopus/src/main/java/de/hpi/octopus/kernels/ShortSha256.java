@@ -0,0 +1,226 @@
+package de.hpi.octopus.kernels;
+
+/**
+ * SHA-256 of the decimal representation of an int, which has at most 11 bytes and thus always fits a single block. The
+ * block is built directly in the message schedule: the digits and the padding bit fill the first three words, words 3
+ * to 14 are zero for every input and never written, and the length word only depends on the number of digits. The
+ * expansion of the schedule skips the terms of the zero words, and the terms of the length word are precomputed per
+ * number of digits. {@link #digest(int, int, int, int, long[])} hashes {@link #LANES} numbers in one interleaved loop,
+ * so that the CPU can overlap the rounds of the independent lanes. The digests are returned as four big endian longs
+ * each, as {@link DigestTable} takes them.
+ * <p>
+ * Instances hold the message schedules and are not thread-safe; each worker uses its own.
+ */
+public final class ShortSha256 {
+
+    public static final int LANES = 4;
+
+    private static final int[] K = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2};
+
+    private static final int[] IV = {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19};
+
+    // The schedule terms of the last word of the block, i.e., the message length in bits, by number of digits
+    private static final int[] SIGMA0_LENGTH = new int[12];
+    private static final int[] SIGMA1_LENGTH = new int[12];
+
+    static {
+        for (int length = 0; length < 12; length++) {
+            SIGMA0_LENGTH[length] = sigma0(8 * length);
+            SIGMA1_LENGTH[length] = sigma1(8 * length);
+        }
+    }
+
+    private final int[] w0 = new int[64], w1 = new int[64], w2 = new int[64], w3 = new int[64];
+    private final byte[] digits = new byte[11];
+
+    /**
+     * Hash a single number.
+     *
+     * @param out receives the digest as four longs at the offset
+     */
+    public void digest(int number, long[] out, int offset) {
+        int[] w = this.w0;
+        this.load(number, w);
+        expand(w);
+
+        int a = IV[0], b = IV[1], c = IV[2], d = IV[3], e = IV[4], f = IV[5], g = IV[6], h = IV[7];
+        for (int i = 0; i < 64; i++) {
+            int t1 = h + sum1(e) + ch(e, f, g) + K[i] + w[i];
+            int t2 = sum0(a) + maj(a, b, c);
+            h = g; g = f; f = e; e = d + t1; d = c; c = b; b = a; a = t1 + t2;
+        }
+
+        out[offset] = words(a + IV[0], b + IV[1]);
+        out[offset + 1] = words(c + IV[2], d + IV[3]);
+        out[offset + 2] = words(e + IV[4], f + IV[5]);
+        out[offset + 3] = words(g + IV[6], h + IV[7]);
+    }
+
+    /**
+     * Hash {@link #LANES} numbers at once.
+     *
+     * @param out receives the digests as four longs per lane
+     */
+    public void digest(int n0, int n1, int n2, int n3, long[] out) {
+        int[] w0 = this.w0, w1 = this.w1, w2 = this.w2, w3 = this.w3;
+        this.load(n0, w0);
+        this.load(n1, w1);
+        this.load(n2, w2);
+        this.load(n3, w3);
+        expand(w0);
+        expand(w1);
+        expand(w2);
+        expand(w3);
+
+        int a0 = IV[0], b0 = IV[1], c0 = IV[2], d0 = IV[3], e0 = IV[4], f0 = IV[5], g0 = IV[6], h0 = IV[7];
+        int a1 = a0, b1 = b0, c1 = c0, d1 = d0, e1 = e0, f1 = f0, g1 = g0, h1 = h0;
+        int a2 = a0, b2 = b0, c2 = c0, d2 = d0, e2 = e0, f2 = f0, g2 = g0, h2 = h0;
+        int a3 = a0, b3 = b0, c3 = c0, d3 = d0, e3 = e0, f3 = f0, g3 = g0, h3 = h0;
+        for (int i = 0; i < 64; i++) {
+            int k = K[i];
+
+            int t10 = h0 + sum1(e0) + ch(e0, f0, g0) + k + w0[i];
+            int t11 = h1 + sum1(e1) + ch(e1, f1, g1) + k + w1[i];
+            int t12 = h2 + sum1(e2) + ch(e2, f2, g2) + k + w2[i];
+            int t13 = h3 + sum1(e3) + ch(e3, f3, g3) + k + w3[i];
+            int t20 = sum0(a0) + maj(a0, b0, c0);
+            int t21 = sum0(a1) + maj(a1, b1, c1);
+            int t22 = sum0(a2) + maj(a2, b2, c2);
+            int t23 = sum0(a3) + maj(a3, b3, c3);
+
+            h0 = g0; g0 = f0; f0 = e0; e0 = d0 + t10; d0 = c0; c0 = b0; b0 = a0; a0 = t10 + t20;
+            h1 = g1; g1 = f1; f1 = e1; e1 = d1 + t11; d1 = c1; c1 = b1; b1 = a1; a1 = t11 + t21;
+            h2 = g2; g2 = f2; f2 = e2; e2 = d2 + t12; d2 = c2; c2 = b2; b2 = a2; a2 = t12 + t22;
+            h3 = g3; g3 = f3; f3 = e3; e3 = d3 + t13; d3 = c3; c3 = b3; b3 = a3; a3 = t13 + t23;
+        }
+
+        out[0] = words(a0 + IV[0], b0 + IV[1]);
+        out[1] = words(c0 + IV[2], d0 + IV[3]);
+        out[2] = words(e0 + IV[4], f0 + IV[5]);
+        out[3] = words(g0 + IV[6], h0 + IV[7]);
+        out[4] = words(a1 + IV[0], b1 + IV[1]);
+        out[5] = words(c1 + IV[2], d1 + IV[3]);
+        out[6] = words(e1 + IV[4], f1 + IV[5]);
+        out[7] = words(g1 + IV[6], h1 + IV[7]);
+        out[8] = words(a2 + IV[0], b2 + IV[1]);
+        out[9] = words(c2 + IV[2], d2 + IV[3]);
+        out[10] = words(e2 + IV[4], f2 + IV[5]);
+        out[11] = words(g2 + IV[6], h2 + IV[7]);
+        out[12] = words(a3 + IV[0], b3 + IV[1]);
+        out[13] = words(c3 + IV[2], d3 + IV[3]);
+        out[14] = words(e3 + IV[4], f3 + IV[5]);
+        out[15] = words(g3 + IV[6], h3 + IV[7]);
+    }
+
+    /**
+     * Write the padded decimal representation of the number into the first 16 words of the schedule.
+     */
+    private void load(int number, int[] w) {
+        byte[] digits = this.digits;
+        long value = number;
+        boolean negative = value < 0;
+        if (negative)
+            value = -value;
+
+        // The digits are written from the back of the buffer
+        int first = digits.length;
+        do {
+            digits[--first] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        if (negative)
+            digits[--first] = '-';
+        int length = digits.length - first;
+
+        int word0 = 0, word1 = 0, word2 = 0;
+        for (int i = 0; i < length; i++) {
+            int shifted = (digits[first + i] & 0xff) << (24 - 8 * (i & 3));
+            if (i < 4)
+                word0 |= shifted;
+            else if (i < 8)
+                word1 |= shifted;
+            else
+                word2 |= shifted;
+        }
+        int padding = 0x80 << (24 - 8 * (length & 3));
+        if (length < 4)
+            word0 |= padding;
+        else if (length < 8)
+            word1 |= padding;
+        else
+            word2 |= padding;
+
+        w[0] = word0;
+        w[1] = word1;
+        w[2] = word2;
+        w[15] = 8 * length;
+    }
+
+    /**
+     * Expand the schedule, i.e., w[i] = sigma1(w[i - 2]) + w[i - 7] + sigma0(w[i - 15]) + w[i - 16], without the terms
+     * of the zero words 3 to 14 and with the precomputed terms of the length word.
+     */
+    private static void expand(int[] w) {
+        int length = w[15] >>> 3;
+        w[16] = sigma0(w[1]) + w[0];
+        w[17] = SIGMA1_LENGTH[length] + sigma0(w[2]) + w[1];
+        w[18] = sigma1(w[16]) + w[2];
+        w[19] = sigma1(w[17]);
+        w[20] = sigma1(w[18]);
+        w[21] = sigma1(w[19]);
+        w[22] = sigma1(w[20]) + w[15];
+        for (int i = 23; i < 30; i++)
+            w[i] = sigma1(w[i - 2]) + w[i - 7];
+        w[30] = sigma1(w[28]) + w[23] + SIGMA0_LENGTH[length];
+        w[31] = sigma1(w[29]) + w[24] + sigma0(w[16]) + w[15];
+        for (int i = 32; i < 64; i++)
+            w[i] = sigma1(w[i - 2]) + w[i - 7] + sigma0(w[i - 15]) + w[i - 16];
+    }
+
+    private static long words(int high, int low) {
+        return ((long) high << 32) | (low & 0xffffffffL);
+    }
+
+    private static int ch(int x, int y, int z) {
+        return (x & y) ^ (~x & z);
+    }
+
+    private static int maj(int x, int y, int z) {
+        return (x & y) ^ (x & z) ^ (y & z);
+    }
+
+    private static int sum0(int x) {
+        return Integer.rotateRight(x, 2) ^ Integer.rotateRight(x, 13) ^ Integer.rotateRight(x, 22);
+    }
+
+    private static int sum1(int x) {
+        return Integer.rotateRight(x, 6) ^ Integer.rotateRight(x, 11) ^ Integer.rotateRight(x, 25);
+    }
+
+    private static int sigma0(int x) {
+        return Integer.rotateRight(x, 7) ^ Integer.rotateRight(x, 18) ^ (x >>> 3);
+    }
+
+    private static int sigma1(int x) {
+        return Integer.rotateRight(x, 17) ^ Integer.rotateRight(x, 19) ^ (x >>> 10);
+    }
+
+    /**
+     * Format a digest given as four longs as lower case hex.
+     */
+    public static String hex(long[] digest, int offset) {
+        char[] hex = new char[64];
+        for (int i = 0; i < 64; i++)
+            hex[i] = Character.forDigit((int) (digest[offset + i / 16] >>> (60 - 4 * (i % 16))) & 0xf, 16);
+        return new String(hex);
+    }
+}
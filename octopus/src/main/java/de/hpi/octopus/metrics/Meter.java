@@ -0,0 +1,38 @@
+package de.hpi.octopus.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonic counter that also knows its recent rate per second. The rate is re-computed lazily whenever it is read
+ * and at least one second has passed since the last computation, so readers that poll every few seconds (scrapers, JMX
+ * consoles) see the rate over their polling interval.
+ */
+public class Meter {
+
+    private static final long RATE_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final LongAdder count = new LongAdder();
+
+    private long lastCount = 0;
+    private long lastNanos = System.nanoTime();
+    private double lastRate = 0;
+
+    public void mark(long n) {
+        this.count.add(n);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public synchronized double getRate() {
+        long now = System.nanoTime();
+        if (now - this.lastNanos >= RATE_INTERVAL_NANOS) {
+            long currentCount = this.count.sum();
+            this.lastRate = (currentCount - this.lastCount) / ((now - this.lastNanos) / 1e9);
+            this.lastCount = currentCount;
+            this.lastNanos = now;
+        }
+        return this.lastRate;
+    }
+}
@@ -0,0 +1,86 @@
+package de.hpi.octopus.metrics;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.typesafe.config.Config;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import akka.dispatch.UnboundedMessageQueueSemantics;
+import scala.Option;
+
+/**
+ * An unbounded mailbox that publishes its current depth to {@link OctopusMetrics}. Actors opt in via
+ * {@code Props.withMailbox(MeteredMailbox.CONFIG_PATH)}.
+ */
+public class MeteredMailbox implements MailboxType, ProducesMessageQueue<MeteredMailbox.MeteredMessageQueue> {
+
+    public static final String CONFIG_PATH = "octopus.metered-mailbox";
+
+    /**
+     * The message queue of a {@link MeteredMailbox}: a plain concurrent queue with an O(1) size counter.
+     */
+    public static class MeteredMessageQueue implements MessageQueue, UnboundedMessageQueueSemantics {
+
+        private final Queue<Envelope> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final String owner;
+
+        MeteredMessageQueue(String owner) {
+            this.owner = owner;
+            if (owner != null)
+                OctopusMetrics.get().mailboxCreated(owner, this.depth::get);
+        }
+
+        @Override
+        public void enqueue(ActorRef receiver, Envelope handle) {
+            this.queue.offer(handle);
+            this.depth.incrementAndGet();
+        }
+
+        @Override
+        public Envelope dequeue() {
+            Envelope envelope = this.queue.poll();
+            if (envelope != null)
+                this.depth.decrementAndGet();
+            return envelope;
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return this.depth.get();
+        }
+
+        @Override
+        public boolean hasMessages() {
+            return !this.queue.isEmpty();
+        }
+
+        @Override
+        public void cleanUp(ActorRef owner, MessageQueue deadLetters) {
+            if (this.owner != null)
+                OctopusMetrics.get().mailboxRemoved(this.owner);
+
+            Envelope envelope;
+            while ((envelope = this.dequeue()) != null)
+                deadLetters.enqueue(owner, envelope);
+        }
+    }
+
+    /**
+     * This constructor signature is required by Akka to instantiate the mailbox type from configuration.
+     */
+    public MeteredMailbox(ActorSystem.Settings settings, Config config) {
+    }
+
+    @Override
+    public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+        return new MeteredMessageQueue(owner.isDefined() ? owner.get().path().name() : null);
+    }
+}
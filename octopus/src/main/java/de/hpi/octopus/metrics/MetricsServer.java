@@ -0,0 +1,105 @@
+package de.hpi.octopus.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.hpi.octopus.actors.Master.Phase;
+
+/**
+ * Serves the {@link OctopusMetrics} of this node in the Prometheus text exposition format under {@code /metrics}.
+ */
+public class MetricsServer {
+
+    public static final String PATH = "/metrics";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Start serving the metrics on a daemon thread.
+     *
+     * @param host the host name or IP to bind against
+     * @param port the port to bind against
+     * @return the running server
+     */
+    public static HttpServer start(String host, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext(PATH, MetricsServer::handle);
+        server.start();
+        return server;
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        byte[] body = render(OctopusMetrics.get()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    static String render(OctopusMetrics metrics) {
+        StringBuilder out = new StringBuilder(4096);
+
+        header(out, "octopus_phase_work_total", "counter", "Work units processed by the local workers per phase");
+        for (Phase phase : Phase.values())
+            sample(out, "octopus_phase_work_total", "phase=\"" + phase.name() + "\",unit=\"" + phase.getUnit() + "\"", metrics.getPhaseWork(phase));
+        header(out, "octopus_phase_work_per_second", "gauge", "Recent work units per second processed by the local workers per phase");
+        for (Phase phase : Phase.values())
+            sample(out, "octopus_phase_work_per_second", "phase=\"" + phase.name() + "\",unit=\"" + phase.getUnit() + "\"", metrics.getPhaseRate(phase));
+        header(out, "octopus_phase_duration_seconds", "gauge", "Duration of the most recent run of each phase");
+        for (Phase phase : Phase.values())
+            sample(out, "octopus_phase_duration_seconds", "phase=\"" + phase.name() + "\"", metrics.getPhaseDurationMillis(phase) / 1000.0);
+
+        header(out, "octopus_chunks_queued", "gauge", "Chunks waiting for a worker");
+        sample(out, "octopus_chunks_queued", null, metrics.getChunksQueued());
+        header(out, "octopus_chunks_in_flight", "gauge", "Chunks assigned to a worker but not yet completed");
+        sample(out, "octopus_chunks_in_flight", null, metrics.getChunksInFlight());
+        header(out, "octopus_chunks_completed_total", "counter", "Chunks completed by the workers");
+        sample(out, "octopus_chunks_completed_total", null, metrics.getChunksCompleted());
+        header(out, "octopus_chunks_speculated_total", "counter", "Straggling chunks duplicated to an idle worker");
+        sample(out, "octopus_chunks_speculated_total", null, metrics.getChunksSpeculated());
+
+        header(out, "octopus_result_messages_total", "counter", "Result messages received by the master");
+        sample(out, "octopus_result_messages_total", null, metrics.getResultMessages());
+        header(out, "octopus_result_messages_per_second", "gauge", "Recent result messages per second received by the master");
+        sample(out, "octopus_result_messages_per_second", null, metrics.getResultMessagesPerSecond());
+
+        header(out, "octopus_worker_busy_seconds_total", "counter", "Time each local worker spent processing chunks");
+        for (Map.Entry<String, Long> entry : metrics.getWorkerBusyMillis().entrySet())
+            sample(out, "octopus_worker_busy_seconds_total", "worker=\"" + entry.getKey() + "\"", entry.getValue() / 1000.0);
+        header(out, "octopus_worker_idle_seconds_total", "counter", "Time each local worker spent waiting for chunks");
+        for (Map.Entry<String, Long> entry : metrics.getWorkerIdleMillis().entrySet())
+            sample(out, "octopus_worker_idle_seconds_total", "worker=\"" + entry.getKey() + "\"", entry.getValue() / 1000.0);
+
+        header(out, "octopus_mailbox_depth", "gauge", "Messages waiting in the mailbox of each local octopus actor");
+        for (Map.Entry<String, Integer> entry : metrics.getMailboxDepths().entrySet())
+            sample(out, "octopus_mailbox_depth", "actor=\"" + entry.getKey() + "\"", entry.getValue());
+
+        header(out, "octopus_gc_pause_seconds_total", "counter", "Accumulated garbage collection time per collector");
+        for (Map.Entry<String, Long> entry : metrics.getGcPauseMillis().entrySet())
+            sample(out, "octopus_gc_pause_seconds_total", "gc=\"" + entry.getKey() + "\"", entry.getValue() / 1000.0);
+        header(out, "octopus_gc_collections_total", "counter", "Garbage collections per collector");
+        for (Map.Entry<String, Long> entry : metrics.getGcCollections().entrySet())
+            sample(out, "octopus_gc_collections_total", "gc=\"" + entry.getKey() + "\"", entry.getValue());
+
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, Number value) {
+        out.append(name);
+        if (labels != null)
+            out.append('{').append(labels).append('}');
+        out.append(' ').append(value).append('\n');
+    }
+}
@@ -0,0 +1,251 @@
+package de.hpi.octopus.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import de.hpi.octopus.actors.Master.Phase;
+
+/**
+ * The metrics of this octopus node. There is one instance per JVM: actors record into it from their message handlers,
+ * and the {@link MetricsServer} and the {@code de.hpi.octopus:type=Metrics} MXBean read from it.
+ */
+public class OctopusMetrics implements OctopusMetricsMXBean {
+
+    public static final String OBJECT_NAME = "de.hpi.octopus:type=Metrics";
+
+    private static final OctopusMetrics INSTANCE = new OctopusMetrics();
+
+    public static OctopusMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Per-worker bookkeeping of the time spent processing chunks.
+     */
+    private static class WorkerTime {
+        private final long registeredNanos = System.nanoTime();
+        private final LongAdder busyNanos = new LongAdder();
+    }
+
+    // Work units (hashes, LCS cells, ...) processed by this node's workers per phase
+    private final Map<Phase, Meter> phaseWork = new EnumMap<>(Phase.class);
+
+    // Wall clock duration of the most recent run of each phase as seen by the master
+    private final Map<Phase, AtomicLong> phaseDurationMillis = new EnumMap<>(Phase.class);
+
+    // Chunk bookkeeping of the master
+    private final AtomicLong chunksQueued = new AtomicLong();
+    private final AtomicLong chunksInFlight = new AtomicLong();
+    private final Meter chunksCompleted = new Meter();
+    private final Meter chunksSpeculated = new Meter();
+
+    // Result messages received by the master
+    private final Meter resultMessages = new Meter();
+
+    private final Map<String, WorkerTime> workerTimes = new ConcurrentHashMap<>();
+    private final Map<String, IntSupplier> mailboxes = new ConcurrentHashMap<>();
+
+    private OctopusMetrics() {
+        for (Phase phase : Phase.values()) {
+            this.phaseWork.put(phase, new Meter());
+            this.phaseDurationMillis.put(phase, new AtomicLong());
+        }
+    }
+
+    /**
+     * Register this node's metrics in the platform MBean server; repeated calls are ignored.
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already registered by another actor system in this JVM
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register the metrics MBean", e);
+        }
+    }
+
+    ///////////////
+    // Recording //
+    ///////////////
+
+    public void workDone(Phase phase, long units) {
+        this.phaseWork.get(phase).mark(units);
+    }
+
+    public void phaseFinished(Phase phase, long millis) {
+        this.phaseDurationMillis.get(phase).set(millis);
+    }
+
+    public void chunksQueued(long delta) {
+        this.chunksQueued.addAndGet(delta);
+    }
+
+    public void chunkDispatched() {
+        this.chunksInFlight.incrementAndGet();
+    }
+
+    public void chunkCompleted() {
+        this.chunksInFlight.decrementAndGet();
+        this.chunksCompleted.mark(1);
+    }
+
+    public void chunkSpeculated() {
+        this.chunksSpeculated.mark(1);
+    }
+
+    public void chunkCancelled() {
+        this.chunksInFlight.decrementAndGet();
+    }
+
+    public void chunksLost(long chunks) {
+        this.chunksInFlight.addAndGet(-chunks);
+    }
+
+    public void resultReceived() {
+        this.resultMessages.mark(1);
+    }
+
+    public void workerStarted(String worker) {
+        this.workerTimes.put(worker, new WorkerTime());
+    }
+
+    public void workerBusy(String worker, long nanos) {
+        WorkerTime time = this.workerTimes.get(worker);
+        if (time != null)
+            time.busyNanos.add(nanos);
+    }
+
+    public void workerStopped(String worker) {
+        this.workerTimes.remove(worker);
+    }
+
+    public void mailboxCreated(String owner, IntSupplier depth) {
+        this.mailboxes.put(owner, depth);
+    }
+
+    public void mailboxRemoved(String owner) {
+        this.mailboxes.remove(owner);
+    }
+
+    /////////////
+    // Reading //
+    /////////////
+
+    public double getPhaseRate(Phase phase) {
+        return this.phaseWork.get(phase).getRate();
+    }
+
+    public long getPhaseWork(Phase phase) {
+        return this.phaseWork.get(phase).getCount();
+    }
+
+    @Override
+    public Map<String, Double> getPhaseRates() {
+        Map<String, Double> rates = new TreeMap<>();
+        for (Phase phase : Phase.values())
+            rates.put(phase.name() + " " + phase.getUnit() + "/s", this.getPhaseRate(phase));
+        return rates;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseDurationsMillis() {
+        Map<String, Long> durations = new TreeMap<>();
+        for (Phase phase : Phase.values())
+            durations.put(phase.name(), this.getPhaseDurationMillis(phase));
+        return durations;
+    }
+
+    public long getPhaseDurationMillis(Phase phase) {
+        return this.phaseDurationMillis.get(phase).get();
+    }
+
+    @Override
+    public double getHashesPerSecond() {
+        return this.getPhaseRate(Phase.SECRETS) + this.getPhaseRate(Phase.HASHES);
+    }
+
+    @Override
+    public double getCellsPerSecond() {
+        return this.getPhaseRate(Phase.SEQUENCES);
+    }
+
+    @Override
+    public long getChunksQueued() {
+        return this.chunksQueued.get();
+    }
+
+    @Override
+    public long getChunksInFlight() {
+        return this.chunksInFlight.get();
+    }
+
+    @Override
+    public long getChunksCompleted() {
+        return this.chunksCompleted.getCount();
+    }
+
+    @Override
+    public long getChunksSpeculated() {
+        return this.chunksSpeculated.getCount();
+    }
+
+    @Override
+    public long getResultMessages() {
+        return this.resultMessages.getCount();
+    }
+
+    @Override
+    public double getResultMessagesPerSecond() {
+        return this.resultMessages.getRate();
+    }
+
+    @Override
+    public Map<String, Long> getWorkerBusyMillis() {
+        Map<String, Long> busy = new TreeMap<>();
+        this.workerTimes.forEach((worker, time) -> busy.put(worker, time.busyNanos.sum() / 1_000_000));
+        return busy;
+    }
+
+    @Override
+    public Map<String, Long> getWorkerIdleMillis() {
+        long now = System.nanoTime();
+        Map<String, Long> idle = new TreeMap<>();
+        this.workerTimes.forEach((worker, time) -> idle.put(worker, (now - time.registeredNanos - time.busyNanos.sum()) / 1_000_000));
+        return idle;
+    }
+
+    @Override
+    public Map<String, Integer> getMailboxDepths() {
+        Map<String, Integer> depths = new TreeMap<>();
+        this.mailboxes.forEach((owner, depth) -> depths.put(owner, depth.getAsInt()));
+        return depths;
+    }
+
+    @Override
+    public Map<String, Long> getGcPauseMillis() {
+        Map<String, Long> pauses = new TreeMap<>();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            pauses.put(gc.getName(), gc.getCollectionTime());
+        return pauses;
+    }
+
+    @Override
+    public Map<String, Long> getGcCollections() {
+        Map<String, Long> collections = new TreeMap<>();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            collections.put(gc.getName(), gc.getCollectionCount());
+        return collections;
+    }
+}
@@ -0,0 +1,39 @@
+package de.hpi.octopus.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link OctopusMetrics}. Rates are per second over the interval since the previous read.
+ */
+public interface OctopusMetricsMXBean {
+
+    Map<String, Double> getPhaseRates();
+
+    Map<String, Long> getPhaseDurationsMillis();
+
+    double getHashesPerSecond();
+
+    double getCellsPerSecond();
+
+    long getChunksQueued();
+
+    long getChunksInFlight();
+
+    long getChunksCompleted();
+
+    long getChunksSpeculated();
+
+    long getResultMessages();
+
+    double getResultMessagesPerSecond();
+
+    Map<String, Long> getWorkerBusyMillis();
+
+    Map<String, Long> getWorkerIdleMillis();
+
+    Map<String, Integer> getMailboxDepths();
+
+    Map<String, Long> getGcPauseMillis();
+
+    Map<String, Long> getGcCollections();
+}
@@ -0,0 +1,216 @@
+package de.hpi.octopus.service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import akka.actor.ActorSystem;
+import de.hpi.octopus.OctopusJob;
+import de.hpi.octopus.actors.Master.Phase;
+
+/**
+ * Accepts jobs over HTTP and streams their progress and results back. A job is submitted with
+ * {@code POST /jobs}, either with a students file as the request body or with {@code ?path=<file>} pointing to a file
+ * in the master's input directory; files given by path are parsed only once as long as they do not change. The response
+ * is one JSON object per line: one per phase as soon as the phase is done, one per record with the results of all
+ * phases, and a final one with the overall time or an error.
+ * <p>
+ * The server does not authenticate its clients, so it should only be reachable from trusted machines, which by default
+ * means the master's own. For the same reason, it reads no files outside the input directory and does not tell its
+ * clients why a file could not be read, beyond the number of a malformed line.
+ */
+public class JobServer {
+
+    public static final String PATH = "/jobs";
+
+    private static final String CONTENT_TYPE = "application/x-ndjson; charset=utf-8";
+
+    /**
+     * A parsed students file and the modification time it was parsed at.
+     */
+    private static class CachedFile {
+        private final long lastModified;
+        private final OctopusJob job;
+
+        CachedFile(long lastModified, OctopusJob job) {
+            this.lastModified = lastModified;
+            this.job = job;
+        }
+    }
+
+    private final ActorSystem system;
+    private final Path inputDirectory;
+    private final AtomicLong jobCounter = new AtomicLong();
+    private final Map<String, CachedFile> files = new ConcurrentHashMap<>();
+
+    private JobServer(ActorSystem system, Path inputDirectory) {
+        this.system = system;
+        this.inputDirectory = inputDirectory;
+    }
+
+    /**
+     * Start accepting jobs for the master of the given actor system. Every request is served on a thread of its own,
+     * because it blocks until its job is done.
+     *
+     * @param host the host name or IP to bind against
+     * @param port the port to bind against
+     * @param inputDirectory the directory that files given by path must be in or {@code null} to accept request bodies
+     *        only
+     * @return the running server
+     */
+    public static HttpServer start(ActorSystem system, String host, int port, File inputDirectory) throws IOException {
+        JobServer jobServer = new JobServer(system, inputDirectory == null ? null : inputDirectory.toPath().toRealPath());
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext(PATH, jobServer::handle);
+        server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "job-server");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        return server;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                this.respond(exchange, 405, "Submit jobs with POST");
+                return;
+            }
+
+            String jobId = "job-" + this.jobCounter.incrementAndGet();
+            OctopusJob job;
+            try {
+                String path = queryParameter(exchange, "path");
+                job = (path != null) ? this.fromFile(jobId, path) : this.fromBody(jobId, exchange);
+            } catch (IOException e) {
+                this.respond(exchange, 400, "Could not read the students file");
+                return;
+            } catch (IllegalArgumentException e) {
+                this.respond(exchange, 400, "Could not parse the students file: " + e.getMessage());
+                return;
+            }
+
+            this.system.log().info("Accepted {} with {} records", jobId, job.size());
+            this.stream(exchange, job);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private OctopusJob fromFile(String jobId, String path) throws IOException {
+        File file = this.resolve(path);
+        long lastModified = file.lastModified();
+        CachedFile cached = this.files.get(file.getPath());
+        if (cached == null || cached.lastModified != lastModified) {
+            cached = new CachedFile(lastModified, OctopusJob.fromFile(jobId, file));
+            this.files.put(file.getPath(), cached);
+        }
+        return cached.job.withId(jobId);
+    }
+
+    /**
+     * Resolve a path against the input directory, following all links, and reject it unless it is a file in there.
+     */
+    private File resolve(String path) throws IOException {
+        if (this.inputDirectory == null)
+            throw new FileNotFoundException("No input directory");
+        Path file;
+        try {
+            file = this.inputDirectory.resolve(path).toRealPath();
+        } catch (InvalidPathException e) {
+            throw new FileNotFoundException(path);
+        }
+        if (!file.startsWith(this.inputDirectory) || !Files.isRegularFile(file))
+            throw new FileNotFoundException(path);
+        return file.toFile();
+    }
+
+    private OctopusJob fromBody(String jobId, HttpExchange exchange) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            List<String> lines = reader.lines().collect(Collectors.toList());
+            return OctopusJob.fromLines(jobId, lines);
+        }
+    }
+
+    private void stream(HttpExchange exchange, OctopusJob job) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            long start = System.currentTimeMillis();
+            try {
+                Map<String, Map<Phase, Object>> report = job.run(this.system, (phase, millis) -> {
+                    write(out, "{\"job\": " + quote(job.getId()) + ", \"phase\": " + quote(phase.name()) + ", \"millis\": " + millis + "}");
+                });
+                for (Map.Entry<String, Map<Phase, Object>> record : report.entrySet()) {
+                    Map<String, Object> results = new LinkedHashMap<>();
+                    record.getValue().forEach((phase, result) -> results.put(phase.name(), result));
+                    write(out, "{\"job\": " + quote(job.getId()) + ", \"record\": " + quote(record.getKey()) + ", \"results\": " + toJson(results) + "}");
+                }
+                write(out, "{\"job\": " + quote(job.getId()) + ", \"done\": true, \"millis\": " + (System.currentTimeMillis() - start) + "}");
+            } catch (IOException e) {
+                // The client went away; the job has cancelled its remaining work on the master
+                this.system.log().warning("Lost the client of {}: {}", job.getId(), e.getMessage());
+            } catch (Exception e) {
+                write(out, "{\"job\": " + quote(job.getId()) + ", \"error\": " + quote(String.valueOf(e.getMessage())) + "}");
+            }
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void write(OutputStream out, String line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) throws UnsupportedEncodingException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null)
+            return null;
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0 && parameter.substring(0, separator).equals(name))
+                return URLDecoder.decode(parameter.substring(separator + 1), "UTF-8");
+        }
+        return null;
+    }
+
+    static String toJson(Map<String, ?> results) {
+        return results.entrySet().stream()
+                .map(entry -> quote(entry.getKey()) + ": " + (entry.getValue() instanceof Number ? entry.getValue() : quote(String.valueOf(entry.getValue()))))
+                .collect(Collectors.joining(", ", "{", "}"));
+    }
+
+    static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
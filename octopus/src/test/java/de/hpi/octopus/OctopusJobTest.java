@@ -0,0 +1,69 @@
+package de.hpi.octopus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.octopus.actors.Master.Phase;
+import de.hpi.octopus.actors.TestSystems;
+import de.hpi.octopus.kernels.NonceKernel;
+import de.hpi.octopus.kernels.SecretsKernel;
+
+/**
+ * This class contains a test of all phases of a job on a single node, whose phases pass each other only record ids.
+ */
+public class OctopusJobTest {
+
+    private static final int[] PASSWORDS = {1, 2, 3, 4};
+    private static final String[] SEQUENCES = {"ACGUACGUAAAA", "CCCCGGGGUUUU", "AAAAGGGGCCCC", "UUUUACGUACGU"};
+
+    private ActorSystem system;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        this.system = TestSystems.createMaster("octopus", "octopus.max-password = 9999");
+        TestSystems.startNode(this.system, 2);
+    }
+
+    @After
+    public void tearDown() {
+        TestKit.shutdownActorSystem(this.system);
+    }
+
+    @Test
+    public void shouldReportTheResultsOfAllPhases() throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add("ID;Name;Password;Gene");
+        for (int record = 1; record <= PASSWORDS.length; record++)
+            lines.add(record + ";Student " + record + ";" + SecretsKernel.hash(PASSWORDS[record - 1]) + ";" + SEQUENCES[record - 1]);
+
+        List<Phase> phases = new ArrayList<>();
+        Map<String, Map<Phase, Object>> report = OctopusJob.fromLines("job", lines).run(this.system, (phase, millis) -> phases.add(phase));
+        assertEquals(Arrays.asList(Phase.values()), phases);
+
+        // Every record has the results of all phases, which fit each other
+        assertEquals(PASSWORDS.length, report.size());
+        int sum = 0;
+        for (int record = 1; record <= PASSWORDS.length; record++) {
+            Map<Phase, Object> results = report.get(Integer.toString(record));
+            assertEquals(PASSWORDS[record - 1], results.get(Phase.SECRETS));
+            int partner = Integer.parseInt((String) results.get(Phase.SEQUENCES));
+            assertTrue(partner >= 1 && partner <= PASSWORDS.length && partner != record);
+            int prefix = (Integer) results.get(Phase.LINEAR);
+            sum += prefix * PASSWORDS[record - 1];
+            String digit = prefix == -1 ? "0" : "1";
+            assertTrue(((String) results.get(Phase.HASHES)).startsWith(new String(new char[NonceKernel.PREFIX_LENGTH]).replace("\0", digit)));
+        }
+        assertEquals(0, sum);
+    }
+}
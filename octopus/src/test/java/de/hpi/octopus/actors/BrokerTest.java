@@ -0,0 +1,140 @@
+package de.hpi.octopus.actors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.octopus.actors.Master.ChunkCompletedMessage;
+import de.hpi.octopus.actors.Master.Phase;
+import de.hpi.octopus.actors.Master.RecordsStoredMessage;
+import de.hpi.octopus.actors.Master.RegistrationMessage;
+import de.hpi.octopus.actors.Master.SecretRevealedMessage;
+import de.hpi.octopus.actors.StudentRecord.StoreResultMessage;
+import de.hpi.octopus.actors.Worker.CancelChunkMessage;
+import de.hpi.octopus.actors.Worker.HashSubTaskMessage;
+import de.hpi.octopus.actors.Worker.ResultCreditMessage;
+import de.hpi.octopus.actors.Worker.SecretsSubTaskMessage;
+
+/**
+ * This class contains tests for the flow control and the slicing and combining of a {@link Broker}, with test
+ * probes standing in for the master and for the node's workers.
+ */
+public class BrokerTest {
+
+    private static final Duration QUIET = Duration.ofMillis(500);
+
+    private ActorSystem system;
+    private TestKit master;
+    private ActorRef masterPath;
+    private ActorRef broker;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        this.system = TestSystems.createMaster("broker", "");
+        this.master = new TestKit(this.system);
+        this.masterPath = this.system.actorOf(TestSystems.Forwarder.props(this.master.getRef()), Master.DEFAULT_NAME);
+        this.broker = this.system.actorOf(Broker.props(), Broker.DEFAULT_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        TestKit.shutdownActorSystem(this.system);
+    }
+
+    /**
+     * Register a probe as a worker with the given throughput and take the result credits it is granted and the
+     * broker's registration with the master.
+     */
+    private TestKit register(double hashesPerSecond) {
+        TestKit worker = new TestKit(this.system);
+        this.broker.tell(new RegistrationMessage(hashesPerSecond, hashesPerSecond, Worker.CHUNK_CREDITS, Worker.RESULT_CREDITS), worker.getRef());
+        assertEquals(new ResultCreditMessage(Worker.RESULT_CREDITS), worker.expectMsgClass(ResultCreditMessage.class));
+        this.master.expectMsgClass(Duration.ofSeconds(10), RegistrationMessage.class);
+        return worker;
+    }
+
+    private static Map<String, Integer> passwords(int from, int to) {
+        Map<String, Integer> passwords = new HashMap<>();
+        for (int record = from; record < to; record++)
+            passwords.put(Integer.toString(record), record);
+        return passwords;
+    }
+
+    @Test
+    public void shouldHoldBackTheWorkersCreditsWhileItIsFull() {
+        TestKit worker = this.register(1000);
+
+        // Without credits from the master, the broker keeps a full buffer and the worker's credit
+        this.broker.tell(new SecretRevealedMessage("job", passwords(0, 16384)), worker.getRef());
+        worker.expectNoMessage(QUIET);
+        this.master.expectNoMessage(Duration.ZERO);
+
+        // A credit from the master empties the buffer, which lets the worker send its next batch
+        this.broker.tell(new ResultCreditMessage(1), this.masterPath);
+        assertEquals(16384, this.master.expectMsgClass(RecordsStoredMessage.class).getRecordIds().size());
+        assertEquals(new ResultCreditMessage(1), worker.expectMsgClass(ResultCreditMessage.class));
+    }
+
+    @Test
+    public void shouldSliceAChunkByThroughputAndCombineItsResults() {
+        TestKit slow = this.register(1000);
+        TestKit fast = this.register(3000);
+
+        // The faster worker gets the larger slice, and together the slices cover the chunk
+        // The chunk comes from the master's path, so that its completion takes the same way as the results
+        this.broker.tell(new SecretsSubTaskMessage("job", 7, new HashMap<>(), 0, 3999), this.masterPath);
+        SecretsSubTaskMessage fastSlice = fast.expectMsgClass(SecretsSubTaskMessage.class);
+        SecretsSubTaskMessage slowSlice = slow.expectMsgClass(SecretsSubTaskMessage.class);
+        assertEquals(0, fastSlice.getStart());
+        assertEquals(2999, fastSlice.getEnd());
+        assertEquals(3000, slowSlice.getStart());
+        assertEquals(3999, slowSlice.getEnd());
+        assertNotEquals(fastSlice.getChunkId(), slowSlice.getChunkId());
+
+        // Both workers' results go to the master in one batch, and the chunk completes only after it
+        this.broker.tell(new SecretRevealedMessage("job", passwords(0, 3)), fast.getRef());
+        this.broker.tell(new ChunkCompletedMessage(Phase.SECRETS, fastSlice.getChunkId()), fast.getRef());
+        this.broker.tell(new SecretRevealedMessage("job", passwords(3000, 3002)), slow.getRef());
+        this.broker.tell(new ChunkCompletedMessage(Phase.SECRETS, slowSlice.getChunkId()), slow.getRef());
+        this.master.expectNoMessage(QUIET);
+
+        this.broker.tell(new ResultCreditMessage(1), this.masterPath);
+        RecordsStoredMessage stored = this.master.expectMsgClass(RecordsStoredMessage.class);
+        assertEquals(new HashSet<>(Arrays.asList("0", "1", "2", "3000", "3001")), new HashSet<>(stored.getRecordIds()));
+        assertEquals(new ChunkCompletedMessage(Phase.SECRETS, 7), this.master.expectMsgClass(ChunkCompletedMessage.class));
+        this.master.expectNoMessage(QUIET);
+    }
+
+    @Test
+    public void shouldReadTheEarlierResultsOfAChunkBeforeSlicingIt() {
+        TestKit worker = this.register(1000);
+
+        // The chunks of the hash phase wait for their records' partners and prefixes; a cancelled one is dropped
+        this.broker.tell(new HashSubTaskMessage("job", 3, 1, 1), this.masterPath);
+        this.broker.tell(new HashSubTaskMessage("job", 4, 2, 2), this.masterPath);
+        this.broker.tell(new CancelChunkMessage(4), this.masterPath);
+        worker.expectNoMessage(QUIET);
+
+        ActorRef records = StudentRecord.region(this.system);
+        records.tell(new StoreResultMessage("job", "1", Phase.SEQUENCES, "2"), ActorRef.noSender());
+        records.tell(new StoreResultMessage("job", "1", Phase.LINEAR, 1), ActorRef.noSender());
+        records.tell(new StoreResultMessage("job", "2", Phase.SEQUENCES, "1"), ActorRef.noSender());
+        records.tell(new StoreResultMessage("job", "2", Phase.LINEAR, -1), ActorRef.noSender());
+        HashSubTaskMessage slice = worker.expectMsgClass(HashSubTaskMessage.class);
+        assertEquals(1, slice.getStart());
+        assertEquals(1, slice.getEnd());
+        worker.expectNoMessage(QUIET);
+    }
+}
@@ -0,0 +1,80 @@
+package de.hpi.octopus.actors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+
+/**
+ * This class contains tests for the {@link Dictionary} views of several actor systems in one JVM.
+ */
+public class DictionaryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ActorSystem first;
+    private ActorSystem second;
+
+    @Before
+    public void setUp() {
+        this.first = TestSystems.create("first");
+        this.second = TestSystems.create("second");
+    }
+
+    @After
+    public void tearDown() {
+        TestKit.shutdownActorSystem(this.first);
+        TestKit.shutdownActorSystem(this.second);
+    }
+
+    @Test
+    public void shouldKeepOneViewPerActorSystem() {
+        assertSame(Dictionary.view(this.first), Dictionary.view(this.first));
+        assertNotSame(Dictionary.view(this.first), Dictionary.view(this.second));
+    }
+
+    @Test
+    public void shouldNotLeakDigestsIntoOtherSystems() throws IOException {
+        File firstSnapshot = this.folder.newFile("first.csv");
+        File secondSnapshot = this.folder.newFile("second.csv");
+        ActorRef firstDictionary = this.first.actorOf(Dictionary.props(firstSnapshot.getPath()), Dictionary.DEFAULT_NAME);
+        ActorRef secondDictionary = this.second.actorOf(Dictionary.props(secondSnapshot.getPath()), Dictionary.DEFAULT_NAME);
+
+        firstDictionary.tell(new Dictionary.AddMessage(Collections.singletonMap("digest", 42)), ActorRef.noSender());
+        new TestKit(this.first).awaitAssert(() -> {
+            assertEquals(Integer.valueOf(42), Dictionary.view(this.first).lookup("digest"));
+            return null;
+        });
+        assertNull(Dictionary.view(this.second).lookup("digest"));
+
+        // Each dictionary saves only its own system's digests
+        TestKit firstProbe = new TestKit(this.first);
+        firstProbe.watch(firstDictionary);
+        this.first.stop(firstDictionary);
+        firstProbe.expectTerminated(firstDictionary);
+        TestKit secondProbe = new TestKit(this.second);
+        secondProbe.watch(secondDictionary);
+        this.second.stop(secondDictionary);
+        secondProbe.expectTerminated(secondDictionary);
+
+        assertEquals(Collections.singletonList("digest;42"), Files.readAllLines(firstSnapshot.toPath(), StandardCharsets.UTF_8));
+        assertEquals(Collections.emptyList(), Files.readAllLines(secondSnapshot.toPath(), StandardCharsets.UTF_8));
+    }
+}
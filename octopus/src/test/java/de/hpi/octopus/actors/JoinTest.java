@@ -0,0 +1,66 @@
+package de.hpi.octopus.actors;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.octopus.actors.Master.Phase;
+import de.hpi.octopus.actors.StudentRecord.GetResultMessage;
+import de.hpi.octopus.actors.StudentRecord.ResultMessage;
+import de.hpi.octopus.kernels.SecretsKernel;
+
+/**
+ * This class contains a test of the distributed hash join of the password phase on a single node, whose broker owns
+ * the only partition of the targets and joins the probes of the node's workers.
+ */
+public class JoinTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private ActorSystem system;
+    private ActorRef master;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        this.system = TestSystems.createMaster("octopus", "octopus.join-threshold = 1\noctopus.max-password = 99999");
+        this.master = TestSystems.startNode(this.system, 2);
+    }
+
+    @After
+    public void tearDown() {
+        TestKit.shutdownActorSystem(this.system);
+    }
+
+    @Test
+    public void shouldCrackTargetsByJoiningTheProbesWithTheirPartition() {
+        Map<String, String> targets = new HashMap<>();
+        Map<String, Integer> passwords = new HashMap<>();
+        for (int record = 1; record <= 20; record++) {
+            int password = record * 4999 % 100000;
+            targets.put(Integer.toString(record), SecretsKernel.hash(password));
+            passwords.put(Integer.toString(record), password);
+        }
+
+        TestKit client = new TestKit(this.system);
+        this.master.tell(new Master.SecretsTaskMessage("job", targets), client.getRef());
+        assertEquals(targets.keySet(), client.expectMsgClass(TIMEOUT, Set.class));
+
+        // The owner of the partition stored the cracked passwords in their records
+        ActorRef records = StudentRecord.region(this.system);
+        for (Map.Entry<String, Integer> password : passwords.entrySet()) {
+            records.tell(new GetResultMessage("job", password.getKey(), Phase.SECRETS), client.getRef());
+            assertEquals(password.getValue(), client.expectMsgClass(TIMEOUT, ResultMessage.class).getResult());
+        }
+        assertEquals(passwords.get("7"), Dictionary.view(this.system).lookup(targets.get("7")));
+    }
+}
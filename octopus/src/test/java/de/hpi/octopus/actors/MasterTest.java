@@ -0,0 +1,250 @@
+package de.hpi.octopus.actors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.octopus.actors.Master.ChunkCompletedMessage;
+import de.hpi.octopus.actors.Master.Phase;
+import de.hpi.octopus.actors.Master.RecordsStoredMessage;
+import de.hpi.octopus.actors.Master.RegistrationMessage;
+import de.hpi.octopus.actors.Worker.ResultCreditMessage;
+import de.hpi.octopus.actors.Worker.SubTask;
+import de.hpi.octopus.kernels.DigestTable;
+import de.hpi.octopus.kernels.SecretsKernel;
+import scala.concurrent.duration.FiniteDuration;
+
+/**
+ * This class contains tests for the scheduling of the {@link Master}, with test probes standing in for the brokers
+ * that register with it and for the clients of its jobs.
+ */
+public class MasterTest {
+
+    private static final Duration QUIET = Duration.ofMillis(500);
+
+    private ActorSystem system;
+    private ActorRef master;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        this.system = TestSystems.createMaster("master", "octopus.join-threshold = 2\noctopus.max-password = 9999");
+        this.master = this.system.actorOf(Master.props(), Master.DEFAULT_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        TestKit.shutdownActorSystem(this.system);
+    }
+
+    /**
+     * Register a probe as a broker with the given throughput and credits and take the result credits it is granted.
+     */
+    private TestKit register(double hashesPerSecond, int chunkCredits, int resultCredits) {
+        TestKit broker = new TestKit(this.system);
+        this.master.tell(new RegistrationMessage(hashesPerSecond, hashesPerSecond, chunkCredits, resultCredits), broker.getRef());
+        assertEquals(new ResultCreditMessage(resultCredits), broker.expectMsgClass(ResultCreditMessage.class));
+        return broker;
+    }
+
+    private static Map<String, String> targets(int count) {
+        Map<String, String> targets = new HashMap<>();
+        for (int password = 0; password < count; password++)
+            targets.put(Integer.toString(password), SecretsKernel.hash(password));
+        return targets;
+    }
+
+    /**
+     * Report a chunk's records as stored and the chunk as completed, as a broker does.
+     */
+    private void complete(TestKit broker, String jobId, SubTask subTask, List<String> recordIds) {
+        this.master.tell(new RecordsStoredMessage(jobId, subTask.getPhase(), recordIds), broker.getRef());
+        this.master.tell(new ChunkCompletedMessage(subTask.getPhase(), subTask.getChunkId()), broker.getRef());
+    }
+
+    /**
+     * Skip the result credits that the broker gets back and take the next chunk it is sent.
+     */
+    private SubTask nextSubTask(TestKit broker) {
+        return (SubTask) broker.fishForMessage(FiniteDuration.create(5, TimeUnit.SECONDS), "sub task", message -> message instanceof SubTask);
+    }
+
+    @Test
+    public void shouldScanForTheTargetsOfALostJoinPartition() {
+        TestKit first = this.register(1000, 1, 4);
+        TestKit second = this.register(1000, 1, 4);
+        TestKit client = new TestKit(this.system);
+        Map<String, String> targets = targets(20);
+        this.master.tell(new Master.SecretsTaskMessage("job", targets), client.getRef());
+
+        // Each broker owns one partition and probes all of them
+        Broker.JoinPartitionMessage partition = first.expectMsgClass(Broker.JoinPartitionMessage.class);
+        Broker.JoinPartitionMessage lostPartition = second.expectMsgClass(Broker.JoinPartitionMessage.class);
+        assertEquals(0, partition.getPartition());
+        assertEquals(1, lostPartition.getPartition());
+        for (Map.Entry<String, String> target : targets.entrySet())
+            assertTrue((DigestTable.partition(target.getValue(), 2) == 0 ? partition : lostPartition).getTargets().containsKey(target.getKey()));
+        Worker.JoinSubTaskMessage join = first.expectMsgClass(Worker.JoinSubTaskMessage.class);
+        second.expectMsgClass(Worker.JoinSubTaskMessage.class);
+
+        // The first broker cracks one target of the lost partition before the second broker dies
+        String cracked = lostPartition.getTargets().keySet().iterator().next();
+        List<String> crackedIds = new ArrayList<>();
+        crackedIds.add(cracked);
+        this.master.tell(new RecordsStoredMessage("job", Phase.SECRETS, crackedIds), first.getRef());
+        first.expectMsgClass(ResultCreditMessage.class);
+        this.system.stop(second.getRef());
+
+        // The workers stop probing the lost partition, and its remaining targets are scanned for instead
+        assertEquals(new Worker.PartitionLostMessage("job", 1), first.expectMsgClass(Worker.PartitionLostMessage.class));
+        boolean scanned = false;
+        Set<String> completed = new HashSet<>(crackedIds);
+        SubTask subTask = join;
+        while (completed.size() < targets.size()) {
+            List<String> recordIds = new ArrayList<>();
+            if (subTask instanceof Worker.SecretsSubTaskMessage) {
+                scanned = true;
+                recordIds.addAll(lostPartition.getTargets().keySet());
+                recordIds.remove(cracked);
+            } else {
+                recordIds.addAll(partition.getTargets().keySet());
+            }
+            completed.addAll(recordIds);
+            this.complete(first, "job", subTask, recordIds);
+            if (completed.size() < targets.size())
+                subTask = this.nextSubTask(first);
+        }
+        assertTrue("Scanned for the lost partition", scanned);
+        assertEquals(targets.keySet(), client.expectMsgClass(Set.class));
+    }
+
+    @Test
+    public void shouldDuplicateAStragglingChunkAndKeepTheFirstResult() {
+        TestKit first = this.register(1000, 1, 4);
+        TestKit second = this.register(1000, 1, 4);
+        TestKit client = new TestKit(this.system);
+        this.master.tell(new Master.SecretsTaskMessage("job", targets(1)), client.getRef());
+
+        // The broker whose share starts with the only target's password straggles with its first chunk
+        SubTask firstSubTask = first.expectMsgClass(SubTask.class);
+        SubTask secondSubTask = second.expectMsgClass(SubTask.class);
+        TestKit fast = firstSubTask.getStart() == 0 ? second : first;
+        TestKit slow = firstSubTask.getStart() == 0 ? first : second;
+        SubTask straggler = firstSubTask.getStart() == 0 ? firstSubTask : secondSubTask;
+
+        // Once the fast broker has run out of its own chunks, it gets a copy of the straggler
+        SubTask subTask = firstSubTask.getStart() == 0 ? secondSubTask : firstSubTask;
+        for (int completed = 0; subTask.getChunkId() != straggler.getChunkId(); completed++) {
+            assertTrue("Duplicated the straggler", completed < 4);
+            this.complete(fast, "job", subTask, Collections.emptyList());
+            subTask = this.nextSubTask(fast);
+        }
+        assertEquals(straggler.getStart(), subTask.getStart());
+        assertEquals(straggler.getEnd(), subTask.getEnd());
+
+        // The copy completes first: the job is reported and the straggler is cancelled
+        this.complete(fast, "job", subTask, Collections.singletonList("0"));
+        assertEquals(Collections.singleton("0"), client.expectMsgClass(Set.class));
+        assertEquals(new Worker.CancelChunkMessage(straggler.getChunkId()), slow.expectMsgClass(Worker.CancelChunkMessage.class));
+
+        // The straggler's late result is dropped, but its result credit comes back
+        this.complete(slow, "job", straggler, Collections.singletonList("0"));
+        slow.expectMsgClass(ResultCreditMessage.class);
+        client.expectNoMessage(QUIET);
+    }
+
+    @Test
+    public void shouldSplitTheRangeByThroughput() {
+        TestKit slow = this.register(1000, 4, 4);
+        TestKit fast = this.register(3000, 4, 4);
+        TestKit client = new TestKit(this.system);
+        this.master.tell(new Master.SecretsTaskMessage("job", targets(1)), client.getRef());
+
+        // Each broker gets its share of the passwords in four chunks; the share grows with the registered throughput
+        long[] sizes = new long[2];
+        TestKit[] brokers = {slow, fast};
+        for (int i = 0; i < brokers.length; i++) {
+            for (int chunk = 0; chunk < 4; chunk++) {
+                SubTask subTask = brokers[i].expectMsgClass(SubTask.class);
+                sizes[i] += subTask.getEnd() - subTask.getStart() + 1;
+            }
+        }
+        assertEquals(10000, sizes[0] + sizes[1]);
+        assertEquals(3.0, (double) sizes[1] / sizes[0], 0.01);
+    }
+
+    @Test
+    public void shouldInterleaveTheChunksOfConcurrentJobs() {
+        TestKit broker = this.register(1000, 1, 4);
+        TestKit client = new TestKit(this.system);
+
+        // The only broker gets each job's scan in four chunks, whose ids follow each other
+        this.master.tell(new Master.SecretsTaskMessage("first", targets(1)), client.getRef());
+        this.master.tell(new Master.SecretsTaskMessage("second", targets(1)), client.getRef());
+        SubTask subTask = broker.expectMsgClass(SubTask.class);
+        long firstChunks = subTask.getChunkId();
+
+        // The first job's first chunk went out before the second job arrived; from then on, the jobs take turns
+        StringBuilder jobs = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            jobs.append(subTask.getChunkId() < firstChunks + 4 ? '1' : '2');
+            this.complete(broker, jobs.charAt(i) == '1' ? "first" : "second", subTask, Collections.emptyList());
+            if (i < 7)
+                subTask = this.nextSubTask(broker);
+        }
+        assertEquals("11212122", jobs.toString());
+    }
+
+    @Test
+    public void shouldStopACancelledJob() {
+        TestKit broker = this.register(1000, 1, 4);
+        TestKit client = new TestKit(this.system);
+        this.master.tell(new Master.SecretsTaskMessage("job", targets(1)), client.getRef());
+        SubTask subTask = broker.expectMsgClass(SubTask.class);
+
+        // The running chunk is cancelled, and the queued ones are never sent
+        this.master.tell(new Master.CancelJobMessage("job"), ActorRef.noSender());
+        assertEquals(new Worker.CancelChunkMessage(subTask.getChunkId()), broker.expectMsgClass(Worker.CancelChunkMessage.class));
+        this.complete(broker, "job", subTask, Collections.singletonList("0"));
+        broker.expectMsgClass(ResultCreditMessage.class);
+        broker.expectNoMessage(QUIET);
+        client.expectNoMessage(QUIET);
+    }
+
+    @Test
+    public void shouldLimitTheChunksAndResultsInFlightByCredits() {
+        // A broker asking for more result credits than the master grants gets the maximum
+        TestKit broker = new TestKit(this.system);
+        this.master.tell(new RegistrationMessage(1000, 1000, 2, 20), broker.getRef());
+        assertEquals(new ResultCreditMessage(8), broker.expectMsgClass(ResultCreditMessage.class));
+
+        // The broker holds as many of the task's four chunks as it has chunk credits
+        TestKit client = new TestKit(this.system);
+        this.master.tell(new Master.SecretsTaskMessage("job", targets(1)), client.getRef());
+        SubTask subTask = broker.expectMsgClass(SubTask.class);
+        broker.expectMsgClass(SubTask.class);
+        broker.expectNoMessage(QUIET);
+
+        // Every result batch returns its credit, and every completed chunk makes room for the next one
+        this.master.tell(new RecordsStoredMessage("job", Phase.SECRETS, Collections.emptyList()), broker.getRef());
+        assertEquals(new ResultCreditMessage(1), broker.expectMsgClass(ResultCreditMessage.class));
+        this.master.tell(new ChunkCompletedMessage(Phase.SECRETS, subTask.getChunkId()), broker.getRef());
+        broker.expectMsgClass(SubTask.class);
+        broker.expectNoMessage(QUIET);
+    }
+}
@@ -0,0 +1,74 @@
+package de.hpi.octopus.actors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.octopus.actors.Master.Phase;
+import de.hpi.octopus.actors.StudentRecord.GetResultMessage;
+import de.hpi.octopus.actors.StudentRecord.ResultMessage;
+import de.hpi.octopus.kernels.RainbowTable;
+import de.hpi.octopus.kernels.SecretsKernel;
+
+/**
+ * This class contains a test of the rainbow table lookup of the password phase on a single node: the workers build the
+ * table, and the master looks the targets up in it with them and scans for the targets that it does not cover.
+ */
+public class RainbowTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ActorSystem system;
+
+    @After
+    public void tearDown() {
+        if (this.system != null)
+            TestKit.shutdownActorSystem(this.system);
+    }
+
+    @Test
+    public void shouldCrackTargetsWithTheRainbowTable() throws InterruptedException, IOException {
+        File table = new File(this.folder.getRoot(), "rainbow.table");
+        this.system = TestSystems.createMaster("octopus", "octopus.max-password = 9999\n" +
+                "octopus.rainbow-table { file = \"" + table.getPath() + "\"\nchain-length = 100\n}");
+        ActorRef master = TestSystems.startNode(this.system, 2);
+
+        Map<String, String> targets = new HashMap<>();
+        Map<String, Integer> passwords = new HashMap<>();
+        for (int record = 1; record <= 20; record++) {
+            int password = record * 499 % 10000;
+            targets.put(Integer.toString(record), SecretsKernel.hash(password));
+            passwords.put(Integer.toString(record), password);
+        }
+
+        TestKit client = new TestKit(this.system);
+        master.tell(new Master.SecretsTaskMessage("job", targets), client.getRef());
+        assertEquals(targets.keySet(), client.expectMsgClass(TIMEOUT, Set.class));
+
+        ActorRef records = StudentRecord.region(this.system);
+        for (Map.Entry<String, Integer> password : passwords.entrySet()) {
+            records.tell(new GetResultMessage("job", password.getKey(), Phase.SECRETS), client.getRef());
+            assertEquals(password.getValue(), client.expectMsgClass(TIMEOUT, ResultMessage.class).getResult());
+        }
+
+        // The workers built the table with five chains per chain length of candidates
+        assertTrue(RainbowTable.open(table).fits(10000, 100, 500));
+    }
+}
@@ -0,0 +1,109 @@
+package de.hpi.octopus.actors;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.cluster.Cluster;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.octopus.OctopusMaster;
+import de.hpi.octopus.actors.Master.Phase;
+
+/**
+ * Creates actor systems with the octopus configuration for tests, several of which can run in one JVM.
+ */
+public final class TestSystems {
+
+    private TestSystems() {
+    }
+
+    /**
+     * Create a system that is not yet a member of any cluster, on a free port and without metrics collection.
+     */
+    static ActorSystem create(String name) {
+        return create(name, "");
+    }
+
+    /**
+     * Create a system as {@link #create(String)} does, with the given settings on top of the octopus configuration.
+     */
+    static ActorSystem create(String name, String settings) {
+        return ActorSystem.create(name, ConfigFactory.parseString(settings + "\n" +
+                "akka.remote.netty.tcp.port = 0\n" +
+                "akka.remote.artery.canonical.port = 0\n" +
+                "akka.loglevel = INFO\n" +
+                "akka.log-dead-letters = off\n" +
+                "akka.extensions = []\n")
+            .withFallback(ConfigFactory.load("octopus")));
+    }
+
+    /**
+     * Create a master's system that is the single member of its cluster and wait until it is up, so that brokers in it
+     * find the master and the student records can be stored.
+     */
+    public static ActorSystem createMaster(String name, String settings) throws InterruptedException {
+        ActorSystem system = create(name, settings + "\n" +
+                "akka.cluster.roles = [" + OctopusMaster.MASTER_ROLE + "]\n" +
+                "akka.cluster.role.slave.min-nr-of-members = 0\n");
+        Cluster cluster = Cluster.get(system);
+        CountDownLatch up = new CountDownLatch(1);
+        cluster.registerOnMemberUp(up::countDown);
+        cluster.join(cluster.selfAddress());
+        if (!up.await(20, TimeUnit.SECONDS))
+            throw new IllegalStateException("The cluster did not come up");
+        StudentRecord.startRegion(system);
+        return system;
+    }
+
+    /**
+     * Start a master, a dictionary, a broker and the given number of workers in a master's system and wait until the
+     * workers have registered: a linear task of one record waits for them, so its result means they are there.
+     *
+     * @return the master
+     */
+    public static ActorRef startNode(ActorSystem system, int workers) {
+        ActorRef master = system.actorOf(Master.props(), Master.DEFAULT_NAME);
+        system.actorOf(Dictionary.props(null), Dictionary.DEFAULT_NAME);
+        system.actorOf(Broker.props(), Broker.DEFAULT_NAME);
+        for (int i = 0; i < workers; i++)
+            system.actorOf(Worker.props(), Worker.DEFAULT_NAME + i);
+
+        TestKit client = new TestKit(system);
+        StudentRecord.region(system).tell(new StudentRecord.StoreResultMessage("warm-up", "1", Phase.SECRETS, 0), ActorRef.noSender());
+        master.tell(new Master.LinearTaskMessage("warm-up", Collections.singletonList("1")), client.getRef());
+        client.expectMsgClass(Duration.ofSeconds(30), Set.class);
+        return master;
+    }
+
+    /**
+     * An actor that stands in for an actor at a well-known path, e.g., the master or a node's broker, and forwards
+     * everything to a test probe.
+     */
+    static class Forwarder extends AbstractActor {
+
+        private final ActorRef target;
+
+        Forwarder(ActorRef target) {
+            this.target = target;
+        }
+
+        static Props props(ActorRef target) {
+            return Props.create(Forwarder.class, () -> new Forwarder(target));
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .matchAny(message -> this.target.forward(message, this.getContext()))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package de.hpi.octopus.actors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.octopus.actors.Master.ChunkCompletedMessage;
+import de.hpi.octopus.actors.Master.Phase;
+import de.hpi.octopus.actors.Master.RegistrationMessage;
+import de.hpi.octopus.actors.Worker.JoinSubTaskMessage;
+import de.hpi.octopus.actors.Worker.PartitionLostMessage;
+import de.hpi.octopus.actors.Worker.ProbeCreditMessage;
+import de.hpi.octopus.actors.Worker.RainbowSubTaskMessage;
+import de.hpi.octopus.actors.Worker.ResultCreditMessage;
+import de.hpi.octopus.jfr.KernelSampler;
+import de.hpi.octopus.kernels.RainbowKernel;
+import de.hpi.octopus.kernels.RainbowKernel.Step;
+import de.hpi.octopus.kernels.ShortSha256;
+
+/**
+ * This class contains tests for the flow control of a {@link Worker}, with test probes standing in for its broker and
+ * for the owners of join partitions.
+ */
+public class WorkerTest {
+
+    private static final Duration QUIET = Duration.ofMillis(500);
+
+    private ActorSystem system;
+    private TestKit broker;
+    private ActorRef worker;
+
+    @Before
+    public void setUp() {
+        this.system = TestSystems.create("worker");
+        this.broker = new TestKit(this.system);
+        this.system.actorOf(TestSystems.Forwarder.props(this.broker.getRef()), Broker.DEFAULT_NAME);
+        this.worker = this.system.actorOf(Worker.props(), Worker.DEFAULT_NAME);
+        this.broker.expectMsgClass(Duration.ofSeconds(10), RegistrationMessage.class);
+    }
+
+    @After
+    public void tearDown() {
+        TestKit.shutdownActorSystem(this.system);
+    }
+
+    @Test
+    public void shouldSendProbesOnlyWithCredits() {
+        TestKit owner = new TestKit(this.system);
+        this.worker.tell(new ResultCreditMessage(2), this.broker.getRef());
+        this.worker.tell(new JoinSubTaskMessage("job", 1, 0, 99_999, Collections.singletonList(owner.getRef().path().toString())), this.broker.getRef());
+
+        // Every slice probes the single partition, but only as many probes as credits are in flight
+        owner.expectMsgClass(Broker.ProbeMessage.class);
+        owner.expectMsgClass(Broker.ProbeMessage.class);
+        owner.expectNoMessage(QUIET);
+
+        // The owner returns a credit per joined probe
+        this.worker.tell(new ProbeCreditMessage("job", 0), owner.getRef());
+        Broker.ProbeMessage probe = owner.expectMsgClass(Broker.ProbeMessage.class);
+        assertEquals("job", probe.getJobId());
+        assertEquals(0, probe.getPartition());
+        owner.expectNoMessage(QUIET);
+        this.broker.expectNoMessage(Duration.ZERO);
+    }
+
+    @Test
+    public void shouldStopProbingALostPartition() {
+        TestKit owner = new TestKit(this.system);
+        this.worker.tell(new ResultCreditMessage(2), this.broker.getRef());
+        this.worker.tell(new JoinSubTaskMessage("job", 1, 0, 99_999, Collections.singletonList(owner.getRef().path().toString())), this.broker.getRef());
+        owner.receiveN(2);
+
+        // The worker takes the credits of the lost probes back, drops the waiting probes, and completes its chunk
+        this.worker.tell(new PartitionLostMessage("job", 0), this.broker.getRef());
+        assertEquals(new ChunkCompletedMessage(Phase.SECRETS, 1), this.broker.expectMsgClass(ChunkCompletedMessage.class));
+        owner.expectNoMessage(QUIET);
+
+        // Late credits of the lost owner are ignored, so the worker has the two credits it was granted again
+        this.worker.tell(new ProbeCreditMessage("job", 0), owner.getRef());
+        this.worker.tell(new JoinSubTaskMessage("next", 2, 0, 99_999, Collections.singletonList(owner.getRef().path().toString())), this.broker.getRef());
+        owner.receiveN(2);
+        owner.expectNoMessage(QUIET);
+    }
+
+    @Test
+    public void shouldSendRainbowValuesOnlyWithCredits() {
+        this.worker.tell(new ResultCreditMessage(1), this.broker.getRef());
+        this.worker.tell(new RainbowSubTaskMessage("job", 1, Step.CHAINS, 100_000, 100, 30_000, 0, 29_999, 0, null, null, null), this.broker.getRef());
+
+        // The worker sends one batch per credit and pauses while it has no credit and its buffer is full
+        Map<String, Integer> values = new HashMap<>();
+        int batches = 0;
+        while (values.size() < 30_000) {
+            Master.RainbowValuesMessage batch = this.broker.expectMsgClass(Duration.ofSeconds(10), Master.RainbowValuesMessage.class);
+            assertEquals(Step.CHAINS, batch.getStep());
+            values.putAll(batch.getValues());
+            batches++;
+            if (values.size() < 30_000) {
+                this.broker.expectNoMessage(QUIET);
+                this.worker.tell(new ResultCreditMessage(1), this.broker.getRef());
+            }
+        }
+        assertTrue("Batches: " + batches, batches > 1);
+
+        // The chunk completes once its last batch is sent
+        assertEquals(new ChunkCompletedMessage(Phase.SECRETS, 1), this.broker.expectMsgClass(ChunkCompletedMessage.class));
+        assertEquals(Integer.valueOf(RainbowKernel.endpoint(12_345, 30_000, 100, 100_000, new ShortSha256(), new KernelSampler("test"))),
+                values.get("12345"));
+    }
+}
@@ -0,0 +1,97 @@
+package de.hpi.octopus.kernels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the lookups and the partitioning of {@link DigestTable}.
+ */
+public class DigestTableTest {
+
+    private static byte[] bytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        return bytes;
+    }
+
+    private static Set<String> ids(DigestTable table, String hex) {
+        Set<String> ids = new HashSet<>();
+        for (int entry = table.find(bytes(hex)); entry >= 0; entry = table.next(entry))
+            ids.add(table.id(entry));
+        return ids;
+    }
+
+    @Test
+    public void shouldFindEveryTarget() {
+        Map<String, String> targets = new HashMap<>();
+        for (int password = 0; password < 1000; password++)
+            targets.put(Integer.toString(password), SecretsKernel.hash(password));
+        DigestTable table = DigestTable.of(targets);
+
+        assertEquals(1000, table.size());
+        targets.forEach((id, hash) -> assertEquals(Collections.singleton(id), ids(table, hash)));
+    }
+
+    @Test
+    public void shouldFindAllRecordsWithTheSameDigest() {
+        Map<String, String> targets = new HashMap<>();
+        targets.put("1", SecretsKernel.hash(7));
+        targets.put("2", SecretsKernel.hash(7));
+        targets.put("3", SecretsKernel.hash(8));
+        targets.put("4", SecretsKernel.hash(7));
+        DigestTable table = DigestTable.of(targets);
+
+        assertEquals(new HashSet<>(Arrays.asList("1", "2", "4")), ids(table, SecretsKernel.hash(7)));
+        assertEquals(Collections.singleton("3"), ids(table, SecretsKernel.hash(8)));
+    }
+
+    @Test
+    public void shouldNotFindOtherDigests() {
+        Map<String, String> targets = new HashMap<>();
+        for (int password = 0; password < 100; password++)
+            targets.put(Integer.toString(password), SecretsKernel.hash(password));
+        DigestTable table = DigestTable.of(targets);
+
+        for (int password = 100; password < 1000; password++)
+            assertTrue("Found " + password, table.find(bytes(SecretsKernel.hash(password))) < 0);
+        assertTrue(DigestTable.of(new HashMap<>()).find(bytes(SecretsKernel.hash(0))) < 0);
+    }
+
+    @Test
+    public void shouldFindTheDigestsOfTheShortSha256() {
+        Map<String, String> targets = new HashMap<>();
+        targets.put("a", SecretsKernel.hash(123456));
+        DigestTable table = DigestTable.of(targets);
+
+        long[] digest = new long[4];
+        new ShortSha256().digest(123456, digest, 0);
+        assertEquals("a", table.id(table.find(digest[0], digest[1], digest[2], digest[3])));
+    }
+
+    @Test
+    public void shouldPartitionHexAndBinaryDigestsAlike() {
+        for (int partitions = 1; partitions <= 7; partitions++) {
+            int[] sizes = new int[partitions];
+            for (int password = 0; password < 10000; password++) {
+                String hex = SecretsKernel.hash(password);
+                int partition = DigestTable.partition(hex, partitions);
+                assertEquals(partition, DigestTable.partition(DigestTable.word(bytes(hex), 0), partitions));
+                sizes[partition]++;
+            }
+
+            // The digests are uniformly distributed, so the partitions are balanced
+            for (int size : sizes)
+                assertTrue("Partition of " + size + " digests", Math.abs(size - 10000 / partitions) < 10000 / partitions / 5 + 50);
+        }
+    }
+}
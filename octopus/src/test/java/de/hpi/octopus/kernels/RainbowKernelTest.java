@@ -0,0 +1,113 @@
+package de.hpi.octopus.kernels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.hpi.octopus.jfr.KernelSampler;
+
+/**
+ * This class contains tests for the reductions and chains of {@link RainbowKernel} and a round trip through a small
+ * {@link RainbowTable}: build the table, write it, reopen it, and look passwords up in it as the master and the workers
+ * do together.
+ */
+public class RainbowKernelTest {
+
+    private static final long SPACE = 10_000;
+    private static final int CHAIN_LENGTH = 100;
+    private static final int CHAINS = 5 * (int) SPACE / CHAIN_LENGTH;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ShortSha256 sha256 = new ShortSha256();
+    private final KernelSampler sampler = new KernelSampler("rainbow chain");
+
+    private long[] digest(int password) {
+        long[] digest = new long[4];
+        this.sha256.digest(password, digest, 0);
+        return digest;
+    }
+
+    private RainbowTable build() throws IOException {
+        int[] endpoints = new int[CHAINS];
+        for (int chain = 0; chain < CHAINS; chain++)
+            endpoints[chain] = RainbowKernel.endpoint(chain, CHAINS, CHAIN_LENGTH, SPACE, this.sha256, this.sampler);
+        File file = this.folder.newFile("table");
+        RainbowTable.write(file, SPACE, CHAIN_LENGTH, endpoints);
+        return RainbowTable.open(file);
+    }
+
+    /**
+     * Look a digest up by the tails from every column, as the master and the workers do.
+     *
+     * @return the password or a negative number if the table does not cover it
+     */
+    private int lookup(RainbowTable table, long[] target) {
+        for (int column = CHAIN_LENGTH - 1; column >= 0; column--) {
+            int chain = table.find(RainbowKernel.tail(target[0], column, CHAIN_LENGTH, SPACE, this.sha256, this.sampler));
+            if (chain < 0)
+                continue;
+            int candidate = RainbowKernel.candidate(chain, CHAINS, column, SPACE, target, 0, this.sha256, this.sampler);
+            if (candidate >= 0)
+                return candidate;
+        }
+        return -1;
+    }
+
+    @Test
+    public void shouldReduceIntoTheSpace() {
+        for (int password = 0; password < 1000; password++)
+            for (int column = 0; column < 3; column++) {
+                int candidate = RainbowKernel.reduce(this.digest(password)[0], column, SPACE);
+                assertTrue(candidate >= 0 && candidate < SPACE);
+            }
+    }
+
+    @Test
+    public void shouldWalkChainsInSteps() {
+        int start = RainbowKernel.start(7, CHAINS, SPACE);
+        int middle = RainbowKernel.walk(start, 0, 40, SPACE, this.sha256, this.sampler);
+        assertEquals(RainbowKernel.endpoint(7, CHAINS, CHAIN_LENGTH, SPACE, this.sha256, this.sampler),
+                RainbowKernel.walk(middle, 40, CHAIN_LENGTH, SPACE, this.sha256, this.sampler));
+
+        // The tail of the candidate in a column is the chain's endpoint
+        int candidate = RainbowKernel.walk(start, 0, 60, SPACE, this.sha256, this.sampler);
+        assertEquals(RainbowKernel.endpoint(7, CHAINS, CHAIN_LENGTH, SPACE, this.sha256, this.sampler),
+                RainbowKernel.tail(this.digest(candidate)[0], 60, CHAIN_LENGTH, SPACE, this.sha256, this.sampler));
+    }
+
+    @Test
+    public void shouldRegenerateOnlyTheCandidateWithTheTargetDigest() {
+        int candidate = RainbowKernel.walk(RainbowKernel.start(3, CHAINS, SPACE), 0, 25, SPACE, this.sha256, this.sampler);
+        assertEquals(candidate, RainbowKernel.candidate(3, CHAINS, 25, SPACE, this.digest(candidate), 0, this.sha256, this.sampler));
+        assertTrue(RainbowKernel.candidate(3, CHAINS, 26, SPACE, this.digest(candidate), 0, this.sha256, this.sampler) < 0);
+    }
+
+    @Test
+    public void shouldLookUpPasswordsInTheReopenedTable() throws IOException {
+        RainbowTable table = this.build();
+        assertTrue(table.fits(SPACE, CHAIN_LENGTH, CHAINS));
+
+        // A password from the first chain, which the table keeps however many chains merge with it
+        int known = RainbowKernel.walk(RainbowKernel.start(0, CHAINS, SPACE), 0, 42, SPACE, this.sha256, this.sampler);
+        assertEquals(known, this.lookup(table, this.digest(known)));
+
+        // Every password that the table finds is right, and the table covers most of them
+        int found = 0;
+        for (int password = 0; password < SPACE; password += 7) {
+            int candidate = this.lookup(table, this.digest(password));
+            if (candidate >= 0) {
+                assertEquals(password, candidate);
+                found++;
+            }
+        }
+        assertTrue("Found " + found, found > SPACE / 7 / 2);
+    }
+}
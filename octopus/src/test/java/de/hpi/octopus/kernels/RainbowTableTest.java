@@ -0,0 +1,78 @@
+package de.hpi.octopus.kernels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This class contains round-trip tests for the memory-mapped {@link RainbowTable} file.
+ */
+public class RainbowTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void assertEntries(RainbowTable table) {
+        assertEquals(3, table.size());
+        assertEquals(0, table.find(5));
+        assertEquals(1, table.find(3));
+        assertEquals(3, table.find(9));
+        assertTrue(table.find(4) < 0);
+        assertTrue(table.find(0) < 0);
+        assertTrue(table.find(10) < 0);
+    }
+
+    @Test
+    public void shouldKeepTheFirstChainOfEveryEndpoint() throws IOException {
+        File file = this.folder.newFile("table");
+        assertEntries(RainbowTable.write(file, 10, 100, new int[] {5, 3, 5, 9}));
+    }
+
+    @Test
+    public void shouldReopenTheFile() throws IOException {
+        File file = this.folder.newFile("table");
+        RainbowTable.write(file, 10, 100, new int[] {5, 3, 5, 9});
+
+        RainbowTable table = RainbowTable.open(file);
+        assertEntries(table);
+        assertTrue(table.fits(10, 100, 4));
+        assertFalse(table.fits(11, 100, 4));
+        assertFalse(table.fits(10, 99, 4));
+        assertFalse(table.fits(10, 100, 3));
+    }
+
+    @Test
+    public void shouldReplaceAnExistingTable() throws IOException {
+        File file = this.folder.newFile("table");
+        RainbowTable.write(file, 10, 100, new int[] {1, 2, 3, 4, 6, 7, 8});
+        RainbowTable.write(file, 10, 100, new int[] {5, 3, 5, 9});
+        assertEntries(RainbowTable.open(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectOtherFiles() throws IOException {
+        File file = this.folder.newFile("other");
+        Files.write(file.toPath(), Collections.nCopies(10, "not a rainbow table"));
+        RainbowTable.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectTruncatedFiles() throws IOException {
+        File file = this.folder.newFile("table");
+        RainbowTable.write(file, 10, 100, new int[] {5, 3, 5, 9});
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(out.length() - 4);
+        }
+        RainbowTable.open(file);
+    }
+}
@@ -0,0 +1,94 @@
+package de.hpi.octopus.kernels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.hpi.octopus.jfr.KernelSampler;
+
+/**
+ * This class contains tests for {@link ShortSha256} against the {@link java.security.MessageDigest} reference in
+ * {@link SecretsKernel#hash(int)}.
+ */
+public class ShortSha256Test {
+
+    // Numbers of every length from 1 to 11 characters, including the sign
+    private static final int[] EDGE_CASES = {
+            0, 1, 9, 10, 99, 100, 999, 1000, 9999, 10000, 999999, 1000000, 1000001, 99999999, 100000000, 999999999,
+            1000000000, Integer.MAX_VALUE, -1, -9, -10, -999, -1000, -9999999, -10000000, -999999999, -1000000000,
+            Integer.MIN_VALUE + 1, Integer.MIN_VALUE};
+
+    private final ShortSha256 sha256 = new ShortSha256();
+
+    private String digest(int number) {
+        long[] digest = new long[4];
+        this.sha256.digest(number, digest, 0);
+        return ShortSha256.hex(digest, 0);
+    }
+
+    @Test
+    public void shouldMatchMessageDigestForEveryLength() {
+        for (int number : EDGE_CASES)
+            assertEquals("Digest of " + number, SecretsKernel.hash(number), this.digest(number));
+    }
+
+    @Test
+    public void shouldMatchMessageDigestForTheCandidates() {
+        for (int number = 0; number <= 100000; number++)
+            assertEquals("Digest of " + number, SecretsKernel.hash(number), this.digest(number));
+    }
+
+    @Test
+    public void shouldHashAllLanesIndependently() {
+        Random random = new Random(42);
+        long[] lanes = new long[4 * ShortSha256.LANES];
+        for (int i = 0; i < 10000; i++) {
+            int[] numbers = {random.nextInt(), random.nextInt(1000), EDGE_CASES[i % EDGE_CASES.length], random.nextInt(Integer.MAX_VALUE)};
+            this.sha256.digest(numbers[0], numbers[1], numbers[2], numbers[3], lanes);
+            for (int lane = 0; lane < ShortSha256.LANES; lane++)
+                assertEquals("Digest of " + numbers[lane], SecretsKernel.hash(numbers[lane]), ShortSha256.hex(lanes, 4 * lane));
+        }
+    }
+
+    @Test
+    public void shouldScanRangesThatDoNotFillTheLastLanes() {
+        KernelSampler sampler = new KernelSampler("test");
+        for (int end = 100; end < 100 + ShortSha256.LANES; end++) {
+            Map<String, String> targets = new HashMap<>();
+            targets.put("first", SecretsKernel.hash(97));
+            targets.put("last", SecretsKernel.hash(end));
+            targets.put("outside", SecretsKernel.hash(end + 1));
+
+            Map<String, Integer> found = new HashMap<>();
+            SecretsKernel.scan(97, end, targets, found::put, sampler);
+
+            assertEquals(2, found.size());
+            assertEquals(Integer.valueOf(97), found.get("first"));
+            assertEquals(Integer.valueOf(end), found.get("last"));
+        }
+    }
+
+    @Test
+    public void shouldScanUpToTheLargestInt() {
+        Map<String, String> targets = new HashMap<>();
+        targets.put("max", SecretsKernel.hash(Integer.MAX_VALUE));
+        Map<String, Integer> found = new HashMap<>();
+        SecretsKernel.scan(Integer.MAX_VALUE - 5, Integer.MAX_VALUE, targets, found::put, new KernelSampler("test"));
+        assertEquals(Integer.valueOf(Integer.MAX_VALUE), found.get("max"));
+    }
+
+    @Test
+    public void shouldMineHashesWithThePrefix() {
+        KernelSampler sampler = new KernelSampler("test");
+        Random random = new Random(7);
+        for (int prefix : new int[]{-1, 1}) {
+            String hash = NonceKernel.findHash(42, prefix, 3, random, sampler);
+            assertTrue(hash, hash.startsWith(prefix == -1 ? "000" : "111"));
+        }
+    }
+}
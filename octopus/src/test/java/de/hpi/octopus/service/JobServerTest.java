@@ -0,0 +1,170 @@
+package de.hpi.octopus.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpServer;
+import com.typesafe.config.ConfigFactory;
+
+import de.hpi.octopus.actors.Master;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.javadsl.TestKit;
+
+/**
+ * This class contains tests for the requests that {@link JobServer} rejects before they reach the master and for the
+ * jobs that it abandons.
+ */
+public class JobServerTest {
+
+    private static final String SECRET = "secret;content;of;a;file";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ActorSystem system;
+    private HttpServer server;
+    private File inputDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        this.system = ActorSystem.create("test", ConfigFactory.parseString("akka.actor.provider = local").withFallback(ConfigFactory.defaultReference()));
+        this.inputDirectory = this.folder.newFolder("input");
+        Files.write(this.folder.newFile("outside.csv").toPath(), Arrays.asList("header", SECRET, "no separators here"));
+        Files.write(new File(this.inputDirectory, "malformed.csv").toPath(), Arrays.asList("header", "1;Name;hash;sequence", "no separators here"));
+        this.server = JobServer.start(this.system, "127.0.0.1", 0, this.inputDirectory);
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop(0);
+        TestKit.shutdownActorSystem(this.system);
+    }
+
+    private String post(String query, String body, int expectedStatus) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + this.server.getAddress().getPort() + JobServer.PATH + query);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(expectedStatus, connection.getResponseCode());
+        try (InputStream in = connection.getErrorStream(); Scanner scanner = new Scanner(in, "UTF-8")) {
+            return scanner.useDelimiter("\\A").next();
+        }
+    }
+
+    private String read(HttpURLConnection connection) throws IOException {
+        try (InputStream in = connection.getInputStream(); Scanner scanner = new Scanner(in, "UTF-8")) {
+            return scanner.useDelimiter("\\A").next();
+        }
+    }
+
+    /**
+     * Stands in for the master under its name and forwards all tasks to a probe.
+     */
+    static class Forwarder extends AbstractActor {
+
+        private final ActorRef target;
+
+        Forwarder(ActorRef target) {
+            this.target = target;
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .matchAny(message -> this.target.forward(message, this.getContext()))
+                    .build();
+        }
+    }
+
+    private static String path(String path) throws IOException {
+        return "?path=" + URLEncoder.encode(path, "UTF-8");
+    }
+
+    @Test
+    public void shouldRejectPathsOutsideTheInputDirectory() throws IOException {
+        for (String path : new String[] {"../outside.csv", new File(this.folder.getRoot(), "outside.csv").getPath(), "missing.csv", "."}) {
+            String response = this.post(path(path), "", 400);
+            assertEquals("Could not read the students file\n", response);
+        }
+    }
+
+    @Test
+    public void shouldRejectLinksOutOfTheInputDirectory() throws IOException {
+        File link = new File(this.inputDirectory, "link.csv");
+        Files.createSymbolicLink(link.toPath(), new File(this.folder.getRoot(), "outside.csv").toPath());
+        assertEquals("Could not read the students file\n", this.post(path("link.csv"), "", 400));
+    }
+
+    @Test
+    public void shouldNameOnlyTheNumberOfAMalformedLine() throws IOException {
+        assertEquals("Could not parse the students file: Malformed line 3\n", this.post(path("malformed.csv"), "", 400));
+
+        String response = this.post("", "header\n" + SECRET.replace(';', ',') + "\n", 400);
+        assertEquals("Could not parse the students file: Malformed line 2\n", response);
+        assertFalse(response.contains("secret"));
+    }
+
+    @Test
+    public void shouldCancelAFailedJobOnTheMaster() throws Exception {
+        TestKit master = new TestKit(this.system);
+        this.system.actorOf(Props.create(Forwarder.class, () -> new Forwarder(master.getRef())), Master.DEFAULT_NAME);
+
+        URL url = new URL("http://127.0.0.1:" + this.server.getAddress().getPort() + JobServer.PATH);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(("header\n1;Name;hash;sequence\n").getBytes(StandardCharsets.UTF_8));
+        }
+        CompletableFuture<String> response = CompletableFuture.supplyAsync(() -> {
+            try {
+                return this.read(connection);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        // An answer the job cannot use fails it like a timeout would
+        Master.SecretsTaskMessage task = master.expectMsgClass(Master.SecretsTaskMessage.class);
+        master.reply("not a list of record ids");
+
+        Master.CancelJobMessage cancel = master.expectMsgClass(Master.CancelJobMessage.class);
+        assertEquals(task.getJobId(), cancel.getJobId());
+        assertTrue(response.get(10, TimeUnit.SECONDS).contains("\"error\""));
+    }
+
+    @Test
+    public void shouldRejectAllPathsWithoutAnInputDirectory() throws IOException {
+        this.server.stop(0);
+        this.server = JobServer.start(this.system, "127.0.0.1", 0, null);
+        assertTrue(this.post(path(new File(this.inputDirectory, "malformed.csv").getPath()), "", 400).startsWith("Could not read"));
+    }
+}